@@ -30,11 +30,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.encog.mathutil.randomize.factory.BasicRandomFactory;
 import org.encog.mathutil.randomize.factory.RandomFactory;
 import org.encog.plugin.EncogPluginBase;
 import org.encog.plugin.EncogPluginLogging1;
+import org.encog.plugin.EncogPluginMetrics1;
 import org.encog.plugin.system.SystemActivationPlugin;
 import org.encog.plugin.system.SystemLoggingPlugin;
 import org.encog.plugin.system.SystemMethodsPlugin;
@@ -129,6 +131,13 @@ public final class Encog {
 	private final List<EncogPluginBase> plugins 
 		= new ArrayList<EncogPluginBase>();
 
+	/**
+	 * The metrics plugins, told about the progress of every training. This
+	 * list is read on each iteration, so it is safe to change while training.
+	 */
+	private final List<EncogPluginMetrics1> metricsPlugins 
+		= new CopyOnWriteArrayList<EncogPluginMetrics1>();
+
 	/**
 	 * Get the properties as a Map.
 	 * 
@@ -175,6 +184,9 @@ public final class Encog {
 					this.plugins.remove(this.loggingPlugin);
 				}
 				this.loggingPlugin = (EncogPluginLogging1) plugin;
+			} else if (plugin.getPluginServiceType() 
+					== EncogPluginBase.TYPE_METRICS) {
+				this.metricsPlugins.add((EncogPluginMetrics1) plugin);
 			}
 		}
 		// add to the plugins
@@ -197,6 +209,7 @@ public final class Encog {
 		}
 
 		// remove it
+		this.metricsPlugins.remove(plugin);
 		this.plugins.remove(plugin);
 	}
 
@@ -230,6 +243,14 @@ public final class Encog {
 	public Collection<EncogPluginBase> getPlugins() {
 		return this.plugins;
 	}
+
+	/**
+	 * Get a list of the registered metrics plugins.
+	 * @return The registered metrics plugins.
+	 */
+	public List<EncogPluginMetrics1> getMetricsPlugins() {
+		return this.metricsPlugins;
+	}
 	
 	/**
 	 * @return True, if running on OSX.
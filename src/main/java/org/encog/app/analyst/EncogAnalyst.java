@@ -52,6 +52,7 @@ import org.encog.app.analyst.commands.CmdReset;
 import org.encog.app.analyst.commands.CmdSegregate;
 import org.encog.app.analyst.commands.CmdSet;
 import org.encog.app.analyst.commands.CmdTrain;
+import org.encog.app.analyst.commands.FusedPipeline;
 import org.encog.app.analyst.script.AnalystScript;
 import org.encog.app.analyst.script.normalize.AnalystField;
 import org.encog.app.analyst.script.prop.ScriptProperties;
@@ -123,6 +124,23 @@ public class EncogAnalyst {
 	 */
 	private MLMethod method;
 
+	/**
+	 * True if consecutive file commands are fused into one pass.
+	 */
+	private boolean fusePipeline = true;
+
+	/**
+	 * True if fused commands still write the files that only link one of
+	 * them to the next.
+	 */
+	private boolean keepIntermediateFiles;
+
+	/**
+	 * The largest source file, in bytes, that a fused pipeline loads into
+	 * memory.
+	 */
+	private long pipelineMemoryLimit = FusedPipeline.DEFAULT_MEMORY_LIMIT;
+
 	/**
 	 * Construct the Encog analyst.
 	 */
@@ -481,7 +499,31 @@ public class EncogAnalyst {
 	public void executeTask(final AnalystTask task) {
 		final int total = task.getLines().size();
 		int current = 1;
-		for (String line : task.getLines()) {
+		for (int i = 0; i < total; i++) {
+			String line = task.getLines().get(i);
+
+			if (this.fusePipeline) {
+				final FusedPipeline pipeline = new FusedPipeline(this);
+				final int fused = pipeline.plan(task.getLines(), i);
+				if (fused > 0) {
+					EncogLogging.log(EncogLogging.LEVEL_DEBUG,
+							"Execute fused analyst lines: " 
+							+ pipeline.getStages());
+					reportCommandBegin(total, current, pipeline.getStages()
+							.toString());
+					final boolean canceled = pipeline.process();
+					reportCommandEnd(canceled);
+					setCurrentQuantTask(null);
+					current += fused;
+					i += fused - 1;
+
+					if (shouldStopAll()) {
+						break;
+					}
+					continue;
+				}
+			}
+
 			EncogLogging.log(EncogLogging.LEVEL_DEBUG, 
 					"Execute analyst line: " + line);
 			reportCommandBegin(total, current, line);
@@ -807,6 +849,69 @@ public class EncogAnalyst {
 		return false;
 	}
 
+	/**
+	 * Get a command.
+	 * @param name The name of the command, in upper case.
+	 * @return The command, or null if there is no such command.
+	 */
+	public Cmd getCommand(final String name) {
+		return this.commands.get(name);
+	}
+
+	/**
+	 * @return True if consecutive randomize, segregate, normalize and
+	 *         generate commands are fused into one pass over the data. The
+	 *         default is true.
+	 */
+	public boolean isFusePipeline() {
+		return this.fusePipeline;
+	}
+
+	/**
+	 * Set if consecutive randomize, segregate, normalize and generate
+	 * commands are fused into one pass over the data.
+	 * @param theFusePipeline True to fuse the commands.
+	 */
+	public void setFusePipeline(final boolean theFusePipeline) {
+		this.fusePipeline = theFusePipeline;
+	}
+
+	/**
+	 * @return True if fused commands still write the files that only link
+	 *         one of them to the next. The default is false.
+	 */
+	public boolean isKeepIntermediateFiles() {
+		return this.keepIntermediateFiles;
+	}
+
+	/**
+	 * Set if fused commands still write the files that only link one of
+	 * them to the next.
+	 * @param theKeepIntermediateFiles True to write intermediate files.
+	 */
+	public void setKeepIntermediateFiles(
+			final boolean theKeepIntermediateFiles) {
+		this.keepIntermediateFiles = theKeepIntermediateFiles;
+	}
+
+	/**
+	 * @return The largest source file, in bytes, that a fused pipeline
+	 *         loads into memory. A larger file is randomized by its own
+	 *         command.
+	 */
+	public long getPipelineMemoryLimit() {
+		return this.pipelineMemoryLimit;
+	}
+
+	/**
+	 * Set the largest source file, in bytes, that a fused pipeline loads
+	 * into memory.
+	 * @param thePipelineMemoryLimit The limit, in bytes.
+	 */
+	public void setPipelineMemoryLimit(final long thePipelineMemoryLimit) {
+		this.pipelineMemoryLimit = thePipelineMemoryLimit;
+	}
+
 	/**
 	 * @return the method
 	 */
@@ -34,6 +34,7 @@ import org.encog.app.analyst.script.AnalystClassItem;
 import org.encog.app.analyst.script.AnalystScript;
 import org.encog.app.analyst.script.DataField;
 import org.encog.app.analyst.script.prop.ScriptProperties;
+import org.encog.util.csv.CSVFormat;
 
 /**
  * This class represents a field that the Encog Analyst is in the process of
@@ -41,19 +42,32 @@ import org.encog.app.analyst.script.prop.ScriptProperties;
  * that will help the Encog analyst determine what type of field this is, and
  * how to normalize it.
  * 
+ * The mean and standard deviation are accumulated in a single pass, using
+ * Welford's method. Fields that analyzed different parts of a file can be
+ * combined with {@link #merge(AnalyzedField)}.
  */
 public class AnalyzedField extends DataField {
 
 	/**
-	 * Tge sum of all values of this field.
+	 * The number of instances of this field.
 	 */
-	private double total;
-	
+	private long instances;
+
 	/**
-	 * The number of instances of this field.
+	 * The number of numeric values seen.
 	 */
-	private int instances;
-	
+	private long count;
+
+	/**
+	 * The running mean of the numeric values.
+	 */
+	private double runningMean;
+
+	/**
+	 * The running sum of squared differences from the mean.
+	 */
+	private double m2;
+
 	/**
 	 * The total for standard deviation calculation.
 	 */
@@ -70,6 +84,17 @@ public class AnalyzedField extends DataField {
 	 */
 	private final AnalystScript script;
 
+	/**
+	 * The format used to parse numbers. Each field has its own copy, as
+	 * number formats can not be shared between threads.
+	 */
+	private final CSVFormat format;
+
+	/**
+	 * The most classes a field can have.
+	 */
+	private final int maxClassCount;
+
 	/**
 	 * Construct an analyzed field.
 	 * @param theScript The script being analyzed.
@@ -79,37 +104,38 @@ public class AnalyzedField extends DataField {
 		super(name);
 		this.instances = 0;
 		this.script = theScript;
+		final CSVFormat f = theScript.determineFormat();
+		this.format = new CSVFormat(f.getDecimal(), f.getSeparator());
+		this.maxClassCount = theScript.getProperties().getPropertyInt(
+				ScriptProperties.SETUP_CONFIG_MAX_CLASS_COUNT);
 	}
 
 	/**
 	 * Perform a pass one analysis of this field.
-	 * @param str The current value.
+	 * @param v The current value.
 	 */
 	public void analyze1(final String v) {
 
-		boolean accountedFor = false;
-		String str = v.trim();
+		final String str = v.trim();
 
-		if (str.trim().length() == 0 || str.equals("?")) {
+		if (str.length() == 0 || str.equals("?")) {
 			setComplete(false);
 			return;
 		}
 
 		this.instances++;
 
+		boolean numeric = false;
+		double d = 0;
+
 		if (isReal()) {
-			if (this.script.determineFormat().isValid(str)) {
-				final double d = this.script.determineFormat().parse(str);
-				setMax(Math.max(d, getMax()));
-				setMin(Math.min(d, getMin()));
-				this.total += d;
-				accountedFor = true;
+			if (this.format.isValid(str)) {
+				d = this.format.parse(str);
+				numeric = true;
 			} else {
 				setReal(false);
 				if (!isInteger()) {
-					setMax(0);
-					setMin(0);
-					setStandardDeviation(0);
+					clearNumeric();
 				}
 			}
 		}
@@ -117,21 +143,29 @@ public class AnalyzedField extends DataField {
 		if (isInteger()) {
 			try {
 				final int i = Integer.parseInt(str);
-				setMax(Math.max(i, getMax()));
-				setMin(Math.min(i, getMin()));
-				if (!accountedFor) {
-					this.total += i;
+				if (!numeric) {
+					d = i;
+					numeric = true;
 				}
 			} catch (final NumberFormatException ex) {
 				setInteger(false);
 				if (!isReal()) {
-					setMax(0);
-					setMin(0);
-					setStandardDeviation(0);
+					clearNumeric();
 				}
 			}
 		}
 
+		if (numeric && (isReal() || isInteger())) {
+			setMax(Math.max(d, getMax()));
+			setMin(Math.min(d, getMin()));
+
+			// Welford's method
+			this.count++;
+			final double delta = d - this.runningMean;
+			this.runningMean += delta / this.count;
+			this.m2 += delta * (d - this.runningMean);
+		}
+
 		if (isClass()) {
 			AnalystClassItem item;
 
@@ -141,10 +175,8 @@ public class AnalyzedField extends DataField {
 				this.classMap.put(str, item);
 
 				// do we have too many different classes?
-				final int max = this.script.getProperties().getPropertyInt(
-						ScriptProperties.SETUP_CONFIG_MAX_CLASS_COUNT);
-				if (this.classMap.size() > max) {
-					setClass(false);
+				if (this.classMap.size() > this.maxClassCount) {
+					clearClass();
 				}
 			} else {
 				item = this.classMap.get(str);
@@ -155,7 +187,76 @@ public class AnalyzedField extends DataField {
 	}
 
 	/**
-	 * Perform a pass two analysis of this field.
+	 * The field is not numeric, clear the numeric statistics.
+	 */
+	private void clearNumeric() {
+		setMax(0);
+		setMin(0);
+		setStandardDeviation(0);
+		this.count = 0;
+		this.runningMean = 0;
+		this.m2 = 0;
+	}
+
+	/**
+	 * The field is not a class, release the classes seen so far.
+	 */
+	private void clearClass() {
+		setClass(false);
+		this.classMap.clear();
+	}
+
+	/**
+	 * Merge the statistics of a field that analyzed another part of the same
+	 * file. The result is as if this field had also seen every value that
+	 * the other field saw, except that the order of class members is not
+	 * tracked.
+	 * @param other The other field.
+	 */
+	public void merge(final AnalyzedField other) {
+		this.instances += other.instances;
+		setComplete(isComplete() && other.isComplete());
+		setReal(isReal() && other.isReal());
+		setInteger(isInteger() && other.isInteger());
+
+		if (!isReal() && !isInteger()) {
+			clearNumeric();
+		} else if (other.count > 0) {
+			setMax(Math.max(getMax(), other.getMax()));
+			setMin(Math.min(getMin(), other.getMin()));
+
+			// Chan's parallel form of Welford's method
+			final long n = this.count + other.count;
+			final double delta = other.runningMean - this.runningMean;
+			this.runningMean += delta * other.count / n;
+			this.m2 += other.m2 + delta * delta * this.count * other.count
+					/ n;
+			this.count = n;
+		}
+
+		if (isClass() && other.isClass()) {
+			for (final AnalystClassItem item : other.classMap.values()) {
+				final AnalystClassItem current = this.classMap.get(item
+						.getCode());
+				if (current == null) {
+					this.classMap.put(item.getCode(), new AnalystClassItem(
+							item.getCode(), item.getName(), item.getCount()));
+				} else {
+					current.increaseCount(item.getCount());
+				}
+			}
+			if (this.classMap.size() > this.maxClassCount) {
+				clearClass();
+			}
+		} else if (isClass()) {
+			clearClass();
+		}
+	}
+
+	/**
+	 * Perform a pass two analysis of this field. This is optional, pass one
+	 * already determines the standard deviation. A second pass recalculates
+	 * it from the differences to the mean found by pass one.
 	 * @param str The current value.
 	 */
 	public void analyze2(final String str) {
@@ -165,28 +266,31 @@ public class AnalyzedField extends DataField {
 
 		if (isReal() || isInteger()) {
 			if (!str.equals("") && !str.equals("?")) {
-				final double d = this.script.determineFormat().parse(str);
+				final double d = this.format.parse(str);
 				this.devTotal += Math.pow((d - getMean()), 2);
 			}
 		}
 	}
 
 	/**
-	 * Complete pass 1.
+	 * Complete pass 1. This determines the mean and the standard deviation
+	 * of a numeric field.
 	 */
 	public void completePass1() {
 
 		this.devTotal = 0;
 
-		if (this.instances == 0) {
-			setMean(0);
+		if (isReal() || isInteger()) {
+			setMean(this.runningMean);
+			setStandardDeviation(Math.sqrt(this.m2 / this.count));
 		} else {
-			setMean(this.total / this.instances);
+			setMean(0);
+			setStandardDeviation(0);
 		}
 	}
 
 	/**
-	 * Complete pass 2.
+	 * Complete the optional pass 2.
 	 */
 	public void completePass2() {
 		setStandardDeviation(Math.sqrt(this.devTotal / this.instances));
@@ -253,8 +357,8 @@ public class AnalyzedField extends DataField {
 	public String toString() {
 		final StringBuilder result = new StringBuilder("[");
 		result.append(getClass().getSimpleName());
-		result.append(" total=");
-		result.append(this.total);
+		result.append(" mean=");
+		result.append(this.runningMean);
 		result.append(", instances=");
 		result.append(this.instances);
 		result.append("]");
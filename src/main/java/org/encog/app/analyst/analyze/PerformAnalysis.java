@@ -23,6 +23,13 @@
  */
 package org.encog.app.analyst.analyze;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.List;
 
 import org.encog.app.analyst.AnalystError;
@@ -34,15 +41,28 @@ import org.encog.app.analyst.script.DataField;
 import org.encog.app.analyst.script.prop.ScriptProperties;
 import org.encog.app.analyst.util.CSVHeaders;
 import org.encog.app.analyst.util.ConvertStringConst;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
+import org.encog.util.csv.CSVChunks;
 import org.encog.util.csv.CSVFormat;
+import org.encog.util.csv.CSVTokenizer;
 import org.encog.util.csv.ReadCSV;
+import org.encog.util.logging.EncogLogging;
 
 /**
  * This class is used to perform an analysis of a CSV file. This will help Encog
  * to determine how the fields should be normalized.
  * 
  */
-public class PerformAnalysis {
+public class PerformAnalysis implements MultiThreadable, ConcurrencyAware {
+
+	/**
+	 * The smallest part of a file, in bytes, that is given its own thread.
+	 */
+	public static final long MIN_CHUNK_SIZE = 1 << 20;
 
 	/**
 	 * The file name to analyze.
@@ -69,6 +89,17 @@ public class PerformAnalysis {
 	 */
 	private final AnalystScript script;
 
+	/**
+	 * The number of threads to use, 0 for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
 	/**
 	 * Construct the analysis object.
 	 * 
@@ -136,52 +167,232 @@ public class PerformAnalysis {
 	}
 
 	/**
-	 * Perform the analysis.
-	 * @param target The Encog analyst object to analyze.
+	 * Create a set of empty fields, with the same names as the fields being
+	 * analyzed.
+	 * 
+	 * @return The new fields.
 	 */
-	public void process(final EncogAnalyst target) {
-		int count = 0;
-		final CSVFormat csvFormat = ConvertStringConst
-				.convertToCSVFormat(this.format);
-		ReadCSV csv = new ReadCSV(this.filename, this.headers, csvFormat);
-		
-		// pass one, calculate the min/max
-		while (csv.next()) {
-			if (this.fields == null) {
-				generateFields(csv);
+	private AnalyzedField[] createAccumulators() {
+		final AnalyzedField[] result = new AnalyzedField[this.fields.length];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new AnalyzedField(this.script,
+					this.fields[i].getName());
+		}
+		return result;
+	}
+
+	/**
+	 * Analyze every row read by a tokenizer. A short line keeps the trailing
+	 * columns of the line before it. A column whose value is not known yet,
+	 * because no line has had it, is not analyzed. Those rows are only
+	 * counted, so the caller can analyze them once the value is known.
+	 * 
+	 * @param tok
+	 *            The tokenizer.
+	 * @param skipHeader
+	 *            True if the first line is a header.
+	 * @param accumulators
+	 *            The fields to analyze into.
+	 * @param values
+	 *            On entry, the values of the line before the first one read,
+	 *            null where not known. On return, the values of the last
+	 *            line.
+	 * @param carried
+	 *            Receives, for each column, the number of rows that were not
+	 *            analyzed because its value was not known.
+	 * @return The number of rows analyzed.
+	 */
+	private long analyzeRows(final CSVTokenizer tok, final boolean skipHeader,
+			final AnalyzedField[] accumulators, final String[] values,
+			final long[] carried) {
+		long rows = 0;
+
+		if (skipHeader) {
+			tok.nextLine();
+		}
+
+		while (tok.next()) {
+			final int n = Math.min(tok.getFieldCount(), values.length);
+			for (int i = 0; i < n; i++) {
+				values[i] = tok.getString(i);
 			}
 
-			for (int i = 0; i < csv.getColumnCount(); i++) {
-				this.fields[i].analyze1(csv.get(i));
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null) {
+					carried[i]++;
+				} else {
+					accumulators[i].analyze1(values[i]);
+				}
 			}
-			count++;
+			rows++;
+		}
+
+		tok.close();
+		return rows;
+	}
+
+	/**
+	 * Analyze the file in chunks, one for each thread. Each chunk is
+	 * analyzed into its own fields, which are then merged in file order.
+	 * A chunk does not know the values of the line before it, so its first
+	 * rows may leave short columns unanalyzed. These are analyzed during the
+	 * merge, with the values the previous chunk ended on, so the result is
+	 * the same as reading the file as a whole.
+	 * 
+	 * @param csvFormat
+	 *            The format of the file.
+	 * @return The number of rows analyzed.
+	 */
+	private long analyzeChunks(final CSVFormat csvFormat) {
+		final File file = new File(this.filename);
+
+		int chunks = this.threadCount;
+		if (chunks <= 0) {
+			chunks = Runtime.getRuntime().availableProcessors();
 		}
-		
-		if( count==0 ) {
-			throw new AnalystError("Can't analyze file, it is empty.");
+		chunks = (int) Math.min(chunks,
+				Math.max(1, file.length() / MIN_CHUNK_SIZE));
+
+		// a single chunk, or a charset that can not be split, reads the
+		// file as a whole
+		if (chunks == 1 || !CSVChunks.isSupported()) {
+			final AnalyzedField[] acc = createAccumulators();
+			final String[] values = new String[acc.length];
+			Arrays.fill(values, "");
+			try {
+				final long rows = analyzeRows(new CSVTokenizer(
+						new FileReader(file), csvFormat), this.headers, acc,
+						values, new long[acc.length]);
+				mergeAccumulators(acc);
+				return rows;
+			} catch (final IOException ex) {
+				throw new AnalystError(ex);
+			}
 		}
 
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "r");
+			final FileChannel in = raf.getChannel();
+			final long[] bounds = CSVChunks.split(in, chunks);
+			final int count = bounds.length - 1;
+			final AnalyzedField[][] acc = new AnalyzedField[count][];
+			final String[][] values = new String[count][this.fields.length];
+			final long[][] carried = new long[count][this.fields.length];
+			final long[] rows = new long[count];
+
+			// the first chunk starts the file, so has no line before it
+			Arrays.fill(values[0], "");
+
+			final TaskGroup group = getConcurrency().createTaskGroup();
+			for (int i = 0; i < count; i++) {
+				final int chunk = i;
+				acc[chunk] = createAccumulators();
+				getConcurrency().processTask(new EngineTask() {
+					public void run() {
+						// each chunk gets its own copy of the format
+						final CSVFormat f = new CSVFormat(csvFormat
+								.getDecimal(), csvFormat.getSeparator());
+						rows[chunk] = analyzeRows(new CSVTokenizer(
+								new InputStreamReader(CSVChunks.open(in,
+										bounds[chunk], bounds[chunk + 1])), f),
+								chunk == 0 && PerformAnalysis.this.headers,
+								acc[chunk], values[chunk], carried[chunk]);
+					}
+				}, group);
+			}
+			group.waitForComplete();
+			getConcurrency().checkError();
+
+			long total = 0;
+			for (int i = 0; i < count; i++) {
+				if (i > 0) {
+					mergeAccumulators(analyzeCarried(values[i - 1],
+							carried[i], values[i]));
+				}
+				mergeAccumulators(acc[i]);
+				total += rows[i];
+			}
+			return total;
+		} catch (final IOException ex) {
+			throw new AnalystError(ex);
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close();
+				} catch (final IOException ex) {
+					EncogLogging.log(ex);
+				}
+			}
+		}
+	}
 
-		for (final AnalyzedField field : this.fields) {
-			field.completePass1();
+	/**
+	 * Analyze the rows at the start of a chunk that took some of their values
+	 * from the line before the chunk.
+	 * 
+	 * @param previous
+	 *            The values of the last line of the previous chunk.
+	 * @param carried
+	 *            The number of rows of the chunk that used each previous
+	 *            value.
+	 * @param values
+	 *            The values of the last line of the chunk. Those that are
+	 *            still null are filled in from the previous chunk.
+	 * @return The analyzed fields.
+	 */
+	private AnalyzedField[] analyzeCarried(final String[] previous,
+			final long[] carried, final String[] values) {
+		final AnalyzedField[] result = createAccumulators();
+		for (int i = 0; i < result.length; i++) {
+			for (long j = 0; j < carried[i]; j++) {
+				result[i].analyze1(previous[i]);
+			}
+			if (values[i] == null) {
+				values[i] = previous[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Merge analyzed fields into the fields being analyzed.
+	 * 
+	 * @param accumulators
+	 *            The fields to merge.
+	 */
+	private void mergeAccumulators(final AnalyzedField[] accumulators) {
+		for (int i = 0; i < this.fields.length; i++) {
+			this.fields[i].merge(accumulators[i]);
 		}
+	}
 
-		csv.close();
+	/**
+	 * Perform the analysis.
+	 * @param target The Encog analyst object to analyze.
+	 */
+	public void process(final EncogAnalyst target) {
+		final CSVFormat csvFormat = ConvertStringConst
+				.convertToCSVFormat(this.format);
 
-		// pass two, standard deviation
-		csv = new ReadCSV(this.filename, this.headers, csvFormat);
-		while (csv.next()) {
-			for (int i = 0; i < csv.getColumnCount(); i++) {
-				this.fields[i].analyze2(csv.get(i));
+		// the first row determines the fields
+		final ReadCSV csv = new ReadCSV(this.filename, this.headers, csvFormat);
+		try {
+			if (!csv.next()) {
+				throw new AnalystError("Can't analyze file, it is empty.");
 			}
+			generateFields(csv);
+		} finally {
+			csv.close();
 		}
 
+		// a single pass, calculate the min/max, mean and standard deviation
+		analyzeChunks(csvFormat);
+
 		for (final AnalyzedField field : this.fields) {
-			field.completePass2();
+			field.completePass1();
 		}
 
-		csv.close();
-
 		String str = this.script.getProperties().getPropertyString(
 				ScriptProperties.SETUP_CONFIG_ALLOWED_CLASSES);
 		if (str == null) {
@@ -248,6 +459,41 @@ public class PerformAnalysis {
 
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toString() {
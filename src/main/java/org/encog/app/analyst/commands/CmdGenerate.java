@@ -65,7 +65,7 @@ public class CmdGenerate extends Cmd {
 	 *            The headers.
 	 * @return The indexes of the ideal fields.
 	 */
-	private int[] determineIdealFields(final CSVHeaders headerList) {
+	int[] determineIdealFields(final CSVHeaders headerList) {
 
 		int[] result;
 		final String type = getProp().getPropertyString(
@@ -106,7 +106,7 @@ public class CmdGenerate extends Cmd {
 	 *            The headers.
 	 * @return The indexes of the input fields.
 	 */
-	private int[] determineInputFields(final CSVHeaders headerList) {
+	int[] determineInputFields(final CSVHeaders headerList) {
 		final List<Integer> fields = new ArrayList<Integer>();
 
 		for (int currentIndex = 0; currentIndex < headerList.size(); currentIndex++) {
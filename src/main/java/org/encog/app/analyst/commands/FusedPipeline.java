@@ -0,0 +1,740 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.analyst.commands;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.encog.app.analyst.EncogAnalyst;
+import org.encog.app.analyst.csv.TimeSeriesUtil;
+import org.encog.app.analyst.csv.basic.BasicFile;
+import org.encog.app.analyst.csv.basic.LoadedRow;
+import org.encog.app.analyst.csv.normalize.AnalystNormalizeCSV;
+import org.encog.app.analyst.csv.segregate.SegregateCSV;
+import org.encog.app.analyst.csv.segregate.SegregateTargetPercent;
+import org.encog.app.analyst.script.AnalystScript;
+import org.encog.app.analyst.script.normalize.AnalystField;
+import org.encog.app.analyst.script.prop.ScriptProperties;
+import org.encog.app.analyst.script.segregate.AnalystSegregateTarget;
+import org.encog.app.analyst.util.AnalystReportBridge;
+import org.encog.app.analyst.util.CSVHeaders;
+import org.encog.app.quant.QuantError;
+import org.encog.mathutil.randomize.RangeRandomizer;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.buffer.BufferedMLDataSet;
+import org.encog.util.csv.CSVFormat;
+import org.encog.util.csv.NumberList;
+import org.encog.util.csv.ReadCSV;
+import org.encog.util.logging.EncogLogging;
+
+/**
+ * Runs consecutive randomize, segregate, normalize and generate commands as
+ * a single pass over the data. The source file is parsed once, and each row
+ * flows through the stages in memory, ending up in the binary training file.
+ * 
+ * A file that only links one fused stage to the next is not written, unless
+ * another part of the script reads it, or the analyst is set to keep
+ * intermediate files. Every other file is written just as the separate
+ * commands would write it.
+ */
+public class FusedPipeline extends BasicFile {
+
+	/**
+	 * The default size, in bytes, of the largest source file that is loaded
+	 * into memory.
+	 */
+	public static final long DEFAULT_MEMORY_LIMIT = 64L * 1024L * 1024L;
+
+	/**
+	 * The properties that name a file that a command reads.
+	 */
+	private static final String[] READ_PROPERTIES = {
+			ScriptProperties.PROCESS_CONFIG_SOURCE_FILE,
+			ScriptProperties.RANDOMIZE_CONFIG_SOURCE_FILE,
+			ScriptProperties.BALANCE_CONFIG_SOURCE_FILE,
+			ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE,
+			ScriptProperties.NORMALIZE_CONFIG_SOURCE_FILE,
+			ScriptProperties.GENERATE_CONFIG_SOURCE_FILE,
+			ScriptProperties.CLUSTER_CONFIG_SOURCE_FILE,
+			ScriptProperties.ML_CONFIG_TRAINING_FILE,
+			ScriptProperties.ML_CONFIG_EVAL_FILE };
+
+	/**
+	 * The analyst that owns the commands.
+	 */
+	private final EncogAnalyst analyst;
+
+	/**
+	 * The names of the planned commands, in order.
+	 */
+	private final List<String> stages = new ArrayList<String>();
+
+	/**
+	 * The segregation, if planned.
+	 */
+	private SegregateCSV segregate;
+
+	/**
+	 * The writer for each segregation target, null if it is not written.
+	 */
+	private PrintWriter[] segregateWriters;
+
+	/**
+	 * The segregation target that is normalized, -1 for none.
+	 */
+	private int normalizedTarget;
+
+	/**
+	 * The target that rows are currently segregated to.
+	 */
+	private int currentTarget;
+
+	/**
+	 * The headers of the rows that are normalized.
+	 */
+	private CSVHeaders normalizeHeaders;
+
+	/**
+	 * Used to process time series.
+	 */
+	private TimeSeriesUtil series;
+
+	/**
+	 * The number of normalized columns.
+	 */
+	private int outputLength;
+
+	/**
+	 * The writer for the normalized file, null if it is not written.
+	 */
+	private PrintWriter normalizeWriter;
+
+	/**
+	 * The binary training file, null if not generated.
+	 */
+	private BufferedMLDataSet generateBuffer;
+
+	/**
+	 * The normalized columns that are input.
+	 */
+	private int[] inputFields;
+
+	/**
+	 * The normalized columns that are ideal.
+	 */
+	private int[] idealFields;
+
+	/**
+	 * Construct the pipeline.
+	 * 
+	 * @param theAnalyst
+	 *            The analyst that owns the commands.
+	 */
+	public FusedPipeline(final EncogAnalyst theAnalyst) {
+		this.analyst = theAnalyst;
+		setScript(theAnalyst.getScript());
+	}
+
+	/**
+	 * Determine the name of the command on a task line.
+	 * 
+	 * @param line
+	 *            The task line.
+	 * @return The command name, in upper case.
+	 */
+	private static String commandName(final String line) {
+		final String line2 = line.trim();
+		final int index = line2.indexOf(' ');
+		if (index != -1) {
+			return line2.substring(0, index).toUpperCase();
+		}
+		return line2.toUpperCase();
+	}
+
+	/**
+	 * Plan the longest run of task lines, beginning at the specified line,
+	 * that can be fused. Only the analyst's own randomize, segregate,
+	 * normalize and generate commands are fused, and only when each one
+	 * reads a file written by the one before it.
+	 * 
+	 * @param lines
+	 *            The task lines.
+	 * @param start
+	 *            The first line to plan.
+	 * @return The number of lines fused, or zero if fewer than two lines can
+	 *         be fused.
+	 */
+	public int plan(final List<String> lines, final int start) {
+		this.stages.clear();
+
+		String last = null;
+		for (int i = start; i < lines.size(); i++) {
+			final String name = commandName(lines.get(i));
+			if (!isStock(name) || !follows(last, name)) {
+				break;
+			}
+			this.stages.add(name);
+			last = name;
+		}
+
+		if (this.stages.size() < 2) {
+			this.stages.clear();
+		}
+		return this.stages.size();
+	}
+
+	/**
+	 * Determine if a command name refers to one of the commands that can be
+	 * fused, and that the command has not been replaced.
+	 * 
+	 * @param name
+	 *            The command name.
+	 * @return True if the command can be fused.
+	 */
+	private boolean isStock(final String name) {
+		final Cmd cmd = this.analyst.getCommand(name);
+		if (cmd == null) {
+			return false;
+		}
+		return cmd.getClass() == CmdRandomize.class
+				|| cmd.getClass() == CmdSegregate.class
+				|| cmd.getClass() == CmdNormalize.class
+				|| cmd.getClass() == CmdGenerate.class;
+	}
+
+	/**
+	 * Determine if a command can follow the previous fused command.
+	 * 
+	 * @param last
+	 *            The previous command, null if this is the first.
+	 * @param name
+	 *            The command.
+	 * @return True if the command reads what the previous one writes.
+	 */
+	private boolean follows(final String last, final String name) {
+		if (CmdRandomize.COMMAND_NAME.equals(name)) {
+			if (last != null
+					|| !isDefined(ScriptProperties.RANDOMIZE_CONFIG_TARGET_FILE)
+					|| !isDefined(ScriptProperties.RANDOMIZE_CONFIG_SOURCE_FILE)) {
+				return false;
+			}
+			// the whole file is shuffled in memory
+			final File file = resolve(ScriptProperties.RANDOMIZE_CONFIG_SOURCE_FILE);
+			return file.length() <= this.analyst.getPipelineMemoryLimit();
+		} else if (CmdSegregate.COMMAND_NAME.equals(name)) {
+			if (!isDefined(ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE)
+					|| getScript().getSegregate().getSegregateTargets() == null) {
+				return false;
+			}
+			return last == null
+					|| (CmdRandomize.COMMAND_NAME.equals(last) && sameFile(
+							ScriptProperties.RANDOMIZE_CONFIG_TARGET_FILE,
+							ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE));
+		} else if (CmdNormalize.COMMAND_NAME.equals(name)) {
+			if (!isDefined(ScriptProperties.NORMALIZE_CONFIG_SOURCE_FILE)
+					|| !isDefined(ScriptProperties.NORMALIZE_CONFIG_TARGET_FILE)) {
+				return false;
+			}
+			if (last == null) {
+				return true;
+			} else if (CmdRandomize.COMMAND_NAME.equals(last)) {
+				return sameFile(ScriptProperties.RANDOMIZE_CONFIG_TARGET_FILE,
+						ScriptProperties.NORMALIZE_CONFIG_SOURCE_FILE);
+			} else if (CmdSegregate.COMMAND_NAME.equals(last)) {
+				return findNormalizedTarget() != -1;
+			}
+			return false;
+		} else if (CmdGenerate.COMMAND_NAME.equals(name)) {
+			return CmdNormalize.COMMAND_NAME.equals(last)
+					&& isDefined(ScriptProperties.GENERATE_CONFIG_TARGET_FILE)
+					&& isDefined(ScriptProperties.GENERATE_CONFIG_SOURCE_FILE)
+					&& sameFile(ScriptProperties.NORMALIZE_CONFIG_TARGET_FILE,
+							ScriptProperties.GENERATE_CONFIG_SOURCE_FILE);
+		}
+		return false;
+	}
+
+	/**
+	 * @return The index of the segregation target that is normalized, or -1
+	 *         if none.
+	 */
+	private int findNormalizedTarget() {
+		final File source = resolve(ScriptProperties.NORMALIZE_CONFIG_SOURCE_FILE);
+		final AnalystSegregateTarget[] targets = getScript().getSegregate()
+				.getSegregateTargets();
+		for (int i = 0; i < targets.length; i++) {
+			if (source.equals(resolveID(targets[i].getFile()))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param property
+	 *            The property.
+	 * @return True if the property names a defined file.
+	 */
+	private boolean isDefined(final String property) {
+		final String id = getScript().getProperties().getPropertyString(
+				property);
+		return id != null
+				&& getScript().getProperties().getFilenames().contains(id);
+	}
+
+	/**
+	 * Resolve the file named by a property.
+	 * 
+	 * @param property
+	 *            The property.
+	 * @return The file.
+	 */
+	private File resolve(final String property) {
+		return resolveID(getScript().getProperties().getPropertyString(
+				property));
+	}
+
+	/**
+	 * Resolve a file ID to an absolute file.
+	 * 
+	 * @param id
+	 *            The file ID.
+	 * @return The file.
+	 */
+	private File resolveID(final String id) {
+		return getScript().resolveFilename(id).getAbsoluteFile();
+	}
+
+	/**
+	 * @param property1
+	 *            The first property.
+	 * @param property2
+	 *            The second property.
+	 * @return True if both properties name the same file.
+	 */
+	private boolean sameFile(final String property1, final String property2) {
+		return resolve(property1).equals(resolve(property2));
+	}
+
+	/**
+	 * @param name
+	 *            The command name.
+	 * @return True if the command is part of the plan.
+	 */
+	private boolean isPlanned(final String name) {
+		return this.stages.contains(name);
+	}
+
+	/**
+	 * Determine if an intermediate file must still be written, because the
+	 * analyst keeps intermediate files, or a command outside this pipeline
+	 * reads it.
+	 * 
+	 * @param id
+	 *            The file ID.
+	 * @return True if the file must be written.
+	 */
+	private boolean isNeeded(final String id) {
+		if (this.analyst.isKeepIntermediateFiles()) {
+			return true;
+		}
+
+		final File file = resolveID(id);
+		for (final String property : READ_PROPERTIES) {
+			if ((property.equals(ScriptProperties.RANDOMIZE_CONFIG_SOURCE_FILE) 
+					&& isPlanned(CmdRandomize.COMMAND_NAME))
+					|| (property.equals(ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE) 
+							&& isPlanned(CmdSegregate.COMMAND_NAME))
+					|| (property.equals(ScriptProperties.NORMALIZE_CONFIG_SOURCE_FILE) 
+							&& isPlanned(CmdNormalize.COMMAND_NAME))
+					|| (property.equals(ScriptProperties.GENERATE_CONFIG_SOURCE_FILE) 
+							&& isPlanned(CmdGenerate.COMMAND_NAME))) {
+				continue;
+			}
+			if (isDefined(property) && file.equals(resolve(property))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The planned command names, in order.
+	 */
+	public List<String> getStages() {
+		return this.stages;
+	}
+
+	/**
+	 * Run the planned commands.
+	 * 
+	 * @return True if processing should stop.
+	 */
+	public boolean process() {
+		final AnalystScript script = getScript();
+		final String first = this.stages.get(0);
+		final String sourceID;
+		if (CmdRandomize.COMMAND_NAME.equals(first)) {
+			sourceID = script.getProperties().getPropertyString(
+					ScriptProperties.RANDOMIZE_CONFIG_SOURCE_FILE);
+		} else if (CmdSegregate.COMMAND_NAME.equals(first)) {
+			sourceID = script.getProperties().getPropertyString(
+					ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE);
+		} else {
+			sourceID = script.getProperties().getPropertyString(
+					ScriptProperties.NORMALIZE_CONFIG_SOURCE_FILE);
+		}
+
+		EncogLogging.log(EncogLogging.LEVEL_DEBUG, "Beginning fused pipeline: "
+				+ this.stages);
+		EncogLogging.log(EncogLogging.LEVEL_DEBUG, "source file:" + sourceID);
+
+		final File sourceFile = script.resolveFilename(sourceID);
+		final CSVFormat format = script.determineFormat();
+		setInputFilename(sourceFile);
+		setExpectInputHeaders(script.expectInputHeaders(sourceID));
+		setInputFormat(format);
+		setAnalyzed(true);
+		setReport(new AnalystReportBridge(this.analyst));
+
+		this.analyst.setCurrentQuantTask(this);
+		try {
+			// randomizing, or segregating a small file, needs all rows at
+			// once, everything else is streamed
+			List<LoadedRow> rows = null;
+			if (isPlanned(CmdRandomize.COMMAND_NAME)
+					|| (isPlanned(CmdSegregate.COMMAND_NAME) && sourceFile
+							.length() <= this.analyst.getPipelineMemoryLimit())) {
+				rows = loadRows();
+			} else if (isPlanned(CmdSegregate.COMMAND_NAME)) {
+				performBasicCounts();
+			}
+
+			if (isPlanned(CmdRandomize.COMMAND_NAME) && !shouldStop()) {
+				shuffle(rows);
+			}
+
+			prepareStages(sourceFile, format);
+
+			resetStatus();
+			if (rows != null) {
+				for (int i = 0; i < rows.size() && !shouldStop(); i++) {
+					updateStatus(false);
+					processRow(rows.get(i));
+					rows.set(i, null);
+				}
+			} else {
+				final ReadCSV csv = new ReadCSV(sourceFile.toString(),
+						isExpectInputHeaders(), format);
+				try {
+					while (csv.next() && !shouldStop()) {
+						updateStatus(false);
+						processRow(new LoadedRow(csv));
+					}
+				} finally {
+					csv.close();
+				}
+			}
+			reportDone(false);
+		} finally {
+			closeStages();
+			this.analyst.setCurrentQuantTask(null);
+		}
+
+		return shouldStop();
+	}
+
+	/**
+	 * Load every row of the source file into memory.
+	 * 
+	 * @return The rows.
+	 */
+	private List<LoadedRow> loadRows() {
+		final List<LoadedRow> result = new ArrayList<LoadedRow>();
+		resetStatus();
+		final ReadCSV csv = new ReadCSV(getInputFilename().toString(),
+				isExpectInputHeaders(), getFormat());
+		try {
+			while (csv.next() && !shouldStop()) {
+				updateStatus(true);
+				result.add(new LoadedRow(csv));
+			}
+			setRecordCount(result.size());
+			setColumnCount(csv.getColumnCount());
+			readHeaders(csv);
+		} finally {
+			csv.close();
+		}
+		reportDone(true);
+		return result;
+	}
+
+	/**
+	 * Shuffle the rows, and write them to the randomize target if it is
+	 * needed.
+	 * 
+	 * @param rows
+	 *            The rows to shuffle.
+	 */
+	private void shuffle(final List<LoadedRow> rows) {
+		// Fisher-Yates
+		for (int i = rows.size() - 1; i > 0; i--) {
+			final int j = RangeRandomizer.randomInt(0, i);
+			final LoadedRow temp = rows.get(i);
+			rows.set(i, rows.get(j));
+			rows.set(j, temp);
+		}
+
+		final String targetID = getScript().getProperties().getPropertyString(
+				ScriptProperties.RANDOMIZE_CONFIG_TARGET_FILE);
+		getScript().markGenerated(targetID);
+		if (isNeeded(targetID)) {
+			final PrintWriter tw = prepareOutputFile(getScript()
+					.resolveFilename(targetID));
+			try {
+				for (final LoadedRow row : rows) {
+					writeRow(tw, row);
+				}
+			} finally {
+				tw.close();
+			}
+		}
+	}
+
+	/**
+	 * Set up the segregate, normalize and generate stages, and open their
+	 * output files.
+	 * 
+	 * @param sourceFile
+	 *            The source file.
+	 * @param format
+	 *            The format of the files.
+	 */
+	private void prepareStages(final File sourceFile, final CSVFormat format) {
+		final AnalystScript script = getScript();
+		final ScriptProperties prop = script.getProperties();
+
+		this.normalizedTarget = -1;
+		if (isPlanned(CmdSegregate.COMMAND_NAME)) {
+			if (isPlanned(CmdNormalize.COMMAND_NAME)) {
+				this.normalizedTarget = findNormalizedTarget();
+			}
+
+			final AnalystSegregateTarget[] targets = script.getSegregate()
+					.getSegregateTargets();
+			this.segregate = new SegregateCSV();
+			this.segregate.setScript(script);
+			for (final AnalystSegregateTarget target : targets) {
+				this.segregate.getTargets().add(
+						new SegregateTargetPercent(script
+								.resolveFilename(target.getFile()), target
+								.getPercent()));
+				script.markGenerated(target.getFile());
+			}
+			this.segregate.analyze(getRecordCount());
+			this.segregate.validate();
+
+			this.segregateWriters = new PrintWriter[targets.length];
+			for (int i = 0; i < targets.length; i++) {
+				if (i != this.normalizedTarget
+						|| isNeeded(targets[i].getFile())) {
+					this.segregateWriters[i] = prepareOutputFile(script
+							.resolveFilename(targets[i].getFile()));
+				}
+			}
+			this.currentTarget = 0;
+		}
+
+		if (isPlanned(CmdNormalize.COMMAND_NAME)) {
+			if (this.stages.get(0).equals(CmdNormalize.COMMAND_NAME)) {
+				this.normalizeHeaders = new CSVHeaders(sourceFile,
+						isExpectInputHeaders(), format);
+			} else {
+				this.normalizeHeaders = new CSVHeaders(getInputHeadings());
+			}
+
+			for (final AnalystField field : script.getNormalize()
+					.getNormalizedFields()) {
+				field.init();
+			}
+			this.series = new TimeSeriesUtil(this.analyst, true,
+					this.normalizeHeaders.getHeaders());
+			this.outputLength = this.analyst.determineTotalColumns();
+
+			final String targetID = prop
+					.getPropertyString(ScriptProperties.NORMALIZE_CONFIG_TARGET_FILE);
+			script.markGenerated(targetID);
+			if (!isPlanned(CmdGenerate.COMMAND_NAME) || isNeeded(targetID)) {
+				this.normalizeWriter = prepareNormalizedFile(script
+						.resolveFilename(targetID));
+			}
+		}
+
+		if (isPlanned(CmdGenerate.COMMAND_NAME)) {
+			final String targetID = prop
+					.getPropertyString(ScriptProperties.GENERATE_CONFIG_TARGET_FILE);
+			script.markGenerated(targetID);
+
+			final CmdGenerate generate = new CmdGenerate(this.analyst);
+			final CSVHeaders headerList = new CSVHeaders(
+					AnalystNormalizeCSV.extractHeadings(this.analyst));
+			this.inputFields = generate.determineInputFields(headerList);
+			this.idealFields = generate.determineIdealFields(headerList);
+
+			final File targetFile = script.resolveFilename(targetID);
+			targetFile.delete();
+			this.generateBuffer = new BufferedMLDataSet(targetFile);
+			this.generateBuffer.beginLoad(this.inputFields.length,
+					this.idealFields.length);
+		}
+	}
+
+	/**
+	 * Open the normalized file, and write the normalized headings.
+	 * 
+	 * @param file
+	 *            The normalized file.
+	 * @return The output stream.
+	 */
+	private PrintWriter prepareNormalizedFile(final File file) {
+		try {
+			final PrintWriter tw = new PrintWriter(new FileWriter(file));
+			final StringBuilder line = new StringBuilder();
+			for (final String heading : AnalystNormalizeCSV
+					.extractHeadings(this.analyst)) {
+				BasicFile.appendSeparator(line, getFormat());
+				line.append('\"');
+				line.append(heading);
+				line.append('\"');
+			}
+			tw.println(line.toString());
+			return tw;
+		} catch (final IOException e) {
+			throw new QuantError(e);
+		}
+	}
+
+	/**
+	 * Pass one row through the segregate and normalize stages.
+	 * 
+	 * @param row
+	 *            The row.
+	 */
+	private void processRow(final LoadedRow row) {
+		if (this.segregate != null) {
+			final List<SegregateTargetPercent> targets = this.segregate
+					.getTargets();
+			while (this.currentTarget < targets.size()
+					&& targets.get(this.currentTarget).getNumberRemaining() <= 0) {
+				this.currentTarget++;
+			}
+			if (this.currentTarget == targets.size()) {
+				return;
+			}
+
+			final SegregateTargetPercent target = targets
+					.get(this.currentTarget);
+			target.setNumberRemaining(target.getNumberRemaining() - 1);
+			if (this.segregateWriters[this.currentTarget] != null) {
+				writeRow(this.segregateWriters[this.currentTarget], row);
+			}
+			if (this.currentTarget != this.normalizedTarget) {
+				return;
+			}
+		}
+
+		if (this.normalizeHeaders != null) {
+			normalizeRow(row);
+		}
+	}
+
+	/**
+	 * Normalize one row, and pass it to the normalized file and the binary
+	 * training file.
+	 * 
+	 * @param row
+	 *            The row.
+	 */
+	private void normalizeRow(final LoadedRow row) {
+		double[] output = AnalystNormalizeCSV.extractFields(this.analyst,
+				this.normalizeHeaders, row.getData(), getFormat(),
+				this.outputLength, false);
+
+		if (output != null && this.series.getTotalDepth() > 1) {
+			output = this.series.process(output);
+		}
+
+		if (output == null) {
+			return;
+		}
+
+		if (this.normalizeWriter != null) {
+			final StringBuilder line = new StringBuilder();
+			NumberList.toList(getFormat(), line, output);
+			this.normalizeWriter.println(line);
+		}
+
+		if (this.generateBuffer != null) {
+			final BasicMLData inputData = new BasicMLData(
+					this.inputFields.length);
+			final BasicMLData idealData = new BasicMLData(
+					this.idealFields.length);
+			for (int i = 0; i < this.inputFields.length; i++) {
+				inputData.setData(i, output[this.inputFields[i]]);
+			}
+			for (int i = 0; i < this.idealFields.length; i++) {
+				idealData.setData(i, output[this.idealFields[i]]);
+			}
+			this.generateBuffer.add(inputData, idealData);
+		}
+	}
+
+	/**
+	 * Close every output file.
+	 */
+	private void closeStages() {
+		if (this.segregateWriters != null) {
+			for (final PrintWriter tw : this.segregateWriters) {
+				if (tw != null) {
+					tw.close();
+				}
+			}
+			this.segregateWriters = null;
+		}
+
+		if (this.normalizeWriter != null) {
+			this.normalizeWriter.close();
+			this.normalizeWriter = null;
+		}
+
+		if (this.generateBuffer != null) {
+			this.generateBuffer.endLoad();
+			this.generateBuffer = null;
+		}
+	}
+}
@@ -32,6 +32,7 @@ import org.encog.app.analyst.EncogAnalyst;
 import org.encog.app.analyst.csv.basic.BasicFile;
 import org.encog.app.analyst.csv.basic.LoadedRow;
 import org.encog.app.analyst.csv.normalize.AnalystNormalizeCSV;
+import org.encog.app.analyst.script.normalize.AnalystField;
 import org.encog.app.analyst.util.CSVHeaders;
 import org.encog.app.quant.QuantError;
 import org.encog.ml.MLCluster;
@@ -92,6 +93,11 @@ public class AnalystClusterCSV extends BasicFile {
 
 		this.analystHeaders = new CSVHeaders(this.getInputHeadings());
 
+		for (final AnalystField field : analyst.getScript().getNormalize()
+				.getNormalizedFields()) {
+			field.init();
+		}
+
 		while (csv.next() && !shouldStop()) {
 			updateStatus(true);
 			final double[] inputArray = AnalystNormalizeCSV.extractFields(
@@ -27,6 +27,13 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 
 import org.encog.app.analyst.EncogAnalyst;
 import org.encog.app.analyst.csv.basic.BasicFile;
@@ -41,15 +48,27 @@ import org.encog.ml.MLRegression;
 import org.encog.ml.bayesian.BayesianNetwork;
 import org.encog.ml.data.MLData;
 import org.encog.ml.data.basic.BasicMLData;
+import org.encog.util.Format;
 import org.encog.util.arrayutil.ClassItem;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
 import org.encog.util.csv.CSVFormat;
 import org.encog.util.csv.ReadCSV;
+import org.encog.util.obj.ObjectCloner;
 
 /**
  * Used by the analyst to evaluate a CSV file.
  * 
  */
-public class AnalystEvaluateCSV extends BasicFile {
+public class AnalystEvaluateCSV extends BasicFile implements
+		MultiThreadable, ConcurrencyAware {
+
+	/**
+	 * The default number of rows evaluated at a time by one worker.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
 
 	/**
 	 * The analyst to use.
@@ -76,6 +95,27 @@ public class AnalystEvaluateCSV extends BasicFile {
 	 */
 	private CSVHeaders analystHeaders;
 
+	/**
+	 * The number of threads, 0 for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
+	/**
+	 * The number of rows evaluated at a time by one worker.
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * The number of rows evaluated per second by the last call to process.
+	 */
+	private double rowsPerSecond;
+
 	/**
 	 *  Analyze the data. This counts the records and prepares the data to be
 	 * processed.
@@ -173,8 +213,6 @@ public class AnalystEvaluateCSV extends BasicFile {
 		final ReadCSV csv = new ReadCSV(getInputFilename().toString(),
 				isExpectInputHeaders(), getFormat());
 
-		MLData output = null;
-		
 		for (final AnalystField field : analyst.getScript().getNormalize()
 				.getNormalizedFields()) {
 			field.init();
@@ -185,73 +223,305 @@ public class AnalystEvaluateCSV extends BasicFile {
 		final PrintWriter tw = this.prepareOutputFile(method, outputFile, this.analyst
 				.getScript().getNormalize().countActiveFields() - 1, 1);
 
+		int workers = this.threadCount;
+		if (workers <= 0) {
+			workers = Runtime.getRuntime().availableProcessors();
+		}
+
+		final long started = System.currentTimeMillis();
+		long rows = 0;
+
 		resetStatus();
-		while (csv.next()) {
-			updateStatus(false);
-			final LoadedRow row = new LoadedRow(csv, this.outputColumns);
-
-			double[] inputArray = AnalystNormalizeCSV.extractFields(analyst,
-					this.analystHeaders, csv, outputLength, true);
-			if (this.series.getTotalDepth() > 1) {
-				inputArray = this.series.process(inputArray);
-			}
+		try {
+			// rows depend on each other in a time series, and the method
+			// must be copied for each worker
+			if (workers > 1 && this.series.getTotalDepth() <= 1
+					&& getRecordCount() > this.batchSize
+					&& method instanceof Serializable
+					&& !(method instanceof BayesianNetwork)) {
+				rows = processBatches(csv, tw, method, workers, outputLength);
+			} else {
+				while (csv.next() && !shouldStop()) {
+					updateStatus(false);
+					final LoadedRow row = new LoadedRow(csv, this.outputColumns);
 
-			if (inputArray != null) {
-				final MLData input = new BasicMLData(inputArray);
-
-				// evaluation data
-				if ((method instanceof MLClassification)
-						&& !(method instanceof MLRegression)) {
-					// classification only?
-					output = new BasicMLData(1);
-					output.setData(0,
-							((MLClassification) method).classify(input));
-				} else {
-					// regression
-					output = ((MLRegression) method).compute(input);
-				}
+					double[] inputArray = AnalystNormalizeCSV.extractFields(
+							analyst, this.analystHeaders, csv, outputLength,
+							true);
+					if (this.series.getTotalDepth() > 1) {
+						inputArray = this.series.process(inputArray);
+					}
 
-				// skip file data
-				int index = this.fileColumns;
-				int outputIndex = 0;
-				
-				String otherOutput = "";
-				if( method instanceof BayesianNetwork ) {
-					otherOutput = ((BayesianNetwork)method).getClassificationTargetEvent().getLabel();
+					if (inputArray != null) {
+						evaluateRow(method, inputArray, row, getFormat());
+					}
+
+					writeRow(tw, row);
+					rows++;
 				}
+			}
+		} finally {
+			tw.close();
+			csv.close();
+		}
 
-				// display output
-				for (final AnalystField field : analyst.getScript()
-						.getNormalize().getNormalizedFields()) {
-					if (this.analystHeaders.find(field.getName()) != -1) {
-
-						if (field.isOutput() || field.getName().equals(otherOutput)) {
-							if (field.isClassify()) {
-								// classification
-								final ClassItem cls = field.determineClass(
-										outputIndex, output.getData());
-								outputIndex += field.getColumnsNeeded();
-								if (cls == null) {
-									row.getData()[index++] = "?Unknown?";
-								} else {
-									row.getData()[index++] = cls.getName();
-								}
-							} else {
-								// regression
-								double n = output.getData(outputIndex++);
-								n = field.deNormalize(n);
-								row.getData()[index++] = getFormat()
-										.format(n, getPrecision());
-							}
+		final long elapsed = Math.max(1, System.currentTimeMillis() - started);
+		this.rowsPerSecond = rows * 1000.0 / elapsed;
+		reportDone("Evaluated " + Format.formatInteger((int) rows)
+				+ " rows, " + Format.formatInteger((int) this.rowsPerSecond)
+				+ " rows/sec");
+	}
+
+	/**
+	 * Evaluate blocks of rows in parallel. This thread reads blocks of rows,
+	 * the workers normalize and evaluate them, each with its own copy of the
+	 * method, and this thread then writes the blocks in their original
+	 * order.
+	 * @param csv The file to read.
+	 * @param tw The file to write.
+	 * @param method The method to evaluate.
+	 * @param workers The number of workers.
+	 * @param outputLength The number of normalized input columns.
+	 * @return The number of rows evaluated.
+	 */
+	private long processBatches(final ReadCSV csv, final PrintWriter tw,
+			final MLMethod method, final int workers, final int outputLength) {
+		final BlockingQueue<MLMethod> methods 
+			= new ArrayBlockingQueue<MLMethod>(workers);
+		for (int i = 0; i < workers; i++) {
+			methods.add((MLMethod) ObjectCloner.deepCopy(method));
+		}
+
+		final LinkedList<Batch> pending = new LinkedList<Batch>();
+		final int maxPending = workers * 2;
+		long rows = 0;
+
+		while (!shouldStop()) {
+			final Batch batch = new Batch(this.batchSize);
+			while (batch.rows.size() < this.batchSize && csv.next()) {
+				updateStatus(false);
+				batch.rows.add(new LoadedRow(csv, this.outputColumns));
+			}
+
+			if (batch.rows.size() == 0) {
+				break;
+			}
+			rows += batch.rows.size();
+
+			getConcurrency().processTask(new EngineTask() {
+				public void run() {
+					try {
+						final MLMethod m = methods.take();
+						try {
+							evaluateBatch(m, batch, outputLength);
+						} finally {
+							methods.put(m);
 						}
+					} catch (final InterruptedException ex) {
+						throw new QuantError(ex);
+					} finally {
+						batch.done.countDown();
 					}
 				}
+			});
+			pending.add(batch);
+
+			// write the finished blocks at the front of the queue
+			while (!pending.isEmpty()
+					&& (pending.size() > maxPending || pending.getFirst().done
+							.getCount() == 0)) {
+				writeBatch(tw, pending.removeFirst());
+			}
+		}
+
+		while (!pending.isEmpty()) {
+			writeBatch(tw, pending.removeFirst());
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Normalize and evaluate every row in a block.
+	 * @param method The method to use, only used by this thread.
+	 * @param batch The block of rows.
+	 * @param outputLength The number of normalized input columns.
+	 */
+	private void evaluateBatch(final MLMethod method, final Batch batch,
+			final int outputLength) {
+		// number formats can not be shared between threads
+		final CSVFormat format = new CSVFormat(getFormat().getDecimal(),
+				getFormat().getSeparator());
+		for (final LoadedRow row : batch.rows) {
+			final double[] inputArray = AnalystNormalizeCSV.extractFields(
+					this.analyst, this.analystHeaders, row.getData(), format,
+					outputLength, true);
+			if (inputArray != null) {
+				evaluateRow(method, inputArray, row, format);
 			}
+		}
+	}
 
+	/**
+	 * Wait for a block to be evaluated, and write it.
+	 * @param tw The file to write.
+	 * @param batch The block of rows.
+	 */
+	private void writeBatch(final PrintWriter tw, final Batch batch) {
+		try {
+			batch.done.await();
+		} catch (final InterruptedException ex) {
+			throw new QuantError(ex);
+		}
+		getConcurrency().checkError();
+
+		for (final LoadedRow row : batch.rows) {
 			writeRow(tw, row);
 		}
-		reportDone(false);
-		tw.close();
-		csv.close();
+	}
+
+	/**
+	 * Evaluate one row, and place the output in the row.
+	 * @param method The method to use.
+	 * @param inputArray The normalized input.
+	 * @param row The row, with space for the output columns.
+	 * @param format The format used to write numbers.
+	 */
+	private void evaluateRow(final MLMethod method, final double[] inputArray,
+			final LoadedRow row, final CSVFormat format) {
+		final MLData input = new BasicMLData(inputArray);
+		MLData output;
+
+		// evaluation data
+		if ((method instanceof MLClassification)
+				&& !(method instanceof MLRegression)) {
+			// classification only?
+			output = new BasicMLData(1);
+			output.setData(0,
+					((MLClassification) method).classify(input));
+		} else {
+			// regression
+			output = ((MLRegression) method).compute(input);
+		}
+
+		// skip file data
+		int index = this.fileColumns;
+		int outputIndex = 0;
+		
+		String otherOutput = "";
+		if( method instanceof BayesianNetwork ) {
+			otherOutput = ((BayesianNetwork)method).getClassificationTargetEvent().getLabel();
+		}
+
+		// display output
+		for (final AnalystField field : analyst.getScript()
+				.getNormalize().getNormalizedFields()) {
+			if (this.analystHeaders.find(field.getName()) != -1) {
+
+				if (field.isOutput() || field.getName().equals(otherOutput)) {
+					if (field.isClassify()) {
+						// classification
+						final ClassItem cls = field.determineClass(
+								outputIndex, output.getData());
+						outputIndex += field.getColumnsNeeded();
+						if (cls == null) {
+							row.getData()[index++] = "?Unknown?";
+						} else {
+							row.getData()[index++] = cls.getName();
+						}
+					} else {
+						// regression
+						double n = output.getData(outputIndex++);
+						n = field.deNormalize(n);
+						row.getData()[index++] = format
+								.format(n, getPrecision());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The number of rows evaluated at a time by one worker.
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the number of rows evaluated at a time by one worker.
+	 * @param theBatchSize The number of rows.
+	 */
+	public void setBatchSize(final int theBatchSize) {
+		this.batchSize = Math.max(1, theBatchSize);
+	}
+
+	/**
+	 * @return The number of rows evaluated per second by the last call to
+	 *         process.
+	 */
+	public double getRowsPerSecond() {
+		return this.rowsPerSecond;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * Set the number of threads. 0 uses one per processor, 1 evaluates
+	 * every row on the calling thread.
+	 * @param numThreads The number of threads.
+	 */
+	@Override
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
+	/**
+	 * A block of rows that is evaluated by one worker.
+	 */
+	private static class Batch {
+
+		/**
+		 * The rows.
+		 */
+		private final List<LoadedRow> rows;
+
+		/**
+		 * Released once the rows have been evaluated.
+		 */
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/**
+		 * Construct the block.
+		 * @param size The number of rows expected.
+		 */
+		public Batch(final int size) {
+			this.rows = new ArrayList<LoadedRow>(size);
+		}
 	}
 }
@@ -0,0 +1,442 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.analyst.csv;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.encog.app.analyst.AnalystError;
+import org.encog.app.analyst.EncogAnalyst;
+import org.encog.app.analyst.missing.HandleMissingValues;
+import org.encog.app.analyst.script.normalize.AnalystField;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.util.arrayutil.NormalizationAction;
+import org.encog.util.csv.CSVFormat;
+
+/**
+ * Applies the normalization and time-series window of an analyst script to
+ * one event at a time, for online scoring. The normalize command and
+ * TimeSeriesUtil work on a file that must already exist in full; this class
+ * produces the same rows from events as they arrive.
+ * 
+ * The script is compiled once, when the transform is constructed. Each event
+ * is normalized into a row of a ring that holds just enough rows for the lag
+ * and lead depth of the script. Once the ring is full, the input (and, if the
+ * output fields are present in the events, the ideal) of the current window
+ * can be copied into an array, or fed straight to a network. Nothing is
+ * allocated per event, other than the arrays returned when encoding class
+ * fields.
+ */
+public class AnalystStreamTransform {
+
+	/**
+	 * The analyst that holds the script.
+	 */
+	private final EncogAnalyst analyst;
+
+	/**
+	 * The fields that are read from each event, in script order.
+	 */
+	private final AnalystField[] fields;
+
+	/**
+	 * The event column that each field is read from.
+	 */
+	private final int[] columns;
+
+	/**
+	 * The ring displacement, from the newest event, of each field's time
+	 * slice.
+	 */
+	private final int[] displacements;
+
+	/**
+	 * The normalized events. One more row is held than the window needs, so
+	 * that an event can be normalized without disturbing the window, in case
+	 * it is skipped for a missing value.
+	 */
+	private final double[][] ring;
+
+	/**
+	 * The number of events in a window.
+	 */
+	private final int totalDepth;
+
+	/**
+	 * The size of the input produced.
+	 */
+	private final int inputSize;
+
+	/**
+	 * The size of the ideal produced.
+	 */
+	private final int idealSize;
+
+	/**
+	 * True, if the events contain every output field.
+	 */
+	private final boolean idealAvailable;
+
+	/**
+	 * The input array passed to a network.
+	 */
+	private final double[] input;
+
+	/**
+	 * The ring index of the newest event.
+	 */
+	private int head;
+
+	/**
+	 * The number of events in the ring, up to the window depth.
+	 */
+	private int count;
+
+	/**
+	 * The format used to parse numbers.
+	 */
+	private CSVFormat format = CSVFormat.ENGLISH;
+
+	/**
+	 * Compile the normalization of the analyst's script.
+	 * 
+	 * @param theAnalyst
+	 *            The analyst that holds the script.
+	 * @param headings
+	 *            The names of the columns of the events that will be added.
+	 *            Every input field must be present, output fields are
+	 *            optional.
+	 */
+	public AnalystStreamTransform(final EncogAnalyst theAnalyst,
+			final String[] headings) {
+		this.analyst = theAnalyst;
+
+		final Map<String, Integer> headingMap = new HashMap<String, Integer>();
+		for (int i = 0; i < headings.length; i++) {
+			headingMap.put(headings[i], i);
+		}
+
+		final int leadDepth = this.analyst.getLeadDepth();
+		this.totalDepth = this.analyst.getLagDepth() + leadDepth + 1;
+
+		final List<AnalystField> used = new ArrayList<AnalystField>();
+		boolean allOutputs = true;
+		for (final AnalystField field : this.analyst.getScript()
+				.getNormalize().getNormalizedFields()) {
+			if (field.isIgnored()) {
+				continue;
+			}
+			if (!headingMap.containsKey(field.getName())) {
+				if (field.isInput()) {
+					throw new AnalystError("Undefined field: "
+							+ field.getName());
+				}
+				allOutputs = false;
+				continue;
+			}
+			field.init();
+			used.add(field);
+		}
+		this.idealAvailable = allOutputs;
+
+		this.fields = used.toArray(new AnalystField[used.size()]);
+		this.columns = new int[this.fields.length];
+		this.displacements = new int[this.fields.length];
+		int width = 0;
+		int inputCount = 0;
+		int idealCount = 0;
+		for (int i = 0; i < this.fields.length; i++) {
+			final AnalystField field = this.fields[i];
+			this.columns[i] = headingMap.get(field.getName());
+			this.displacements[i] = Math.abs(field.getTimeSlice() - leadDepth);
+			width += field.getColumnsNeeded();
+			if (field.isOutput()) {
+				idealCount += field.getColumnsNeeded();
+			} else {
+				inputCount += field.getColumnsNeeded();
+			}
+		}
+
+		this.inputSize = inputCount;
+		this.idealSize = this.idealAvailable ? idealCount : 0;
+		this.input = new double[this.inputSize];
+		this.ring = new double[this.totalDepth + 1][width];
+		this.head = this.ring.length - 1;
+	}
+
+	/**
+	 * Normalize an event of numbers and add it to the window. Class fields
+	 * must be added as text, with {@link #add(String[])}.
+	 * 
+	 * @param event
+	 *            The event, in the order of the headings. NaN is a missing
+	 *            value.
+	 * @return True, if the event was added. False, if it was skipped for a
+	 *         missing value.
+	 */
+	public final boolean add(final double[] event) {
+		final int slot = (this.head + 1) % this.ring.length;
+		final double[] row = this.ring[slot];
+		int rowIndex = 0;
+
+		for (int i = 0; i < this.fields.length; i++) {
+			final AnalystField field = this.fields[i];
+			final double d = event[this.columns[i]];
+
+			if (Double.isNaN(d)) {
+				rowIndex = handleMissing(field, row, rowIndex);
+				if (rowIndex == -1) {
+					return false;
+				}
+			} else if (field.isClassify()) {
+				throw new AnalystError("Field " + field.getName()
+						+ " is a class, add the event as text.");
+			} else {
+				row[rowIndex++] = normalize(field, d);
+			}
+		}
+
+		advance(slot);
+		return true;
+	}
+
+	/**
+	 * Normalize an event of text and add it to the window.
+	 * 
+	 * @param event
+	 *            The event, in the order of the headings. An empty value or
+	 *            a question mark is a missing value.
+	 * @return True, if the event was added. False, if it was skipped for a
+	 *         missing value.
+	 */
+	public final boolean add(final String[] event) {
+		final int slot = (this.head + 1) % this.ring.length;
+		final double[] row = this.ring[slot];
+		int rowIndex = 0;
+
+		for (int i = 0; i < this.fields.length; i++) {
+			final AnalystField field = this.fields[i];
+			final int column = this.columns[i];
+			final String str = column < event.length ? event[column].trim()
+					: "";
+
+			if (str.length() == 0 || str.equals("?")) {
+				rowIndex = handleMissing(field, row, rowIndex);
+				if (rowIndex == -1) {
+					return false;
+				}
+			} else if (field.isClassify()) {
+				final double[] d = field.encode(str);
+				System.arraycopy(d, 0, row, rowIndex, d.length);
+				rowIndex += d.length;
+			} else {
+				row[rowIndex++] = normalize(field, this.format.parse(str));
+			}
+		}
+
+		advance(slot);
+		return true;
+	}
+
+	/**
+	 * Make a newly normalized row the newest event of the window.
+	 * 
+	 * @param slot
+	 *            The ring index of the row.
+	 */
+	private void advance(final int slot) {
+		this.head = slot;
+		if (this.count < this.totalDepth) {
+			this.count++;
+		}
+	}
+
+	/**
+	 * Clear the window, so that the next event starts a new series.
+	 */
+	public final void clear() {
+		this.head = this.ring.length - 1;
+		this.count = 0;
+	}
+
+	/**
+	 * Normalize the current window and compute the network's output for it.
+	 * 
+	 * @param network
+	 *            The network, trained on the output of the script.
+	 * @param output
+	 *            The array to hold the network's output.
+	 * @return True, if the window was full and the output was computed.
+	 */
+	public final boolean compute(final BasicNetwork network,
+			final double[] output) {
+		if (!isReady()) {
+			return false;
+		}
+		extractInput(this.input);
+		network.compute(this.input, output);
+		return true;
+	}
+
+	/**
+	 * Copy the fields of one role from the window into an array.
+	 * 
+	 * @param target
+	 *            The array to copy into.
+	 * @param outputFields
+	 *            True to copy the output fields, false for the input fields.
+	 */
+	private void extract(final double[] target, final boolean outputFields) {
+		if (!isReady()) {
+			throw new AnalystError("The window is not full, "
+					+ this.count + " of " + this.totalDepth + " events.");
+		}
+
+		int rowIndex = 0;
+		int targetIndex = 0;
+		for (int i = 0; i < this.fields.length; i++) {
+			final AnalystField field = this.fields[i];
+			final int needed = field.getColumnsNeeded();
+			if (field.isOutput() == outputFields) {
+				final int slot = (this.head - this.displacements[i] + this.ring.length)
+						% this.ring.length;
+				System.arraycopy(this.ring[slot], rowIndex, target,
+						targetIndex, needed);
+				targetIndex += needed;
+			}
+			rowIndex += needed;
+		}
+	}
+
+	/**
+	 * Copy the ideal of the current window into an array.
+	 * 
+	 * @param target
+	 *            The array to copy into, at least the ideal size.
+	 */
+	public final void extractIdeal(final double[] target) {
+		if (!this.idealAvailable) {
+			throw new AnalystError(
+					"The events do not contain every output field.");
+		}
+		extract(target, true);
+	}
+
+	/**
+	 * Copy the input of the current window into an array.
+	 * 
+	 * @param target
+	 *            The array to copy into, at least the input size.
+	 */
+	public final void extractInput(final double[] target) {
+		extract(target, false);
+	}
+
+	/**
+	 * @return The format used to parse numbers.
+	 */
+	public final CSVFormat getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * @return The size of the ideal produced, zero if the events do not
+	 *         contain every output field.
+	 */
+	public final int getIdealSize() {
+		return this.idealSize;
+	}
+
+	/**
+	 * @return The size of the input produced.
+	 */
+	public final int getInputSize() {
+		return this.inputSize;
+	}
+
+	/**
+	 * @return The number of events in a window.
+	 */
+	public final int getTotalDepth() {
+		return this.totalDepth;
+	}
+
+	/**
+	 * Place the value the script uses for a missing field into a row.
+	 * 
+	 * @param field
+	 *            The field that is missing.
+	 * @param row
+	 *            The row being normalized.
+	 * @param rowIndex
+	 *            The index of the field in the row.
+	 * @return The index of the next field, or -1 if the event should be
+	 *         skipped.
+	 */
+	private int handleMissing(final AnalystField field, final double[] row,
+			final int rowIndex) {
+		final HandleMissingValues handler = this.analyst.getScript()
+				.getNormalize().getMissingValues();
+		final double[] d = handler.handleMissing(this.analyst, field);
+		if (d == null) {
+			return -1;
+		}
+		System.arraycopy(d, 0, row, rowIndex, d.length);
+		return rowIndex + d.length;
+	}
+
+	/**
+	 * @return True, if enough events have been added to fill a window.
+	 */
+	public final boolean isReady() {
+		return this.count >= this.totalDepth;
+	}
+
+	/**
+	 * Normalize a number, as the normalize command would.
+	 * 
+	 * @param field
+	 *            The field.
+	 * @param d
+	 *            The number.
+	 * @return The normalized number.
+	 */
+	private double normalize(final AnalystField field, final double d) {
+		if (field.getAction() == NormalizationAction.PassThrough) {
+			return d;
+		}
+		return field.normalize(d);
+	}
+
+	/**
+	 * @param theFormat
+	 *            The format used to parse numbers.
+	 */
+	public final void setFormat(final CSVFormat theFormat) {
+		this.format = theFormat;
+	}
+
+}
@@ -68,6 +68,11 @@ public class TimeSeriesUtil {
 	 */
 	private final int outputSize;
 	
+	/**
+	 * True, if the rows processed include the output fields.
+	 */
+	private final boolean includeOutput;
+
 	/**
 	 * The buffer to hold the time-series data.
 	 */
@@ -82,17 +87,20 @@ public class TimeSeriesUtil {
 	/**
 	 * Construct the time-series utility.
 	 * @param theAnalyst The analyst to use.
+	 * @param theIncludeOutput True, if the rows processed include the output
+	 * fields.
 	 * @param headings The column headings.
 	 */
-	public TimeSeriesUtil(final EncogAnalyst theAnalyst, boolean includeOutput,
-			final List<String> headings) {
+	public TimeSeriesUtil(final EncogAnalyst theAnalyst,
+			final boolean theIncludeOutput, final List<String> headings) {
 		this.analyst = theAnalyst;
+		this.includeOutput = theIncludeOutput;
 		this.lagDepth = analyst.getLagDepth();
 		this.leadDepth = analyst.getLeadDepth();
 		this.totalDepth = this.lagDepth + this.leadDepth + 1;
-		this.inputSize = includeOutput ? analyst.determineTotalColumns() : analyst.determineTotalInputFieldCount();
-		this.outputSize = analyst.determineInputCount()
-				+ analyst.determineOutputCount();
+		this.inputSize = this.includeOutput ? analyst.determineTotalColumns()
+				: analyst.determineTotalInputFieldCount();
+		this.outputSize = this.inputSize;
 
 		int headingIndex = 0;
 		for (final String column : headings) {
@@ -174,23 +182,24 @@ public class TimeSeriesUtil {
 			return null;
 		}
 
-		// create output
+		// create output, each field is taken from its own columns of the
+		// row at its time slice, so the layout matches the input rows
 		final double[] output = new double[this.outputSize];
 
 		int outputIndex = 0;
 		for (final AnalystField field : this.analyst.getScript().getNormalize()
 				.getNormalizedFields()) {
-			if (!field.isIgnored()) {
-				if (!this.headingMap.containsKey(field.getName())) {
-					throw new AnalystError("Undefined field: "
-							+ field.getName());
-				}
-				final int headingIndex = this.headingMap.get(field.getName());
-				final int timeslice = translateTimeSlice(field.getTimeSlice());
-				final double[] row = this.buffer.get(timeslice);
-				final double d = row[headingIndex];
-				output[outputIndex++] = d;
+			if (field.isIgnored() || (field.isOutput() && !this.includeOutput)) {
+				continue;
+			}
+			if (!this.headingMap.containsKey(field.getName())) {
+				throw new AnalystError("Undefined field: " + field.getName());
 			}
+			final int timeslice = translateTimeSlice(field.getTimeSlice());
+			final double[] row = this.buffer.get(timeslice);
+			final int needed = field.getColumnsNeeded();
+			System.arraycopy(row, outputIndex, output, outputIndex, needed);
+			outputIndex += needed;
 		}
 
 		// keep the buffer at a good size
@@ -23,6 +23,11 @@
  */
 package org.encog.app.analyst.csv.basic;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
 import org.encog.util.csv.CSVFormat;
 import org.encog.util.csv.ReadCSV;
 
@@ -47,6 +52,14 @@ public class LoadedRow {
 		this(csv, 0);
 	}
 
+	/**
+	 * Construct a loaded row from its data.
+	 * @param theData The row data.
+	 */
+	public LoadedRow(final String[] theData) {
+		this.data = theData;
+	}
+
 	/**
 	 * Construct a loaded row.
 	 * @param csv The CSV file to use.
@@ -74,4 +87,49 @@ public class LoadedRow {
 	public String[] getData() {
 		return this.data;
 	}
+
+	/**
+	 * Write the row to a binary stream, usually a temporary file.
+	 * @param out The stream.
+	 * @throws IOException If the row can not be written.
+	 */
+	public void write(final DataOutputStream out) throws IOException {
+		out.writeInt(this.data.length);
+		for (final String str : this.data) {
+			if (str == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(str.length());
+				out.writeChars(str);
+			}
+		}
+	}
+
+	/**
+	 * Read a row written by write.
+	 * @param in The stream.
+	 * @return The row, or null at the end of the stream.
+	 * @throws IOException If the row can not be read.
+	 */
+	public static LoadedRow read(final DataInputStream in) throws IOException {
+		final int count;
+		try {
+			count = in.readInt();
+		} catch (final EOFException ex) {
+			return null;
+		}
+
+		final String[] data = new String[count];
+		for (int i = 0; i < count; i++) {
+			final int len = in.readInt();
+			if (len >= 0) {
+				final char[] chars = new char[len];
+				for (int j = 0; j < len; j++) {
+					chars[j] = in.readChar();
+				}
+				data[i] = new String(chars);
+			}
+		}
+		return new LoadedRow(data);
+	}
 }
@@ -27,6 +27,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.encog.EncogError;
 import org.encog.app.analyst.EncogAnalyst;
@@ -49,6 +51,7 @@ public class AnalystNormalizeCSV extends BasicFile {
 
 	/**
 	 * Extract fields from a file into a numeric array for machine learning.
+	 * The normalized fields must already have been initialized.
 	 * @param analyst The analyst to use.
 	 * @param headers The headers for the input data.
 	 * @param csv The CSV that holds the input data.
@@ -63,8 +66,6 @@ public class AnalystNormalizeCSV extends BasicFile {
 		int outputIndex = 0;
 		for (final AnalystField stat : analyst.getScript().getNormalize()
 				.getNormalizedFields()) {
-			
-			stat.init();
 
 			if (stat.getAction() == NormalizationAction.Ignore) {
 				continue;
@@ -75,10 +76,9 @@ public class AnalystNormalizeCSV extends BasicFile {
 			}
 
 			int index = headers.find(stat.getName());
-			final String str = csv.get(index).trim();
 			
 			// is this an unknown value?
-			if( str.equals("?") || str.length()==0 ) {				
+			if( csv.isMissing(index) ) {				
 				HandleMissingValues handler = analyst.getScript().getNormalize().getMissingValues();
 				double[] d = handler.handleMissing(analyst ,stat);
 				
@@ -94,14 +94,14 @@ public class AnalystNormalizeCSV extends BasicFile {
 			} else {
 			// known value
 				if (stat.getAction() == NormalizationAction.Normalize) {
-					double d = csv.getFormat().parse(str);
+					double d = csv.getDouble(index);
 					d = stat.normalize(d);
 					output[outputIndex++] = d;
 				} else if (stat.getAction() == NormalizationAction.PassThrough) {
-					double d = csv.getFormat().parse(str);
+					double d = csv.getDouble(index);
 					output[outputIndex++] = d;
 				} else {
-					final double[] d = stat.encode(str);
+					final double[] d = stat.encode(csv.get(index).trim());
 					for (final double element : d) {
 						output[outputIndex++] = element;
 					}
@@ -113,6 +113,87 @@ public class AnalystNormalizeCSV extends BasicFile {
 
 	}
 
+	/**
+	 * Extract fields from a row that is already split into columns, as
+	 * {@link #extractFields(EncogAnalyst, CSVHeaders, ReadCSV, int, boolean)}
+	 * does for a row read from a CSV file.
+	 * @param analyst The analyst to use.
+	 * @param headers The headers for the input data.
+	 * @param row The columns of the row.
+	 * @param format The format used to parse numbers.
+	 * @param outputLength The length of the returned array.
+	 * @param skipOutput True if the output should be skipped.
+	 * @return The encoded data, or null if the row should be skipped.
+	 */
+	public static final double[] extractFields(final EncogAnalyst analyst,
+			final CSVHeaders headers, final String[] row,
+			final CSVFormat format, final int outputLength,
+			final boolean skipOutput) {
+		final double[] output = new double[outputLength];
+		int outputIndex = 0;
+		for (final AnalystField stat : analyst.getScript().getNormalize()
+				.getNormalizedFields()) {
+
+			if (stat.getAction() == NormalizationAction.Ignore) {
+				continue;
+			}
+
+			if (stat.isOutput() && skipOutput) {
+				continue;
+			}
+
+			final int index = headers.find(stat.getName());
+			final String str = index < row.length ? row[index].trim() : "";
+
+			// is this an unknown value?
+			if (str.length() == 0 || str.equals("?")) {
+				final HandleMissingValues handler = analyst.getScript()
+						.getNormalize().getMissingValues();
+				final double[] d = handler.handleMissing(analyst, stat);
+
+				// should we skip the entire row
+				if (d == null) {
+					return null;
+				}
+
+				// copy the returned values in place of the missing values
+				for (int i = 0; i < d.length; i++) {
+					output[outputIndex++] = d[i];
+				}
+			} else if (stat.getAction() == NormalizationAction.Normalize) {
+				output[outputIndex++] = stat.normalize(format.parse(str));
+			} else if (stat.getAction() == NormalizationAction.PassThrough) {
+				output[outputIndex++] = format.parse(str);
+			} else {
+				final double[] d = stat.encode(str);
+				for (final double element : d) {
+					output[outputIndex++] = element;
+				}
+			}
+		}
+
+		return output;
+	}
+
+	/**
+	 * Determine the column headings of a normalized file.
+	 * @param analyst The analyst to use.
+	 * @return The headings, one for each normalized column.
+	 */
+	public static String[] extractHeadings(final EncogAnalyst analyst) {
+		final List<String> result = new ArrayList<String>();
+		for (final AnalystField stat : analyst.getScript().getNormalize()
+				.getNormalizedFields()) {
+			final int needed = stat.getColumnsNeeded();
+
+			for (int i = 0; i < needed; i++) {
+				result.add(CSVHeaders.tagColumn(stat.getName(), i,
+						stat.getTimeSlice(), needed > 1));
+			}
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
 	/**
 	 * The analyst to use.
 	 */
@@ -251,17 +332,11 @@ public class AnalystNormalizeCSV extends BasicFile {
 	 */
 	private void writeHeaders(final PrintWriter tw) {
 		final StringBuilder line = new StringBuilder();
-		for (final AnalystField stat : this.analyst.getScript().getNormalize()
-				.getNormalizedFields()) {
-			final int needed = stat.getColumnsNeeded();
-
-			for (int i = 0; i < needed; i++) {
-				BasicFile.appendSeparator(line, getFormat());
-				line.append('\"');
-				line.append(CSVHeaders.tagColumn(stat.getName(), i,
-						stat.getTimeSlice(), needed > 1));
-				line.append('\"');
-			}
+		for (final String heading : extractHeadings(this.analyst)) {
+			BasicFile.appendSeparator(line, getFormat());
+			line.append('\"');
+			line.append(heading);
+			line.append('\"');
 		}
 		tw.println(line.toString());
 	}
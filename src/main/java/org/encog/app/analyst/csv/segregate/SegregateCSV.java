@@ -75,6 +75,20 @@ public class SegregateCSV extends BasicFile {
 		balanceTargets();
 	}
 
+	/**
+	 * Assign a known number of records to the targets, without reading the
+	 * input file. This is used when the records are already in memory, or
+	 * are counted by the caller.
+	 * 
+	 * @param theRecordCount
+	 *            The number of records to segregate.
+	 */
+	public void analyze(final int theRecordCount) {
+		setRecordCount(theRecordCount);
+		setAnalyzed(true);
+		balanceTargets();
+	}
+
 	/**
 	 * Balance the targets.
 	 */
@@ -147,7 +161,7 @@ public class SegregateCSV extends BasicFile {
 	/**
 	 * Validate that the data is correct.
 	 */
-	private void validate() {
+	public void validate() {
 		validateAnalyzed();
 
 		if (this.targets.size() < 1) {
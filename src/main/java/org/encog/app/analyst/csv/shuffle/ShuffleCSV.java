@@ -23,9 +23,19 @@
  */
 package org.encog.app.analyst.csv.shuffle;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.encog.app.analyst.AnalystError;
 import org.encog.app.analyst.csv.basic.BasicFile;
 import org.encog.app.analyst.csv.basic.LoadedRow;
 import org.encog.mathutil.randomize.RangeRandomizer;
@@ -33,7 +43,14 @@ import org.encog.util.csv.CSVFormat;
 import org.encog.util.csv.ReadCSV;
 
 /**
- * Randomly shuffle the lines of a CSV file.
+ * Randomly shuffle the lines of a CSV file. Every ordering of the lines is
+ * equally likely, no matter how large the file is.
+ * 
+ * A file with no more rows than the buffer size is shuffled in memory. A
+ * larger file is scattered at random into temporary bucket files, each small
+ * enough to be shuffled in memory, and the buckets are then shuffled and
+ * written one after another. A bucket that is still too large is scattered
+ * again.
  */
 public class ShuffleCSV extends BasicFile {
 	
@@ -41,6 +58,11 @@ public class ShuffleCSV extends BasicFile {
 	 * The default buffer size.
 	 */
 	public static final int DEFAULT_BUFFER_SIZE = 5000;
+
+	/**
+	 * The largest number of bucket files written at once.
+	 */
+	public static final int MAX_BUCKETS = 64;
 	
 	/**
 	 * The buffer size.
@@ -48,14 +70,15 @@ public class ShuffleCSV extends BasicFile {
 	private int bufferSize;
 
 	/**
-	 * The buffer.
+	 * The directory for temporary files, null for the directory of the
+	 * output file.
 	 */
-	private LoadedRow[] buffer;
+	private File tempDirectory;
 
 	/**
-	 * Remaining in the buffer.
+	 * The directory used for temporary files by the current process.
 	 */
-	private int remaining;
+	private File currentTempDirectory;
 
 	/**
 	 * Construct the object.
@@ -86,80 +109,158 @@ public class ShuffleCSV extends BasicFile {
 	}
 
 	/**
-	 * @return The buffer size. This is how many rows of data are loaded(and
-	 *         randomized), at a time. The default is 5,000.
+	 * @return The buffer size. This is the largest number of rows that are
+	 *         loaded, and shuffled, in memory at a time. The default is 5,000.
 	 */
 	public int getBufferSize() {
 		return this.bufferSize;
 	}
 
 	/**
-	 * Get the next row from the underlying CSV file.
+	 * Process, and generate the output file.
 	 * 
-	 * @param csv
-	 *            The underlying CSV file.
-	 * @return The loaded row.
+	 * @param outputFile
+	 *            The output file.
 	 */
-	private LoadedRow getNextRow(final ReadCSV csv) {
-		if (this.remaining == 0) {
-			loadBuffer(csv);
+	public void process(final File outputFile) {
+		validateAnalyzed();
+
+		this.currentTempDirectory = this.tempDirectory;
+		if (this.currentTempDirectory == null) {
+			this.currentTempDirectory = outputFile.getAbsoluteFile()
+					.getParentFile();
 		}
 
-		while (this.remaining > 0) {
-			final int index = RangeRandomizer.randomInt(0, this.bufferSize - 1);
-			if (this.buffer[index] != null) {
-				final LoadedRow result = this.buffer[index];
-				this.buffer[index] = null;
-				this.remaining--;
-				return result;
-			}
+		final ReadCSV csv = new ReadCSV(getInputFilename().toString(),
+				isExpectInputHeaders(), getFormat());
+
+		final PrintWriter tw = prepareOutputFile(outputFile);
+
+		resetStatus();
+		try {
+			shuffle(tw, new RowSource() {
+				public LoadedRow next() {
+					return csv.next() ? new LoadedRow(csv) : null;
+				}
+			}, getRecordCount());
+		} catch (final IOException ex) {
+			throw new AnalystError(ex);
+		} finally {
+			csv.close();
+			tw.close();
 		}
-		return null;
+		reportDone(false);
 	}
 
 	/**
-	 * Load the buffer from the underlying file.
+	 * Shuffle rows and write them to the output file.
 	 * 
-	 * @param csv
-	 *            The CSV file to load from.
+	 * @param tw
+	 *            The output file.
+	 * @param source
+	 *            The rows.
+	 * @param count
+	 *            The number of rows, this may be an estimate.
+	 * @throws IOException
+	 *             If a temporary file can not be used.
 	 */
-	private void loadBuffer(final ReadCSV csv) {
-		for (int i = 0; i < this.buffer.length; i++) {
-			this.buffer[i] = null;
+	private void shuffle(final PrintWriter tw, final RowSource source,
+			final long count) throws IOException {
+		if (count <= this.bufferSize) {
+			shuffleInMemory(tw, source);
+			return;
 		}
 
-		int index = 0;
-		while (csv.next() && (index < this.bufferSize) && !shouldStop()) {
-			final LoadedRow row = new LoadedRow(csv);
-			this.buffer[index++] = row;
-		}
+		// aim for buckets about half the size of the buffer
+		final int buckets = (int) Math.max(2, Math.min(MAX_BUCKETS,
+				(2 * count + this.bufferSize - 1) / this.bufferSize));
+		final File[] files = new File[buckets];
+		final DataOutputStream[] out = new DataOutputStream[buckets];
+		final long[] counts = new long[buckets];
+
+		try {
+			for (int i = 0; i < buckets; i++) {
+				files[i] = File.createTempFile("encog-shuffle", ".tmp",
+						this.currentTempDirectory);
+				out[i] = new DataOutputStream(new BufferedOutputStream(
+						new FileOutputStream(files[i])));
+			}
 
-		this.remaining = index;
+			// scatter each row into a random bucket
+			LoadedRow row;
+			while ((row = source.next()) != null && !shouldStop()) {
+				final int bucket = RangeRandomizer.randomInt(0, buckets - 1);
+				row.write(out[bucket]);
+				counts[bucket]++;
+			}
+
+			for (int i = 0; i < buckets; i++) {
+				out[i].close();
+				out[i] = null;
+			}
+
+			// then shuffle each bucket
+			for (int i = 0; i < buckets && !shouldStop(); i++) {
+				final DataInputStream in = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(files[i])));
+				try {
+					shuffle(tw, new RowSource() {
+						public LoadedRow next() throws IOException {
+							return LoadedRow.read(in);
+						}
+					}, counts[i]);
+				} finally {
+					in.close();
+				}
+				files[i].delete();
+				files[i] = null;
+			}
+		} finally {
+			for (int i = 0; i < buckets; i++) {
+				if (out[i] != null) {
+					out[i].close();
+				}
+				if (files[i] != null) {
+					files[i].delete();
+				}
+			}
+		}
 	}
 
 	/**
-	 * Process, and generate the output file.
+	 * Load rows into memory, shuffle them, and write them to the output file.
 	 * 
-	 * @param outputFile
+	 * @param tw
 	 *            The output file.
+	 * @param source
+	 *            The rows.
+	 * @throws IOException
+	 *             If a temporary file can not be read.
 	 */
-	public void process(final File outputFile) {
-		validateAnalyzed();
-
-		final ReadCSV csv = new ReadCSV(getInputFilename().toString(),
-				isExpectInputHeaders(), getFormat());
+	private void shuffleInMemory(final PrintWriter tw, final RowSource source)
+			throws IOException {
+		final List<LoadedRow> rows = new ArrayList<LoadedRow>();
 		LoadedRow row;
+		while ((row = source.next()) != null && !shouldStop()) {
+			rows.add(row);
+		}
 
-		final PrintWriter tw = prepareOutputFile(outputFile);
-
-		resetStatus();
-		while ((row = getNextRow(csv)) != null) {
-			writeRow(tw, row);
+		// Fisher-Yates, writing each row as it is chosen
+		for (int i = rows.size() - 1; i >= 0 && !shouldStop(); i--) {
+			final int j = RangeRandomizer.randomInt(0, i);
+			writeRow(tw, rows.get(j));
+			rows.set(j, rows.get(i));
+			rows.remove(i);
 			updateStatus(false);
 		}
-		reportDone(false);
-		tw.close();
-		csv.close();
+	}
+
+	/**
+	 * @return The directory for temporary files, null for the directory of
+	 *         the output file.
+	 */
+	public File getTempDirectory() {
+		return this.tempDirectory;
 	}
 
 	/**
@@ -169,7 +270,29 @@ public class ShuffleCSV extends BasicFile {
 	 *            The new buffer size.
 	 */
 	public void setBufferSize(final int s) {
-		this.bufferSize = s;
-		this.buffer = new LoadedRow[this.bufferSize];
+		this.bufferSize = Math.max(1, s);
+	}
+
+	/**
+	 * Set the directory for temporary files.
+	 * 
+	 * @param theTempDirectory
+	 *            The directory, or null for the directory of the output file.
+	 */
+	public void setTempDirectory(final File theTempDirectory) {
+		this.tempDirectory = theTempDirectory;
+	}
+
+	/**
+	 * A source of rows to shuffle.
+	 */
+	private interface RowSource {
+
+		/**
+		 * @return The next row, or null at the end.
+		 * @throws IOException
+		 *             If the row can not be read.
+		 */
+		LoadedRow next() throws IOException;
 	}
 }
@@ -23,33 +23,121 @@
  */
 package org.encog.app.analyst.csv.sort;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
+import org.encog.app.analyst.AnalystError;
 import org.encog.app.analyst.csv.basic.BasicFile;
-import org.encog.app.analyst.csv.basic.LoadedRow;
+import org.encog.app.quant.QuantError;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
 import org.encog.util.csv.CSVFormat;
 import org.encog.util.csv.ReadCSV;
 
 /**
  * Used to sort a CSV file by one, or more, fields.
+ * 
+ * The sort keys of each row are parsed once, as the row is read. Rows are
+ * read until the memory budget is used, and then split into one run per
+ * thread. The runs are sorted in parallel. If the whole file fits within the
+ * budget, the runs are merged straight into the output file. Otherwise each
+ * run is written to a temporary file, and the runs are merged once the
+ * input has been read. At most mergeFanIn runs are merged at once, as each
+ * holds an open file, so with more runs than that they are first merged in
+ * groups into longer runs, over as many passes as needed. The sort is
+ * stable, so rows with equal keys keep their order from the input file.
  */
-public class SortCSV extends BasicFile {
+public class SortCSV extends BasicFile implements MultiThreadable,
+		ConcurrencyAware {
 
 	/**
-	 * The loaded rows.
+	 * The default memory budget, in bytes.
 	 */
-	private final List<LoadedRow> data = new ArrayList<LoadedRow>();
+	public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	/**
+	 * The default number of runs merged at once.
+	 */
+	public static final int DEFAULT_MERGE_FAN_IN = 64;
+
+	/**
+	 * The estimated overhead of a row, in bytes.
+	 */
+	public static final int ROW_OVERHEAD = 64;
+
+	/**
+	 * The estimated overhead of a field, in bytes.
+	 */
+	public static final int FIELD_OVERHEAD = 48;
 
 	/**
 	 * The sort order.
 	 */
 	private final List<SortedField> sortOrder = new ArrayList<SortedField>();
 
+	/**
+	 * The approximate number of bytes of rows held in memory.
+	 */
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	/**
+	 * The maximum number of runs merged at once.
+	 */
+	private int mergeFanIn = DEFAULT_MERGE_FAN_IN;
+
+	/**
+	 * The number of threads used to sort runs, 0 for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
+	/**
+	 * The directory for temporary run files, null for the directory of the
+	 * output file.
+	 */
+	private File tempDirectory;
+
+	/**
+	 * The sort order, as arrays.
+	 */
+	private int[] keyIndex;
+
+	/**
+	 * The type of each sort field.
+	 */
+	private SortType[] keyType;
+
+	/**
+	 * The temporary run files.
+	 */
+	private final List<File> tempFiles = new ArrayList<File>();
+
+	/**
+	 * The number of runs created.
+	 */
+	private int runCount;
+
 	/**
 	 * @return Used to specify the sort order.
 	 */
@@ -75,100 +163,853 @@ public class SortCSV extends BasicFile {
 		setExpectInputHeaders(headers);
 		setInputFormat(format);
 
-		readInputFile();
-		sortData();
-		writeOutputFile(outputFile);
+		this.keyIndex = new int[this.sortOrder.size()];
+		this.keyType = new SortType[this.sortOrder.size()];
+		for (int i = 0; i < this.keyIndex.length; i++) {
+			this.keyIndex[i] = this.sortOrder.get(i).getIndex();
+			this.keyType[i] = this.sortOrder.get(i).getSortType();
+		}
+
+		this.runCount = 0;
+		this.tempFiles.clear();
+
+		try {
+			List<RowSource> runs = readInputFile(outputFile);
+			while (runs.size() > this.mergeFanIn) {
+				runs = mergePass(runs, outputFile);
+			}
+			writeOutputFile(outputFile, runs);
+		} finally {
+			for (final File file : this.tempFiles) {
+				file.delete();
+			}
+			this.tempFiles.clear();
+		}
 	}
 
 	/**
-	 * Read the input file.
+	 * Read the input file into sorted runs. If reading fails, the runs
+	 * written so far are removed.
+	 * 
+	 * @param outputFile
+	 *            The output file, used to locate the temporary files.
+	 * @return The sorted runs.
 	 */
-	private void readInputFile() {
+	private List<RowSource> readInputFile(final File outputFile) {
 		resetStatus();
 
+		final List<RowSource> runs = new ArrayList<RowSource>();
+		List<SortRow> batch = new ArrayList<SortRow>();
+		long batchSize = 0;
+		boolean done = false;
+
 		final ReadCSV csv = new ReadCSV(getInputFilename().toString(),
 				isExpectInputHeaders(), getFormat());
-		while (csv.next() && !shouldStop()) {
-			updateStatus("Reading input file");
-			final LoadedRow row = new LoadedRow(csv);
-			this.data.add(row);
+		try {
+			while (csv.next() && !shouldStop()) {
+				updateStatus("Reading input file");
+				final SortRow row = createRow(csv);
+				batch.add(row);
+				batchSize += row.getSize();
+
+				if (batchSize >= this.memoryBudget) {
+					for (final List<SortRow> run : sortBatch(batch)) {
+						runs.add(spill(run, outputFile));
+					}
+					batch = new ArrayList<SortRow>();
+					batchSize = 0;
+				}
+			}
+
+			setColumnCount(csv.getColumnCount());
+
+			if (isExpectInputHeaders()) {
+				setInputHeadings(new String[csv.getColumnNames().size()]);
+				for (int i = 0; i < csv.getColumnNames().size(); i++) {
+					getInputHeadings()[i] = csv.getColumnNames().get(i);
+				}
+			}
+
+			// the last batch stays in memory
+			for (final List<SortRow> run : sortBatch(batch)) {
+				runs.add(new MemoryRun(run, this.runCount++));
+			}
+			done = true;
+		} finally {
+			csv.close();
+			if (!done) {
+				for (final RowSource run : runs) {
+					run.close();
+				}
+				for (final File file : this.tempFiles) {
+					file.delete();
+				}
+				this.tempFiles.clear();
+			}
 		}
 
-		setColumnCount(csv.getColumnCount());
+		return runs;
+	}
+
+	/**
+	 * Create a row, and parse its sort keys.
+	 * 
+	 * @param csv
+	 *            The CSV file, positioned at the row.
+	 * @return The row.
+	 */
+	private SortRow createRow(final ReadCSV csv) {
+		final int count = csv.getColumnCount();
+		final String[] data = new String[count];
+		long size = ROW_OVERHEAD + (8L * this.keyIndex.length);
+		for (int i = 0; i < count; i++) {
+			data[i] = csv.get(i);
+			size += FIELD_OVERHEAD + (2L * data[i].length());
+		}
 
-		if (isExpectInputHeaders()) {
-			setInputHeadings(new String[csv.getColumnNames().size()]);
-			for (int i = 0; i < csv.getColumnNames().size(); i++) {
-				getInputHeadings()[i] = csv.getColumnNames().get(i);
+		final double[] keys = new double[this.keyIndex.length];
+		for (int i = 0; i < keys.length; i++) {
+			final String str = data[this.keyIndex[i]];
+			switch (this.keyType[i]) {
+			case SortDecimal:
+				keys[i] = getFormat().parse(str);
+				break;
+			case SortInteger:
+				keys[i] = Integer.parseInt(str);
+				break;
+			case SortString:
+				break;
+			default:
+				throw new QuantError("Unknown sort method: " + this.keyType[i]);
 			}
 		}
 
-		csv.close();
+		return new SortRow(data, keys, size);
 	}
 
 	/**
-	 * Sort the loaded data.
+	 * Split a batch into one run per thread, and sort the runs in parallel.
+	 * 
+	 * @param batch
+	 *            The batch, in file order.
+	 * @return The sorted runs, in file order.
 	 */
-	private void sortData() {
-		final Comparator<LoadedRow> comp = new RowComparator(this);
-		Collections.sort(this.data, comp);
+	private List<List<SortRow>> sortBatch(final List<SortRow> batch) {
+		final List<List<SortRow>> result = new ArrayList<List<SortRow>>();
+		if (batch.isEmpty()) {
+			return result;
+		}
+
+		int threads = this.threadCount;
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.max(1, Math.min(threads, batch.size()));
+
+		final Comparator<SortRow> comp = new SortRowComparator();
+		final int share = batch.size() / threads;
+		final int extra = batch.size() % threads;
+		int start = 0;
+		for (int i = 0; i < threads; i++) {
+			final int end = start + share + ((i < extra) ? 1 : 0);
+			result.add(new ArrayList<SortRow>(batch.subList(start, end)));
+			start = end;
+		}
+
+		if (threads == 1) {
+			Collections.sort(result.get(0), comp);
+		} else {
+			final TaskGroup group = getConcurrency().createTaskGroup();
+			for (final List<SortRow> run : result) {
+				getConcurrency().processTask(new EngineTask() {
+					public void run() {
+						Collections.sort(run, comp);
+					}
+				}, group);
+			}
+			group.waitForComplete();
+			getConcurrency().checkError();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Write a sorted run to a temporary file.
+	 * 
+	 * @param run
+	 *            The run.
+	 * @param outputFile
+	 *            The output file, used to locate the temporary file.
+	 * @return The run, as read from the file.
+	 */
+	private RowSource spill(final List<SortRow> run, final File outputFile) {
+		DataOutputStream out = null;
+		try {
+			final File file = createTempFile(outputFile);
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+			for (final SortRow row : run) {
+				row.write(out);
+			}
+			out.close();
+			out = null;
+
+			return new FileRun(file, this.keyIndex.length, this.runCount++);
+		} catch (final IOException ex) {
+			throw new AnalystError(ex);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (final IOException ex) {
+					throw new AnalystError(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a temporary file for a run. It is deleted once the sort is done.
+	 * 
+	 * @param outputFile
+	 *            The output file, used to locate the temporary file.
+	 * @return The file.
+	 * @throws IOException
+	 *             If the file can not be created.
+	 */
+	private File createTempFile(final File outputFile) throws IOException {
+		File dir = this.tempDirectory;
+		if (dir == null) {
+			dir = outputFile.getAbsoluteFile().getParentFile();
+		}
+		final File file = File.createTempFile("encog-sort", ".tmp", dir);
+		this.tempFiles.add(file);
+		return file;
+	}
+
+	/**
+	 * Merge consecutive groups of at most mergeFanIn runs into longer runs,
+	 * held in temporary files. As each group holds runs next to each other
+	 * in file order, the merged runs stay in file order.
+	 * 
+	 * @param runs
+	 *            The sorted runs, in file order.
+	 * @param outputFile
+	 *            The output file, used to locate the temporary files.
+	 * @return The merged runs, in file order.
+	 */
+	private List<RowSource> mergePass(final List<RowSource> runs,
+			final File outputFile) {
+		final List<RowSource> result = new ArrayList<RowSource>();
+		try {
+			for (int start = 0; start < runs.size(); start += this.mergeFanIn) {
+				final List<RowSource> group = runs.subList(start,
+						Math.min(start + this.mergeFanIn, runs.size()));
+				result.add(mergeRuns(group, outputFile, result.size()));
+			}
+		} catch (final RuntimeException ex) {
+			for (final RowSource run : runs) {
+				run.close();
+			}
+			throw ex;
+		}
+		return result;
 	}
 
 	/**
-	 * Write the sorted output file.
+	 * Merge a group of runs into one run, held in a temporary file.
+	 * 
+	 * @param group
+	 *            The runs to merge, in file order.
+	 * @param outputFile
+	 *            The output file, used to locate the temporary file.
+	 * @param index
+	 *            The index of the merged run.
+	 * @return The merged run.
+	 */
+	private RowSource mergeRuns(final List<RowSource> group,
+			final File outputFile, final int index) {
+		DataOutputStream out = null;
+		try {
+			final File file = createTempFile(outputFile);
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file)));
+
+			final PriorityQueue<RowSource> queue = openQueue(group);
+			SortRow row;
+			while ((row = nextRow(queue)) != null) {
+				updateStatus("Merging runs");
+				row.write(out);
+			}
+			out.close();
+			out = null;
+
+			return new FileRun(file, this.keyIndex.length, index);
+		} catch (final IOException ex) {
+			throw new AnalystError(ex);
+		} finally {
+			for (final RowSource run : group) {
+				run.close();
+			}
+			if (out != null) {
+				try {
+					out.close();
+				} catch (final IOException ex) {
+					throw new AnalystError(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a queue of runs, ordered by their current rows, and move each
+	 * run to its first row.
+	 * 
+	 * @param runs
+	 *            The runs, in file order.
+	 * @return The queue, holding the runs that are not empty.
+	 */
+	private PriorityQueue<RowSource> openQueue(final List<RowSource> runs) {
+		final Comparator<SortRow> comp = new SortRowComparator();
+		final PriorityQueue<RowSource> queue = new PriorityQueue<RowSource>(
+				Math.max(1, runs.size()), new Comparator<RowSource>() {
+					public int compare(final RowSource x, final RowSource y) {
+						final int c = comp.compare(x.getCurrent(),
+								y.getCurrent());
+						if (c != 0) {
+							return c;
+						}
+						return x.getIndex() - y.getIndex();
+					}
+				});
+
+		for (final RowSource run : runs) {
+			if (run.advance()) {
+				queue.add(run);
+			}
+		}
+		return queue;
+	}
+
+	/**
+	 * Take the lowest row from a queue of runs.
+	 * 
+	 * @param queue
+	 *            The queue.
+	 * @return The row, or null if the runs are all used.
+	 */
+	private SortRow nextRow(final PriorityQueue<RowSource> queue) {
+		final RowSource run = queue.poll();
+		if (run == null) {
+			return null;
+		}
+		final SortRow row = run.getCurrent();
+		if (run.advance()) {
+			queue.add(run);
+		}
+		return row;
+	}
+
+	/**
+	 * Merge the sorted runs into the output file.
 	 * 
 	 * @param outputFile
 	 *            The name of the output file.
+	 * @param runs
+	 *            The sorted runs.
 	 */
-	private void writeOutputFile(final File outputFile) {
+	private void writeOutputFile(final File outputFile,
+			final List<RowSource> runs) {
 		final PrintWriter tw = prepareOutputFile(outputFile);
 		final boolean[] nonNumeric = new boolean[getColumnCount()];
 		boolean first = true;
 
 		resetStatus();
 
-		// write the file
-		for (final LoadedRow row : this.data) {
-			updateStatus("Writing output");
-			// for the first row, determine types
-			if (first) {
+		try {
+			final PriorityQueue<RowSource> queue = openQueue(runs);
+
+			// write the file
+			SortRow row;
+			while ((row = nextRow(queue)) != null) {
+				updateStatus("Writing output");
+				// for the first row, determine types
+				if (first) {
+					for (int i = 0; i < getColumnCount(); i++) {
+						try {
+							final String str = row.getData()[i];
+							Double.parseDouble(str);
+							nonNumeric[i] = false;
+						} catch (final Exception ex) {
+							nonNumeric[i] = true;
+						}
+					}
+					first = false;
+				}
+
+				// write the row
+				final StringBuilder line = new StringBuilder();
+
 				for (int i = 0; i < getColumnCount(); i++) {
-					try {
-						final String str = row.getData()[i];
-						Double.parseDouble(str);
-						nonNumeric[i] = false;
-					} catch (final Exception ex) {
-						nonNumeric[i] = true;
+					if (i > 0) {
+						line.append(",");
+					}
+
+					if (nonNumeric[i]) {
+						line.append("\"");
+						line.append(row.getData()[i]);
+						line.append("\"");
+					} else {
+						line.append(row.getData()[i]);
 					}
 				}
-				first = false;
+
+				tw.println(line.toString());
+			}
+		} finally {
+			for (final RowSource run : runs) {
+				run.close();
 			}
+			// close the file
+			tw.close();
+		}
+
+		reportDone("Writing output");
+	}
+
+	/**
+	 * @return The approximate number of bytes of rows held in memory before
+	 *         sorted runs are written to temporary files.
+	 */
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+
+	/**
+	 * Set the approximate number of bytes of rows held in memory. Larger
+	 * files are sorted with temporary files.
+	 * 
+	 * @param theMemoryBudget
+	 *            The memory budget, in bytes.
+	 */
+	public void setMemoryBudget(final long theMemoryBudget) {
+		this.memoryBudget = theMemoryBudget;
+	}
+
+	/**
+	 * @return The maximum number of runs merged at once.
+	 */
+	public int getMergeFanIn() {
+		return this.mergeFanIn;
+	}
+
+	/**
+	 * Set the maximum number of runs merged at once. Each run being merged
+	 * may hold an open file.
+	 * 
+	 * @param theMergeFanIn
+	 *            The number of runs, at least two.
+	 */
+	public void setMergeFanIn(final int theMergeFanIn) {
+		if (theMergeFanIn < 2) {
+			throw new AnalystError("Must merge at least two runs at once.");
+		}
+		this.mergeFanIn = theMergeFanIn;
+	}
+
+	/**
+	 * @return The directory for temporary files, null for the directory of
+	 *         the output file.
+	 */
+	public File getTempDirectory() {
+		return this.tempDirectory;
+	}
 
-			// write the row
-			final StringBuilder line = new StringBuilder();
+	/**
+	 * Set the directory for temporary files.
+	 * 
+	 * @param theTempDirectory
+	 *            The directory, or null for the directory of the output file.
+	 */
+	public void setTempDirectory(final File theTempDirectory) {
+		this.tempDirectory = theTempDirectory;
+	}
+
+	/**
+	 * @return The number of runs created by the last sort. One run per thread
+	 *         means that the file was sorted in memory.
+	 */
+	public int getRunCount() {
+		return this.runCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
+	/**
+	 * A row with its sort keys parsed.
+	 */
+	private static class SortRow {
+
+		/**
+		 * The fields.
+		 */
+		private final String[] data;
+
+		/**
+		 * The numeric sort keys, unused for string keys.
+		 */
+		private final double[] keys;
+
+		/**
+		 * The estimated size, in bytes.
+		 */
+		private final long size;
+
+		/**
+		 * Construct the row.
+		 * 
+		 * @param theData
+		 *            The fields.
+		 * @param theKeys
+		 *            The numeric sort keys.
+		 * @param theSize
+		 *            The estimated size, in bytes.
+		 */
+		public SortRow(final String[] theData, final double[] theKeys,
+				final long theSize) {
+			this.data = theData;
+			this.keys = theKeys;
+			this.size = theSize;
+		}
 
-			for (int i = 0; i < getColumnCount(); i++) {
-				if (i > 0) {
-					line.append(",");
+		/**
+		 * Read a row written by write.
+		 * 
+		 * @param in
+		 *            The stream.
+		 * @param keyCount
+		 *            The number of sort keys.
+		 * @return The row, or null at the end of the stream.
+		 * @throws IOException
+		 *             If the row can not be read.
+		 */
+		public static SortRow read(final DataInputStream in,
+				final int keyCount) throws IOException {
+			final int count;
+			try {
+				count = in.readInt();
+			} catch (final EOFException ex) {
+				return null;
+			}
+
+			final String[] data = new String[count];
+			for (int i = 0; i < count; i++) {
+				final int len = in.readInt();
+				final char[] chars = new char[len];
+				for (int j = 0; j < len; j++) {
+					chars[j] = in.readChar();
 				}
+				data[i] = new String(chars);
+			}
+
+			final double[] keys = new double[keyCount];
+			for (int i = 0; i < keyCount; i++) {
+				keys[i] = in.readDouble();
+			}
 
-				if (nonNumeric[i]) {
-					line.append("\"");
-					line.append(row.getData()[i]);
-					line.append("\"");
+			return new SortRow(data, keys, 0);
+		}
+
+		/**
+		 * Write the row.
+		 * 
+		 * @param out
+		 *            The stream.
+		 * @throws IOException
+		 *             If the row can not be written.
+		 */
+		public void write(final DataOutputStream out) throws IOException {
+			out.writeInt(this.data.length);
+			for (final String str : this.data) {
+				out.writeInt(str.length());
+				out.writeChars(str);
+			}
+			for (final double key : this.keys) {
+				out.writeDouble(key);
+			}
+		}
+
+		/**
+		 * @return The fields.
+		 */
+		public String[] getData() {
+			return this.data;
+		}
+
+		/**
+		 * @return The estimated size, in bytes.
+		 */
+		public long getSize() {
+			return this.size;
+		}
+	}
+
+	/**
+	 * Compares rows by their sort keys, in the same way as RowComparator.
+	 */
+	private class SortRowComparator implements Comparator<SortRow> {
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compare(final SortRow x, final SortRow y) {
+			for (int i = 0; i < SortCSV.this.keyIndex.length; i++) {
+				final int c;
+				if (SortCSV.this.keyType[i] == SortType.SortString) {
+					final int index = SortCSV.this.keyIndex[i];
+					c = x.data[index].compareTo(y.data[index]);
 				} else {
-					line.append(row.getData()[i]);
+					c = Double.compare(x.keys[i], y.keys[i]);
+				}
+				if (c != 0) {
+					return c;
 				}
 			}
 
-			tw.println(line.toString());
+			// failing all of this, they are equal
+			return 0;
 		}
+	}
 
-		reportDone("Writing output");
+	/**
+	 * A sorted run of rows.
+	 */
+	private interface RowSource {
+
+		/**
+		 * Move to the next row.
+		 * 
+		 * @return True, if there was another row.
+		 */
+		boolean advance();
+
+		/**
+		 * @return The current row.
+		 */
+		SortRow getCurrent();
+
+		/**
+		 * @return The index of the run, in file order.
+		 */
+		int getIndex();
+
+		/**
+		 * Release the run.
+		 */
+		void close();
+	}
+
+	/**
+	 * A sorted run held in memory.
+	 */
+	private static class MemoryRun implements RowSource {
+
+		/**
+		 * The rows.
+		 */
+		private final List<SortRow> rows;
 
-		// close the file
+		/**
+		 * The index of the run.
+		 */
+		private final int index;
 
-		tw.close();
+		/**
+		 * The position of the current row.
+		 */
+		private int position = -1;
+
+		/**
+		 * Construct the run.
+		 * 
+		 * @param theRows
+		 *            The sorted rows.
+		 * @param theIndex
+		 *            The index of the run.
+		 */
+		public MemoryRun(final List<SortRow> theRows, final int theIndex) {
+			this.rows = theRows;
+			this.index = theIndex;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean advance() {
+			if (this.position >= 0) {
+				// let the row be collected once it has been written
+				this.rows.set(this.position, null);
+			}
+			this.position++;
+			return this.position < this.rows.size();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public SortRow getCurrent() {
+			return this.rows.get(this.position);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getIndex() {
+			return this.index;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() {
+			this.rows.clear();
+		}
 	}
 
+	/**
+	 * A sorted run read back from a temporary file.
+	 */
+	private static class FileRun implements RowSource {
+
+		/**
+		 * The file.
+		 */
+		private final File file;
+
+		/**
+		 * The number of sort keys.
+		 */
+		private final int keyCount;
+
+		/**
+		 * The index of the run.
+		 */
+		private final int index;
+
+		/**
+		 * The stream, opened by the first call to advance.
+		 */
+		private DataInputStream in;
+
+		/**
+		 * The current row.
+		 */
+		private SortRow current;
+
+		/**
+		 * Construct the run.
+		 * 
+		 * @param theFile
+		 *            The file.
+		 * @param theKeyCount
+		 *            The number of sort keys.
+		 * @param theIndex
+		 *            The index of the run.
+		 */
+		public FileRun(final File theFile, final int theKeyCount,
+				final int theIndex) {
+			this.file = theFile;
+			this.keyCount = theKeyCount;
+			this.index = theIndex;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean advance() {
+			try {
+				if (this.in == null) {
+					this.in = new DataInputStream(new BufferedInputStream(
+							new FileInputStream(this.file)));
+				}
+				this.current = SortRow.read(this.in, this.keyCount);
+				return this.current != null;
+			} catch (final IOException ex) {
+				throw new AnalystError(ex);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public SortRow getCurrent() {
+			return this.current;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int getIndex() {
+			return this.index;
+		}
+
+		/**
+		 * Close the file, and delete it, as a run is only read once.
+		 */
+		@Override
+		public void close() {
+			try {
+				if (this.in != null) {
+					this.in.close();
+					this.in = null;
+				}
+			} catch (final IOException ex) {
+				throw new AnalystError(ex);
+			} finally {
+				this.file.delete();
+			}
+		}
+	}
 }
@@ -96,6 +96,16 @@ public class AnalystClassItem implements Comparable<AnalystClassItem> {
 		this.count++;
 	}
 
+	/**
+	 * Increase the count by the specified amount.
+	 * 
+	 * @param amount
+	 *            The amount to add.
+	 */
+	public void increaseCount(final int amount) {
+		this.count += amount;
+	}
+
 	/**
 	 * @param theCode
 	 *            the code to set
@@ -128,6 +128,7 @@ public class AnalystField {
 		this.name = field.name;
 		this.output = field.output;
 		this.timeSlice = field.timeSlice;
+		this.classes.addAll(field.classes);
 		fixSingleValue();
 	}
 
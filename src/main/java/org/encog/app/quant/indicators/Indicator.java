@@ -58,6 +58,16 @@ public abstract class Indicator extends BaseCachedColumn {
 		super(name, input, output);
 	}
 
+	/**
+	 * Prepare to calculate the indicator in streaming mode, clearing any
+	 * state kept between rows.
+	 * 
+	 * @param data
+	 *            The columns of the file, which are not allocated.
+	 */
+	public void beginStreaming(final Map<String, BaseCachedColumn> data) {
+	}
+
 	/**
 	 * Calculate this indicator.
 	 * 
@@ -69,6 +79,24 @@ public abstract class Indicator extends BaseCachedColumn {
 	public abstract void calculate(Map<String, BaseCachedColumn> data,
 			int length);
 
+	/**
+	 * Calculate the indicator for one row, in streaming mode. This is called
+	 * for every row of the file in order, starting at zero, so that running
+	 * state may be kept between rows. The window holds every row within the
+	 * look-back and look-ahead of the row. The result must be identical to
+	 * the value calculate would produce for the row.
+	 * 
+	 * @param window
+	 *            The resident rows.
+	 * @param row
+	 *            The row to calculate.
+	 * @return The value of the indicator at the row.
+	 */
+	public double calculateRow(final IndicatorWindow window, final long row) {
+		throw new QuantError("The indicator " + getName()
+				+ " can't be calculated one row at a time.");
+	}
+
 	/**
 	 * @return the beginningIndex
 	 */
@@ -83,11 +111,37 @@ public abstract class Indicator extends BaseCachedColumn {
 		return this.endingIndex;
 	}
 
+	/**
+	 * @return The number of rows after a row that are needed to calculate it.
+	 *         The indicator has no value for this many rows at the end of the
+	 *         file.
+	 */
+	public int getLookAhead() {
+		return 0;
+	}
+
+	/**
+	 * @return The number of rows before a row that are needed to calculate
+	 *         it. The indicator has no value for this many rows at the
+	 *         beginning of the file.
+	 */
+	public int getLookBack() {
+		return 0;
+	}
+
 	/**
 	 * @return The number of periods this indicator is for.
 	 */
 	public abstract int getPeriods();
 
+	/**
+	 * @return True, if this indicator can be calculated one row at a time,
+	 *         with calculateRow.
+	 */
+	public boolean isStreamable() {
+		return false;
+	}
+
 	/**
 	 * Require a specific type of underlying data.
 	 * 
@@ -0,0 +1,138 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.quant.indicators;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.encog.app.quant.QuantError;
+
+/**
+ * The rows of a file that are resident while indicators are processed in
+ * streaming mode. Only the most recent rows are kept, enough to cover the
+ * look-back and look-ahead of every indicator, so a file of any length is
+ * processed in constant memory. Rows are addressed by their absolute index
+ * in the file.
+ */
+public class IndicatorWindow {
+
+	/**
+	 * The index of each column, by name.
+	 */
+	private final Map<String, Integer> columnIndex 
+		= new HashMap<String, Integer>();
+
+	/**
+	 * The resident rows of each column, a ring indexed by row modulo the
+	 * capacity.
+	 */
+	private final double[][] data;
+
+	/**
+	 * The number of rows held.
+	 */
+	private final int capacity;
+
+	/**
+	 * The number of rows added.
+	 */
+	private long rowCount;
+
+	/**
+	 * Construct the window.
+	 * 
+	 * @param names
+	 *            The names of the columns. If a name occurs more than once,
+	 *            the last column with that name is found by name.
+	 * @param theCapacity
+	 *            The number of rows to hold.
+	 */
+	public IndicatorWindow(final List<String> names, final int theCapacity) {
+		this.capacity = theCapacity;
+		this.data = new double[names.size()][theCapacity];
+		for (int i = 0; i < names.size(); i++) {
+			this.columnIndex.put(names.get(i), i);
+		}
+	}
+
+	/**
+	 * Add the next row of the file, replacing the oldest row held.
+	 * 
+	 * @param values
+	 *            The value of each column.
+	 */
+	public final void add(final double[] values) {
+		final int slot = (int) (this.rowCount % this.capacity);
+		for (int i = 0; i < this.data.length; i++) {
+			this.data[i][slot] = values[i];
+		}
+		this.rowCount++;
+	}
+
+	/**
+	 * Get a value from the window.
+	 * 
+	 * @param column
+	 *            The column index.
+	 * @param row
+	 *            The row index, within the file.
+	 * @return The value.
+	 */
+	public final double get(final int column, final long row) {
+		if (row >= this.rowCount || row < this.rowCount - this.capacity
+				|| row < 0) {
+			throw new QuantError("Row " + row
+					+ " is not in the window, which holds rows "
+					+ Math.max(0, this.rowCount - this.capacity) + " to "
+					+ (this.rowCount - 1) + ".");
+		}
+		return this.data[column][(int) (row % this.capacity)];
+	}
+
+	/**
+	 * Get a value from the window.
+	 * 
+	 * @param name
+	 *            The column name.
+	 * @param row
+	 *            The row index, within the file.
+	 * @return The value.
+	 */
+	public final double get(final String name, final long row) {
+		final Integer column = this.columnIndex.get(name);
+		if (column == null) {
+			throw new QuantError("Unknown column: " + name);
+		}
+		return get(column, row);
+	}
+
+	/**
+	 * @return The number of rows that have been added.
+	 */
+	public final long getRowCount() {
+		return this.rowCount;
+	}
+
+}
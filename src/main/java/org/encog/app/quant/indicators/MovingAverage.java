@@ -43,6 +43,11 @@ public class MovingAverage extends Indicator {
 	 */
 	private final int periods;
 
+	/**
+	 * The running total of the period, in streaming mode.
+	 */
+	private double streamTotal;
+
 	/**
 	 * Construct this object.
 	 * 
@@ -57,6 +62,15 @@ public class MovingAverage extends Indicator {
 		setOutput(output);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void beginStreaming(final Map<String, BaseCachedColumn> data) {
+		require(data, FileData.CLOSE);
+		this.streamTotal = 0;
+	}
+
 	/**
 	 * Calculate this indicator.
 	 * 
@@ -105,6 +119,38 @@ public class MovingAverage extends Indicator {
 		}
 	}
 
+	/**
+	 * Calculate one row, adding and removing closes from the running total
+	 * in the same order as calculate, so the result is identical.
+	 * 
+	 * @param window
+	 *            The resident rows.
+	 * @param row
+	 *            The row to calculate.
+	 * @return The moving average, or zero before the first full period.
+	 */
+	@Override
+	public final double calculateRow(final IndicatorWindow window,
+			final long row) {
+		this.streamTotal += window.get(FileData.CLOSE, row);
+		if (row < this.periods - 1) {
+			return 0;
+		}
+
+		final double t = this.streamTotal;
+		this.streamTotal -= window.get(FileData.CLOSE, row
+				- (this.periods - 1));
+		return t / this.periods;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getLookBack() {
+		return this.periods - 1;
+	}
+
 	/**
 	 * @return The number of periods in this indicator.
 	 */
@@ -112,4 +158,12 @@ public class MovingAverage extends Indicator {
 	public final int getPeriods() {
 		return this.periods;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final boolean isStreamable() {
+		return true;
+	}
 }
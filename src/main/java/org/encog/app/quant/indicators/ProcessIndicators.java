@@ -27,6 +27,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.encog.app.analyst.csv.basic.BaseCachedColumn;
 import org.encog.app.analyst.csv.basic.BasicCachedFile;
@@ -36,9 +38,21 @@ import org.encog.util.csv.ReadCSV;
 
 /**
  * Process indicators and generate output.
+ * 
+ * When every output column is either file data or an indicator that can be
+ * calculated one row at a time, the file is processed in streaming mode.
+ * Only the rows within the look-back and look-ahead of the indicators are
+ * kept in memory, so files of any length can be processed. Otherwise every
+ * column of the file is loaded before the indicators are calculated. Both
+ * modes produce the same output.
  */
 public class ProcessIndicators extends BasicCachedFile {
 
+	/**
+	 * True, if streaming mode should be used when the columns allow it.
+	 */
+	private boolean streaming = true;
+
 	/**
 	 * Allocate storage.
 	 */
@@ -62,6 +76,24 @@ public class ProcessIndicators extends BasicCachedFile {
 		}
 	}
 
+	/**
+	 * @return True, if every output column can be produced in streaming mode.
+	 */
+	private boolean canStream() {
+		for (final BaseCachedColumn column : getColumns()) {
+			if (column.isOutput()) {
+				if (column instanceof Indicator) {
+					if (!((Indicator) column).isStreamable()) {
+						return false;
+					}
+				} else if (!(column instanceof FileData)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * @return Get the beginning index.
 	 */
@@ -94,6 +126,13 @@ public class ProcessIndicators extends BasicCachedFile {
 		return result;
 	}
 
+	/**
+	 * @return True, if streaming mode is used when the columns allow it.
+	 */
+	public final boolean isStreaming() {
+		return this.streaming;
+	}
+
 	/**
 	 * Process and write the specified output file.
 	 * 
@@ -103,10 +142,110 @@ public class ProcessIndicators extends BasicCachedFile {
 	public final void process(final File output) {
 		validateAnalyzed();
 
-		allocateStorage();
-		readFile();
-		calculateIndicators();
-		writeCSV(output);
+		if (this.streaming && canStream()) {
+			processStreaming(output);
+		} else {
+			allocateStorage();
+			readFile();
+			calculateIndicators();
+			writeCSV(output);
+		}
+	}
+
+	/**
+	 * Process the file in streaming mode. Each row is calculated once the
+	 * rows it looks ahead to have been read, and is written if every
+	 * indicator has a value for it.
+	 * 
+	 * @param output
+	 *            The output file.
+	 */
+	private void processStreaming(final File output) {
+		final List<FileData> fileData = new ArrayList<FileData>();
+		final List<String> names = new ArrayList<String>();
+		int lookBack = 0;
+		int lookAhead = 0;
+
+		for (final BaseCachedColumn column : getColumns()) {
+			if (column instanceof FileData && column.isInput()) {
+				fileData.add((FileData) column);
+				names.add(column.getName());
+			} else if (column instanceof Indicator && column.isOutput()) {
+				final Indicator indicator = (Indicator) column;
+				indicator.beginStreaming(getColumnMapping());
+				lookBack = Math.max(lookBack, indicator.getLookBack());
+				lookAhead = Math.max(lookAhead, indicator.getLookAhead());
+			}
+		}
+
+		final IndicatorWindow window = new IndicatorWindow(names, lookBack
+				+ lookAhead + 1);
+		final double[] values = new double[fileData.size()];
+
+		ReadCSV csv = null;
+		PrintWriter tw = null;
+
+		try {
+			csv = new ReadCSV(getInputFilename().toString(),
+					isExpectInputHeaders(), getFormat());
+			tw = new PrintWriter(new FileWriter(output));
+
+			if (isExpectInputHeaders()) {
+				writeHeaders(tw);
+			}
+
+			resetStatus();
+			final StringBuilder line = new StringBuilder();
+			while (csv.next() && !shouldStop()) {
+				updateStatus("Processing data");
+				for (int i = 0; i < values.length; i++) {
+					final String str = csv.get(fileData.get(i).getIndex());
+					values[i] = getFormat().parse(str);
+				}
+				window.add(values);
+
+				final long row = window.getRowCount() - 1 - lookAhead;
+				if (row < 0) {
+					continue;
+				}
+
+				// every indicator sees every row, even the rows that are not
+				// written, so that it can keep its running state
+				line.setLength(0);
+				int fileIndex = 0;
+				for (final BaseCachedColumn column : getColumns()) {
+					double d = 0;
+					if (column instanceof FileData) {
+						if (column.isInput()) {
+							d = window.get(fileIndex++, row);
+						}
+					} else if (column.isOutput()) {
+						d = ((Indicator) column).calculateRow(window, row);
+					}
+
+					if (column.isOutput()) {
+						if (line.length() > 0) {
+							line.append(getFormat().getSeparator());
+						}
+						line.append(getFormat().format(d, getPrecision()));
+					}
+				}
+
+				if (row >= lookBack) {
+					tw.println(line.toString());
+				}
+			}
+		} catch (final IOException e) {
+			throw (new QuantError(e));
+		} finally {
+			reportDone("Processing data");
+			if (csv != null) {
+				csv.close();
+			}
+			if (tw != null) {
+				tw.close();
+			}
+		}
 	}
 
 	/**
@@ -157,6 +296,15 @@ public class ProcessIndicators extends BasicCachedFile {
 		getColumnMapping().put(newName, getColumns().get(index));
 	}
 
+	/**
+	 * @param theStreaming
+	 *            True, if streaming mode should be used when the columns
+	 *            allow it. False to always load the entire file.
+	 */
+	public final void setStreaming(final boolean theStreaming) {
+		this.streaming = theStreaming;
+	}
+
 	/**
 	 * Write the CSV.
 	 * 
@@ -172,20 +320,7 @@ public class ProcessIndicators extends BasicCachedFile {
 
 			// write the headers
 			if (isExpectInputHeaders()) {
-				final StringBuilder line = new StringBuilder();
-
-				for (final BaseCachedColumn column : getColumns()) {
-					if (column.isOutput()) {
-						if (line.length() > 0) {
-							line.append(getFormat().getSeparator());
-						}
-						line.append("\"");
-						line.append(column.getName());
-						line.append("\"");
-					}
-				}
-
-				tw.println(line.toString());
+				writeHeaders(tw);
 			}
 
 			// starting and ending index
@@ -217,4 +352,27 @@ public class ProcessIndicators extends BasicCachedFile {
 			}
 		}
 	}
+
+	/**
+	 * Write the headers of the output columns.
+	 * 
+	 * @param tw
+	 *            The file to write to.
+	 */
+	private void writeHeaders(final PrintWriter tw) {
+		final StringBuilder line = new StringBuilder();
+
+		for (final BaseCachedColumn column : getColumns()) {
+			if (column.isOutput()) {
+				if (line.length() > 0) {
+					line.append(getFormat().getSeparator());
+				}
+				line.append("\"");
+				line.append(column.getName());
+				line.append("\"");
+			}
+		}
+
+		tw.println(line.toString());
+	}
 }
@@ -28,6 +28,8 @@ import java.util.Map;
 import org.encog.app.analyst.csv.basic.BaseCachedColumn;
 import org.encog.app.analyst.csv.basic.FileData;
 import org.encog.app.quant.indicators.Indicator;
+import org.encog.app.quant.indicators.IndicatorWindow;
+import org.encog.app.quant.util.MonotonicDeque;
 
 /**
  * Get the best close.
@@ -44,6 +46,16 @@ public class BestClose extends Indicator {
 	 */
 	private final int periods;
 
+	/**
+	 * The closes of the look-ahead window, in streaming mode.
+	 */
+	private MonotonicDeque streamWindow;
+
+	/**
+	 * The next row to add to the look-ahead window, in streaming mode.
+	 */
+	private long streamNext;
+
 	/**
 	 * Construct the object.
 	 * 
@@ -58,6 +70,16 @@ public class BestClose extends Indicator {
 		setOutput(output);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void beginStreaming(final Map<String, BaseCachedColumn> data) {
+		require(data, FileData.CLOSE);
+		this.streamWindow = new MonotonicDeque(this.periods, true);
+		this.streamNext = 1;
+	}
+
 	/**
 	 * Calculate the indicator.
 	 * 
@@ -72,13 +94,18 @@ public class BestClose extends Indicator {
 		final double[] close = data.get(FileData.CLOSE).getData();
 		final double[] output = getData();
 
+		// slide a window of the next periods closes along the data, rather
+		// than rescanning the window for every row
+		final MonotonicDeque window = new MonotonicDeque(this.periods, true);
+		for (int j = 1; j < this.periods && j < length; j++) {
+			window.add(j, close[j]);
+		}
+
 		final int stop = length - this.periods;
 		for (int i = 0; i < stop; i++) {
-			double bestClose = Double.MIN_VALUE;
-			for (int j = 1; j <= this.periods; j++) {
-				bestClose = Math.max(close[i + j], bestClose);
-			}
-			output[i] = bestClose;
+			window.add(i + this.periods, close[i + this.periods]);
+			window.expire(i + 1);
+			output[i] = Math.max(window.get(), Double.MIN_VALUE);
 		}
 
 		for (int i = length - this.periods; i < length; i++) {
@@ -89,6 +116,35 @@ public class BestClose extends Indicator {
 		setEndingIndex(length - this.periods - 1);
 	}
 
+	/**
+	 * Calculate one row, sliding the look-ahead window forward.
+	 * 
+	 * @param window
+	 *            The resident rows.
+	 * @param row
+	 *            The row to calculate.
+	 * @return The best close of the following periods.
+	 */
+	@Override
+	public final double calculateRow(final IndicatorWindow window,
+			final long row) {
+		while (this.streamNext <= row + this.periods) {
+			this.streamWindow.add(this.streamNext,
+					window.get(FileData.CLOSE, this.streamNext));
+			this.streamNext++;
+		}
+		this.streamWindow.expire(row + 1);
+		return Math.max(this.streamWindow.get(), Double.MIN_VALUE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getLookAhead() {
+		return this.periods;
+	}
+
 	/**
 	 * @return The number of periods.
 	 */
@@ -96,4 +152,12 @@ public class BestClose extends Indicator {
 	public final int getPeriods() {
 		return this.periods;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final boolean isStreamable() {
+		return true;
+	}
 }
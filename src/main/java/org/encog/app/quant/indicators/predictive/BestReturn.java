@@ -28,6 +28,8 @@ import java.util.Map;
 import org.encog.app.analyst.csv.basic.BaseCachedColumn;
 import org.encog.app.analyst.csv.basic.FileData;
 import org.encog.app.quant.indicators.Indicator;
+import org.encog.app.quant.indicators.IndicatorWindow;
+import org.encog.app.quant.util.MonotonicDeque;
 
 /**
  * Get the best return.
@@ -44,6 +46,21 @@ public class BestReturn extends Indicator {
 	 */
 	private final int periods;
 
+	/**
+	 * The highest close of the look-ahead window, in streaming mode.
+	 */
+	private MonotonicDeque streamHighest;
+
+	/**
+	 * The lowest close of the look-ahead window, in streaming mode.
+	 */
+	private MonotonicDeque streamLowest;
+
+	/**
+	 * The next row to add to the look-ahead window, in streaming mode.
+	 */
+	private long streamNext;
+
 	/**
 	 * Construct the object.
 	 * 
@@ -58,6 +75,17 @@ public class BestReturn extends Indicator {
 		setOutput(output);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final void beginStreaming(final Map<String, BaseCachedColumn> data) {
+		require(data, FileData.CLOSE);
+		this.streamHighest = new MonotonicDeque(this.periods, true);
+		this.streamLowest = new MonotonicDeque(this.periods, false);
+		this.streamNext = 1;
+	}
+
 	/**
 	 * Calculate the indicator.
 	 * 
@@ -72,16 +100,36 @@ public class BestReturn extends Indicator {
 		final double[] close = data.get(FileData.CLOSE).getData();
 		final double[] output = getData();
 
+		// the best return is the return to the highest of the next periods
+		// closes (the lowest, if the base close is negative), so both are
+		// tracked over a sliding window rather than rescanned for every row
+		final MonotonicDeque highest = new MonotonicDeque(this.periods, true);
+		final MonotonicDeque lowest = new MonotonicDeque(this.periods, false);
+		for (int j = 1; j < this.periods && j < length; j++) {
+			highest.add(j, close[j]);
+			lowest.add(j, close[j]);
+		}
+
 		final int stop = length - this.periods;
 		for (int i = 0; i < stop; i++) {
-			double bestReturn = Double.MIN_VALUE;
+			highest.add(i + this.periods, close[i + this.periods]);
+			lowest.add(i + this.periods, close[i + this.periods]);
+			highest.expire(i + 1);
+			lowest.expire(i + 1);
+
 			final double baseClose = close[i];
-			for (int j = 1; j <= this.periods; j++) {
-				final double newClose = close[i + j];
-				final double rtn = (newClose - baseClose) / baseClose;
-				bestReturn = Math.max(rtn, bestReturn);
+			double bestReturn = Double.MIN_VALUE;
+			if (baseClose > 0) {
+				bestReturn = (highest.get() - baseClose) / baseClose;
+			} else if (baseClose < 0) {
+				bestReturn = (lowest.get() - baseClose) / baseClose;
+			} else {
+				for (int j = 1; j <= this.periods; j++) {
+					final double rtn = close[i + j] / baseClose;
+					bestReturn = Math.max(rtn, bestReturn);
+				}
 			}
-			output[i] = bestReturn;
+			output[i] = Math.max(bestReturn, Double.MIN_VALUE);
 		}
 
 		for (int i = length - this.periods; i < length; i++) {
@@ -92,6 +140,51 @@ public class BestReturn extends Indicator {
 		setEndingIndex(length - this.periods - 1);
 	}
 
+	/**
+	 * Calculate one row, sliding the look-ahead window forward.
+	 * 
+	 * @param window
+	 *            The resident rows.
+	 * @param row
+	 *            The row to calculate.
+	 * @return The best return of the following periods.
+	 */
+	@Override
+	public final double calculateRow(final IndicatorWindow window,
+			final long row) {
+		while (this.streamNext <= row + this.periods) {
+			final double close = window.get(FileData.CLOSE, this.streamNext);
+			this.streamHighest.add(this.streamNext, close);
+			this.streamLowest.add(this.streamNext, close);
+			this.streamNext++;
+		}
+		this.streamHighest.expire(row + 1);
+		this.streamLowest.expire(row + 1);
+
+		final double baseClose = window.get(FileData.CLOSE, row);
+		double bestReturn = Double.MIN_VALUE;
+		if (baseClose > 0) {
+			bestReturn = (this.streamHighest.get() - baseClose) / baseClose;
+		} else if (baseClose < 0) {
+			bestReturn = (this.streamLowest.get() - baseClose) / baseClose;
+		} else {
+			for (int j = 1; j <= this.periods; j++) {
+				final double rtn = window.get(FileData.CLOSE, row + j)
+						/ baseClose;
+				bestReturn = Math.max(rtn, bestReturn);
+			}
+		}
+		return Math.max(bestReturn, Double.MIN_VALUE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getLookAhead() {
+		return this.periods;
+	}
+
 	/**
 	 * @return The number of periods.
 	 */
@@ -100,4 +193,12 @@ public class BestReturn extends Indicator {
 		return this.periods;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final boolean isStreamable() {
+		return true;
+	}
+
 }
@@ -26,22 +26,72 @@ package org.encog.app.quant.util;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.encog.app.quant.QuantError;
 import org.encog.util.EngineArray;
 
 /**
- * A buffer of bar segments.
+ * A buffer of bar segments. The bars are held in a fixed ring of primitive
+ * arrays, and the running totals, gains, losses and sliding extremes of each
+ * field are updated as bars are added and removed, so the statistics are
+ * available in constant time regardless of the number of periods.
  */
 public class BarBuffer {
 
 	/**
-	 * The bar data loaded.
+	 * The number of periods.
 	 */
-	private final List<double[]> data = new ArrayList<double[]>();
+	private final int periods;
 
 	/**
-	 * The number of periods.
+	 * The ring of bars, allocated on the first add.
 	 */
-	private final int periods;
+	private double[][] bars;
+
+	/**
+	 * The ring index of the oldest bar.
+	 */
+	private int head;
+
+	/**
+	 * The number of bars held.
+	 */
+	private int count;
+
+	/**
+	 * The position assigned to the next bar added.
+	 */
+	private long sequence;
+
+	/**
+	 * The number of bars removed since the running totals were last
+	 * recalculated.
+	 */
+	private int removed;
+
+	/**
+	 * The running total of each field.
+	 */
+	private double[] sums;
+
+	/**
+	 * The running total of the gains of each field.
+	 */
+	private double[] gains;
+
+	/**
+	 * The running total of the losses of each field.
+	 */
+	private double[] losses;
+
+	/**
+	 * The sliding maximum of each field.
+	 */
+	private MonotonicDeque[] maxima;
+
+	/**
+	 * The sliding minimum of each field.
+	 */
+	private MonotonicDeque[] minima;
 
 	/**
 	 * Construct the object.
@@ -50,6 +100,9 @@ public class BarBuffer {
 	 *            The number of periods.
 	 */
 	public BarBuffer(final int thePeriods) {
+		if (thePeriods < 1) {
+			throw new QuantError("A bar buffer must hold at least one period.");
+		}
 		this.periods = thePeriods;
 	}
 
@@ -72,9 +125,71 @@ public class BarBuffer {
 	 *            The bar data.
 	 */
 	public final void add(final double[] d) {
-		this.data.add(0, EngineArray.arrayCopy(d));
-		if (this.data.size() > this.periods) {
-			this.data.remove(this.data.size() - 1);
+		if (this.bars == null) {
+			allocate(d.length);
+		} else if (d.length != this.sums.length) {
+			throw new QuantError("Bar has " + d.length
+					+ " fields, expected " + this.sums.length + ".");
+		}
+
+		if (this.count == this.periods) {
+			removeOldest();
+		}
+
+		final double[] previous = (this.count > 0) ? bar(this.count - 1)
+				: null;
+		final double[] slot = bar(this.count);
+		EngineArray.arrayCopy(d, slot);
+
+		for (int i = 0; i < slot.length; i++) {
+			this.sums[i] += slot[i];
+			if (previous != null) {
+				accumulateChange(i, slot[i] - previous[i], 1);
+			}
+			this.maxima[i].add(this.sequence, slot[i]);
+			this.minima[i].add(this.sequence, slot[i]);
+		}
+
+		this.count++;
+		this.sequence++;
+	}
+
+	/**
+	 * Add (or remove) a change between two consecutive bars to the running
+	 * gain or loss of a field.
+	 * 
+	 * @param idx
+	 *            The field index.
+	 * @param diff
+	 *            The change from the older bar to the newer.
+	 * @param sign
+	 *            1 to add the change, -1 to remove it.
+	 */
+	private void accumulateChange(final int idx, final double diff,
+			final int sign) {
+		if (diff > 0) {
+			this.gains[idx] += sign * diff;
+		} else if (diff < 0) {
+			this.losses[idx] += sign * Math.abs(diff);
+		}
+	}
+
+	/**
+	 * Allocate the ring and the running statistics.
+	 * 
+	 * @param width
+	 *            The number of fields in each bar.
+	 */
+	private void allocate(final int width) {
+		this.bars = new double[this.periods][width];
+		this.sums = new double[width];
+		this.gains = new double[width];
+		this.losses = new double[width];
+		this.maxima = new MonotonicDeque[width];
+		this.minima = new MonotonicDeque[width];
+		for (int i = 0; i < width; i++) {
+			this.maxima[i] = new MonotonicDeque(this.periods, true);
+			this.minima[i] = new MonotonicDeque(this.periods, false);
 		}
 	}
 
@@ -86,13 +201,10 @@ public class BarBuffer {
 	 * @return The average.
 	 */
 	public final double average(final int idx) {
-		double total = 0;
-		for (int i = 0; i < this.data.size(); i++) {
-			final double[] d = this.data.get(i);
-			total += d[idx];
+		if (this.count == 0) {
+			return Double.NaN;
 		}
-
-		return total / this.data.size();
+		return this.sums[idx] / this.count;
 	}
 
 	/**
@@ -103,23 +215,10 @@ public class BarBuffer {
 	 * @return The average gain.
 	 */
 	public final double averageGain(final int idx) {
-		double total = 0;
-		int count = 0;
-		for (int i = 0; i < this.data.size() - 1; i++) {
-			final double[] today = this.data.get(i);
-			final double[] yesterday = this.data.get(i + 1);
-			final double diff = today[idx] - yesterday[idx];
-			if (diff > 0) {
-				total += diff;
-			}
-			count++;
-		}
-
-		if (count == 0) {
+		if (this.count < 2) {
 			return 0;
-		} else {
-			return total / count;
 		}
+		return this.gains[idx] / (this.count - 1);
 	}
 
 	/**
@@ -130,30 +229,32 @@ public class BarBuffer {
 	 * @return The average loss.
 	 */
 	public final double averageLoss(final int idx) {
-		double total = 0;
-		int count = 0;
-		for (int i = 0; i < this.data.size() - 1; i++) {
-			final double[] today = this.data.get(i);
-			final double[] yesterday = this.data.get(i + 1);
-			final double diff = today[idx] - yesterday[idx];
-			if (diff < 0) {
-				total += Math.abs(diff);
-			}
-			count++;
-		}
-
-		if (count == 0) {
+		if (this.count < 2) {
 			return 0;
-		} else {
-			return total / count;
 		}
+		return this.losses[idx] / (this.count - 1);
 	}
 
 	/**
-	 * @return The data.
+	 * Get a bar by its age.
+	 * 
+	 * @param offset
+	 *            The offset from the oldest bar held.
+	 * @return The bar, as held in the ring.
+	 */
+	private double[] bar(final int offset) {
+		return this.bars[(this.head + offset) % this.periods];
+	}
+
+	/**
+	 * @return A copy of the data, newest bar first.
 	 */
 	public final List<double[]> getData() {
-		return this.data;
+		final List<double[]> result = new ArrayList<double[]>(this.count);
+		for (int i = this.count - 1; i >= 0; i--) {
+			result.add(EngineArray.arrayCopy(bar(i)));
+		}
+		return result;
 	}
 
 	/**
@@ -161,23 +262,23 @@ public class BarBuffer {
 	 * @return True if the buffer is full.
 	 */
 	public final boolean getFull() {
-		return this.data.size() >= this.periods;
+		return this.count >= this.periods;
 	}
 
 	/**
-	 * Get the max for the specified index.
+	 * Get the max for the specified index. This is the largest value held,
+	 * even if every value is negative. Older versions returned
+	 * Double.MIN_VALUE in that case.
 	 * 
 	 * @param idx
 	 *            The index to check.
-	 * @return The max.
+	 * @return The max, or Double.MIN_VALUE if the buffer is empty.
 	 */
 	public final double max(final int idx) {
-		double result = Double.MIN_VALUE;
-
-		for (final double[] d : this.data) {
-			result = Math.max(d[idx], result);
+		if (this.count == 0) {
+			return Double.MIN_VALUE;
 		}
-		return result;
+		return this.maxima[idx].get();
 	}
 
 	/**
@@ -185,15 +286,13 @@ public class BarBuffer {
 	 * 
 	 * @param idx
 	 *            The index to check.
-	 * @return The min.
+	 * @return The min, or Double.MAX_VALUE if the buffer is empty.
 	 */
 	public final double min(final int idx) {
-		double result = Double.MAX_VALUE;
-
-		for (final double[] d : this.data) {
-			result = Math.min(d[idx], result);
+		if (this.count == 0) {
+			return Double.MAX_VALUE;
 		}
-		return result;
+		return this.minima[idx].get();
 	}
 
 	/**
@@ -202,14 +301,58 @@ public class BarBuffer {
 	 * @return The oldest bar in the buffer.
 	 */
 	public final double[] pop() {
-		if (this.data.size() == 0) {
+		if (this.count == 0) {
 			return null;
 		}
 
-		final int idx = this.data.size() - 1;
-		final double[] result = this.data.get(idx);
-		this.data.remove(idx);
+		final double[] result = EngineArray.arrayCopy(bar(0));
+		removeOldest();
 		return result;
 	}
 
+	/**
+	 * Recalculate the running totals from the bars held, so that rounding
+	 * error from repeated subtraction does not accumulate.
+	 */
+	private void recalculate() {
+		EngineArray.fill(this.sums, 0);
+		EngineArray.fill(this.gains, 0);
+		EngineArray.fill(this.losses, 0);
+		for (int j = 0; j < this.count; j++) {
+			final double[] d = bar(j);
+			for (int i = 0; i < d.length; i++) {
+				this.sums[i] += d[i];
+				if (j > 0) {
+					accumulateChange(i, d[i] - bar(j - 1)[i], 1);
+				}
+			}
+		}
+		this.removed = 0;
+	}
+
+	/**
+	 * Remove the oldest bar and back it out of the running statistics.
+	 */
+	private void removeOldest() {
+		final double[] oldest = bar(0);
+		final double[] next = (this.count > 1) ? bar(1) : null;
+		final long expired = this.sequence - this.count + 1;
+
+		for (int i = 0; i < oldest.length; i++) {
+			this.sums[i] -= oldest[i];
+			if (next != null) {
+				accumulateChange(i, next[i] - oldest[i], -1);
+			}
+			this.maxima[i].expire(expired);
+			this.minima[i].expire(expired);
+		}
+
+		this.head = (this.head + 1) % this.periods;
+		this.count--;
+
+		if (++this.removed >= this.periods) {
+			recalculate();
+		}
+	}
+
 }
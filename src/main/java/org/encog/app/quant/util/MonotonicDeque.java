@@ -0,0 +1,146 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.quant.util;
+
+/**
+ * Tracks the maximum (or minimum) of a sliding window in amortized constant
+ * time. Values are added with an increasing position, and positions that
+ * fall out of the window are expired from the front. Any value that can
+ * never again be the extreme, because a newer value is at least as extreme,
+ * is discarded as soon as the newer value arrives.
+ */
+public class MonotonicDeque {
+
+	/**
+	 * The positions of the values held, in ring order.
+	 */
+	private final long[] positions;
+
+	/**
+	 * The values held, in ring order.
+	 */
+	private final double[] values;
+
+	/**
+	 * True to track the maximum, false to track the minimum.
+	 */
+	private final boolean maximum;
+
+	/**
+	 * The ring index of the front (oldest, most extreme) value.
+	 */
+	private int head;
+
+	/**
+	 * The number of values held.
+	 */
+	private int size;
+
+	/**
+	 * Construct the deque.
+	 * 
+	 * @param theWindow
+	 *            The length of the sliding window. One extra slot is kept so
+	 *            that a value may be added before the oldest is expired.
+	 * @param theMaximum
+	 *            True to track the maximum, false to track the minimum.
+	 */
+	public MonotonicDeque(final int theWindow, final boolean theMaximum) {
+		this.positions = new long[theWindow + 1];
+		this.values = new double[theWindow + 1];
+		this.maximum = theMaximum;
+	}
+
+	/**
+	 * Add a value to the back of the window.
+	 * 
+	 * @param position
+	 *            The position of the value, greater than any added before.
+	 * @param value
+	 *            The value.
+	 */
+	public final void add(final long position, final double value) {
+		while (this.size > 0) {
+			final double last = this.values[index(this.size - 1)];
+			if (this.maximum ? last <= value : last >= value) {
+				this.size--;
+			} else {
+				break;
+			}
+		}
+
+		final int idx = index(this.size);
+		this.positions[idx] = position;
+		this.values[idx] = value;
+		this.size++;
+	}
+
+	/**
+	 * Clear the deque.
+	 */
+	public final void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Remove every value whose position is before the start of the window.
+	 * 
+	 * @param oldest
+	 *            The position of the oldest value still in the window.
+	 */
+	public final void expire(final long oldest) {
+		while (this.size > 0 && this.positions[this.head] < oldest) {
+			this.head = (this.head + 1) % this.positions.length;
+			this.size--;
+		}
+	}
+
+	/**
+	 * @return The extreme value of the window. Only meaningful if the deque
+	 *         is not empty.
+	 */
+	public final double get() {
+		return this.values[this.head];
+	}
+
+	/**
+	 * Map a logical offset from the front to a ring index.
+	 * 
+	 * @param offset
+	 *            The offset from the front.
+	 * @return The ring index.
+	 */
+	private int index(final int offset) {
+		return (this.head + offset) % this.positions.length;
+	}
+
+	/**
+	 * @return True, if the deque holds no values.
+	 */
+	public final boolean isEmpty() {
+		return this.size == 0;
+	}
+
+}
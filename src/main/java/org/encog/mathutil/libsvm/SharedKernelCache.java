@@ -0,0 +1,614 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.mathutil.libsvm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A kernel row cache that can be shared between several libsvm trainings.
+ * This is an Encog addition to libsvm.
+ * 
+ * The regular libsvm cache is private to each solver and is indexed by the
+ * solver's own (shuffled) row positions, so every cross validation fold and
+ * every grid point rebuilds it from scratch. This cache is instead keyed by
+ * (dataset, kernel parameters, row of the full dataset). A row holds the
+ * kernel values of one row against every row of the full dataset, so any
+ * training over a subset of a registered dataset, such as a cross validation
+ * fold, can use it. Trainings that differ only by C share all of their rows.
+ * 
+ * The total size of all cached rows is bounded by a single memory budget,
+ * rows are evicted least recently used first. Rows can be stored either on
+ * the Java heap or off-heap in direct buffers. To use the cache, register the
+ * full problem and set the kernel_cache field of the svm_parameter. Once the
+ * trainings on a problem are done, unregister it to release its rows.
+ */
+public class SharedKernelCache {
+
+	/**
+	 * The number of bytes per kernel value.
+	 */
+	public static final int BYTES_PER_VALUE = 4;
+
+	/**
+	 * A dataset that has been registered with this cache.
+	 */
+	private static final class Dataset {
+		/**
+		 * The id of this dataset.
+		 */
+		private final int id;
+
+		/**
+		 * The row array of the problem that was registered.
+		 */
+		private final svm_node[][] source;
+
+		/**
+		 * The rows of the full dataset.
+		 */
+		private final svm_node[][] x;
+
+		/**
+		 * Construct the dataset.
+		 * 
+		 * @param theId
+		 *            The dataset id.
+		 * @param theSource
+		 *            The row array of the registered problem.
+		 * @param theX
+		 *            The rows.
+		 */
+		Dataset(final int theId, final svm_node[][] theSource,
+				final svm_node[][] theX) {
+			this.id = theId;
+			this.source = theSource;
+			this.x = theX;
+		}
+	}
+
+	/**
+	 * The location of a row in a registered dataset.
+	 */
+	private static final class RowRef {
+		/**
+		 * The dataset.
+		 */
+		private final Dataset dataset;
+
+		/**
+		 * The row index within the dataset.
+		 */
+		private final int index;
+
+		/**
+		 * Construct the row reference.
+		 * 
+		 * @param theDataset
+		 *            The dataset.
+		 * @param theIndex
+		 *            The row index.
+		 */
+		RowRef(final Dataset theDataset, final int theIndex) {
+			this.dataset = theDataset;
+			this.index = theIndex;
+		}
+	}
+
+	/**
+	 * The key for a cached kernel row.
+	 */
+	private static final class Key {
+		/**
+		 * The dataset id.
+		 */
+		private final int dataset;
+
+		/**
+		 * The kernel type.
+		 */
+		private final int kernelType;
+
+		/**
+		 * The polynomial degree.
+		 */
+		private final int degree;
+
+		/**
+		 * The gamma.
+		 */
+		private final double gamma;
+
+		/**
+		 * The coef0.
+		 */
+		private final double coef0;
+
+		/**
+		 * The row.
+		 */
+		private final int row;
+
+		/**
+		 * Construct the key.
+		 * 
+		 * @param theDataset
+		 *            The dataset id.
+		 * @param param
+		 *            The kernel parameters.
+		 * @param theRow
+		 *            The row.
+		 */
+		Key(final int theDataset, final svm_parameter param, final int theRow) {
+			this.dataset = theDataset;
+			this.kernelType = param.kernel_type;
+			this.degree = param.degree;
+			this.gamma = param.gamma;
+			this.coef0 = param.coef0;
+			this.row = theRow;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(final Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			final Key k = (Key) other;
+			return this.dataset == k.dataset && this.row == k.row
+					&& this.kernelType == k.kernelType
+					&& this.degree == k.degree
+					&& Double.compare(this.gamma, k.gamma) == 0
+					&& Double.compare(this.coef0, k.coef0) == 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(this.gamma);
+			bits = bits * 31 + Double.doubleToLongBits(this.coef0);
+			int result = (int) (bits ^ (bits >>> 32));
+			result = result * 31 + this.dataset;
+			result = result * 31 + this.kernelType;
+			result = result * 31 + this.degree;
+			result = result * 31 + this.row;
+			return result;
+		}
+	}
+
+	/**
+	 * A view of the cache for one solver. Maps the solver's local row
+	 * positions to rows of the registered dataset.
+	 */
+	static final class View {
+		/**
+		 * The owning cache.
+		 */
+		private final SharedKernelCache owner;
+
+		/**
+		 * The dataset the rows belong to.
+		 */
+		private final Dataset dataset;
+
+		/**
+		 * The kernel parameters.
+		 */
+		private final svm_parameter param;
+
+		/**
+		 * The dataset row for each local position.
+		 */
+		final int[] index;
+
+		/**
+		 * Construct a view.
+		 * 
+		 * @param theOwner
+		 *            The owning cache.
+		 * @param theDataset
+		 *            The dataset.
+		 * @param theParam
+		 *            The kernel parameters.
+		 * @param theIndex
+		 *            The dataset row for each local position.
+		 */
+		View(final SharedKernelCache theOwner, final Dataset theDataset,
+				final svm_parameter theParam, final int[] theIndex) {
+			this.owner = theOwner;
+			this.dataset = theDataset;
+			this.param = theParam;
+			this.index = theIndex;
+		}
+
+		/**
+		 * Get the kernel row for a local position. The row is indexed by
+		 * dataset row, use the index array to map local positions.
+		 * 
+		 * @param i
+		 *            The local position.
+		 * @return The kernel row.
+		 */
+		FloatBuffer row(final int i) {
+			return this.owner.obtainRow(this.dataset, this.param,
+					this.index[i]);
+		}
+
+		/**
+		 * Swap two local positions.
+		 * 
+		 * @param i
+		 *            The first position.
+		 * @param j
+		 *            The second position.
+		 */
+		void swap(final int i, final int j) {
+			final int temp = this.index[i];
+			this.index[i] = this.index[j];
+			this.index[j] = temp;
+		}
+	}
+
+	/**
+	 * The memory budget, in bytes.
+	 */
+	private final long budget;
+
+	/**
+	 * True if rows should be stored off-heap.
+	 */
+	private final boolean offHeap;
+
+	/**
+	 * The cached rows, in least recently used order.
+	 */
+	private final LinkedHashMap<Key, FloatBuffer> rows 
+		= new LinkedHashMap<Key, FloatBuffer>(16, 0.75f, true);
+
+	/**
+	 * Maps each row of each registered dataset to its location.
+	 */
+	private final Map<svm_node[], RowRef> rowRefs 
+		= new IdentityHashMap<svm_node[], RowRef>();
+
+	/**
+	 * The registered datasets.
+	 */
+	private final List<Dataset> datasets = new ArrayList<Dataset>();
+
+	/**
+	 * The id to give the next registered dataset.
+	 */
+	private int nextId;
+
+	/**
+	 * The number of bytes currently used.
+	 */
+	private long used;
+
+	/**
+	 * The number of cache hits.
+	 */
+	private long hits;
+
+	/**
+	 * The number of cache misses.
+	 */
+	private long misses;
+
+	/**
+	 * The number of rows evicted.
+	 */
+	private long evictions;
+
+	/**
+	 * Construct a shared kernel cache.
+	 * 
+	 * @param theBudget
+	 *            The memory budget, in MB.
+	 * @param theOffHeap
+	 *            True to store rows in direct, off-heap, buffers.
+	 */
+	public SharedKernelCache(final double theBudget, final boolean theOffHeap) {
+		this.budget = (long) (theBudget * (1 << 20));
+		this.offHeap = theOffHeap;
+	}
+
+	/**
+	 * Register a problem with the cache. Any training on this problem, or on
+	 * a problem made of a subset of its rows, can then use the cache.
+	 * Registering the same problem twice has no effect.
+	 * 
+	 * @param prob
+	 *            The full problem.
+	 */
+	public synchronized void register(final svm_problem prob) {
+		if (findDataset(prob) != null) {
+			return;
+		}
+
+		final svm_node[][] x = new svm_node[prob.l][];
+		System.arraycopy(prob.x, 0, x, 0, prob.l);
+		final Dataset dataset = new Dataset(this.nextId++, prob.x, x);
+		this.datasets.add(dataset);
+		addRowRefs(dataset);
+	}
+
+	/**
+	 * Unregister a problem, and release all of its cached rows. Trainings
+	 * that are still running on the problem keep working, but their rows
+	 * are no longer cached. Unregistering a problem that is not registered
+	 * has no effect.
+	 * 
+	 * @param prob
+	 *            The problem that was registered.
+	 */
+	public synchronized void unregister(final svm_problem prob) {
+		final Dataset dataset = findDataset(prob);
+		if (dataset == null) {
+			return;
+		}
+
+		this.datasets.remove(dataset);
+
+		final Iterator<RowRef> refs = this.rowRefs.values().iterator();
+		while (refs.hasNext()) {
+			if (refs.next().dataset == dataset) {
+				refs.remove();
+			}
+		}
+
+		// rows shared with another dataset now map to that dataset
+		for (final Dataset other : this.datasets) {
+			addRowRefs(other);
+		}
+
+		final Iterator<Map.Entry<Key, FloatBuffer>> itr = this.rows.entrySet()
+				.iterator();
+		while (itr.hasNext()) {
+			final Map.Entry<Key, FloatBuffer> entry = itr.next();
+			if (entry.getKey().dataset == dataset.id) {
+				this.used -= (long) entry.getValue().capacity()
+						* BYTES_PER_VALUE;
+				itr.remove();
+			}
+		}
+	}
+
+	/**
+	 * Find the dataset a problem was registered as.
+	 * 
+	 * @param prob
+	 *            The problem.
+	 * @return The dataset, or null if the problem is not registered.
+	 */
+	private Dataset findDataset(final svm_problem prob) {
+		for (final Dataset dataset : this.datasets) {
+			if (dataset.source == prob.x) {
+				return dataset;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Map the rows of a dataset that are not already mapped to it.
+	 * 
+	 * @param dataset
+	 *            The dataset.
+	 */
+	private void addRowRefs(final Dataset dataset) {
+		for (int i = 0; i < dataset.x.length; i++) {
+			if (!this.rowRefs.containsKey(dataset.x[i])) {
+				this.rowRefs.put(dataset.x[i], new RowRef(dataset, i));
+			}
+		}
+	}
+
+	/**
+	 * @return The number of registered datasets.
+	 */
+	public synchronized int getDatasetCount() {
+		return this.datasets.size();
+	}
+
+	/**
+	 * Create a view of the cache for a solver.
+	 * 
+	 * @param x
+	 *            The rows the solver is training on.
+	 * @param param
+	 *            The kernel parameters.
+	 * @return The view, or null if the rows do not all belong to the same
+	 *         registered dataset.
+	 */
+	synchronized View createView(final svm_node[][] x,
+			final svm_parameter param) {
+		if (param.kernel_type == svm_parameter.PRECOMPUTED || x.length == 0) {
+			return null;
+		}
+
+		final int[] index = new int[x.length];
+		Dataset dataset = null;
+
+		for (int i = 0; i < x.length; i++) {
+			final RowRef ref = this.rowRefs.get(x[i]);
+			if (ref == null || (dataset != null && ref.dataset != dataset)) {
+				return null;
+			}
+			dataset = ref.dataset;
+			index[i] = ref.index;
+		}
+
+		if (((long) dataset.x.length * BYTES_PER_VALUE * 2) > this.budget) {
+			return null;
+		}
+
+		return new View(this, dataset, (svm_parameter) param.clone(), index);
+	}
+
+	/**
+	 * Obtain a kernel row, calculating it if it is not cached.
+	 * 
+	 * @param dataset
+	 *            The dataset.
+	 * @param param
+	 *            The kernel parameters.
+	 * @param row
+	 *            The dataset row.
+	 * @return The kernel row.
+	 */
+	private FloatBuffer obtainRow(final Dataset dataset,
+			final svm_parameter param, final int row) {
+		final Key key = new Key(dataset.id, param, row);
+
+		synchronized (this) {
+			final FloatBuffer result = this.rows.get(key);
+			if (result != null) {
+				this.hits++;
+				return result;
+			}
+			this.misses++;
+		}
+
+		// calculate outside of the lock, other threads keep working
+		final svm_node[][] x = dataset.x;
+		final FloatBuffer result = allocate(x.length);
+		svm.kernel_row(x[row], x, param, result);
+
+		synchronized (this) {
+			if (!this.datasets.contains(dataset)) {
+				// unregistered while calculating, do not cache
+				return result;
+			}
+			final long size = (long) x.length * BYTES_PER_VALUE;
+			final Iterator<FloatBuffer> itr = this.rows.values().iterator();
+			while ((this.used + size) > this.budget && itr.hasNext()) {
+				this.used -= (long) itr.next().capacity() * BYTES_PER_VALUE;
+				itr.remove();
+				this.evictions++;
+			}
+			if (this.rows.put(key, result) == null) {
+				this.used += size;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Allocate storage for a row.
+	 * 
+	 * @param length
+	 *            The number of values.
+	 * @return The storage.
+	 */
+	private FloatBuffer allocate(final int length) {
+		if (this.offHeap) {
+			return ByteBuffer.allocateDirect(length * BYTES_PER_VALUE)
+					.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		} else {
+			return FloatBuffer.allocate(length);
+		}
+	}
+
+	/**
+	 * Remove all cached rows. Registered datasets and metrics are kept.
+	 */
+	public synchronized void clear() {
+		this.rows.clear();
+		this.used = 0;
+	}
+
+	/**
+	 * @return The memory budget, in bytes.
+	 */
+	public long getBudget() {
+		return this.budget;
+	}
+
+	/**
+	 * @return True if rows are stored off-heap.
+	 */
+	public boolean isOffHeap() {
+		return this.offHeap;
+	}
+
+	/**
+	 * @return The number of bytes currently used by cached rows.
+	 */
+	public synchronized long getUsed() {
+		return this.used;
+	}
+
+	/**
+	 * @return The number of rows currently cached.
+	 */
+	public synchronized int getRowCount() {
+		return this.rows.size();
+	}
+
+	/**
+	 * @return The number of cache hits.
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * @return The number of cache misses.
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * @return The number of rows evicted to stay within the budget.
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * @return The fraction of requests that were cache hits.
+	 */
+	public synchronized double getHitRate() {
+		final long total = this.hits + this.misses;
+		if (total == 0) {
+			return 0;
+		}
+		return (double) this.hits / total;
+	}
+}
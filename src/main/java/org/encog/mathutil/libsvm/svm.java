@@ -1213,13 +1213,26 @@ class SVC_Q extends Kernel
 {
 	private final byte[] y;
 	private final Cache cache;
+	private final SharedKernelCache.View shared;
+	private final float[][] buffer;
+	private int next_buffer;
 	private final double[] QD;
 
 	SVC_Q(svm_problem prob, svm_parameter param, byte[] y_)
 	{
 		super(prob.l, prob.x, param);
 		y = (byte[])y_.clone();
-		cache = new Cache(prob.l,(long)(param.cache_size*(1<<20)));
+		shared = (param.kernel_cache == null) ? null : param.kernel_cache.createView(prob.x, param);
+		if(shared == null)
+		{
+			cache = new Cache(prob.l,(long)(param.cache_size*(1<<20)));
+			buffer = null;
+		}
+		else
+		{
+			cache = null;
+			buffer = new float[2][prob.l];
+		}
 		QD = new double[prob.l];
 		for(int i=0;i<prob.l;i++)
 			QD[i] = kernel_function(i,i);
@@ -1227,8 +1240,18 @@ class SVC_Q extends Kernel
 
 	float[] get_Q(int i, int len)
 	{
-		float[][] data = new float[1][];
 		int start, j;
+		if(shared != null)
+		{
+			// Encog: gather from the shared cache
+			java.nio.FloatBuffer row = shared.row(i);
+			float[] buf = buffer[next_buffer];
+			next_buffer = 1 - next_buffer;
+			for(j=0;j<len;j++)
+				buf[j] = y[i]*y[j]*row.get(shared.index[j]);
+			return buf;
+		}
+		float[][] data = new float[1][];
 		if((start = cache.get_data(i,data,len)) < len)
 		{
 			for(j=start;j<len;j++)
@@ -1244,7 +1267,8 @@ class SVC_Q extends Kernel
 
 	void swap_index(int i, int j)
 	{
-		cache.swap_index(i,j);
+		if(shared != null) shared.swap(i,j);
+		else cache.swap_index(i,j);
 		super.swap_index(i,j);
 		do {byte _=y[i]; y[i]=y[j]; y[j]=_;} while(false);
 		do {double _=QD[i]; QD[i]=QD[j]; QD[j]=_;} while(false);
@@ -1254,12 +1278,25 @@ class SVC_Q extends Kernel
 class ONE_CLASS_Q extends Kernel
 {
 	private final Cache cache;
+	private final SharedKernelCache.View shared;
+	private final float[][] buffer;
+	private int next_buffer;
 	private final double[] QD;
 
 	ONE_CLASS_Q(svm_problem prob, svm_parameter param)
 	{
 		super(prob.l, prob.x, param);
-		cache = new Cache(prob.l,(long)(param.cache_size*(1<<20)));
+		shared = (param.kernel_cache == null) ? null : param.kernel_cache.createView(prob.x, param);
+		if(shared == null)
+		{
+			cache = new Cache(prob.l,(long)(param.cache_size*(1<<20)));
+			buffer = null;
+		}
+		else
+		{
+			cache = null;
+			buffer = new float[2][prob.l];
+		}
 		QD = new double[prob.l];
 		for(int i=0;i<prob.l;i++)
 			QD[i] = kernel_function(i,i);
@@ -1267,8 +1304,18 @@ class ONE_CLASS_Q extends Kernel
 
 	float[] get_Q(int i, int len)
 	{
-		float[][] data = new float[1][];
 		int start, j;
+		if(shared != null)
+		{
+			// Encog: gather from the shared cache
+			java.nio.FloatBuffer row = shared.row(i);
+			float[] buf = buffer[next_buffer];
+			next_buffer = 1 - next_buffer;
+			for(j=0;j<len;j++)
+				buf[j] = row.get(shared.index[j]);
+			return buf;
+		}
+		float[][] data = new float[1][];
 		if((start = cache.get_data(i,data,len)) < len)
 		{
 			for(j=start;j<len;j++)
@@ -1284,7 +1331,8 @@ class ONE_CLASS_Q extends Kernel
 
 	void swap_index(int i, int j)
 	{
-		cache.swap_index(i,j);
+		if(shared != null) shared.swap(i,j);
+		else cache.swap_index(i,j);
 		super.swap_index(i,j);
 		do {double _=QD[i]; QD[i]=QD[j]; QD[j]=_;} while(false);
 	}
@@ -1294,6 +1342,7 @@ class SVR_Q extends Kernel
 {
 	private final int l;
 	private final Cache cache;
+	private final SharedKernelCache.View shared;
 	private final byte[] sign;
 	private final int[] index;
 	private int next_buffer;
@@ -1304,7 +1353,8 @@ class SVR_Q extends Kernel
 	{
 		super(prob.l, prob.x, param);
 		l = prob.l;
-		cache = new Cache(l,(long)(param.cache_size*(1<<20)));
+		shared = (param.kernel_cache == null) ? null : param.kernel_cache.createView(prob.x, param);
+		cache = (shared == null) ? new Cache(l,(long)(param.cache_size*(1<<20))) : null;
 		QD = new double[2*l];
 		sign = new byte[2*l];
 		index = new int[2*l];
@@ -1332,6 +1382,17 @@ class SVR_Q extends Kernel
 	{
 		float[][] data = new float[1][];
 		int j, real_i = index[i];
+		if(shared != null)
+		{
+			// Encog: gather from the shared cache
+			java.nio.FloatBuffer row = shared.row(real_i);
+			float buf[] = buffer[next_buffer];
+			next_buffer = 1 - next_buffer;
+			byte si = sign[i];
+			for(j=0;j<len;j++)
+				buf[j] = (float) si * sign[j] * row.get(shared.index[index[j]]);
+			return buf;
+		}
 		if(cache.get_data(real_i,data,l) < l)
 		{
 			for(j=0;j<l;j++)
@@ -1376,6 +1437,13 @@ public class svm {
 		svm_print_string.print(s);
 	}
 
+	// Encog: kernel values of one row against every row, for SharedKernelCache
+	static void kernel_row(svm_node[] x, svm_node[][] rows, svm_parameter param, java.nio.FloatBuffer out)
+	{
+		for(int j=0;j<rows.length;j++)
+			out.put(j,(float)Kernel.k_function(x,rows[j],param));
+	}
+
 	private static void solve_c_svc(svm_problem prob, svm_parameter param,
 					double[] alpha, Solver.SolutionInfo si,
 					double Cp, double Cn)
@@ -2208,13 +2276,15 @@ public class svm {
 	}
 	
 	// Stratified cross validation
-	public static void svm_cross_validation(svm_problem prob, svm_parameter param, int nr_fold, double[] target)
+	// Encog: the fold split of svm_cross_validation, so that other cross
+	// validations, such as the parallel SVMSearchTrain, use the same folds.
+	// perm must hold prob.l entries and fold_start nr_fold+1, rows of fold
+	// i are perm[fold_start[i]] to perm[fold_start[i+1]-1].
+	public static void svm_cross_validation_split(svm_problem prob, svm_parameter param, int nr_fold, int[] perm, int[] fold_start)
 	{
 		int i;
-		int[] fold_start = new int[nr_fold+1];
 		int l = prob.l;
-		int[] perm = new int[l];
-		
+
 		// stratified cv may not give leave-one-out rate
 		// Each class to l folds -> some folds may have zero elements
 		if((param.svm_type == svm_parameter.C_SVC ||
@@ -2278,6 +2348,16 @@ public class svm {
 			for(i=0;i<=nr_fold;i++)
 				fold_start[i]=i*l/nr_fold;
 		}
+	}
+
+	public static void svm_cross_validation(svm_problem prob, svm_parameter param, int nr_fold, double[] target)
+	{
+		int i;
+		int[] fold_start = new int[nr_fold+1];
+		int l = prob.l;
+		int[] perm = new int[l];
+
+		svm_cross_validation_split(prob,param,nr_fold,perm,fold_start);
 
 		for(i=0;i<nr_fold;i++)
 		{
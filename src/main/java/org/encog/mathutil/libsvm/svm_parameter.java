@@ -95,6 +95,9 @@ public class svm_parameter implements Cloneable,java.io.Serializable
 	public int shrinking;	// use the shrinking heuristics
 	public int probability; // do probability estimates
 
+	// Encog: optional kernel row cache shared between trainings
+	public transient SharedKernelCache kernel_cache;
+
 	public Object clone() 
 	{
 		try 
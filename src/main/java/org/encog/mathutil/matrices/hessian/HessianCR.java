@@ -27,6 +27,7 @@ import org.encog.mathutil.IntRange;
 import org.encog.mathutil.matrices.Matrix;
 import org.encog.ml.data.MLDataSet;
 import org.encog.neural.networks.BasicNetwork;
+import org.encog.util.concurrency.ConcurrencyAware;
 import org.encog.util.concurrency.DetermineWorkload;
 import org.encog.util.concurrency.EngineConcurrency;
 import org.encog.util.concurrency.MultiThreadable;
@@ -36,7 +37,8 @@ import org.encog.util.concurrency.TaskGroup;
  * Calculate the Hessian matrix using the chain rule method. 
  * 
  */
-public class HessianCR extends BasicHessian implements MultiThreadable {
+public class HessianCR extends BasicHessian implements MultiThreadable,
+		ConcurrencyAware {
 	
 	/**
 	 * The number of threads to use.
@@ -47,6 +49,12 @@ public class HessianCR extends BasicHessian implements MultiThreadable {
 	 * The workers.
 	 */
 	private ChainRuleWorker[] workers;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
 	
 	
 	/**
@@ -97,12 +105,11 @@ public class HessianCR extends BasicHessian implements MultiThreadable {
 
 			if (this.workers.length > 1) {
 
-				final TaskGroup group = EngineConcurrency.getInstance()
-						.createTaskGroup();
+				final TaskGroup group = getConcurrency().createTaskGroup();
 
 				for (final ChainRuleWorker worker : this.workers) {
 					worker.setOutputNeuron(outputNeuron);
-					EngineConcurrency.getInstance().processTask(worker, group);
+					getConcurrency().processTask(worker, group);
 				}
 
 				group.waitForComplete();
@@ -138,6 +145,25 @@ public class HessianCR extends BasicHessian implements MultiThreadable {
 		this.numThreads = numThreads;
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
 	/**
 	 * @return The thread count.
 	 */
@@ -29,6 +29,7 @@ import java.util.Map;
 
 import org.encog.ml.bayesian.query.BayesianQuery;
 import org.encog.ml.bayesian.query.enumerate.EnumerationQuery;
+import org.encog.ml.bayesian.query.junction.JunctionTreeQuery;
 import org.encog.ml.bayesian.query.sample.SamplingQuery;
 import org.encog.ml.bayesian.table.TableLine;
 import org.encog.persist.EncogFileSection;
@@ -98,6 +99,8 @@ public class PersistBayes implements EncogPersistor {
 			BayesianQuery query = null;
 			if (queryType.equals("EnumerationQuery")) {
 				query = new EnumerationQuery(result);
+			} else if (queryType.equals("JunctionTreeQuery")) {
+				query = new JunctionTreeQuery(result);
 			} else {
 				query = new SamplingQuery(result);
 			}
@@ -0,0 +1,254 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.query;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.encog.ml.bayesian.BayesianError;
+import org.encog.ml.bayesian.BayesianEvent;
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.bayesian.table.TableLine;
+
+/**
+ * A flattened, read-only snapshot of a Bayesian network. The events are
+ * referenced by their index in the network, the parents and children are
+ * held as index arrays, and each truth table is held as a single flat array
+ * of probabilities. A row of the flat table is selected by a mixed radix
+ * index over the values of the parents, and the event's own value selects
+ * the column. This lets the samplers and exact inference engines walk the
+ * network without any object lookups or hashing.
+ * 
+ * The snapshot is not updated if the network changes, it should be compiled
+ * again after the structure or truth tables are modified.
+ */
+public class CompiledBayesianNetwork implements Serializable {
+
+	/**
+	 * The number of events.
+	 */
+	private final int eventCount;
+
+	/**
+	 * The number of choices for each event.
+	 */
+	private final int[] choiceCount;
+
+	/**
+	 * The parent indexes of each event.
+	 */
+	private final int[][] parents;
+
+	/**
+	 * The child indexes of each event.
+	 */
+	private final int[][] children;
+
+	/**
+	 * The stride that each parent contributes to the table row index.
+	 */
+	private final int[][] strides;
+
+	/**
+	 * The flat truth tables, indexed by row*choices+value.
+	 */
+	private final double[][] tables;
+
+	/**
+	 * The events in topological order, parents before children.
+	 */
+	private final int[] order;
+
+	/**
+	 * Compile the specified network. The network must be finalized and
+	 * its truth tables complete.
+	 * @param network The network to compile.
+	 */
+	public CompiledBayesianNetwork(final BayesianNetwork network) {
+		final List<BayesianEvent> events = network.getEvents();
+		this.eventCount = events.size();
+		this.choiceCount = new int[this.eventCount];
+		this.parents = new int[this.eventCount][];
+		this.children = new int[this.eventCount][];
+		this.strides = new int[this.eventCount][];
+		this.tables = new double[this.eventCount][];
+
+		for (int i = 0; i < this.eventCount; i++) {
+			final BayesianEvent event = events.get(i);
+			this.choiceCount[i] = event.getChoices().size();
+			this.parents[i] = indexesOf(network, event.getParents());
+			this.children[i] = indexesOf(network, event.getChildren());
+		}
+
+		for (int i = 0; i < this.eventCount; i++) {
+			final int[] p = this.parents[i];
+			final int[] s = new int[p.length];
+			int rows = 1;
+			for (int j = 0; j < p.length; j++) {
+				s[j] = rows;
+				rows *= this.choiceCount[p[j]];
+			}
+			this.strides[i] = s;
+
+			final double[] table = new double[rows * this.choiceCount[i]];
+			for (final TableLine line : events.get(i).getTable().getLines()) {
+				final int[] args = line.getArguments();
+				int row = 0;
+				for (int j = 0; j < args.length; j++) {
+					row += args[j] * s[j];
+				}
+				table[row * this.choiceCount[i] + line.getResult()] = line
+						.getProbability();
+			}
+			this.tables[i] = table;
+		}
+
+		this.order = sortTopological();
+	}
+
+	/**
+	 * Convert a list of events into an array of network indexes.
+	 * @param network The network.
+	 * @param list The events.
+	 * @return The indexes.
+	 */
+	private static int[] indexesOf(final BayesianNetwork network,
+			final List<BayesianEvent> list) {
+		final int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = network.getEventIndex(list.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Order the events so that every parent comes before its children.
+	 * @return The topological order.
+	 */
+	private int[] sortTopological() {
+		final int[] result = new int[this.eventCount];
+		final int[] pending = new int[this.eventCount];
+		int head = 0;
+		int tail = 0;
+
+		for (int i = 0; i < this.eventCount; i++) {
+			pending[i] = this.parents[i].length;
+			if (pending[i] == 0) {
+				result[tail++] = i;
+			}
+		}
+
+		while (head < tail) {
+			final int current = result[head++];
+			for (final int child : this.children[current]) {
+				if (--pending[child] == 0) {
+					result[tail++] = child;
+				}
+			}
+		}
+
+		if (tail != this.eventCount) {
+			throw new BayesianError(
+					"The Bayesian network contains a cycle, and can not be compiled.");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Determine the table row for an event, given the values of all events.
+	 * @param event The event index.
+	 * @param values The current value of every event.
+	 * @return The first index of the row within the flat table.
+	 */
+	public int rowOffset(final int event, final int[] values) {
+		final int[] p = this.parents[event];
+		final int[] s = this.strides[event];
+		int row = 0;
+		for (int j = 0; j < p.length; j++) {
+			row += values[p[j]] * s[j];
+		}
+		return row * this.choiceCount[event];
+	}
+
+	/**
+	 * Determine the probability of an event taking its current value, given
+	 * the current values of its parents.
+	 * @param event The event index.
+	 * @param values The current value of every event.
+	 * @return The conditional probability.
+	 */
+	public double probability(final int event, final int[] values) {
+		return this.tables[event][rowOffset(event, values) + values[event]];
+	}
+
+	/**
+	 * @return The number of events.
+	 */
+	public int getEventCount() {
+		return this.eventCount;
+	}
+
+	/**
+	 * @return The number of choices for each event.
+	 */
+	public int[] getChoiceCount() {
+		return this.choiceCount;
+	}
+
+	/**
+	 * @return The parent indexes of each event.
+	 */
+	public int[][] getParents() {
+		return this.parents;
+	}
+
+	/**
+	 * @return The child indexes of each event.
+	 */
+	public int[][] getChildren() {
+		return this.children;
+	}
+
+	/**
+	 * @return The stride each parent contributes to the table row index.
+	 */
+	public int[][] getStrides() {
+		return this.strides;
+	}
+
+	/**
+	 * @return The flat truth tables.
+	 */
+	public double[][] getTables() {
+		return this.tables;
+	}
+
+	/**
+	 * @return The events in topological order.
+	 */
+	public int[] getOrder() {
+		return this.order;
+	}
+}
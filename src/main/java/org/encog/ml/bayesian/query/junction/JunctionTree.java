@@ -0,0 +1,557 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.query.junction;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.encog.ml.bayesian.BayesianError;
+import org.encog.ml.bayesian.query.CompiledBayesianNetwork;
+
+/**
+ * A junction tree, compiled from a Bayesian network. The network is
+ * moralized, triangulated with the minimum fill heuristic, and the resulting
+ * cliques are joined into a tree by a maximum spanning tree over the size of
+ * their intersections. Each truth table is assigned to one clique that holds
+ * the event and all of its parents.
+ * 
+ * All of the index arithmetic needed to pass messages between cliques is
+ * worked out when the tree is compiled. Evaluating the probability of a set
+ * of evidence is then a single collect pass towards the root, with no
+ * allocation beyond the working copies of the clique potentials.
+ * 
+ * The structure of the tree depends only on the structure of the network.
+ * The clique potentials are built from the truth tables by calling
+ * loadTables, which should be called again if the probabilities change.
+ * Evaluation does not modify the tree, so one tree may be evaluated from
+ * several threads at once.
+ */
+public class JunctionTree implements Serializable {
+
+	/**
+	 * The default limit on the number of entries in a single clique.
+	 */
+	public static final int DEFAULT_MAX_CLIQUE_SIZE = 1 << 24;
+
+	/**
+	 * The number of choices for each event.
+	 */
+	private final int[] choices;
+
+	/**
+	 * The events in each clique, in ascending order.
+	 */
+	private final int[][] cliques;
+
+	/**
+	 * The number of entries in each clique potential.
+	 */
+	private final int[] cliqueSize;
+
+	/**
+	 * The parent of each clique in the tree, -1 for the root.
+	 */
+	private final int[] parent;
+
+	/**
+	 * The cliques other than the root, ordered so that every clique comes
+	 * before its parent.
+	 */
+	private final int[] collectOrder;
+
+	/**
+	 * The root clique.
+	 */
+	private final int root;
+
+	/**
+	 * The number of entries in the separator between each clique and its
+	 * parent.
+	 */
+	private final int[] separatorSize;
+
+	/**
+	 * For each clique, maps an entry of the clique to an entry of the
+	 * separator with its parent.
+	 */
+	private final int[][] separatorIndex;
+
+	/**
+	 * For each clique, maps an entry of its parent to an entry of the
+	 * separator between them.
+	 */
+	private final int[][] parentSeparatorIndex;
+
+	/**
+	 * The clique that evidence for each event is entered into.
+	 */
+	private final int[] home;
+
+	/**
+	 * The stride of each event within its home clique.
+	 */
+	private final int[] homeStride;
+
+	/**
+	 * The clique that each event's truth table is assigned to.
+	 */
+	private final int[] family;
+
+	/**
+	 * For each event, maps an entry of its family clique to an entry of its
+	 * flat truth table.
+	 */
+	private final int[][] familyIndex;
+
+	/**
+	 * The clique potentials, before any evidence is entered.
+	 */
+	private volatile double[][] potentials;
+
+	/**
+	 * Compile a junction tree, with the default clique size limit.
+	 * @param network The compiled network.
+	 */
+	public JunctionTree(final CompiledBayesianNetwork network) {
+		this(network, DEFAULT_MAX_CLIQUE_SIZE);
+	}
+
+	/**
+	 * Compile a junction tree.
+	 * @param network The compiled network.
+	 * @param maxCliqueSize The maximum number of entries in a clique.
+	 */
+	public JunctionTree(final CompiledBayesianNetwork network,
+			final int maxCliqueSize) {
+		final int n = network.getEventCount();
+		this.choices = network.getChoiceCount().clone();
+
+		final List<int[]> found = triangulate(network, maxCliqueSize);
+		final int count = found.size();
+		this.cliques = found.toArray(new int[count][]);
+		this.cliqueSize = new int[count];
+		for (int c = 0; c < count; c++) {
+			this.cliqueSize[c] = size(this.cliques[c]);
+		}
+
+		// join the cliques with a maximum spanning tree
+		this.parent = new int[count];
+		this.root = 0;
+		final int[] insertOrder = new int[count];
+		final boolean[] inTree = new boolean[count];
+		final int[] bestWeight = new int[count];
+		final int[] bestFrom = new int[count];
+		for (int c = 0; c < count; c++) {
+			bestWeight[c] = -1;
+			bestFrom[c] = -1;
+		}
+		int current = this.root;
+		for (int step = 0; step < count; step++) {
+			inTree[current] = true;
+			insertOrder[step] = current;
+			this.parent[current] = bestFrom[current];
+			int next = -1;
+			for (int c = 0; c < count; c++) {
+				if (inTree[c]) {
+					continue;
+				}
+				final int w = intersect(this.cliques[c], this.cliques[current]).length;
+				if (w > bestWeight[c]) {
+					bestWeight[c] = w;
+					bestFrom[c] = current;
+				}
+				if (next == -1 || bestWeight[c] > bestWeight[next]) {
+					next = c;
+				}
+			}
+			current = next;
+		}
+
+		this.collectOrder = new int[count - 1];
+		for (int i = 0; i < count - 1; i++) {
+			this.collectOrder[i] = insertOrder[count - 1 - i];
+		}
+
+		// separators
+		this.separatorSize = new int[count];
+		this.separatorIndex = new int[count][];
+		this.parentSeparatorIndex = new int[count][];
+		for (final int c : this.collectOrder) {
+			final int p = this.parent[c];
+			final int[] sep = intersect(this.cliques[c], this.cliques[p]);
+			this.separatorSize[c] = size(sep);
+			this.separatorIndex[c] = mapEntries(this.cliques[c], sep);
+			this.parentSeparatorIndex[c] = mapEntries(this.cliques[p], sep);
+		}
+
+		// home and family cliques
+		this.home = new int[n];
+		this.homeStride = new int[n];
+		this.family = new int[n];
+		this.familyIndex = new int[n][];
+		final int[][] parents = network.getParents();
+		final int[][] strides = network.getStrides();
+		for (int v = 0; v < n; v++) {
+			final int[] fam = new int[parents[v].length + 1];
+			fam[0] = v;
+			System.arraycopy(parents[v], 0, fam, 1, parents[v].length);
+
+			this.home[v] = -1;
+			this.family[v] = -1;
+			for (int c = 0; c < count; c++) {
+				if (this.home[v] == -1 && contains(this.cliques[c], v)) {
+					this.home[v] = c;
+					this.homeStride[v] = stride(this.cliques[c], v);
+				}
+				if (this.family[v] == -1
+						&& intersect(this.cliques[c], fam).length == fam.length) {
+					this.family[v] = c;
+				}
+			}
+
+			if (this.family[v] == -1) {
+				throw new BayesianError("No clique holds the family of event "
+						+ v + ", the junction tree is invalid.");
+			}
+
+			// offsets into the flat table, the event is the column
+			final int[] weights = new int[n];
+			weights[v] = 1;
+			for (int j = 0; j < parents[v].length; j++) {
+				weights[parents[v][j]] += strides[v][j] * this.choices[v];
+			}
+			this.familyIndex[v] = mapWeights(this.cliques[this.family[v]],
+					weights);
+		}
+
+		loadTables(network);
+	}
+
+	/**
+	 * Triangulate the moral graph of the network, and collect the maximal
+	 * cliques produced while eliminating the events.
+	 * @param network The network.
+	 * @param maxCliqueSize The maximum number of entries in a clique.
+	 * @return The cliques.
+	 */
+	private List<int[]> triangulate(final CompiledBayesianNetwork network,
+			final int maxCliqueSize) {
+		final int n = network.getEventCount();
+		final int[][] parents = network.getParents();
+		final boolean[][] adjacent = new boolean[n][n];
+
+		for (int v = 0; v < n; v++) {
+			final int[] p = parents[v];
+			for (int i = 0; i < p.length; i++) {
+				adjacent[v][p[i]] = adjacent[p[i]][v] = true;
+				for (int j = i + 1; j < p.length; j++) {
+					adjacent[p[i]][p[j]] = adjacent[p[j]][p[i]] = true;
+				}
+			}
+		}
+
+		final List<int[]> result = new ArrayList<int[]>();
+		final boolean[] eliminated = new boolean[n];
+
+		for (int step = 0; step < n; step++) {
+			// choose the event that adds the fewest fill in edges
+			int best = -1;
+			int bestFill = Integer.MAX_VALUE;
+			double bestWeight = Double.MAX_VALUE;
+			for (int v = 0; v < n; v++) {
+				if (eliminated[v]) {
+					continue;
+				}
+				int fill = 0;
+				double weight = this.choices[v];
+				for (int a = 0; a < n; a++) {
+					if (eliminated[a] || !adjacent[v][a]) {
+						continue;
+					}
+					weight *= this.choices[a];
+					for (int b = a + 1; b < n; b++) {
+						if (!eliminated[b] && adjacent[v][b]
+								&& !adjacent[a][b]) {
+							fill++;
+						}
+					}
+				}
+				if (fill < bestFill
+						|| (fill == bestFill && weight < bestWeight)) {
+					best = v;
+					bestFill = fill;
+					bestWeight = weight;
+				}
+			}
+
+			// the clique is the event and its remaining neighbors
+			final List<Integer> members = new ArrayList<Integer>();
+			for (int a = 0; a < n; a++) {
+				if (a == best || (!eliminated[a] && adjacent[best][a])) {
+					members.add(a);
+				}
+			}
+			for (final int a : members) {
+				for (final int b : members) {
+					if (a != b) {
+						adjacent[a][b] = true;
+					}
+				}
+			}
+			eliminated[best] = true;
+
+			final int[] clique = new int[members.size()];
+			for (int i = 0; i < clique.length; i++) {
+				clique[i] = members.get(i);
+			}
+
+			boolean subsumed = false;
+			for (final int[] other : result) {
+				if (intersect(clique, other).length == clique.length) {
+					subsumed = true;
+					break;
+				}
+			}
+
+			if (!subsumed) {
+				if (bestWeight > maxCliqueSize) {
+					throw new BayesianError(
+							"Junction tree clique would have "
+									+ (long) bestWeight
+									+ " entries, the network is too densely connected for exact inference.");
+				}
+				result.add(clique);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Build the clique potentials from the truth tables of the network. Call
+	 * this again if the probabilities in the network change.
+	 * @param network The compiled network, with the same structure this tree
+	 *            was compiled from.
+	 */
+	public void loadTables(final CompiledBayesianNetwork network) {
+		final double[][] tables = network.getTables();
+		final double[][] result = new double[this.cliques.length][];
+		for (int c = 0; c < result.length; c++) {
+			result[c] = new double[this.cliqueSize[c]];
+			Arrays.fill(result[c], 1.0);
+		}
+		for (int v = 0; v < this.family.length; v++) {
+			final double[] pot = result[this.family[v]];
+			final int[] index = this.familyIndex[v];
+			final double[] table = tables[v];
+			for (int i = 0; i < pot.length; i++) {
+				pot[i] *= table[index[i]];
+			}
+		}
+		this.potentials = result;
+	}
+
+	/**
+	 * Calculate the probability of a set of evidence.
+	 * @param evidence The value of each event, or -1 if the event is not
+	 *            observed.
+	 * @return The probability of the evidence.
+	 */
+	public double evaluate(final int[] evidence) {
+		final double[][] initial = this.potentials;
+		final double[][] work = new double[initial.length][];
+		for (int c = 0; c < work.length; c++) {
+			work[c] = initial[c].clone();
+		}
+
+		for (int v = 0; v < evidence.length; v++) {
+			final int value = evidence[v];
+			if (value < 0) {
+				continue;
+			}
+			final double[] pot = work[this.home[v]];
+			final int stride = this.homeStride[v];
+			final int card = this.choices[v];
+			for (int i = 0; i < pot.length; i++) {
+				if ((i / stride) % card != value) {
+					pot[i] = 0;
+				}
+			}
+		}
+
+		for (final int c : this.collectOrder) {
+			final double[] message = new double[this.separatorSize[c]];
+			final double[] pot = work[c];
+			final int[] index = this.separatorIndex[c];
+			for (int i = 0; i < pot.length; i++) {
+				message[index[i]] += pot[i];
+			}
+
+			final double[] target = work[this.parent[c]];
+			final int[] parentIndex = this.parentSeparatorIndex[c];
+			for (int i = 0; i < target.length; i++) {
+				target[i] *= message[parentIndex[i]];
+			}
+		}
+
+		double result = 0;
+		for (final double d : work[this.root]) {
+			result += d;
+		}
+		return result;
+	}
+
+	/**
+	 * Map each entry of a clique to a weighted sum of its event values.
+	 * @param clique The events of the clique.
+	 * @param weights The weight of each event, indexed by event.
+	 * @return The mapped index of every entry of the clique.
+	 */
+	private int[] mapWeights(final int[] clique, final int[] weights) {
+		final int[] result = new int[size(clique)];
+		final int[] digits = new int[clique.length];
+		for (int i = 0; i < result.length; i++) {
+			int index = 0;
+			for (int j = 0; j < clique.length; j++) {
+				index += digits[j] * weights[clique[j]];
+			}
+			result[i] = index;
+
+			// advance the mixed radix counter, first event fastest
+			for (int j = 0; j < clique.length; j++) {
+				if (++digits[j] < this.choices[clique[j]]) {
+					break;
+				}
+				digits[j] = 0;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Map each entry of a clique to an entry of a subset of its events.
+	 * @param clique The events of the clique.
+	 * @param subset The subset, in ascending order.
+	 * @return The subset entry for every entry of the clique.
+	 */
+	private int[] mapEntries(final int[] clique, final int[] subset) {
+		final int[] weights = new int[this.choices.length];
+		int stride = 1;
+		for (final int v : subset) {
+			weights[v] = stride;
+			stride *= this.choices[v];
+		}
+		return mapWeights(clique, weights);
+	}
+
+	/**
+	 * @param vars A set of events.
+	 * @return The number of entries in a table over the events.
+	 */
+	private int size(final int[] vars) {
+		int result = 1;
+		for (final int v : vars) {
+			result *= this.choices[v];
+		}
+		return result;
+	}
+
+	/**
+	 * Determine the stride of an event within a clique.
+	 * @param clique The clique.
+	 * @param v The event.
+	 * @return The stride.
+	 */
+	private int stride(final int[] clique, final int v) {
+		int result = 1;
+		for (final int u : clique) {
+			if (u == v) {
+				break;
+			}
+			result *= this.choices[u];
+		}
+		return result;
+	}
+
+	/**
+	 * Determine if a set contains an event.
+	 * @param set The set.
+	 * @param v The event.
+	 * @return True, if the event is in the set.
+	 */
+	private static boolean contains(final int[] set, final int v) {
+		for (final int u : set) {
+			if (u == v) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Intersect two sets of events.
+	 * @param a The first set, in ascending order.
+	 * @param b The second set.
+	 * @return The events in both sets, in ascending order.
+	 */
+	private static int[] intersect(final int[] a, final int[] b) {
+		int count = 0;
+		final int[] temp = new int[a.length];
+		for (final int v : a) {
+			if (contains(b, v)) {
+				temp[count++] = v;
+			}
+		}
+		final int[] result = new int[count];
+		System.arraycopy(temp, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * @return The number of cliques.
+	 */
+	public int getCliqueCount() {
+		return this.cliques.length;
+	}
+
+	/**
+	 * @return The number of entries in the largest clique.
+	 */
+	public int getMaxCliqueSize() {
+		int result = 0;
+		for (final int s : this.cliqueSize) {
+			result = Math.max(result, s);
+		}
+		return result;
+	}
+
+	/**
+	 * @return The events in each clique.
+	 */
+	public int[][] getCliques() {
+		return this.cliques;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.query.junction;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.encog.ml.bayesian.BayesianEvent;
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.bayesian.query.BasicQuery;
+import org.encog.ml.bayesian.query.CompiledBayesianNetwork;
+import org.encog.ml.bayesian.table.TableLine;
+import org.encog.util.Format;
+
+/**
+ * An exact query that compiles the network into a junction tree. The tree
+ * is built the first time the query is executed, and kept until the
+ * structure of the network changes. Later queries, with different evidence
+ * or outcomes, only need two collect passes over the tree. This gives the
+ * same result as the enumeration query, but does not slow down
+ * exponentially as the number of hidden events grows.
+ * 
+ * Changes to the truth tables are detected when the query is executed, and
+ * cause the clique potentials to be rebuilt.
+ */
+public class JunctionTreeQuery extends BasicQuery implements Serializable {
+
+	/**
+	 * The compiled junction tree.
+	 */
+	private transient JunctionTree tree;
+
+	/**
+	 * A checksum of the truth tables the tree was loaded from.
+	 */
+	private transient long tableChecksum;
+
+	/**
+	 * The evidence of the last query.
+	 */
+	private transient int[] lastEvidence;
+
+	/**
+	 * The probability of the evidence of the last query.
+	 */
+	private transient double lastEvidenceProbability;
+
+	/**
+	 * The calculated probability.
+	 */
+	private double probability;
+
+	/**
+	 * Construct the junction tree query.
+	 * @param theNetwork The Bayesian network to query.
+	 */
+	public JunctionTreeQuery(final BayesianNetwork theNetwork) {
+		super(theNetwork);
+	}
+
+	/**
+	 * Construct the query, sharing an already compiled tree.
+	 * @param theNetwork The Bayesian network to query.
+	 * @param theTree The compiled tree.
+	 * @param theChecksum The checksum of the tables the tree was loaded
+	 *            from.
+	 */
+	private JunctionTreeQuery(final BayesianNetwork theNetwork,
+			final JunctionTree theTree, final long theChecksum) {
+		super(theNetwork);
+		this.tree = theTree;
+		this.tableChecksum = theChecksum;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void finalizeStructure() {
+		super.finalizeStructure();
+		this.tree = null;
+		this.lastEvidence = null;
+	}
+
+	/**
+	 * Compile the tree if needed, and reload the potentials if the truth
+	 * tables have changed since they were loaded.
+	 */
+	private void prepare() {
+		final long checksum = calculateChecksum();
+		if (this.tree == null) {
+			this.tree = new JunctionTree(new CompiledBayesianNetwork(
+					getNetwork()));
+			this.lastEvidence = null;
+		} else if (checksum != this.tableChecksum) {
+			this.tree.loadTables(new CompiledBayesianNetwork(getNetwork()));
+			this.lastEvidence = null;
+		}
+		this.tableChecksum = checksum;
+	}
+
+	/**
+	 * @return A checksum of every probability in the network's truth tables.
+	 */
+	private long calculateChecksum() {
+		long result = 17;
+		for (final BayesianEvent event : getNetwork().getEvents()) {
+			for (final TableLine line : event.getTable().getLines()) {
+				result = result * 31
+						+ Double.doubleToLongBits(line.getProbability());
+				result = result * 31 + line.getResult();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void execute() {
+		locateEventTypes();
+		prepare();
+
+		final BayesianNetwork network = getNetwork();
+		final int[] evidence = new int[network.getEvents().size()];
+		Arrays.fill(evidence, -1);
+		for (final BayesianEvent event : getEvidenceEvents()) {
+			evidence[network.getEventIndex(event)] = getEventState(event)
+					.getCompareValue();
+		}
+
+		// the evidence is often repeated, for example when classifying
+		if (this.lastEvidence == null
+				|| !Arrays.equals(this.lastEvidence, evidence)) {
+			this.lastEvidence = evidence.clone();
+			this.lastEvidenceProbability = this.tree.evaluate(evidence);
+		}
+
+		for (final BayesianEvent event : getOutcomeEvents()) {
+			evidence[network.getEventIndex(event)] = getEventState(event)
+					.getCompareValue();
+		}
+
+		this.probability = this.tree.evaluate(evidence)
+				/ this.lastEvidenceProbability;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double getProbability() {
+		return this.probability;
+	}
+
+	/**
+	 * @return The compiled tree, or null if it has not been compiled yet.
+	 */
+	public JunctionTree getTree() {
+		return this.tree;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append("[JunctionTreeQuery: ");
+		result.append(getProblem());
+		result.append("=");
+		result.append(Format.formatPercent(getProbability()));
+		result.append("]");
+		return result.toString();
+	}
+
+	/**
+	 * @return A clone of this object, sharing the compiled tree.
+	 */
+	public JunctionTreeQuery clone() {
+		return new JunctionTreeQuery(this.getNetwork(), this.tree,
+				this.tableChecksum);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.query.sample;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.bayesian.query.CompiledBayesianNetwork;
+
+/**
+ * A Gibbs sampling query. Each thread runs its own Markov chain. The evidence
+ * events are held at their known values, and on every sweep each of the
+ * other events is resampled from its distribution given its Markov blanket,
+ * that is its parents, its children and the other parents of its children.
+ * After a burn in period every sweep is counted as one sample.
+ * 
+ * Gibbs sampling works well when the evidence is far down the network, where
+ * likelihood weighting produces samples with very uneven weights. It does
+ * not work well with deterministic (zero probability) table entries, which
+ * can prevent the chain from reaching some states.
+ */
+public class GibbsSamplingQuery extends ParallelSamplingQuery implements
+		Serializable {
+
+	/**
+	 * The default number of sweeps discarded at the start of each chain.
+	 */
+	public static final int DEFAULT_BURN_IN = 1000;
+
+	/**
+	 * The number of sweeps discarded at the start of each chain.
+	 */
+	private int burnIn = DEFAULT_BURN_IN;
+
+	/**
+	 * Construct a Gibbs sampling query.
+	 * @param theNetwork The network that will be queried.
+	 */
+	public GibbsSamplingQuery(final BayesianNetwork theNetwork) {
+		super(theNetwork);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void sample(final int count, final Random rnd,
+			final double[] result) {
+		final CompiledBayesianNetwork compiled = getCompiled();
+		final int[] order = compiled.getOrder();
+		final int[] choices = compiled.getChoiceCount();
+		final int[][] children = compiled.getChildren();
+		final double[][] tables = compiled.getTables();
+		final boolean[] evidence = getEvidenceMask();
+		final int[] values = createValues();
+
+		int maxChoices = 0;
+		for (final int c : choices) {
+			maxChoices = Math.max(maxChoices, c);
+		}
+		final double[] dist = new double[maxChoices];
+
+		// start the chain from a forward sample
+		for (final int event : order) {
+			if (!evidence[event]) {
+				values[event] = choose(tables[event],
+						compiled.rowOffset(event, values), choices[event],
+						rnd.nextDouble());
+			}
+		}
+
+		double good = 0;
+		for (int sweep = -this.burnIn; sweep < count; sweep++) {
+			for (final int event : order) {
+				if (evidence[event]) {
+					continue;
+				}
+
+				final int offset = compiled.rowOffset(event, values);
+				double sum = 0;
+				for (int v = 0; v < choices[event]; v++) {
+					values[event] = v;
+					double p = tables[event][offset + v];
+					for (final int child : children[event]) {
+						if (p == 0) {
+							break;
+						}
+						p *= compiled.probability(child, values);
+					}
+					dist[v] = p;
+					sum += p;
+				}
+
+				if (sum > 0) {
+					values[event] = choose(dist, 0, choices[event],
+							rnd.nextDouble() * sum);
+				} else {
+					values[event] = choose(tables[event], offset,
+							choices[event], rnd.nextDouble());
+				}
+			}
+
+			if (sweep >= 0 && isOutcome(values)) {
+				good++;
+			}
+		}
+
+		result[0] = good;
+		result[1] = count;
+	}
+
+	/**
+	 * @return The number of sweeps discarded at the start of each chain.
+	 */
+	public int getBurnIn() {
+		return this.burnIn;
+	}
+
+	/**
+	 * @param theBurnIn The number of sweeps discarded at the start of each
+	 *            chain.
+	 */
+	public void setBurnIn(final int theBurnIn) {
+		this.burnIn = theBurnIn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GibbsSamplingQuery clone() {
+		return new GibbsSamplingQuery(this.getNetwork());
+	}
+}
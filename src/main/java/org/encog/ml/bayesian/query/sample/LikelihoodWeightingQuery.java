@@ -0,0 +1,102 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.query.sample;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.bayesian.query.CompiledBayesianNetwork;
+
+/**
+ * A likelihood weighting query. Rather than generating complete samples and
+ * rejecting those that contradict the evidence, as the sampling query does,
+ * the evidence events are fixed to their known values and each sample is
+ * weighted by the probability of that evidence given the sampled parents.
+ * No samples are wasted, so queries with unlikely evidence converge much
+ * faster than with rejection sampling.
+ * 
+ * The network is compiled into flat tables before sampling, and the samples
+ * are split over several threads.
+ */
+public class LikelihoodWeightingQuery extends ParallelSamplingQuery implements
+		Serializable {
+
+	/**
+	 * Construct a likelihood weighting query.
+	 * @param theNetwork The network that will be queried.
+	 */
+	public LikelihoodWeightingQuery(final BayesianNetwork theNetwork) {
+		super(theNetwork);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void sample(final int count, final Random rnd,
+			final double[] result) {
+		final CompiledBayesianNetwork compiled = getCompiled();
+		final int[] order = compiled.getOrder();
+		final int[] choices = compiled.getChoiceCount();
+		final double[][] tables = compiled.getTables();
+		final boolean[] evidence = getEvidenceMask();
+		final int[] values = createValues();
+
+		double good = 0;
+		double total = 0;
+
+		for (int s = 0; s < count; s++) {
+			double weight = 1.0;
+			for (final int event : order) {
+				final int offset = compiled.rowOffset(event, values);
+				if (evidence[event]) {
+					weight *= tables[event][offset + values[event]];
+					if (weight == 0) {
+						break;
+					}
+				} else {
+					values[event] = choose(tables[event], offset,
+							choices[event], rnd.nextDouble());
+				}
+			}
+
+			total += weight;
+			if (weight > 0 && isOutcome(values)) {
+				good += weight;
+			}
+		}
+
+		result[0] = good;
+		result[1] = total;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LikelihoodWeightingQuery clone() {
+		return new LikelihoodWeightingQuery(this.getNetwork());
+	}
+}
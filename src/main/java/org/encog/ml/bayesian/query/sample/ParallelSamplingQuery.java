@@ -0,0 +1,368 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.query.sample;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Random;
+
+import org.encog.ml.bayesian.BayesianEvent;
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.bayesian.query.BasicQuery;
+import org.encog.ml.bayesian.query.CompiledBayesianNetwork;
+import org.encog.util.Format;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
+
+/**
+ * Base class for the sampling queries that run on a compiled copy of the
+ * network. The samples are divided between a number of threads, each thread
+ * draws its share with its own random number generator, and the weighted
+ * counts are then combined in thread order. With a fixed seed and thread
+ * count the result is therefore repeatable.
+ * 
+ * Subclasses provide the actual sampling method, by implementing the
+ * sample method.
+ */
+public abstract class ParallelSamplingQuery extends BasicQuery implements
+		MultiThreadable, ConcurrencyAware, Serializable {
+
+	/**
+	 * The default sample size.
+	 */
+	public static final int DEFAULT_SAMPLE_SIZE = 100000;
+
+	/**
+	 * The sample size.
+	 */
+	private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+	/**
+	 * The number of threads to use, zero for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private transient EngineConcurrency concurrency;
+
+	/**
+	 * The seed that the per-thread random number generators are derived from.
+	 */
+	private long seed = System.nanoTime();
+
+	/**
+	 * The weight of the samples that matched the outcome.
+	 */
+	private double goodWeight;
+
+	/**
+	 * The total weight of all samples.
+	 */
+	private double totalWeight;
+
+	/**
+	 * The number of samples drawn.
+	 */
+	private int totalSamples;
+
+	/**
+	 * The compiled network, valid during a call to execute.
+	 */
+	private transient CompiledBayesianNetwork compiled;
+
+	/**
+	 * The value of every event, with evidence and outcome values filled in.
+	 */
+	private transient int[] template;
+
+	/**
+	 * True for each event that is evidence.
+	 */
+	private transient boolean[] evidence;
+
+	/**
+	 * The indexes of the outcome events.
+	 */
+	private transient int[] outcomes;
+
+	/**
+	 * Construct the query.
+	 * @param theNetwork The network that will be queried.
+	 */
+	public ParallelSamplingQuery(final BayesianNetwork theNetwork) {
+		super(theNetwork);
+	}
+
+	/**
+	 * Draw samples and accumulate their weights.
+	 * @param count The number of samples to draw.
+	 * @param rnd The random number generator for this thread.
+	 * @param result Receives the matching weight at index 0 and the total
+	 *            weight at index 1.
+	 */
+	protected abstract void sample(int count, Random rnd, double[] result);
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void execute() {
+		locateEventTypes();
+		prepare();
+
+		int threads = this.threadCount;
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.max(1, Math.min(threads, this.sampleSize));
+
+		final double[][] results = new double[threads][2];
+		final int share = this.sampleSize / threads;
+		final int extra = this.sampleSize % threads;
+
+		if (threads == 1) {
+			sample(this.sampleSize, createRandom(0), results[0]);
+		} else {
+			final TaskGroup group = getConcurrency().createTaskGroup();
+			for (int i = 0; i < threads; i++) {
+				final int count = share + ((i < extra) ? 1 : 0);
+				final Random rnd = createRandom(i);
+				final double[] result = results[i];
+				getConcurrency().processTask(new EngineTask() {
+					public void run() {
+						sample(count, rnd, result);
+					}
+				}, group);
+			}
+			group.waitForComplete();
+			getConcurrency().checkError();
+		}
+
+		this.goodWeight = 0;
+		this.totalWeight = 0;
+		for (final double[] result : results) {
+			this.goodWeight += result[0];
+			this.totalWeight += result[1];
+		}
+		this.totalSamples = this.sampleSize;
+	}
+
+	/**
+	 * Compile the network and record the evidence and outcome values.
+	 */
+	private void prepare() {
+		final BayesianNetwork network = getNetwork();
+		this.compiled = new CompiledBayesianNetwork(network);
+		final int count = this.compiled.getEventCount();
+		this.template = new int[count];
+		this.evidence = new boolean[count];
+
+		for (final BayesianEvent event : getEvidenceEvents()) {
+			final int index = network.getEventIndex(event);
+			this.evidence[index] = true;
+			this.template[index] = getEventState(event).getCompareValue();
+		}
+
+		final List<BayesianEvent> outcomeEvents = getOutcomeEvents();
+		this.outcomes = new int[outcomeEvents.size()];
+		for (int i = 0; i < this.outcomes.length; i++) {
+			final BayesianEvent event = outcomeEvents.get(i);
+			this.outcomes[i] = network.getEventIndex(event);
+			this.template[this.outcomes[i]] = getEventState(event)
+					.getCompareValue();
+		}
+	}
+
+	/**
+	 * Create the random number generator for one thread. The thread index is
+	 * mixed into the seed, so that each thread gets an independent stream.
+	 * @param index The thread index.
+	 * @return The random number generator.
+	 */
+	private Random createRandom(final int index) {
+		long z = this.seed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return new Random(z ^ (z >>> 31));
+	}
+
+	/**
+	 * Choose a value from a row of a flat probability table.
+	 * @param table The table.
+	 * @param offset The start of the row.
+	 * @param choices The number of choices in the row.
+	 * @param r A uniform random number, scaled to the total of the row.
+	 * @return The chosen value.
+	 */
+	protected static int choose(final double[] table, final int offset,
+			final int choices, final double r) {
+		double limit = 0;
+		for (int i = 0; i < choices - 1; i++) {
+			limit += table[offset + i];
+			if (r < limit) {
+				return i;
+			}
+		}
+		return choices - 1;
+	}
+
+	/**
+	 * Determine if a sample satisfies all outcome events.
+	 * @param values The sampled values.
+	 * @return True, if the outcome is satisfied.
+	 */
+	protected boolean isOutcome(final int[] values) {
+		for (final int index : this.outcomes) {
+			if (values[index] != this.template[index]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return A new value array, with the evidence values filled in.
+	 */
+	protected int[] createValues() {
+		return this.template.clone();
+	}
+
+	/**
+	 * @return The compiled network, valid while the query executes.
+	 */
+	protected CompiledBayesianNetwork getCompiled() {
+		return this.compiled;
+	}
+
+	/**
+	 * @return True for each event that is evidence.
+	 */
+	protected boolean[] getEvidenceMask() {
+		return this.evidence;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double getProbability() {
+		return this.goodWeight / this.totalWeight;
+	}
+
+	/**
+	 * @return The sample size.
+	 */
+	public int getSampleSize() {
+		return this.sampleSize;
+	}
+
+	/**
+	 * @param theSampleSize The sample size.
+	 */
+	public void setSampleSize(final int theSampleSize) {
+		this.sampleSize = theSampleSize;
+	}
+
+	/**
+	 * @return The seed the random number generators are derived from.
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	/**
+	 * @param theSeed The seed the random number generators are derived from.
+	 */
+	public void setSeed(final long theSeed) {
+		this.seed = theSeed;
+	}
+
+	/**
+	 * @return The total weight of the samples drawn by the last execute.
+	 */
+	public double getTotalWeight() {
+		return this.totalWeight;
+	}
+
+	/**
+	 * @return The number of samples drawn by the last execute.
+	 */
+	public int getTotalSamples() {
+		return this.totalSamples;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append("[");
+		result.append(getClass().getSimpleName());
+		result.append(": ");
+		result.append(getProblem());
+		result.append("=");
+		result.append(Format.formatPercent(getProbability()));
+		result.append(";totalSamples=");
+		result.append(Format.formatInteger(this.totalSamples));
+		result.append("]");
+		return result.toString();
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian.training;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.encog.ml.bayesian.BayesianEvent;
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+
+/**
+ * Holds the sufficient statistics of a training set for Bayesian structure
+ * search and probability estimation. The training data is converted into
+ * class indexes once, and stored by column. Contingency tables, which count
+ * how often each combination of values occurs for a set of events, are then
+ * built on demand with a single pass over the relevant columns, and cached
+ * so that repeated requests for the same set of events do not scan the data
+ * again.
+ * 
+ * A contingency table is a flat array, indexed by a mixed radix number over
+ * the values of the events. The first event varies fastest.
+ * 
+ * This class is thread safe, the search may request tables from several
+ * threads at once.
+ */
+public class BayesianCountCache {
+
+	/**
+	 * The default maximum number of cached table cells.
+	 */
+	public static final int DEFAULT_MAX_CELLS = 1 << 22;
+
+	/**
+	 * The network the data is classified with.
+	 */
+	private final BayesianNetwork network;
+
+	/**
+	 * The class index of every event, stored by column.
+	 */
+	private final int[][] columns;
+
+	/**
+	 * The number of rows.
+	 */
+	private final int rowCount;
+
+	/**
+	 * The cached contingency tables, keyed by the list of event indexes.
+	 */
+	private final Map<String, int[]> tables = new HashMap<String, int[]>();
+
+	/**
+	 * The maximum number of cached table cells, the cache is cleared once it
+	 * grows past this.
+	 */
+	private final int maxCells;
+
+	/**
+	 * The number of cells currently cached.
+	 */
+	private int cachedCells;
+
+	/**
+	 * The number of requests answered from the cache.
+	 */
+	private int hits;
+
+	/**
+	 * The number of requests that had to scan the data.
+	 */
+	private int misses;
+
+	/**
+	 * Construct the cache, with the default size limit.
+	 * @param theNetwork The network, used to classify the data.
+	 * @param theData The training data.
+	 */
+	public BayesianCountCache(final BayesianNetwork theNetwork,
+			final MLDataSet theData) {
+		this(theNetwork, theData, DEFAULT_MAX_CELLS);
+	}
+
+	/**
+	 * Construct the cache.
+	 * @param theNetwork The network, used to classify the data.
+	 * @param theData The training data.
+	 * @param theMaxCells The maximum number of cached table cells.
+	 */
+	public BayesianCountCache(final BayesianNetwork theNetwork,
+			final MLDataSet theData, final int theMaxCells) {
+		this.network = theNetwork;
+		this.maxCells = theMaxCells;
+		this.rowCount = (int) theData.getRecordCount();
+		this.columns = new int[theData.getInputSize()][this.rowCount];
+
+		int row = 0;
+		for (final MLDataPair pair : theData) {
+			final int[] d = theNetwork.determineClasses(pair.getInput());
+			for (int i = 0; i < d.length; i++) {
+				this.columns[i][row] = d[i];
+			}
+			row++;
+		}
+	}
+
+	/**
+	 * Obtain the contingency table for the specified events.
+	 * @param events The event indexes, the first varies fastest.
+	 * @return The counts, do not modify.
+	 */
+	public int[] count(final int[] events) {
+		final String key = Arrays.toString(events);
+
+		synchronized (this.tables) {
+			final int[] result = this.tables.get(key);
+			if (result != null) {
+				this.hits++;
+				return result;
+			}
+		}
+
+		final int[] result = build(events);
+
+		synchronized (this.tables) {
+			this.misses++;
+			if (!this.tables.containsKey(key)) {
+				if (this.cachedCells + result.length > this.maxCells) {
+					this.tables.clear();
+					this.cachedCells = 0;
+				}
+				this.tables.put(key, result);
+				this.cachedCells += result.length;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Obtain the contingency table for an event and a list of parents. The
+	 * event varies fastest, followed by the parents in order.
+	 * @param event The event.
+	 * @param parents The parents.
+	 * @return The counts, do not modify.
+	 */
+	public int[] count(final BayesianEvent event,
+			final List<BayesianEvent> parents) {
+		final int[] events = new int[parents.size() + 1];
+		events[0] = this.network.getEventIndex(event);
+		for (int i = 0; i < parents.size(); i++) {
+			events[i + 1] = this.network.getEventIndex(parents.get(i));
+		}
+		return count(events);
+	}
+
+	/**
+	 * Determine the index of a parent instance within a table built by
+	 * count(event,parents).
+	 * @param event The event.
+	 * @param parents The parents.
+	 * @param parentInstance The value of each parent.
+	 * @return The index of the cell where the event has value zero.
+	 */
+	public static int parentOffset(final BayesianEvent event,
+			final List<BayesianEvent> parents, final int[] parentInstance) {
+		int stride = event.getChoices().size();
+		int result = 0;
+		for (int i = 0; i < parentInstance.length; i++) {
+			result += parentInstance[i] * stride;
+			stride *= parents.get(i).getChoices().size();
+		}
+		return result;
+	}
+
+	/**
+	 * Build a contingency table with one pass over the data.
+	 * @param events The event indexes.
+	 * @return The counts.
+	 */
+	private int[] build(final int[] events) {
+		final List<BayesianEvent> all = this.network.getEvents();
+		final int[][] cols = new int[events.length][];
+		final int[] strides = new int[events.length];
+		int size = 1;
+		for (int i = 0; i < events.length; i++) {
+			cols[i] = this.columns[events[i]];
+			strides[i] = size;
+			size *= all.get(events[i]).getChoices().size();
+		}
+
+		final int[] result = new int[size];
+		for (int row = 0; row < this.rowCount; row++) {
+			int index = 0;
+			for (int i = 0; i < cols.length; i++) {
+				index += cols[i][row] * strides[i];
+			}
+			result[index]++;
+		}
+		return result;
+	}
+
+	/**
+	 * @return The number of rows in the data.
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * @return The number of requests answered from the cache.
+	 */
+	public int getHits() {
+		synchronized (this.tables) {
+			return this.hits;
+		}
+	}
+
+	/**
+	 * @return The number of requests that had to scan the data.
+	 */
+	public int getMisses() {
+		synchronized (this.tables) {
+			return this.misses;
+		}
+	}
+
+	/**
+	 * Clear the cached tables.
+	 */
+	public void clear() {
+		synchronized (this.tables) {
+			this.tables.clear();
+			this.cachedCells = 0;
+		}
+	}
+}
@@ -110,6 +110,11 @@ public class TrainBayesian extends BasicTraining {
 	 */
 	private String holdQuery;
 
+	/**
+	 * The count cache shared by the search and the estimator.
+	 */
+	private BayesianCountCache countCache;
+
 	/**
 	 * Construct a Bayesian trainer. Use K2 to search, and the SimpleEstimator
 	 * to estimate probability.  Init as Naive Bayes
@@ -319,6 +324,18 @@ public class TrainBayesian extends BasicTraining {
 		return maximumParents;
 	}
 
+	/**
+	 * Obtain the count cache for the training data. The cache is created the
+	 * first time it is requested, and shared by the search and estimator.
+	 * @return The count cache.
+	 */
+	public synchronized BayesianCountCache getCountCache() {
+		if (this.countCache == null) {
+			this.countCache = new BayesianCountCache(this.network, this.data);
+		}
+		return this.countCache;
+	}
+
 	/**
 	 * @return The search method.
 	 */
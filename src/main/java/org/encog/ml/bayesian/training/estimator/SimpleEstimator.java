@@ -26,12 +26,13 @@ package org.encog.ml.bayesian.training.estimator;
 import org.encog.ml.bayesian.BayesianEvent;
 import org.encog.ml.bayesian.BayesianNetwork;
 import org.encog.ml.bayesian.table.TableLine;
+import org.encog.ml.bayesian.training.BayesianCountCache;
 import org.encog.ml.bayesian.training.TrainBayesian;
-import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
 
 /**
- * A simple probability estimator.
+ * A simple probability estimator. The counts are taken from the trainer's
+ * count cache, which is shared with the structure search.
  */
 public class SimpleEstimator implements BayesEstimator {
 	
@@ -60,38 +61,25 @@ public class SimpleEstimator implements BayesEstimator {
 	 * @return The probability.
 	 */
 	public double calculateProbability(BayesianEvent event, int result, int[] args) {
-		int eventIndex = this.network.getEvents().indexOf(event);
+		int[] counts = this.trainer.getCountCache().count(event,
+				event.getParents());
+		int r = event.getChoices().size();
 		int x = 0;
 		int y = 0;
 		
-		// calculate overall probability
-		for( MLDataPair pair : this.data ) {
-			int[] d = this.network.determineClasses( pair.getInput() );
-			
-			if( args.length==0 ) {
-				x++;
-				if( d[eventIndex]==result ) {
-					y++;
-				}
+		if( args.length==0 ) {
+			// overall probability
+			for(int k = 0; k<r; k++) {
+				x+=counts[k];
 			}
-			else if( d[eventIndex]==result ) {
-				x++;
-				
-				int i = 0;
-				boolean givenMatch = true;
-				for(BayesianEvent givenEvent : event.getParents()) {
-					int givenIndex = this.network.getEventIndex(givenEvent);
-					if( args[i]!=d[givenIndex] ) {
-						givenMatch = false;
-						break;
-					}
-					i++;
-				}
-				
-				if( givenMatch ) {
-					y++;
-				}
+			y = counts[result];
+		} else {
+			// sum over every parent instance, where the event matches result
+			for(int offset = 0; offset<counts.length; offset+=r) {
+				x+=counts[offset+result];
 			}
+			y = counts[BayesianCountCache.parentOffset(event,
+					event.getParents(), args) + result];
 		}
 		
 		double num = y + 1;
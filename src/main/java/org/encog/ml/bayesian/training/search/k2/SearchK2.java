@@ -29,16 +29,25 @@ import java.util.List;
 import org.encog.mathutil.EncogMath;
 import org.encog.ml.bayesian.BayesianEvent;
 import org.encog.ml.bayesian.BayesianNetwork;
-import org.encog.ml.bayesian.query.enumerate.EnumerationQuery;
+import org.encog.ml.bayesian.training.BayesianCountCache;
 import org.encog.ml.bayesian.training.TrainBayesian;
-import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
 
 /**
  * Search for optimal Bayes structure with K2.
+ * 
+ * The counts needed to score a structure are taken from the trainer's count
+ * cache, so the training data is only scanned once for each distinct set of
+ * events. The candidate parents for an event are scored in parallel.
  *
  */
-public class SearchK2 implements BayesSearch {
+public class SearchK2 implements BayesSearch, MultiThreadable,
+		ConcurrencyAware {
 
 	/**
 	 * The data to use.
@@ -70,6 +79,17 @@ public class SearchK2 implements BayesSearch {
 	 */
 	private int index = -1;
 	
+	/**
+	 * The number of threads to use, zero for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -110,29 +130,63 @@ public class SearchK2 implements BayesSearch {
 	 * @param old The old value.
 	 * @return The new value for z.
 	 */
-	private BayesianEvent findZ(BayesianEvent event, int n, double old) {
+	private BayesianEvent findZ(final BayesianEvent event, final int n, final double old) {
+		final double[] scores = new double[n];
+		
+		int threads = this.threadCount;
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.min(threads, n);
+		
+		if (threads <= 1) {
+			for (int i = 0; i < n; i++) {
+				scores[i] = scoreParent(event, this.nodeOrdering.get(i));
+			}
+		} else {
+			final TaskGroup group = getConcurrency().createTaskGroup();
+			for (int t = 0; t < threads; t++) {
+				final int lane = t;
+				final int laneCount = threads;
+				getConcurrency().processTask(new EngineTask() {
+					public void run() {
+						for (int i = lane; i < n; i += laneCount) {
+							scores[i] = scoreParent(event,
+									nodeOrdering.get(i));
+						}
+					}
+				}, group);
+			}
+			group.waitForComplete();
+			getConcurrency().checkError();
+		}
+		
 		BayesianEvent result = null;
 		double maxChildP = Double.NEGATIVE_INFINITY;
-		//System.out.println("Finding parent for: " + event.toString());
-		for(int i=0;i<n;i++) {
-			BayesianEvent trialParent = this.nodeOrdering.get(i);
-			List<BayesianEvent> parents = new ArrayList<BayesianEvent>();
-			parents.addAll(event.getParents());
-			parents.add(trialParent);
-			//System.out.println("Calculating adding " + trialParent.toString() + " to " + event.toString());
-			this.lastCalculatedP = this.calculateG(network, event, parents);
-			//System.out.println("lastP:" + this.lastCalculatedP);
-			//System.out.println("old:" + old);
-			if( this.lastCalculatedP>old && this.lastCalculatedP>maxChildP ) {
-				result = trialParent;
-				maxChildP = this.lastCalculatedP;
-				//System.out.println("Current best is: " + result.toString());
-			}			
+		for (int i = 0; i < n; i++) {
+			if (scores[i] > old && scores[i] > maxChildP) {
+				result = this.nodeOrdering.get(i);
+				maxChildP = scores[i];
+			}
 		}
 		
 		this.lastCalculatedP = maxChildP;
 		return result;
 	}
+	
+	/**
+	 * Score the structure that results from adding a trial parent to an event.
+	 * @param event The event.
+	 * @param trialParent The parent to try.
+	 * @return The value of G for the event with the trial parent added.
+	 */
+	private double scoreParent(final BayesianEvent event,
+			final BayesianEvent trialParent) {
+		final List<BayesianEvent> parents = new ArrayList<BayesianEvent>();
+		parents.addAll(event.getParents());
+		parents.add(trialParent);
+		return calculateG(this.network, event, parents);
+	}
 
 	/**
 	 * Calculate the value N, which is the number of cases, from the training data, where the
@@ -147,30 +201,9 @@ public class SearchK2 implements BayesSearch {
 	 */
 	public int calculateN(BayesianNetwork network, BayesianEvent event,
 			List<BayesianEvent> parents, int[] parentInstance, int desiredValue) {
-		int result = 0;
-		int eventIndex = network.getEventIndex(event);
-
-		for (MLDataPair pair : this.data) {
-			int[] d = this.network.determineClasses(pair.getInput());
-
-			if ( d[eventIndex] == desiredValue) {
-				boolean reject = false;
-
-				for (int i = 0; i < parentInstance.length; i++) {
-					BayesianEvent parentEvent = parents.get(i);
-					int parentIndex = network.getEventIndex(parentEvent);
-					if (parentInstance[i] != d[parentIndex]) {
-						reject = true;
-						break;
-					}
-				}
-
-				if (!reject) {
-					result++;
-				}
-			}
-		}
-		return result;
+		int[] counts = this.train.getCountCache().count(event, parents);
+		return counts[BayesianCountCache.parentOffset(event, parents,
+				parentInstance) + desiredValue];
 	}
 
 	/**
@@ -185,25 +218,12 @@ public class SearchK2 implements BayesSearch {
 	 */
 	public int calculateN(BayesianNetwork network, BayesianEvent event,
 			List<BayesianEvent> parents, int[] parentInstance) {
+		int[] counts = this.train.getCountCache().count(event, parents);
+		int offset = BayesianCountCache.parentOffset(event, parents,
+				parentInstance);
 		int result = 0;
-
-		for (MLDataPair pair : this.data) {
-			int[] d = this.network.determineClasses( pair.getInput());
-
-			boolean reject = false;
-
-			for (int i = 0; i < parentInstance.length; i++) {
-				BayesianEvent parentEvent = parents.get(i);
-				int parentIndex = network.getEventIndex(parentEvent);
-				if (parentInstance[i] != ((int) d[parentIndex])) {
-					reject = true;
-					break;
-				}
-			}
-
-			if (!reject) {
-				result++;
-			}
+		for (int k = 0; k < event.getChoices().size(); k++) {
+			result += counts[offset + k];
 		}
 		return result;
 	}
@@ -219,22 +239,22 @@ public class SearchK2 implements BayesSearch {
 			BayesianEvent event, List<BayesianEvent> parents) {
 		double result = 1.0;
 		int r = event.getChoices().size();
-
-		int[] args = new int[parents.size()];
+		int[] counts = this.train.getCountCache().count(event, parents);
+		double n = EncogMath.factorial(r - 1);
 		
-		do {
-			double n = EncogMath.factorial(r - 1);
-			double d = EncogMath.factorial(calculateN(network, event,
-					parents, args) + r - 1);
-			double p1 = n/d;
-			
+		// each run of r cells holds the counts for one parent instance
+		for (int offset = 0; offset < counts.length; offset += r) {
+			int nij = 0;
 			double p2 = 1;
-			for(int k = 0; k<event.getChoices().size(); k++) {
-				p2 *= EncogMath.factorial(calculateN(network,event,parents,args,k));
-			}						
+			for (int k = 0; k < r; k++) {
+				nij += counts[offset + k];
+				p2 *= EncogMath.factorial(counts[offset + k]);
+			}
+			double d = EncogMath.factorial(nij + r - 1);
+			double p1 = n/d;
 			
 			result*=p1*p2;
-		} while(EnumerationQuery.roll(parents, args));
+		}
 		
 		return result;
 	}
@@ -267,5 +287,39 @@ public class SearchK2 implements BayesSearch {
 		return( index<this.data.getInputSize());
 	}
 	
-}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setThreadCount(int numThreads) {
+		this.threadCount = numThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+	
+}
@@ -27,15 +27,20 @@ import java.io.File;
 
 import org.encog.NullStatusReportable;
 import org.encog.StatusReportable;
+import org.encog.ml.data.buffer.codec.CSVDataCODEC;
 import org.encog.ml.data.buffer.codec.DataSetCODEC;
+import org.encog.util.concurrency.MultiThreadable;
 
 /**
  * This class is used, together with a CODEC, to move data to/from the Encog
  * binary training file format. The same Encog binary files can be used on all
  * Encog platforms. CODEC's are used to import/export with other formats, such
  * as CSV.
+ * 
+ * A CSV file can be imported on several threads, see setThreadCount and
+ * ParallelCSVLoader.
  */
-public class BinaryDataLoader {
+public class BinaryDataLoader implements MultiThreadable {
 
 	/**
 	 * The CODEC to use.
@@ -47,6 +52,12 @@ public class BinaryDataLoader {
 	 */
 	private StatusReportable status = new NullStatusReportable();
 
+	/**
+	 * The number of threads used to import a CSV file, 0 for one per
+	 * processor. Other formats are always imported on one thread.
+	 */
+	private int threadCount = 1;
+
 	/**
 	 * Construct a loader with the specified CODEC.
 	 * 
@@ -66,6 +77,15 @@ public class BinaryDataLoader {
 	 */
 	public void external2Binary(final File binaryFile) {
 
+		if (this.threadCount != 1 && this.codec instanceof CSVDataCODEC) {
+			final ParallelCSVLoader loader = new ParallelCSVLoader(
+					(CSVDataCODEC) this.codec);
+			loader.setThreadCount(this.threadCount);
+			loader.setStatus(this.status);
+			loader.external2Binary(binaryFile);
+			return;
+		}
+
 		status.report(0, 0, "Importing to binary file: "
 				+ binaryFile.toString());
 
@@ -184,4 +204,23 @@ public class BinaryDataLoader {
 		return codec;
 	}
 
+
+	/**
+	 * @return The number of threads used to import a CSV file, 0 for one per
+	 * processor.
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * Set the number of threads used to import a CSV file. The default is
+	 * one.
+	 * @param numThreads The number of threads, or 0 for one per processor.
+	 */
+	@Override
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+	}
 }
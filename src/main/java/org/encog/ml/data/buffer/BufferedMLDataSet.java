@@ -24,10 +24,13 @@
 package org.encog.ml.data.buffer;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.encog.ml.data.MLData;
 import org.encog.ml.data.MLDataError;
@@ -103,6 +106,12 @@ public class BufferedMLDataSet implements
 	 */
 	private transient BufferedMLDataSet owner;
 
+	/**
+	 * The bytes read by getRecord. Shared with the additional sets, so the
+	 * count covers every thread reading the file.
+	 */
+	private transient AtomicLong bytesRead = new AtomicLong();
+
 	/**
 	 * Construct the dataset using the specified binary file.
 	 * 
@@ -117,6 +126,29 @@ public class BufferedMLDataSet implements
 		}
 	}
 
+	/**
+	 * Restore the transient state after deserialization. The file is
+	 * reopened, as it is by the constructor, and the bytes read count starts
+	 * again from zero.
+	 * 
+	 * @param in
+	 *            The stream to read from.
+	 * @throws IOException
+	 *             If the object could not be read.
+	 * @throws ClassNotFoundException
+	 *             If a class could not be found.
+	 */
+	private void readObject(final ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+		this.additional = new ArrayList<BufferedMLDataSet>();
+		this.bytesRead = new AtomicLong();
+		this.egb = new EncogEGBFile(this.file);
+		if (this.file.exists()) {
+			this.egb.open();
+		}
+	}
+
 	/**
 	 * Open the binary file for reading.
 	 */
@@ -165,6 +197,18 @@ public class BufferedMLDataSet implements
 		}
 		
 		this.egb.read();
+
+		final int count = inputTarget.length + 1
+				+ (pair.getIdealArray() == null ? 0 : pair.getIdealArray().length);
+		this.bytesRead.addAndGet(count * EncogEGBFile.DOUBLE_SIZE);
+	}
+
+	/**
+	 * @return The bytes read by getRecord, by this set and any additional
+	 *         sets opened from it.
+	 */
+	public long getBytesRead() {
+		return this.bytesRead.get();
 	}
 
 	/**
@@ -175,6 +219,7 @@ public class BufferedMLDataSet implements
 
 		BufferedMLDataSet result = new BufferedMLDataSet(this.file);
 		result.setOwner(this);
+		result.bytesRead = this.bytesRead;
 		this.additional.add(result);
 		return result;
 	}
@@ -29,6 +29,7 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.util.Random;
 
 /**
  * Used to access an Encog Binary Training file (*.EGB).
@@ -815,4 +816,81 @@ public class EncogEGBFile {
 		}
 	}
 
+	/**
+	 * Shuffle the records of an open file in place. Every ordering of the
+	 * records is equally likely. Only two records are held in memory, so
+	 * files of any size can be shuffled.
+	 * 
+	 * @param rnd
+	 *            The random number generator to use.
+	 */
+	public void shuffle(final Random rnd) {
+		try {
+			final ByteBuffer a = ByteBuffer.allocate(this.recordSize);
+			final ByteBuffer b = ByteBuffer.allocate(this.recordSize);
+
+			// Fisher-Yates, swapping records on disk
+			for (int i = this.numberOfRecords - 1; i > 0; i--) {
+				final int j = rnd.nextInt(i + 1);
+				if (i == j) {
+					continue;
+				}
+				final long posI = calculateIndex((long) i);
+				final long posJ = calculateIndex((long) j);
+				readFully(a, posI);
+				readFully(b, posJ);
+				writeFully(a, posJ);
+				writeFully(b, posI);
+			}
+		} catch (final IOException ex) {
+			throw new BufferedDataError(ex);
+		}
+	}
+
+	/**
+	 * Shuffle the records of an open file in place.
+	 */
+	public void shuffle() {
+		shuffle(new Random());
+	}
+
+	/**
+	 * Read a whole buffer from a position.
+	 * 
+	 * @param buffer
+	 *            The buffer.
+	 * @param position
+	 *            The position.
+	 * @throws IOException
+	 *             If the buffer can not be read.
+	 */
+	private void readFully(final ByteBuffer buffer, final long position)
+			throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			final int n = this.fc.read(buffer, position + buffer.position());
+			if (n < 0) {
+				throw new BufferedDataError("Unexpected end of file.");
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Write a whole buffer at a position.
+	 * 
+	 * @param buffer
+	 *            The buffer, ready to be written.
+	 * @param position
+	 *            The position.
+	 * @throws IOException
+	 *             If the buffer can not be written.
+	 */
+	private void writeFully(final ByteBuffer buffer, final long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			this.fc.write(buffer, position + buffer.position());
+		}
+	}
+
 }
@@ -0,0 +1,453 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.data.buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.encog.NullStatusReportable;
+import org.encog.StatusReportable;
+import org.encog.ml.data.buffer.codec.CSVDataCODEC;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
+import org.encog.util.csv.CSVChunks;
+import org.encog.util.csv.CSVTokenizer;
+
+/**
+ * Converts a CSV file to the Encog binary training format using several
+ * threads. The file is split into one chunk per thread at line boundaries.
+ * The rows of each chunk are first counted, so that the EGB file can be
+ * created at its final size and every chunk knows the index of its first
+ * record. The chunks are then parsed in parallel, and each thread writes its
+ * records directly to their place in the EGB file. The result is identical
+ * to a conversion with BinaryDataLoader on one thread.
+ * 
+ * As with ReadCSV, a line ends at any line break, even inside quotes, and
+ * blank lines are skipped. Every row must have enough columns for the input,
+ * ideal and significance values. The file must use a character set in which
+ * line breaks are the single bytes 13 and 10, such as UTF-8 or ISO-8859-1,
+ * otherwise it is converted on one thread.
+ */
+public class ParallelCSVLoader implements MultiThreadable, ConcurrencyAware {
+
+	/**
+	 * The size of the buffers used to count and write records.
+	 */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The CODEC that describes the CSV file.
+	 */
+	private final CSVDataCODEC codec;
+
+	/**
+	 * The number of threads, 0 for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
+	/**
+	 * Used to report the status.
+	 */
+	private StatusReportable status = new NullStatusReportable();
+
+	/**
+	 * Construct the loader.
+	 * 
+	 * @param theCodec
+	 *            The CODEC that describes the CSV file.
+	 */
+	public ParallelCSVLoader(final CSVDataCODEC theCodec) {
+		this.codec = theCodec;
+	}
+
+	/**
+	 * Convert the CSV file to the Encog binary training format.
+	 * 
+	 * @param binaryFile
+	 *            The binary file to create.
+	 */
+	public void external2Binary(final File binaryFile) {
+		if (this.codec.getInputSize() == 0) {
+			throw new BufferedDataError("To import CSV, you must use the "
+					+ "CSVDataCODEC constructor that specifies input and "
+					+ "ideal sizes.");
+		}
+
+		if (!CSVChunks.isSupported()) {
+			final BinaryDataLoader loader = new BinaryDataLoader(this.codec);
+			loader.setStatus(this.status);
+			loader.external2Binary(binaryFile);
+			return;
+		}
+
+		this.status.report(0, 0, "Importing to binary file: "
+				+ binaryFile.toString());
+
+		RandomAccessFile csv = null;
+		EncogEGBFile egb = null;
+
+		try {
+			csv = new RandomAccessFile(this.codec.getFile(), "r");
+			final FileChannel in = csv.getChannel();
+
+			int threads = this.threadCount;
+			if (threads <= 0) {
+				threads = Runtime.getRuntime().availableProcessors();
+			}
+
+			final long[] bounds = CSVChunks.split(in, threads);
+			final int chunks = bounds.length - 1;
+
+			// count the rows of each chunk
+			final long[] counts = new long[chunks];
+			final EngineTask[] countTasks = new EngineTask[chunks];
+			for (int i = 0; i < chunks; i++) {
+				final int chunk = i;
+				countTasks[i] = new EngineTask() {
+					public void run() {
+						counts[chunk] = countRows(in, bounds[chunk],
+								bounds[chunk + 1], chunk == 0
+										&& ParallelCSVLoader.this.codec
+												.isHeaders());
+					}
+				};
+			}
+			runTasks(countTasks);
+
+			long total = 0;
+			final long[] first = new long[chunks];
+			for (int i = 0; i < chunks; i++) {
+				first[i] = total;
+				total += counts[i];
+			}
+
+			if (total > Integer.MAX_VALUE) {
+				throw new BufferedDataError("Too many records for an EGB file: "
+						+ total);
+			}
+
+			this.status.report(0, 0, "Importing " + total + " records in "
+					+ chunks + " chunks.");
+
+			// create the EGB file at its final size
+			egb = new EncogEGBFile(binaryFile);
+			egb.create(this.codec.getInputSize(), this.codec.getIdealSize());
+			final int recordSize = egb.getRecordSize();
+			egb.getRaf().setLength(
+					EncogEGBFile.HEADER_SIZE + (total * recordSize));
+			final FileChannel out = egb.getFc();
+
+			// parse the chunks, each writes to its own records
+			final EngineTask[] parseTasks = new EngineTask[chunks];
+			for (int i = 0; i < chunks; i++) {
+				final int chunk = i;
+				parseTasks[i] = new EngineTask() {
+					public void run() {
+						parseRows(in, bounds[chunk], bounds[chunk + 1],
+								chunk == 0
+										&& ParallelCSVLoader.this.codec
+												.isHeaders(), out,
+								first[chunk], counts[chunk], recordSize);
+					}
+				};
+			}
+			runTasks(parseTasks);
+		} catch (final IOException ex) {
+			throw new BufferedDataError(ex);
+		} finally {
+			if (egb != null) {
+				egb.close();
+			}
+			if (csv != null) {
+				try {
+					csv.close();
+				} catch (final IOException ex) {
+					throw new BufferedDataError(ex);
+				}
+			}
+		}
+
+		this.status.report(0, 0, "Done importing to binary file: "
+				+ binaryFile.toString());
+	}
+
+	/**
+	 * Run tasks, in parallel if there is more than one.
+	 * 
+	 * @param tasks
+	 *            The tasks.
+	 */
+	private void runTasks(final EngineTask[] tasks) {
+		if (tasks.length == 1) {
+			tasks[0].run();
+			return;
+		}
+
+		final TaskGroup group = getConcurrency().createTaskGroup();
+		for (final EngineTask task : tasks) {
+			getConcurrency().processTask(task, group);
+		}
+		group.waitForComplete();
+		getConcurrency().checkError();
+	}
+
+	/**
+	 * Count the rows of a chunk, in the same way that ReadCSV reads them.
+	 * 
+	 * @param in
+	 *            The file.
+	 * @param start
+	 *            The start of the chunk.
+	 * @param end
+	 *            The end of the chunk.
+	 * @param skipHeader
+	 *            True, if the first line is a header.
+	 * @return The number of rows.
+	 */
+	private long countRows(final FileChannel in, final long start,
+			final long end, final boolean skipHeader) {
+		try {
+			final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long pos = start;
+			long rows = 0;
+			boolean header = skipHeader;
+			boolean inLine = false;
+			boolean blank = true;
+			boolean skipLF = false;
+
+			while (pos < end) {
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), end - pos));
+				final int n = in.read(buffer, pos);
+				if (n <= 0) {
+					break;
+				}
+				pos += n;
+
+				for (int i = 0; i < n; i++) {
+					final byte b = buffer.get(i);
+					if (skipLF) {
+						skipLF = false;
+						if (b == '\n') {
+							continue;
+						}
+					}
+
+					if (b == '\n' || b == '\r') {
+						skipLF = (b == '\r');
+						if (header) {
+							header = false;
+						} else if (!blank) {
+							rows++;
+						}
+						inLine = false;
+						blank = true;
+					} else {
+						inLine = true;
+						if (b < 0 || b > ' ') {
+							blank = false;
+						}
+					}
+				}
+			}
+
+			if (inLine && !header && !blank) {
+				rows++;
+			}
+
+			return rows;
+		} catch (final IOException ex) {
+			throw new BufferedDataError(ex);
+		}
+	}
+
+	/**
+	 * Parse the rows of a chunk and write them to the EGB file.
+	 * 
+	 * @param in
+	 *            The CSV file.
+	 * @param start
+	 *            The start of the chunk.
+	 * @param end
+	 *            The end of the chunk.
+	 * @param skipHeader
+	 *            True, if the first line is a header.
+	 * @param out
+	 *            The EGB file.
+	 * @param firstRecord
+	 *            The index of the first record of the chunk.
+	 * @param expected
+	 *            The number of rows counted in the chunk.
+	 * @param recordSize
+	 *            The size of a record, in bytes.
+	 */
+	private void parseRows(final FileChannel in, final long start,
+			final long end, final boolean skipHeader, final FileChannel out,
+			final long firstRecord, final long expected, final int recordSize) {
+		final CSVTokenizer tok = new CSVTokenizer(new InputStreamReader(
+				CSVChunks.open(in, start, end)), this.codec.getFormat());
+		final int values = this.codec.getInputSize()
+				+ this.codec.getIdealSize();
+		final int columns = values + (this.codec.isExpectSignificance() ? 1 : 0);
+		final int perBuffer = Math.max(1, BUFFER_SIZE / recordSize);
+		final ByteBuffer buffer = ByteBuffer.allocate(perBuffer * recordSize);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		long writePos = EncogEGBFile.HEADER_SIZE + (firstRecord * recordSize);
+		long rows = 0;
+
+		try {
+			if (skipHeader) {
+				tok.nextLine();
+			}
+
+			while (tok.next()) {
+				if (tok.getFieldCount() < columns) {
+					throw new BufferedDataError("Record "
+							+ (firstRecord + rows) + " has "
+							+ tok.getFieldCount() + " columns, expected "
+							+ columns + ".");
+				}
+
+				for (int i = 0; i < values; i++) {
+					buffer.putDouble(tok.getDouble(i));
+				}
+				buffer.putDouble(this.codec.isExpectSignificance() ? tok
+						.getDouble(values) : 1.0);
+				rows++;
+
+				if (!buffer.hasRemaining()) {
+					writePos = write(out, buffer, writePos);
+				}
+			}
+
+			if (rows != expected) {
+				throw new BufferedDataError("Expected " + expected
+						+ " records in chunk, but read " + rows
+						+ ". Was the file modified?");
+			}
+
+			write(out, buffer, writePos);
+		} catch (final IOException ex) {
+			throw new BufferedDataError(ex);
+		}
+	}
+
+	/**
+	 * Write the contents of a buffer at a position, and clear it.
+	 * 
+	 * @param out
+	 *            The file.
+	 * @param buffer
+	 *            The buffer.
+	 * @param position
+	 *            The position to write to.
+	 * @return The position after the data written.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	private long write(final FileChannel out, final ByteBuffer buffer,
+			final long position) throws IOException {
+		long pos = position;
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			pos += out.write(buffer, pos);
+		}
+		buffer.clear();
+		return pos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
+	/**
+	 * @return The object that status is reported to.
+	 */
+	public StatusReportable getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * Set the object that status is reported to.
+	 * 
+	 * @param theStatus
+	 *            The object to report status to.
+	 */
+	public void setStatus(final StatusReportable theStatus) {
+		this.status = theStatus;
+	}
+
+	/**
+	 * @return The CODEC that describes the CSV file.
+	 */
+	public CSVDataCODEC getCodec() {
+		return this.codec;
+	}
+}
@@ -263,4 +263,32 @@ public class CSVDataCODEC implements DataSetCODEC {
 			this.output.println(result.toString());
 		}
 	}
+
+	/**
+	 * @return The CSV file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * @return The CSV format.
+	 */
+	public CSVFormat getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * @return True, if headers are present in the CSV file.
+	 */
+	public boolean isHeaders() {
+		return this.headers;
+	}
+
+	/**
+	 * @return True, if a significance column is expected.
+	 */
+	public boolean isExpectSignificance() {
+		return this.expectSignificance;
+	}
 }
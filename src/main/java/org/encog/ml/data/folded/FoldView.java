@@ -0,0 +1,287 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.data.folded;
+
+import java.util.Iterator;
+
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.MLDataError;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.neural.networks.training.TrainingError;
+
+/**
+ * A read-only view of one fold of a FoldedDataSet, or of every fold except
+ * one. Unlike the FoldedDataSet itself, a fold view never changes which
+ * records it covers, so several views over the same underlying data can be
+ * used by different threads at once. Create views with the
+ * FoldedDataSet.createValidationView and createTrainingView methods.
+ */
+public class FoldView implements MLDataSet {
+
+	/**
+	 * Error message: adds are not supported.
+	 */
+	public static final String ADD_NOT_SUPPORTED 
+		= "Direct adds to a fold view are not supported.";
+
+	/**
+	 * Iterates over the records of a fold view.
+	 */
+	private class FoldViewIterator implements Iterator<MLDataPair> {
+
+		/**
+		 * The current index.
+		 */
+		private int currentIndex;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean hasNext() {
+			return this.currentIndex < FoldView.this.recordCount;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public MLDataPair next() {
+			if (!hasNext()) {
+				return null;
+			}
+			final MLDataPair pair = BasicMLDataPair.createPair(
+					getInputSize(), getIdealSize());
+			getRecord(this.currentIndex++, pair);
+			return pair;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void remove() {
+			throw new MLDataError("Remove is not supported.");
+		}
+	}
+
+	/**
+	 * The underlying dataset.
+	 */
+	private final MLDataSet underlying;
+
+	/**
+	 * The offset of the fold within the underlying dataset.
+	 */
+	private final long foldOffset;
+
+	/**
+	 * The number of records in the fold.
+	 */
+	private final long foldSize;
+
+	/**
+	 * True if this view covers every record except the fold, false if it
+	 * covers only the fold.
+	 */
+	private final boolean exclude;
+
+	/**
+	 * The number of records in this view.
+	 */
+	private final long recordCount;
+
+	/**
+	 * Construct a fold view.
+	 * 
+	 * @param theUnderlying
+	 *            The underlying dataset.
+	 * @param theFoldOffset
+	 *            The offset of the fold.
+	 * @param theFoldSize
+	 *            The number of records in the fold.
+	 * @param theExclude
+	 *            True to cover every record except the fold, false to cover
+	 *            only the fold.
+	 */
+	public FoldView(final MLDataSet theUnderlying, final long theFoldOffset,
+			final long theFoldSize, final boolean theExclude) {
+		this.underlying = theUnderlying;
+		this.foldOffset = theFoldOffset;
+		this.foldSize = theFoldSize;
+		this.exclude = theExclude;
+		if (this.exclude) {
+			this.recordCount = this.underlying.getRecordCount()
+					- this.foldSize;
+		} else {
+			this.recordCount = this.foldSize;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(final MLData data1) {
+		throw new TrainingError(FoldView.ADD_NOT_SUPPORTED);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(final MLData inputData, final MLData idealData) {
+		throw new TrainingError(FoldView.ADD_NOT_SUPPORTED);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void add(final MLDataPair inputData) {
+		throw new TrainingError(FoldView.ADD_NOT_SUPPORTED);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		this.underlying.close();
+	}
+
+	/**
+	 * @return The offset of the fold within the underlying dataset.
+	 */
+	public long getFoldOffset() {
+		return this.foldOffset;
+	}
+
+	/**
+	 * @return The number of records in the fold.
+	 */
+	public long getFoldSize() {
+		return this.foldSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getIdealSize() {
+		return this.underlying.getIdealSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getInputSize() {
+		return this.underlying.getInputSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void getRecord(final long index, final MLDataPair pair) {
+		if (this.exclude) {
+			if (index < this.foldOffset) {
+				this.underlying.getRecord(index, pair);
+			} else {
+				this.underlying.getRecord(index + this.foldSize, pair);
+			}
+		} else {
+			this.underlying.getRecord(this.foldOffset + index, pair);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getRecordCount() {
+		return this.recordCount;
+	}
+
+	/**
+	 * @return The underlying dataset.
+	 */
+	public MLDataSet getUnderlying() {
+		return this.underlying;
+	}
+
+	/**
+	 * @return True if this view covers every record except the fold.
+	 */
+	public boolean isExclude() {
+		return this.exclude;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isSupervised() {
+		return this.underlying.isSupervised();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<MLDataPair> iterator() {
+		return new FoldViewIterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MLDataSet openAdditional() {
+		return new FoldView(this.underlying.openAdditional(),
+				this.foldOffset, this.foldSize, this.exclude);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return (int) getRecordCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MLDataPair get(final int index) {
+		final MLDataPair result = BasicMLDataPair.createPair(getInputSize(),
+				getIdealSize());
+		getRecord(index, result);
+		return result;
+	}
+}
@@ -158,10 +158,59 @@ public class FoldedDataSet implements MLDataSet {
 		this.foldSize = (int) (this.underlying.getRecordCount() 
 					/ this.numFolds);
 		this.lastFoldSize = (int) (this.underlying.getRecordCount() 
-					- (this.foldSize * this.numFolds));
+					- (this.foldSize * (this.numFolds - 1)));
 		setCurrentFold(0);
 	}
 
+	/**
+	 * Create a read-only view of every fold except the specified fold. The
+	 * view is opened on additional access to the underlying dataset, and is
+	 * not affected by later changes to the current fold, so it can be used
+	 * from its own thread.
+	 * 
+	 * @param theFold
+	 *            The fold to leave out, normally the validation fold.
+	 * @return The training view.
+	 */
+	public FoldView createTrainingView(final int theFold) {
+		return createView(theFold, true);
+	}
+
+	/**
+	 * Create a read-only view of only the specified fold. The view is opened
+	 * on additional access to the underlying dataset, and is not affected by
+	 * later changes to the current fold, so it can be used from its own
+	 * thread.
+	 * 
+	 * @param theFold
+	 *            The fold to view.
+	 * @return The validation view.
+	 */
+	public FoldView createValidationView(final int theFold) {
+		return createView(theFold, false);
+	}
+
+	/**
+	 * Create a fold view.
+	 * 
+	 * @param theFold
+	 *            The fold.
+	 * @param exclude
+	 *            True to view every fold but this one.
+	 * @return The view.
+	 */
+	private FoldView createView(final int theFold, final boolean exclude) {
+		if (theFold < 0 || theFold >= this.numFolds) {
+			throw new TrainingError("Fold " + theFold
+					+ " is out of range, there are " + this.numFolds
+					+ " folds.");
+		}
+		final int size = (theFold == (this.numFolds - 1)) ? this.lastFoldSize
+				: this.foldSize;
+		return new FoldView(this.underlying.openAdditional(), this.foldSize
+				* theFold, size, exclude);
+	}
+
 	/**
 	 * @return the currentFold
 	 */
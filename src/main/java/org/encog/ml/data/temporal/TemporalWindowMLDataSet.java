@@ -0,0 +1,377 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.data.temporal;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+import org.encog.EncogError;
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+
+/**
+ * A temporal data set that builds its sliding windows on demand. The
+ * TemporalMLDataSet generate method creates a new pair for every window, so
+ * with an input window of W points the series is held roughly W times over,
+ * and all of it must be generated before training can begin.
+ * 
+ * This data set is created from a TemporalMLDataSet that has had its
+ * descriptions and points defined. Each point is formatted once, exactly as
+ * generate would format it, into one primitive column per description. The
+ * input and ideal arrays of a window are then copied out of these columns
+ * whenever a record is requested. The columns are never changed after
+ * construction, so additional views may be opened for multithreaded
+ * training and share them.
+ */
+public class TemporalWindowMLDataSet implements Serializable, MLDataSet {
+
+	/**
+	 * An iterator over the windows of the data set.
+	 */
+	public class TemporalWindowIterator implements Iterator<MLDataPair> {
+
+		/**
+		 * The index of the next window.
+		 */
+		private long currentIndex = 0;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public final boolean hasNext() {
+			return this.currentIndex < TemporalWindowMLDataSet.this.recordCount;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public final MLDataPair next() {
+			if (!hasNext()) {
+				return null;
+			}
+
+			final MLDataPair pair = BasicMLDataPair.createPair(
+					TemporalWindowMLDataSet.this.inputSize,
+					TemporalWindowMLDataSet.this.idealSize);
+			getRecord(this.currentIndex++, pair);
+			return pair;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public final void remove() {
+			throw new EncogError("Called remove, unsupported operation.");
+		}
+	}
+
+	/**
+	 * The serial id.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The formatted value of each description at each point, one column per
+	 * description. Row zero is the first point a window can start at.
+	 */
+	private final double[][] columns;
+
+	/**
+	 * The columns that make up the input of each point in a window.
+	 */
+	private final int[] inputColumns;
+
+	/**
+	 * The columns that make up the ideal of each point in a window.
+	 */
+	private final int[] idealColumns;
+
+	/**
+	 * The number of points in the input window.
+	 */
+	private final int inputWindowSize;
+
+	/**
+	 * The number of points in the prediction window.
+	 */
+	private final int predictWindowSize;
+
+	/**
+	 * The size of the input data.
+	 */
+	private final int inputSize;
+
+	/**
+	 * The size of the ideal data.
+	 */
+	private final int idealSize;
+
+	/**
+	 * The number of windows.
+	 */
+	private final long recordCount;
+
+	/**
+	 * Construct the data set from the points and descriptions of a temporal
+	 * data set. The temporal data set's points are sorted, just as generate
+	 * would sort them, but no pairs are added to it.
+	 * 
+	 * @param temporal
+	 *            The temporal data set to take the points from.
+	 */
+	public TemporalWindowMLDataSet(final TemporalMLDataSet temporal) {
+		temporal.sortPoints();
+		temporal.calculateNeuronCounts();
+
+		this.inputWindowSize = temporal.getInputWindowSize();
+		this.predictWindowSize = temporal.getPredictWindowSize();
+		this.inputSize = temporal.getInputNeuronCount();
+		this.idealSize = temporal.getOutputNeuronCount();
+
+		final int start = temporal.calculateStartIndex() + 1;
+		final int setSize = temporal.calculateActualSetSize();
+		this.recordCount = Math.max(0, setSize - this.predictWindowSize
+				- this.inputWindowSize);
+
+		int inputCount = 0;
+		int idealCount = 0;
+		for (final TemporalDataDescription desc : temporal.getDescriptions()) {
+			if (desc.isInput()) {
+				inputCount++;
+			}
+			if (desc.isPredict()) {
+				idealCount++;
+			}
+		}
+		this.inputColumns = new int[inputCount];
+		this.idealColumns = new int[idealCount];
+
+		final int rows = (this.recordCount == 0) ? 0 : (int) this.recordCount
+				+ this.inputWindowSize + this.predictWindowSize - 1;
+		this.columns = new double[temporal.getDescriptions().size()][];
+
+		inputCount = 0;
+		idealCount = 0;
+		for (final TemporalDataDescription desc : temporal.getDescriptions()) {
+			final int column = desc.getIndex();
+			if (desc.isInput()) {
+				this.inputColumns[inputCount++] = column;
+			}
+			if (desc.isPredict()) {
+				this.idealColumns[idealCount++] = column;
+			}
+
+			this.columns[column] = new double[rows];
+			for (int row = 0; row < rows; row++) {
+				this.columns[column][row] = temporal.formatData(desc, start
+						+ row);
+			}
+		}
+	}
+
+	/**
+	 * Construct another view of the same columns.
+	 * 
+	 * @param other
+	 *            The data set to share the columns of.
+	 */
+	private TemporalWindowMLDataSet(final TemporalWindowMLDataSet other) {
+		this.columns = other.columns;
+		this.inputColumns = other.inputColumns;
+		this.idealColumns = other.idealColumns;
+		this.inputWindowSize = other.inputWindowSize;
+		this.predictWindowSize = other.predictWindowSize;
+		this.inputSize = other.inputSize;
+		this.idealSize = other.idealSize;
+		this.recordCount = other.recordCount;
+	}
+
+	/**
+	 * Adding directly is not supported.
+	 * 
+	 * @param data
+	 *            Not used.
+	 */
+	@Override
+	public void add(final MLData data) {
+		throw new TemporalError(TemporalMLDataSet.ADD_NOT_SUPPORTED);
+	}
+
+	/**
+	 * Adding directly is not supported.
+	 * 
+	 * @param inputData
+	 *            Not used.
+	 * @param idealData
+	 *            Not used.
+	 */
+	@Override
+	public void add(final MLData inputData, final MLData idealData) {
+		throw new TemporalError(TemporalMLDataSet.ADD_NOT_SUPPORTED);
+	}
+
+	/**
+	 * Adding directly is not supported.
+	 * 
+	 * @param inputData
+	 *            Not used.
+	 */
+	@Override
+	public void add(final MLDataPair inputData) {
+		throw new TemporalError(TemporalMLDataSet.ADD_NOT_SUPPORTED);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() {
+		// nothing to close
+	}
+
+	/**
+	 * Copy a window of points into an array.
+	 * 
+	 * @param target
+	 *            The array to copy into.
+	 * @param cols
+	 *            The columns to copy from each point.
+	 * @param firstRow
+	 *            The first row of the window.
+	 * @param windowSize
+	 *            The number of points in the window.
+	 */
+	private void copyWindow(final double[] target, final int[] cols,
+			final int firstRow, final int windowSize) {
+		int targetIndex = 0;
+		for (int i = 0; i < windowSize; i++) {
+			final int row = firstRow + i;
+			for (int j = 0; j < cols.length; j++) {
+				target[targetIndex++] = this.columns[cols[j]][row];
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MLDataPair get(final int index) {
+		final MLDataPair pair = BasicMLDataPair.createPair(this.inputSize,
+				this.idealSize);
+		getRecord(index, pair);
+		return pair;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getIdealSize() {
+		return this.idealSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getInputSize() {
+		return this.inputSize;
+	}
+
+	/**
+	 * Fill the pair with the input and ideal windows of a record. The arrays
+	 * already held by the pair are written to, so nothing is allocated.
+	 * 
+	 * @param index
+	 *            The record to read.
+	 * @param pair
+	 *            The pair to fill, created for this data set's sizes.
+	 */
+	@Override
+	public void getRecord(final long index, final MLDataPair pair) {
+		if (index < 0 || index >= this.recordCount) {
+			throw new TemporalError("Record " + index
+					+ " is out of range, there are " + this.recordCount
+					+ " records.");
+		}
+
+		final int row = (int) index;
+		copyWindow(pair.getInputArray(), this.inputColumns, row,
+				this.inputWindowSize);
+		if (pair.getIdealArray() != null) {
+			copyWindow(pair.getIdealArray(), this.idealColumns, row
+					+ this.inputWindowSize, this.predictWindowSize);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getRecordCount() {
+		return this.recordCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isSupervised() {
+		return this.idealSize > 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<MLDataPair> iterator() {
+		return new TemporalWindowIterator();
+	}
+
+	/**
+	 * Open another view of this data set. The columns are shared, since they
+	 * are never changed.
+	 * 
+	 * @return The additional data set.
+	 */
+	@Override
+	public MLDataSet openAdditional() {
+		return new TemporalWindowMLDataSet(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return (int) this.recordCount;
+	}
+
+}
@@ -255,6 +255,18 @@ public class MultiThreadedEA extends BasicEA
 		this.randomNumberFactory = randomNumberFactory;
 	}
 	
+	/**
+	 * Calculate the score of a new genome. This is called by the worker
+	 * threads for each offspring.
+	 * 
+	 * @param genome
+	 *            The genome to score.
+	 * @return The score.
+	 */
+	public double scoreGenome(final Genome genome) {
+		return getScoreFunction().calculateScore(genome);
+	}
+
 	public void createRandomPopulation(int maxDepth) {
 		Random random = this.randomNumberFactory.factor();
 		getPopulation().getGenomeFactory().factorRandomPopulation(random,
@@ -33,6 +33,8 @@ import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
 import org.encog.ml.hmm.alog.ForwardBackwardCalculator;
 import org.encog.ml.hmm.alog.ForwardBackwardScaledCalculator;
+import org.encog.ml.hmm.alog.ForwardFilter;
+import org.encog.ml.hmm.alog.OnlineViterbiCalculator;
 import org.encog.ml.hmm.alog.ViterbiCalculator;
 import org.encog.ml.hmm.distributions.ContinousDistribution;
 import org.encog.ml.hmm.distributions.DiscreteDistribution;
@@ -189,6 +191,28 @@ public class HiddenMarkovModel extends BasicML implements MLStateSequence, Seria
 		return hmm;
 	}
 
+	/**
+	 * Create a forward filter, that calculates the state probabilities of a
+	 * stream one observation at a time, in constant memory.
+	 * 
+	 * @return The forward filter.
+	 */
+	public ForwardFilter createForwardFilter() {
+		return new ForwardFilter(this);
+	}
+
+	/**
+	 * Create an online Viterbi calculator, that decodes the states of a
+	 * stream one observation at a time, in constant memory.
+	 * 
+	 * @param maxLag
+	 *            The maximum number of undecided states to keep.
+	 * @return The online Viterbi calculator.
+	 */
+	public OnlineViterbiCalculator createOnlineViterbi(final int maxLag) {
+		return new OnlineViterbiCalculator(this, maxLag);
+	}
+
 	public StateDistribution createNewDistribution() {
 		if (isContinuous()) {
 			return new ContinousDistribution(getStateCount());
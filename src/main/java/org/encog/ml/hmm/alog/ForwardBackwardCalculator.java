@@ -81,21 +81,54 @@ public class ForwardBackwardCalculator {
 	 */
 	public ForwardBackwardCalculator(final MLDataSet oseq,
 			final HiddenMarkovModel hmm, final EnumSet<Computation> flags) {
+		compute(oseq, hmm, flags);
+	}
+
+	/**
+	 * Run the calculation again, for another sequence. The alpha and beta
+	 * matrices of the last sequence are reused if they have enough rows, so
+	 * they may be longer than the sequence.
+	 * @param oseq The sequence.
+	 * @param hmm The hidden markov model to use.
+	 * @param flags Flags, alpha or beta.
+	 */
+	public void compute(final MLDataSet oseq, final HiddenMarkovModel hmm,
+			final EnumSet<Computation> flags) {
 		if (oseq.size() < 1) {
 			throw new IllegalArgumentException("Empty sequence");
 		}
 
 		if (flags.contains(Computation.ALPHA)) {
 			computeAlpha(hmm, oseq);
+		} else {
+			this.alpha = null;
 		}
 
 		if (flags.contains(Computation.BETA)) {
 			computeBeta(hmm, oseq);
+		} else {
+			this.beta = null;
 		}
 
 		computeProbability(oseq, hmm, flags);
 	}
 
+	/**
+	 * Reuse a matrix if it is large enough, otherwise allocate a new one.
+	 * @param matrix The matrix to reuse, may be null.
+	 * @param rows The number of rows needed.
+	 * @param cols The number of columns needed.
+	 * @return The matrix to use.
+	 */
+	protected static double[][] reuse(final double[][] matrix,
+			final int rows, final int cols) {
+		if (matrix != null && matrix.length >= rows
+				&& matrix[0].length == cols) {
+			return matrix;
+		}
+		return new double[rows][cols];
+	}
+
 	/**
 	 * Alpha element.
 	 * @param t The row.
@@ -133,7 +166,7 @@ public class ForwardBackwardCalculator {
 	 */
 	protected void computeAlpha(final HiddenMarkovModel hmm,
 			final MLDataSet oseq) {
-		this.alpha = new double[oseq.size()][hmm.getStateCount()];
+		this.alpha = reuse(this.alpha, oseq.size(), hmm.getStateCount());
 
 		for (int i = 0; i < hmm.getStateCount(); i++) {
 			computeAlphaInit(hmm, oseq.get(0), i);
@@ -189,7 +222,7 @@ public class ForwardBackwardCalculator {
 	 * @param oseq The sequence.
 	 */
 	protected void computeBeta(final HiddenMarkovModel hmm, final MLDataSet oseq) {
-		this.beta = new double[oseq.size()][hmm.getStateCount()];
+		this.beta = reuse(this.beta, oseq.size(), hmm.getStateCount());
 
 		for (int i = 0; i < hmm.getStateCount(); i++) {
 			this.beta[oseq.size() - 1][i] = 1.;
@@ -39,7 +39,7 @@ import org.encog.ml.hmm.HiddenMarkovModel;
  * 
  */
 public class ForwardBackwardScaledCalculator extends ForwardBackwardCalculator {
-	private final double[] ctFactors;
+	private double[] ctFactors;
 	private double lnProbability;
 
 	public ForwardBackwardScaledCalculator(final MLDataSet oseq,
@@ -50,17 +50,30 @@ public class ForwardBackwardScaledCalculator extends ForwardBackwardCalculator {
 	public ForwardBackwardScaledCalculator(
 			final MLDataSet oseq, final HiddenMarkovModel hmm,
 			final EnumSet<Computation> flags) {
+		compute(oseq, hmm, flags);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void compute(final MLDataSet oseq, final HiddenMarkovModel hmm,
+			final EnumSet<Computation> flags) {
 		if (oseq.size() < 1) {
 			throw new IllegalArgumentException();
 		}
 
-		this.ctFactors = new double[oseq.size()];
+		if (this.ctFactors == null || this.ctFactors.length < oseq.size()) {
+			this.ctFactors = new double[oseq.size()];
+		}
 		Arrays.fill(this.ctFactors, 0.);
 
 		computeAlpha(hmm, oseq);
 
 		if (flags.contains(Computation.BETA)) {
 			computeBeta(hmm, oseq);
+		} else {
+			this.beta = null;
 		}
 
 		computeProbability(oseq, hmm, flags);
@@ -69,7 +82,7 @@ public class ForwardBackwardScaledCalculator extends ForwardBackwardCalculator {
 	@Override
 	protected void computeAlpha(final HiddenMarkovModel hmm,
 			final MLDataSet oseq) {
-		this.alpha = new double[oseq.size()][hmm.getStateCount()];
+		this.alpha = reuse(this.alpha, oseq.size(), hmm.getStateCount());
 
 		for (int i = 0; i < hmm.getStateCount(); i++) {
 			computeAlphaInit(hmm, oseq.get(0), i);
@@ -93,7 +106,7 @@ public class ForwardBackwardScaledCalculator extends ForwardBackwardCalculator {
 
 	@Override
 	protected void computeBeta(final HiddenMarkovModel hmm, final MLDataSet oseq) {
-		this.beta = new double[oseq.size()][hmm.getStateCount()];
+		this.beta = reuse(this.beta, oseq.size(), hmm.getStateCount());
 
 		for (int i = 0; i < hmm.getStateCount(); i++) {
 			this.beta[oseq.size() - 1][i] = 1. / this.ctFactors[oseq.size() - 1];
@@ -0,0 +1,191 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.hmm.alog;
+
+import java.util.Arrays;
+
+import org.encog.EncogError;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.hmm.HiddenMarkovModel;
+
+/**
+ * An incremental, scaled, version of the forward algorithm. Observations are
+ * added one at a time, and after each the filtered state probabilities,
+ * P(state | observations so far), are available. Only the current forward
+ * variables are kept, so the memory used does not grow with the length of
+ * the stream. This makes it suitable for unbounded streams, where the
+ * ForwardBackwardCalculator, which needs the whole sequence, can not be used.
+ * 
+ * The transition probabilities are read from the model on every step, so
+ * the model must not be changed while a filter is in use.
+ * 
+ * An observation that is impossible under the model, given the observations
+ * before it, is rejected with an error, and the filter is left as it was
+ * before the observation.
+ */
+public class ForwardFilter {
+
+	/**
+	 * The model.
+	 */
+	private final HiddenMarkovModel hmm;
+
+	/**
+	 * The current, normalized, forward variables.
+	 */
+	private double[] alpha;
+
+	/**
+	 * Scratch array used to calculate the next forward variables.
+	 */
+	private double[] next;
+
+	/**
+	 * The log probability of all observations so far.
+	 */
+	private double lnProbability;
+
+	/**
+	 * The number of observations added.
+	 */
+	private long count;
+
+	/**
+	 * Construct a forward filter.
+	 * 
+	 * @param theHMM
+	 *            The model to filter with.
+	 */
+	public ForwardFilter(final HiddenMarkovModel theHMM) {
+		this.hmm = theHMM;
+		this.alpha = new double[theHMM.getStateCount()];
+		this.next = new double[theHMM.getStateCount()];
+	}
+
+	/**
+	 * Add the next observation.
+	 * 
+	 * @param o
+	 *            The observation.
+	 * @throws EncogError
+	 *             If the observation has zero probability, given the
+	 *             observations so far.
+	 */
+	public void add(final MLDataPair o) {
+		final int n = this.hmm.getStateCount();
+		final double[][] a = this.hmm.getTransitionProbability();
+
+		if (this.count == 0) {
+			for (int i = 0; i < n; i++) {
+				this.next[i] = this.hmm.getPi(i)
+						* this.hmm.getStateDistribution(i).probability(o);
+			}
+		} else {
+			for (int j = 0; j < n; j++) {
+				double sum = 0;
+				for (int i = 0; i < n; i++) {
+					sum += this.alpha[i] * a[i][j];
+				}
+				this.next[j] = sum
+						* this.hmm.getStateDistribution(j).probability(o);
+			}
+		}
+
+		double ct = 0;
+		for (int i = 0; i < n; i++) {
+			ct += this.next[i];
+		}
+		if (!(ct > 0)) {
+			throw new EncogError("Observation " + this.count
+					+ " has zero probability under the model.");
+		}
+		for (int i = 0; i < n; i++) {
+			this.next[i] /= ct;
+		}
+		this.lnProbability += Math.log(ct);
+
+		final double[] temp = this.alpha;
+		this.alpha = this.next;
+		this.next = temp;
+		this.count++;
+	}
+
+	/**
+	 * @return The number of observations added.
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Get the probability of a state, given the observations so far.
+	 * 
+	 * @param i
+	 *            The state.
+	 * @return The probability.
+	 */
+	public double getStateProbability(final int i) {
+		return this.alpha[i];
+	}
+
+	/**
+	 * Copy the probability of each state, given the observations so far.
+	 * 
+	 * @param result
+	 *            Receives the probabilities, one per state.
+	 */
+	public void getStateProbabilities(final double[] result) {
+		System.arraycopy(this.alpha, 0, result, 0, this.alpha.length);
+	}
+
+	/**
+	 * @return The most likely current state, given the observations so far.
+	 */
+	public int getMostLikelyState() {
+		int result = 0;
+		for (int i = 1; i < this.alpha.length; i++) {
+			if (this.alpha[i] > this.alpha[result]) {
+				result = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The log probability of all observations so far.
+	 */
+	public double lnProbability() {
+		return this.lnProbability;
+	}
+
+	/**
+	 * Reset the filter, to start a new stream.
+	 */
+	public void reset() {
+		this.count = 0;
+		this.lnProbability = 0;
+		Arrays.fill(this.alpha, 0);
+		Arrays.fill(this.next, 0);
+	}
+}
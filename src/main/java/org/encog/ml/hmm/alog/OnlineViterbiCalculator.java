@@ -0,0 +1,344 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.hmm.alog;
+
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.hmm.HiddenMarkovModel;
+
+/**
+ * An incremental version of the Viterbi algorithm, for streams of
+ * observations. Observations are added one at a time, and states are emitted
+ * as soon as they are decided.
+ * 
+ * A state is decided when the survivor paths of every current state pass
+ * through it; no later observation can then change it, so these states are
+ * the same as the ViterbiCalculator would find. The back pointers are kept
+ * in a ring of a fixed maximum lag. If the survivor paths have not merged
+ * within the lag, the oldest undecided state is decided from the currently
+ * most likely path (fixed-lag decoding). The memory used is therefore
+ * O(lag * states), regardless of the length of the stream.
+ * 
+ * The model must not be changed while the calculator is in use.
+ */
+public class OnlineViterbiCalculator {
+
+	/**
+	 * Returned when no states were decided.
+	 */
+	private static final int[] NONE = new int[0];
+
+	/**
+	 * The model.
+	 */
+	private final HiddenMarkovModel hmm;
+
+	/**
+	 * The maximum lag before a state is forced.
+	 */
+	private final int maxLag;
+
+	/**
+	 * The negative log transition probabilities.
+	 */
+	private final double[][] lnTransition;
+
+	/**
+	 * The current path costs, negative log probabilities, for each state.
+	 */
+	private double[] delta;
+
+	/**
+	 * Scratch array for the next path costs.
+	 */
+	private double[] nextDelta;
+
+	/**
+	 * The ring of back pointers. Row t % maxLag holds, for each state at
+	 * time t, the best state at time t-1.
+	 */
+	private final int[][] psy;
+
+	/**
+	 * Scratch array, the states that survivor paths pass through.
+	 */
+	private boolean[] alive;
+
+	/**
+	 * Scratch array, the states that survivor paths pass through one step
+	 * earlier.
+	 */
+	private boolean[] prior;
+
+	/**
+	 * Scratch array, used to trace back a path.
+	 */
+	private final int[] trace;
+
+	/**
+	 * The amount subtracted from delta, to keep it from growing without
+	 * bound.
+	 */
+	private double offset;
+
+	/**
+	 * The time of the last observation added, -1 for none.
+	 */
+	private long time = -1;
+
+	/**
+	 * The time of the last decided state, -1 for none.
+	 */
+	private long decided = -1;
+
+	/**
+	 * Construct an online Viterbi calculator.
+	 * 
+	 * @param theHMM
+	 *            The model.
+	 * @param theMaxLag
+	 *            The maximum number of undecided states to keep, before
+	 *            the oldest is decided from the most likely path.
+	 */
+	public OnlineViterbiCalculator(final HiddenMarkovModel theHMM,
+			final int theMaxLag) {
+		if (theMaxLag < 1) {
+			throw new IllegalArgumentException("Maximum lag must be at least 1");
+		}
+		final int n = theHMM.getStateCount();
+		this.hmm = theHMM;
+		this.maxLag = theMaxLag;
+		this.delta = new double[n];
+		this.nextDelta = new double[n];
+		this.psy = new int[theMaxLag][n];
+		this.alive = new boolean[n];
+		this.prior = new boolean[n];
+		this.trace = new int[theMaxLag];
+		this.lnTransition = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				this.lnTransition[i][j] = -Math.log(theHMM
+						.getTransitionProbability(i, j));
+			}
+		}
+	}
+
+	/**
+	 * Add the next observation.
+	 * 
+	 * @param o
+	 *            The observation.
+	 * @return The states that are now decided, oldest first. Often empty.
+	 */
+	public int[] add(final MLDataPair o) {
+		final int n = this.hmm.getStateCount();
+		this.time++;
+
+		if (this.time == 0) {
+			for (int i = 0; i < n; i++) {
+				this.nextDelta[i] = -Math.log(this.hmm.getPi(i))
+						- Math.log(this.hmm.getStateDistribution(i)
+								.probability(o));
+			}
+		} else {
+			final int[] row = this.psy[(int) (this.time % this.maxLag)];
+			for (int j = 0; j < n; j++) {
+				double minDelta = Double.MAX_VALUE;
+				int minPsy = 0;
+				for (int i = 0; i < n; i++) {
+					final double thisDelta = this.delta[i]
+							+ this.lnTransition[i][j];
+					if (minDelta > thisDelta) {
+						minDelta = thisDelta;
+						minPsy = i;
+					}
+				}
+				this.nextDelta[j] = minDelta
+						- Math.log(this.hmm.getStateDistribution(j)
+								.probability(o));
+				row[j] = minPsy;
+			}
+		}
+
+		// rebase the path costs, so they stay small on long streams
+		double min = Double.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			min = Math.min(min, this.nextDelta[i]);
+		}
+		if (!Double.isInfinite(min)) {
+			for (int i = 0; i < n; i++) {
+				this.nextDelta[i] -= min;
+			}
+			this.offset += min;
+		}
+
+		final double[] temp = this.delta;
+		this.delta = this.nextDelta;
+		this.nextDelta = temp;
+
+		final long merged = findMerge();
+		if (merged > this.decided) {
+			return decide(merged, this.alive);
+		}
+
+		if ((this.time - this.decided) >= this.maxLag) {
+			return decide(this.decided + 1, null);
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * Find the latest time, at or before the current time, that every
+	 * survivor path passes through the same state. On return, alive holds
+	 * that state.
+	 * 
+	 * @return The time, or -1 if the paths have not merged since the last
+	 *         decided state.
+	 */
+	private long findMerge() {
+		final int n = this.alive.length;
+		for (int i = 0; i < n; i++) {
+			this.alive[i] = true;
+		}
+		int count = n;
+
+		long t = this.time;
+		while (t > this.decided) {
+			if (count == 1) {
+				return t;
+			}
+			if (t == 0) {
+				break;
+			}
+			final int[] row = this.psy[(int) (t % this.maxLag)];
+			for (int i = 0; i < n; i++) {
+				this.prior[i] = false;
+			}
+			count = 0;
+			for (int j = 0; j < n; j++) {
+				if (this.alive[j] && !this.prior[row[j]]) {
+					this.prior[row[j]] = true;
+					count++;
+				}
+			}
+			final boolean[] swap = this.alive;
+			this.alive = this.prior;
+			this.prior = swap;
+			t--;
+		}
+		return -1;
+	}
+
+	/**
+	 * Decide every undecided state up to, and including, the specified time.
+	 * 
+	 * @param upTo
+	 *            The time to decide up to.
+	 * @param from
+	 *            Marks the state at time upTo, or null to trace back from
+	 *            the currently most likely path.
+	 * @return The decided states, oldest first.
+	 */
+	private int[] decide(final long upTo, final boolean[] from) {
+		int state = 0;
+		if (from != null) {
+			while (!from[state]) {
+				state++;
+			}
+		} else {
+			state = getMostLikelyState();
+			for (long t = this.time; t > upTo; t--) {
+				state = this.psy[(int) (t % this.maxLag)][state];
+			}
+		}
+
+		final int count = (int) (upTo - this.decided);
+		for (int k = count - 1; k >= 0; k--) {
+			this.trace[k] = state;
+			final long t = this.decided + 1 + k;
+			if (k > 0) {
+				state = this.psy[(int) (t % this.maxLag)][state];
+			}
+		}
+
+		this.decided = upTo;
+		final int[] result = new int[count];
+		System.arraycopy(this.trace, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Decide all remaining states, from the currently most likely path. Use
+	 * this at the end of a stream.
+	 * 
+	 * @return The remaining states, oldest first.
+	 */
+	public int[] flush() {
+		if (this.time <= this.decided) {
+			return NONE;
+		}
+		return decide(this.time, null);
+	}
+
+	/**
+	 * @return The most likely current state.
+	 */
+	public int getMostLikelyState() {
+		int result = 0;
+		for (int i = 1; i < this.delta.length; i++) {
+			if (this.delta[i] < this.delta[result]) {
+				result = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The log probability of the most likely path so far.
+	 */
+	public double lnProbability() {
+		return -(this.delta[getMostLikelyState()] + this.offset);
+	}
+
+	/**
+	 * @return The number of observations added.
+	 */
+	public long getCount() {
+		return this.time + 1;
+	}
+
+	/**
+	 * @return The number of states decided so far.
+	 */
+	public long getDecidedCount() {
+		return this.decided + 1;
+	}
+
+	/**
+	 * @return The maximum lag.
+	 */
+	public int getMaxLag() {
+		return this.maxLag;
+	}
+}
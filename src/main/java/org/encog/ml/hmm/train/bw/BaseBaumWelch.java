@@ -23,6 +23,7 @@
  */
 package org.encog.ml.hmm.train.bw;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,6 +37,10 @@ import org.encog.ml.hmm.distributions.StateDistribution;
 import org.encog.ml.train.MLTrain;
 import org.encog.ml.train.strategy.Strategy;
 import org.encog.neural.networks.training.propagation.TrainingContinuation;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
 
 /**
  * This class provides the base implementation for Baum-Welch learning for
@@ -53,12 +58,75 @@ import org.encog.neural.networks.training.propagation.TrainingContinuation;
  * Hidden Markov Models and the Baum-Welch Algorithm, IEEE Information Theory
  * Society Newsletter, Dec. 2003.
  * 
+ * The expectation step is run in parallel across the observation sequences,
+ * see BaumWelchWorker. Sequences are reduced in fixed blocks, so the trained
+ * model does not depend on the number of threads used. The
+ * generateForwardBackwardCalculator, estimateXi and estimateGamma methods
+ * are called from several threads at once, so they must not change the
+ * state of the training.
+ * 
+ * The expectation step calls the forms of these methods that are handed the
+ * calculator and arrays of the worker's previous sequence, so they can be
+ * reused. By default the calculator and xi are created by the abstract
+ * forms. TrainBaumWelch and TrainBaumWelchScaled reuse them, so their
+ * subclasses override the forms taking the previous values to change how
+ * the expectation step calculates.
+ * 
  */
-public abstract class BaseBaumWelch implements MLTrain {
+public abstract class BaseBaumWelch implements MLTrain, MultiThreadable,
+		ConcurrencyAware {
+
+	/**
+	 * The number of sequences reduced together in one block.
+	 */
+	public static final int SEQUENCES_PER_BLOCK = 64;
+
 	private int iterations;
 	private HiddenMarkovModel method;
 	private final MLSequenceSet training;
 
+	/**
+	 * The number of threads to use, zero for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
+	/**
+	 * The expectation step workers, created on the first iteration.
+	 */
+	private BaumWelchWorker[] workers;
+
+	/**
+	 * The sequences, in order.
+	 */
+	private List<MLDataSet> sequences;
+
+	/**
+	 * The offset of each sequence's first observation in the gamma arrays.
+	 */
+	private int[] offsets;
+
+	/**
+	 * The gamma value of every observation, indexed by state then
+	 * observation.
+	 */
+	private double[][] gammaAll;
+
+	/**
+	 * The transition numerator accumulator for each block.
+	 */
+	private double[][][] blockNum;
+
+	/**
+	 * The transition denominator accumulator for each block.
+	 */
+	private double[][] blockDen;
+
 	public BaseBaumWelch(final HiddenMarkovModel hmm,
 			final MLSequenceSet training) {
 		this.method = hmm;
@@ -77,23 +145,49 @@ public abstract class BaseBaumWelch implements MLTrain {
 
 	protected double[][] estimateGamma(final double[][][] xi,
 			final ForwardBackwardCalculator fbc) {
-		final double[][] gamma = new double[xi.length + 1][xi[0].length];
+		return estimateGamma(xi.length + 1, xi, fbc, null);
+	}
+
+	/**
+	 * Estimate gamma for one sequence of the expectation step.
+	 * 
+	 * @param length
+	 *            The length of the sequence.
+	 * @param xi
+	 *            The xi estimate, only its first length - 1 rows are used.
+	 * @param fbc
+	 *            The forward-backward calculator.
+	 * @param previous
+	 *            The gamma array of the previous sequence, reused if it has
+	 *            enough rows. May be null.
+	 * @return The gamma estimate, only its first length rows are used.
+	 */
+	protected double[][] estimateGamma(final int length,
+			final double[][][] xi, final ForwardBackwardCalculator fbc,
+			final double[][] previous) {
+		final int states = xi[0].length;
+		final double[][] gamma;
+		if (previous != null && previous.length >= length) {
+			gamma = previous;
+		} else {
+			gamma = new double[length][states];
+		}
 
-		for (int t = 0; t < (xi.length + 1); t++) {
+		for (int t = 0; t < length; t++) {
 			Arrays.fill(gamma[t], 0.);
 		}
 
-		for (int t = 0; t < xi.length; t++) {
-			for (int i = 0; i < xi[0].length; i++) {
-				for (int j = 0; j < xi[0].length; j++) {
+		for (int t = 0; t < (length - 1); t++) {
+			for (int i = 0; i < states; i++) {
+				for (int j = 0; j < states; j++) {
 					gamma[t][i] += xi[t][i][j];
 				}
 			}
 		}
 
-		for (int j = 0; j < xi[0].length; j++) {
-			for (int i = 0; i < xi[0].length; i++) {
-				gamma[xi.length][j] += xi[xi.length - 1][i][j];
+		for (int j = 0; j < states; j++) {
+			for (int i = 0; i < states; i++) {
+				gamma[length - 1][j] += xi[length - 2][i][j];
 			}
 		}
 
@@ -103,6 +197,28 @@ public abstract class BaseBaumWelch implements MLTrain {
 	public abstract double[][][] estimateXi(MLDataSet sequence,
 			ForwardBackwardCalculator fbc, HiddenMarkovModel hmm);
 
+	/**
+	 * Estimate xi for one sequence of the expectation step. By default this
+	 * calls estimateXi(sequence, fbc, hmm).
+	 * 
+	 * @param sequence
+	 *            The sequence.
+	 * @param fbc
+	 *            The forward-backward calculator.
+	 * @param hmm
+	 *            The model being trained.
+	 * @param previous
+	 *            The xi array of the previous sequence, which may be reused
+	 *            if it has enough rows. May be null.
+	 * @return The xi estimate, only its first sequence.size() - 1 rows are
+	 *         used.
+	 */
+	protected double[][][] estimateXi(final MLDataSet sequence,
+			final ForwardBackwardCalculator fbc, final HiddenMarkovModel hmm,
+			final double[][][] previous) {
+		return estimateXi(sequence, fbc, hmm);
+	}
+
 	@Override
 	public void finishTraining() {
 
@@ -111,6 +227,26 @@ public abstract class BaseBaumWelch implements MLTrain {
 	public abstract ForwardBackwardCalculator generateForwardBackwardCalculator(
 			MLDataSet sequence, HiddenMarkovModel hmm);
 
+	/**
+	 * Run the forward-backward calculation for one sequence of the
+	 * expectation step. By default this calls
+	 * generateForwardBackwardCalculator(sequence, hmm).
+	 * 
+	 * @param sequence
+	 *            The sequence.
+	 * @param hmm
+	 *            The model being trained.
+	 * @param previous
+	 *            The calculator of the previous sequence, which may be rerun
+	 *            on this one. May be null.
+	 * @return The calculator.
+	 */
+	protected ForwardBackwardCalculator generateForwardBackwardCalculator(
+			final MLDataSet sequence, final HiddenMarkovModel hmm,
+			final ForwardBackwardCalculator previous) {
+		return generateForwardBackwardCalculator(sequence, hmm);
+	}
+
 	@Override
 	public double getError() {
 		return 0;
@@ -155,32 +291,36 @@ public abstract class BaseBaumWelch implements MLTrain {
 			throw new InternalError();
 		}
 
-		final double allGamma[][][] = new double[this.training
-				.getSequenceCount()][][];
-		final double aijNum[][] = new double[this.method.getStateCount()][this.method
-				.getStateCount()];
-		final double aijDen[] = new double[this.method.getStateCount()];
-
-		Arrays.fill(aijDen, 0.0);
-		for (int i = 0; i < this.method.getStateCount(); i++) {
-			Arrays.fill(aijNum[i], 0.);
+		if (this.workers == null) {
+			initWorkers();
 		}
 
-		int g = 0;
-		for (final MLDataSet obsSeq : this.training.getSequences()) {
-			final ForwardBackwardCalculator fbc = generateForwardBackwardCalculator(
-					obsSeq, this.method);
+		final int states = this.method.getStateCount();
+		final double aijNum[][] = new double[states][states];
+		final double aijDen[] = new double[states];
 
-			final double xi[][][] = estimateXi(obsSeq, fbc, this.method);
-			final double gamma[][] = allGamma[g++] = estimateGamma(xi, fbc);
+		// expectation step, in parallel across the sequences
+		for (final BaumWelchWorker worker : this.workers) {
+			worker.setModel(this.method);
+		}
 
-			for (int i = 0; i < this.method.getStateCount(); i++) {
-				for (int t = 0; t < (obsSeq.size() - 1); t++) {
-					aijDen[i] += gamma[t][i];
+		if (this.workers.length == 1) {
+			this.workers[0].run();
+		} else {
+			final TaskGroup group = getConcurrency().createTaskGroup();
+			for (final BaumWelchWorker worker : this.workers) {
+				getConcurrency().processTask(worker, group);
+			}
+			group.waitForComplete();
+			getConcurrency().checkError();
+		}
 
-					for (int j = 0; j < this.method.getStateCount(); j++) {
-						aijNum[i][j] += xi[t][i][j];
-					}
+		// reduce the blocks, always in the same order
+		for (int b = 0; b < this.blockDen.length; b++) {
+			for (int i = 0; i < states; i++) {
+				aijDen[i] += this.blockDen[b][i];
+				for (int j = 0; j < states; j++) {
+					aijNum[i][j] += this.blockNum[b][i][j];
 				}
 			}
 		}
@@ -204,32 +344,27 @@ public abstract class BaseBaumWelch implements MLTrain {
 			nhmm.setPi(i, 0.);
 		}
 
-		for (int o = 0; o < this.training.getSequenceCount(); o++) {
+		for (int o = 0; o < this.sequences.size(); o++) {
 			for (int i = 0; i < this.method.getStateCount(); i++) {
 				nhmm.setPi(
 						i,
 						nhmm.getPi(i)
-								+ (allGamma[o][0][i] / this.training
-										.getSequenceCount()));
+								+ (this.gammaAll[i][this.offsets[o]] / this.sequences
+										.size()));
 			}
 		}
 
 		/* compute pdfs */
 		for (int i = 0; i < this.method.getStateCount(); i++) {
 
-			final double[] weights = new double[this.training.size()];
+			final double[] weights = new double[this.gammaAll[i].length];
 			double sum = 0.;
-			int j = 0;
 
-			int o = 0;
-			for (final MLDataSet obsSeq : this.training.getSequences()) {
-				for (int t = 0; t < obsSeq.size(); t++, j++) {
-					sum += weights[j] = allGamma[o][t][i];
-				}
-				o++;
+			for (int j = 0; j < weights.length; j++) {
+				sum += weights[j] = this.gammaAll[i][j];
 			}
 
-			for (j--; j >= 0; j--) {
+			for (int j = 0; j < weights.length; j++) {
 				weights[j] /= sum;
 			}
 
@@ -240,6 +375,86 @@ public abstract class BaseBaumWelch implements MLTrain {
 		this.method = nhmm;
 	}
 
+	/**
+	 * Create the expectation step workers and the shared arrays they fill.
+	 */
+	private void initWorkers() {
+		final int states = this.method.getStateCount();
+
+		this.sequences = new ArrayList<MLDataSet>(this.training.getSequences());
+		this.offsets = new int[this.sequences.size()];
+
+		int total = 0;
+		int longest = 0;
+		for (int s = 0; s < this.sequences.size(); s++) {
+			final int len = this.sequences.get(s).size();
+			this.offsets[s] = total;
+			total += len;
+			longest = Math.max(longest, len);
+		}
+
+		final int blocks = (this.sequences.size() + SEQUENCES_PER_BLOCK - 1)
+				/ SEQUENCES_PER_BLOCK;
+		this.gammaAll = new double[states][total];
+		this.blockNum = new double[blocks][states][states];
+		this.blockDen = new double[blocks][states];
+
+		int threads = this.threadCount;
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.max(1, Math.min(threads, blocks));
+
+		this.workers = new BaumWelchWorker[threads];
+		for (int i = 0; i < threads; i++) {
+			this.workers[i] = new BaumWelchWorker(this, this.sequences,
+					this.offsets, this.gammaAll, this.blockNum,
+					this.blockDen, SEQUENCES_PER_BLOCK, i, threads, states,
+					longest);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * Set the number of threads used for the expectation step. Zero, the
+	 * default, uses one thread per processor. The trained model is the same
+	 * for any thread count.
+	 * 
+	 * @param numThreads
+	 *            The number of threads.
+	 */
+	@Override
+	public void setThreadCount(final int numThreads) {
+		this.threadCount = numThreads;
+		this.workers = null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
 	@Override
 	public void iteration(final int count) {
 		for (int i = 0; i < count; i++) {
@@ -0,0 +1,236 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.hmm.train.bw;
+
+import java.util.List;
+
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.hmm.HiddenMarkovModel;
+import org.encog.ml.hmm.alog.ForwardBackwardCalculator;
+import org.encog.util.concurrency.EngineTask;
+
+/**
+ * Performs the Baum-Welch expectation step for a share of the observation
+ * sequences. Each sequence is run through the forward-backward calculator,
+ * xi and gamma estimates of the owning training, so subclasses of
+ * BaseBaumWelch control how they are calculated. The worker hands the
+ * calculator and arrays of each sequence to the next one to reuse; the xi
+ * and gamma arrays start out sized to the longest sequence.
+ * 
+ * Sequences are grouped into fixed size blocks, and the worker accumulates
+ * the transition statistics of each block into that block's own
+ * accumulator, so the final reduction, done block by block in order, gives
+ * the same result no matter how many threads are used.
+ */
+public class BaumWelchWorker implements EngineTask {
+
+	/**
+	 * The training that owns this worker.
+	 */
+	private final BaseBaumWelch owner;
+
+	/**
+	 * The sequences being trained.
+	 */
+	private final List<MLDataSet> sequences;
+
+	/**
+	 * The offset of each sequence's first observation in the gamma arrays.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The gamma value for every observation, indexed by state then
+	 * observation. Shared between workers, each writes only its own
+	 * sequences.
+	 */
+	private final double[][] gamma;
+
+	/**
+	 * The transition numerator accumulator for each block.
+	 */
+	private final double[][][] blockNum;
+
+	/**
+	 * The transition denominator accumulator for each block.
+	 */
+	private final double[][] blockDen;
+
+	/**
+	 * The number of sequences in each block.
+	 */
+	private final int blockSize;
+
+	/**
+	 * The first block this worker processes.
+	 */
+	private final int firstBlock;
+
+	/**
+	 * The distance between the blocks this worker processes.
+	 */
+	private final int blockStride;
+
+	/**
+	 * The forward-backward calculator of the last sequence.
+	 */
+	private ForwardBackwardCalculator calculator;
+
+	/**
+	 * The xi estimate of the last sequence.
+	 */
+	private double[][][] xi;
+
+	/**
+	 * The gamma estimate of the last sequence.
+	 */
+	private double[][] sequenceGamma;
+
+	/**
+	 * The model being trained.
+	 */
+	private HiddenMarkovModel hmm;
+
+	/**
+	 * Construct the worker.
+	 * 
+	 * @param theOwner
+	 *            The training that owns this worker.
+	 * @param theSequences
+	 *            The sequences being trained.
+	 * @param theOffsets
+	 *            The offset of each sequence in the gamma arrays.
+	 * @param theGamma
+	 *            The shared gamma arrays.
+	 * @param theBlockNum
+	 *            The transition numerator accumulators.
+	 * @param theBlockDen
+	 *            The transition denominator accumulators.
+	 * @param theBlockSize
+	 *            The number of sequences in each block.
+	 * @param theFirstBlock
+	 *            The first block this worker processes.
+	 * @param theBlockStride
+	 *            The distance between this worker's blocks.
+	 * @param stateCount
+	 *            The number of states.
+	 * @param longest
+	 *            The length of the longest sequence.
+	 */
+	public BaumWelchWorker(final BaseBaumWelch theOwner,
+			final List<MLDataSet> theSequences, final int[] theOffsets,
+			final double[][] theGamma, final double[][][] theBlockNum,
+			final double[][] theBlockDen, final int theBlockSize,
+			final int theFirstBlock, final int theBlockStride,
+			final int stateCount, final int longest) {
+		this.owner = theOwner;
+		this.sequences = theSequences;
+		this.offsets = theOffsets;
+		this.gamma = theGamma;
+		this.blockNum = theBlockNum;
+		this.blockDen = theBlockDen;
+		this.blockSize = theBlockSize;
+		this.firstBlock = theFirstBlock;
+		this.blockStride = theBlockStride;
+		this.xi = new double[Math.max(1, longest - 1)][stateCount][stateCount];
+		this.sequenceGamma = new double[longest][stateCount];
+	}
+
+	/**
+	 * Set the model to use for the next run.
+	 * 
+	 * @param theHMM
+	 *            The model.
+	 */
+	public void setModel(final HiddenMarkovModel theHMM) {
+		this.hmm = theHMM;
+	}
+
+	/**
+	 * Process this worker's blocks.
+	 */
+	@Override
+	public void run() {
+		for (int block = this.firstBlock; block < this.blockDen.length; 
+				block += this.blockStride) {
+			final double[][] num = this.blockNum[block];
+			final double[] den = this.blockDen[block];
+			for (int i = 0; i < den.length; i++) {
+				den[i] = 0;
+				for (int j = 0; j < den.length; j++) {
+					num[i][j] = 0;
+				}
+			}
+
+			final int start = block * this.blockSize;
+			final int end = Math.min(start + this.blockSize,
+					this.sequences.size());
+			for (int s = start; s < end; s++) {
+				processSequence(s, num, den);
+			}
+		}
+	}
+
+	/**
+	 * Run forward-backward on one sequence, and accumulate its statistics.
+	 * 
+	 * @param s
+	 *            The sequence index.
+	 * @param num
+	 *            The transition numerator accumulator.
+	 * @param den
+	 *            The transition denominator accumulator.
+	 */
+	private void processSequence(final int s, final double[][] num,
+			final double[] den) {
+		final MLDataSet seq = this.sequences.get(s);
+		final int len = seq.size();
+		final int n = this.hmm.getStateCount();
+
+		this.calculator = this.owner.generateForwardBackwardCalculator(seq,
+				this.hmm, this.calculator);
+		this.xi = this.owner.estimateXi(seq, this.calculator, this.hmm,
+				this.xi);
+		this.sequenceGamma = this.owner.estimateGamma(len, this.xi,
+				this.calculator, this.sequenceGamma);
+		final double[][][] xi = this.xi;
+		final double[][] g = this.sequenceGamma;
+
+		final int offset = this.offsets[s];
+		for (int t = 0; t < len; t++) {
+			for (int i = 0; i < n; i++) {
+				this.gamma[i][offset + t] = g[t][i];
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			for (int t = 0; t < (len - 1); t++) {
+				den[i] += g[t][i];
+				for (int j = 0; j < n; j++) {
+					num[i][j] += xi[t][i][j];
+				}
+			}
+		}
+	}
+}
@@ -23,7 +23,6 @@
  */
 package org.encog.ml.hmm.train.bw;
 
-import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Iterator;
 
@@ -56,41 +55,27 @@ public class TrainBaumWelch extends BaseBaumWelch {
 	}
 
 	@Override
-	protected double[][] estimateGamma(final double[][][] xi,
-			final ForwardBackwardCalculator fbc) {
-		final double[][] gamma = new double[xi.length + 1][xi[0].length];
-
-		for (int t = 0; t < (xi.length + 1); t++) {
-			Arrays.fill(gamma[t], 0.);
-		}
-
-		for (int t = 0; t < xi.length; t++) {
-			for (int i = 0; i < xi[0].length; i++) {
-				for (int j = 0; j < xi[0].length; j++) {
-					gamma[t][i] += xi[t][i][j];
-				}
-			}
-		}
-
-		for (int j = 0; j < xi[0].length; j++) {
-			for (int i = 0; i < xi[0].length; i++) {
-				gamma[xi.length][j] += xi[xi.length - 1][i][j];
-			}
-		}
-
-		return gamma;
+	public double[][][] estimateXi(final MLDataSet sequence,
+			final ForwardBackwardCalculator fbc, final HiddenMarkovModel hmm) {
+		return estimateXi(sequence, fbc, hmm, null);
 	}
 
 	@Override
-	public double[][][] estimateXi(final MLDataSet sequence,
-			final ForwardBackwardCalculator fbc, final HiddenMarkovModel hmm) {
+	protected double[][][] estimateXi(final MLDataSet sequence,
+			final ForwardBackwardCalculator fbc, final HiddenMarkovModel hmm,
+			final double[][][] previous) {
 		if (sequence.size() <= 1) {
 			throw new IllegalArgumentException(
 					"Must have more than one observation");
 		}
 
-		final double xi[][][] = new double[sequence.size() - 1][hmm
-				.getStateCount()][hmm.getStateCount()];
+		final double xi[][][];
+		if (previous != null && previous.length >= (sequence.size() - 1)) {
+			xi = previous;
+		} else {
+			xi = new double[sequence.size() - 1][hmm.getStateCount()][hmm
+					.getStateCount()];
+		}
 		final double probability = fbc.probability();
 
 		final Iterator<MLDataPair> seqIterator = sequence.iterator();
@@ -119,4 +104,17 @@ public class TrainBaumWelch extends BaseBaumWelch {
 				EnumSet.allOf(ForwardBackwardCalculator.Computation.class));
 	}
 
+	@Override
+	protected ForwardBackwardCalculator generateForwardBackwardCalculator(
+			final MLDataSet sequence, final HiddenMarkovModel hmm,
+			final ForwardBackwardCalculator previous) {
+		if (previous == null) {
+			return new ForwardBackwardCalculator(sequence, hmm,
+					EnumSet.allOf(ForwardBackwardCalculator.Computation.class));
+		}
+		previous.compute(sequence, hmm,
+				EnumSet.allOf(ForwardBackwardCalculator.Computation.class));
+		return previous;
+	}
+
 }
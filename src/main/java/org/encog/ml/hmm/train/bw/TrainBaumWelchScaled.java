@@ -59,13 +59,25 @@ public class TrainBaumWelchScaled extends BaseBaumWelch {
 	@Override
 	public double[][][] estimateXi(final MLDataSet sequence,
 			final ForwardBackwardCalculator fbc, final HiddenMarkovModel hmm) {
+		return estimateXi(sequence, fbc, hmm, null);
+	}
+
+	@Override
+	protected double[][][] estimateXi(final MLDataSet sequence,
+			final ForwardBackwardCalculator fbc, final HiddenMarkovModel hmm,
+			final double[][][] previous) {
 		if (sequence.size() <= 1) {
 			throw new IllegalArgumentException(
 					"Must have more than one observation");
 		}
 
-		final double xi[][][] = new double[sequence.size() - 1][hmm
-				.getStateCount()][hmm.getStateCount()];
+		final double xi[][][];
+		if (previous != null && previous.length >= (sequence.size() - 1)) {
+			xi = previous;
+		} else {
+			xi = new double[sequence.size() - 1][hmm.getStateCount()][hmm
+					.getStateCount()];
+		}
 
 		final Iterator<MLDataPair> seqIterator = sequence.iterator();
 		seqIterator.next();
@@ -92,4 +104,17 @@ public class TrainBaumWelchScaled extends BaseBaumWelch {
 		return new ForwardBackwardScaledCalculator(sequence, hmm,
 				EnumSet.allOf(ForwardBackwardCalculator.Computation.class));
 	}
+
+	@Override
+	protected ForwardBackwardCalculator generateForwardBackwardCalculator(
+			final MLDataSet sequence, final HiddenMarkovModel hmm,
+			final ForwardBackwardCalculator previous) {
+		if (previous == null) {
+			return new ForwardBackwardScaledCalculator(sequence, hmm,
+					EnumSet.allOf(ForwardBackwardCalculator.Computation.class));
+		}
+		previous.compute(sequence, hmm,
+				EnumSet.allOf(ForwardBackwardCalculator.Computation.class));
+		return previous;
+	}
 }
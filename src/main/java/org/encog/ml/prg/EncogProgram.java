@@ -407,6 +407,11 @@ public class EncogProgram extends BasicGenome implements MLRegression, MLError,
 		try {
 			this.stack.clear();
 			this.programCounter = startAt;
+			final ProgramProfiler profiler = this.context.getProfiler();
+			if (profiler != null) {
+				profiler.evaluate(this, stopAt);
+				return stack.pop();
+			}
 			while (this.programCounter<=stopAt) {
 				readNodeHeader();
 				int opcode = this.header.getOpcode();
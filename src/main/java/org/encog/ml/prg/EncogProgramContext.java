@@ -18,6 +18,7 @@ public class EncogProgramContext implements Serializable {
 	private final List<String> definedVariables = new ArrayList<String>();
 	private EPLHolderFactory holderFactory = new ByteArrayHolderFactory();
 	private GeneticTrainingParams params = new GeneticTrainingParams();
+	private transient volatile ProgramProfiler profiler;
 	//private EPLHolderFactory holderFactory = new BufferedHolderFactory();
 	
 	public EncogProgramContext(CSVFormat theFormat, FunctionFactory theFunctions) {
@@ -65,6 +66,43 @@ public class EncogProgramContext implements Serializable {
 		this.params = params;
 	}
 
+	/**
+	 * Profile the programs of this context, timing one in every
+	 * ProgramProfiler.DEFAULT_SAMPLE_RATE invocations of each opcode.
+	 * 
+	 * @return The profiler.
+	 */
+	public ProgramProfiler enableProfiling() {
+		return enableProfiling(ProgramProfiler.DEFAULT_SAMPLE_RATE);
+	}
+
+	/**
+	 * Profile the programs of this context. Any previous profile is
+	 * discarded.
+	 * 
+	 * @param sampleRate
+	 *            The number of invocations of an opcode per timed invocation.
+	 * @return The profiler.
+	 */
+	public ProgramProfiler enableProfiling(int sampleRate) {
+		this.profiler = new ProgramProfiler(this.functions, sampleRate);
+		return this.profiler;
+	}
+
+	/**
+	 * Stop profiling. Programs are evaluated without any profiling overhead.
+	 */
+	public void disableProfiling() {
+		this.profiler = null;
+	}
+
+	/**
+	 * @return The profiler, or null if profiling is not enabled.
+	 */
+	public ProgramProfiler getProfiler() {
+		return this.profiler;
+	}
+
 	public void loadAllFunctions() {
 		StandardExtensions.createAll(getFunctions());
 	}
@@ -0,0 +1,441 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.prg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.encog.ml.prg.exception.EncogProgramError;
+import org.encog.ml.prg.extension.FunctionFactory;
+import org.encog.ml.prg.extension.ProgramExtensionTemplate;
+import org.encog.util.Format;
+
+/**
+ * Profiles the execution of Encog programs. Every opcode invocation is
+ * counted, and one in every sampleRate invocations of each opcode is timed.
+ * The time spent in rewrite rules and in scoring genomes is also recorded.
+ * 
+ * A profiler is enabled with EncogProgramContext.enableProfiling. When no
+ * profiler is enabled, programs are evaluated exactly as before, the only
+ * cost being one check at the start of each evaluation.
+ */
+public class ProgramProfiler {
+
+	/**
+	 * The default number of invocations of an opcode per timed invocation.
+	 */
+	public static final int DEFAULT_SAMPLE_RATE = 64;
+
+	/**
+	 * The number of possible opcodes.
+	 */
+	public static final int OPCODE_COUNT = Short.MAX_VALUE + 1;
+
+	/**
+	 * Time taken by some activity, such as a rewrite rule.
+	 */
+	public static final class Timing {
+
+		/**
+		 * The number of times the activity was timed.
+		 */
+		private final AtomicLong count = new AtomicLong();
+
+		/**
+		 * The total time taken, in nanoseconds.
+		 */
+		private final AtomicLong nanos = new AtomicLong();
+
+		/**
+		 * Record one occurrence of the activity.
+		 * 
+		 * @param theNanos
+		 *            The time it took.
+		 */
+		void record(final long theNanos) {
+			this.count.incrementAndGet();
+			this.nanos.addAndGet(theNanos);
+		}
+
+		/**
+		 * @return The number of times the activity was timed.
+		 */
+		public long getCount() {
+			return this.count.get();
+		}
+
+		/**
+		 * @return The mean time taken, in nanoseconds.
+		 */
+		public double getMeanNanos() {
+			final long c = getCount();
+			return c == 0 ? 0 : (double) getTotalNanos() / c;
+		}
+
+		/**
+		 * @return The total time taken, in nanoseconds.
+		 */
+		public long getTotalNanos() {
+			return this.nanos.get();
+		}
+	}
+
+	/**
+	 * The profile of a single opcode.
+	 */
+	public static final class OpcodeProfile {
+
+		/**
+		 * The opcode.
+		 */
+		private final int opcode;
+
+		/**
+		 * The name of the opcode.
+		 */
+		private final String name;
+
+		/**
+		 * The number of invocations.
+		 */
+		private final long count;
+
+		/**
+		 * The number of invocations that were timed.
+		 */
+		private final long samples;
+
+		/**
+		 * The total time of the timed invocations, in nanoseconds.
+		 */
+		private final long sampledNanos;
+
+		/**
+		 * Construct the profile.
+		 * 
+		 * @param theOpcode
+		 *            The opcode.
+		 * @param theName
+		 *            The name of the opcode.
+		 * @param theCount
+		 *            The number of invocations.
+		 * @param theSamples
+		 *            The number of invocations that were timed.
+		 * @param theSampledNanos
+		 *            The total time of the timed invocations.
+		 */
+		OpcodeProfile(final int theOpcode, final String theName,
+				final long theCount, final long theSamples,
+				final long theSampledNanos) {
+			this.opcode = theOpcode;
+			this.name = theName;
+			this.count = theCount;
+			this.samples = theSamples;
+			this.sampledNanos = theSampledNanos;
+		}
+
+		/**
+		 * @return The number of invocations.
+		 */
+		public long getCount() {
+			return this.count;
+		}
+
+		/**
+		 * @return The estimated total time of all invocations, in
+		 *         nanoseconds.
+		 */
+		public double getEstimatedNanos() {
+			return getMeanNanos() * this.count;
+		}
+
+		/**
+		 * @return The mean time of the timed invocations, in nanoseconds.
+		 */
+		public double getMeanNanos() {
+			return this.samples == 0 ? 0 : (double) this.sampledNanos
+					/ this.samples;
+		}
+
+		/**
+		 * @return The name of the opcode.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return The opcode.
+		 */
+		public int getOpcode() {
+			return this.opcode;
+		}
+
+		/**
+		 * @return The number of invocations that were timed.
+		 */
+		public long getSamples() {
+			return this.samples;
+		}
+	}
+
+	/**
+	 * The functions, used to name the opcodes.
+	 */
+	private final FunctionFactory functions;
+
+	/**
+	 * The number of invocations of an opcode per timed invocation.
+	 */
+	private final int sampleRate;
+
+	/**
+	 * The invocations of each opcode.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(
+			ProgramProfiler.OPCODE_COUNT);
+
+	/**
+	 * The timed invocations of each opcode.
+	 */
+	private final AtomicLongArray samples = new AtomicLongArray(
+			ProgramProfiler.OPCODE_COUNT);
+
+	/**
+	 * The total time of the timed invocations of each opcode.
+	 */
+	private final AtomicLongArray sampledNanos = new AtomicLongArray(
+			ProgramProfiler.OPCODE_COUNT);
+
+	/**
+	 * The number of programs evaluated.
+	 */
+	private final AtomicLong evaluations = new AtomicLong();
+
+	/**
+	 * The time taken by each rewrite rule, by the rule's class name.
+	 */
+	private final ConcurrentMap<String, Timing> rewrites 
+		= new ConcurrentHashMap<String, Timing>();
+
+	/**
+	 * The time taken to score genomes.
+	 */
+	private final Timing score = new Timing();
+
+	/**
+	 * Construct a profiler.
+	 * 
+	 * @param theFunctions
+	 *            The functions, used to name the opcodes.
+	 * @param theSampleRate
+	 *            The number of invocations of an opcode per timed
+	 *            invocation. Timing is far more costly than counting, so
+	 *            this should be large enough to keep the profile from
+	 *            distorting the run.
+	 */
+	public ProgramProfiler(final FunctionFactory theFunctions,
+			final int theSampleRate) {
+		if (theSampleRate < 1) {
+			throw new EncogProgramError("Sample rate must be at least 1.");
+		}
+		this.functions = theFunctions;
+		this.sampleRate = theSampleRate;
+	}
+
+	/**
+	 * Clear the profile.
+	 */
+	public void clear() {
+		for (int i = 0; i < ProgramProfiler.OPCODE_COUNT; i++) {
+			this.counts.set(i, 0);
+			this.samples.set(i, 0);
+			this.sampledNanos.set(i, 0);
+		}
+		this.evaluations.set(0);
+		this.rewrites.clear();
+		this.score.count.set(0);
+		this.score.nanos.set(0);
+	}
+
+	/**
+	 * Evaluate part of a program, counting and sampling each opcode. This
+	 * is the profiled version of EncogProgram.evaluate.
+	 * 
+	 * @param prg
+	 *            The program.
+	 * @param stopAt
+	 *            The last node to evaluate.
+	 */
+	void evaluate(final EncogProgram prg, final int stopAt) {
+		this.evaluations.incrementAndGet();
+		final FunctionFactory factory = prg.getFunctions();
+		while (prg.getProgramCounter() <= stopAt) {
+			prg.readNodeHeader();
+			final int opcode = prg.getHeader().getOpcode();
+			final ProgramExtensionTemplate temp = factory.getOpCode(opcode);
+			if (this.counts.incrementAndGet(opcode) % this.sampleRate == 0) {
+				final long start = System.nanoTime();
+				temp.evaluate(prg);
+				this.sampledNanos.addAndGet(opcode, System.nanoTime() - start);
+				this.samples.incrementAndGet(opcode);
+			} else {
+				temp.evaluate(prg);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of program evaluations.
+	 */
+	public long getEvaluationCount() {
+		return this.evaluations.get();
+	}
+
+	/**
+	 * @return The profile of every opcode that was invoked, the most costly
+	 *         first.
+	 */
+	public List<OpcodeProfile> getOpcodeProfiles() {
+		final List<OpcodeProfile> result = new ArrayList<OpcodeProfile>();
+		for (int i = 0; i < ProgramProfiler.OPCODE_COUNT; i++) {
+			final long c = this.counts.get(i);
+			if (c > 0) {
+				final ProgramExtensionTemplate temp = this.functions
+						.getOpCode(i);
+				final String name = temp == null ? "#" + i : temp.getName();
+				result.add(new OpcodeProfile(i, name, c, this.samples.get(i),
+						this.sampledNanos.get(i)));
+			}
+		}
+
+		Collections.sort(result, new Comparator<OpcodeProfile>() {
+			@Override
+			public int compare(final OpcodeProfile a, final OpcodeProfile b) {
+				return Double.compare(b.getEstimatedNanos(),
+						a.getEstimatedNanos());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return A report of the profile, as text.
+	 */
+	public String getReport() {
+		final StringBuilder result = new StringBuilder();
+		result.append("Evaluations: ");
+		result.append(getEvaluationCount());
+		result.append("\n");
+		result.append("Opcode\tCount\tMean ns\tEstimated ms\n");
+		for (final OpcodeProfile p : getOpcodeProfiles()) {
+			result.append(p.getName());
+			result.append("\t");
+			result.append(p.getCount());
+			result.append("\t");
+			result.append(Format.formatDouble(p.getMeanNanos(), 1));
+			result.append("\t");
+			result.append(Format.formatDouble(p.getEstimatedNanos() / 1e6, 3));
+			result.append("\n");
+		}
+
+		result.append("Activity\tCount\tMean ns\tTotal ms\n");
+		final Map<String, Timing> timings = new TreeMap<String, Timing>(
+				this.rewrites);
+		timings.put("Score", this.score);
+		for (final Map.Entry<String, Timing> entry : timings.entrySet()) {
+			final Timing t = entry.getValue();
+			result.append(entry.getKey());
+			result.append("\t");
+			result.append(t.getCount());
+			result.append("\t");
+			result.append(Format.formatDouble(t.getMeanNanos(), 1));
+			result.append("\t");
+			result.append(Format.formatDouble(t.getTotalNanos() / 1e6, 3));
+			result.append("\n");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return The time taken by each rewrite rule, by the rule's class name.
+	 *         This includes evaluating any constant subtrees.
+	 */
+	public Map<String, Timing> getRewriteTimings() {
+		return Collections.unmodifiableMap(this.rewrites);
+	}
+
+	/**
+	 * @return The number of invocations of an opcode per timed invocation.
+	 */
+	public int getSampleRate() {
+		return this.sampleRate;
+	}
+
+	/**
+	 * @return The time taken to score genomes. This includes evaluating
+	 *         the programs.
+	 */
+	public Timing getScoreTiming() {
+		return this.score;
+	}
+
+	/**
+	 * Record the time a rewrite rule took.
+	 * 
+	 * @param rule
+	 *            The class name of the rule.
+	 * @param nanos
+	 *            The time taken, in nanoseconds.
+	 */
+	public void recordRewrite(final String rule, final long nanos) {
+		Timing t = this.rewrites.get(rule);
+		if (t == null) {
+			final Timing created = new Timing();
+			t = this.rewrites.putIfAbsent(rule, created);
+			if (t == null) {
+				t = created;
+			}
+		}
+		t.record(nanos);
+	}
+
+	/**
+	 * Record the time scoring a genome took.
+	 * 
+	 * @param nanos
+	 *            The time taken, in nanoseconds.
+	 */
+	public void recordScore(final long nanos) {
+		this.score.record(nanos);
+	}
+}
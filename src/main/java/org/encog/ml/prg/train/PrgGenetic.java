@@ -6,9 +6,11 @@ import java.util.List;
 import org.encog.ml.MLMethod;
 import org.encog.ml.TrainingImplementationType;
 import org.encog.ml.data.MLDataSet;
+import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.score.CalculateGenomeScore;
 import org.encog.ml.ea.train.threaded.MultiThreadedEA;
 import org.encog.ml.prg.EncogProgramContext;
+import org.encog.ml.prg.ProgramProfiler;
 import org.encog.ml.train.MLTrain;
 import org.encog.ml.train.strategy.Strategy;
 import org.encog.neural.networks.training.TrainingSetScore;
@@ -108,6 +110,27 @@ public class PrgGenetic extends MultiThreadedEA implements MLTrain, MultiThreada
 	}
 	
 
+	/**
+	 * Calculate the score of a new genome. If the context is being profiled,
+	 * the time taken is recorded.
+	 * 
+	 * @param genome
+	 *            The genome to score.
+	 * @return The score.
+	 */
+	@Override
+	public double scoreGenome(final Genome genome) {
+		final ProgramProfiler profiler = this.context.getProfiler();
+		if (profiler == null) {
+			return super.scoreGenome(genome);
+		}
+
+		final long start = System.nanoTime();
+		final double result = super.scoreGenome(genome);
+		profiler.recordScore(System.nanoTime() - start);
+		return result;
+	}
+
 	public void sort() {
 		this.getPopulation().sort(this.getBestComparator());
 	}
@@ -7,6 +7,7 @@ import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.population.BasicPopulation;
 import org.encog.ml.prg.EncogProgram;
 import org.encog.ml.prg.EncogProgramContext;
+import org.encog.ml.prg.ProgramProfiler;
 import org.encog.ml.prg.epl.EPLHolder;
 import org.encog.ml.prg.train.rewrite.RewriteRule;
 import org.encog.parse.expression.common.RenderCommonExpression;
@@ -49,13 +50,23 @@ public class PrgPopulation extends BasicPopulation {
 	
 	public void rewrite(EncogProgram prg) {
 		
+		final ProgramProfiler profiler = this.context.getProfiler();
 		boolean done = false;
 		
 		while(!done) {
 			done = true;
 			
 			for(RewriteRule rule: this.rewriteRules) {
-				if( rule.rewrite(prg) ) {
+				final boolean changed;
+				if (profiler == null) {
+					changed = rule.rewrite(prg);
+				} else {
+					final long start = System.nanoTime();
+					changed = rule.rewrite(prg);
+					profiler.recordRewrite(rule.getClass().getSimpleName(),
+							System.nanoTime() - start);
+				}
+				if( changed ) {
 					done = false;
 				}
 			}
@@ -34,8 +34,8 @@ import java.util.Map;
 
 import org.encog.mathutil.libsvm.svm;
 import org.encog.mathutil.libsvm.svm_model;
+import org.encog.persist.EncogBinaryPersistor;
 import org.encog.persist.EncogFileSection;
-import org.encog.persist.EncogPersistor;
 import org.encog.persist.EncogReadHelper;
 import org.encog.persist.EncogWriteHelper;
 import org.encog.persist.PersistConst;
@@ -44,7 +44,7 @@ import org.encog.persist.PersistError;
 /**
  * Persist a SVM.
  */
-public class PersistSVM implements EncogPersistor {
+public class PersistSVM implements EncogBinaryPersistor {
 
 	/**
 	 * The parameter to hold the const C.
@@ -212,7 +212,23 @@ public class PersistSVM implements EncogPersistor {
 	 */
 	@Override
 	public void save(final OutputStream os, final Object obj) {
-		final EncogWriteHelper out = new EncogWriteHelper(os);
+		save(new EncogWriteHelper(os), obj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void saveBinary(final OutputStream os, final Object obj) {
+		save(new EncogWriteHelper(os, true), obj);
+	}
+
+	/**
+	 * Save the object with the specified write helper.
+	 * @param out The write helper, in text or binary mode.
+	 * @param obj The object to save.
+	 */
+	private void save(final EncogWriteHelper out, final Object obj) {
 		final SVM svm2 = (SVM) obj;
 		out.addSection("SVM");
 		out.addSubSection("PARAMS");
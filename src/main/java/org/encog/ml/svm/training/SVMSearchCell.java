@@ -0,0 +1,170 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.svm.training;
+
+/**
+ * Holds the result of evaluating one (gamma, C) cell of an SVM grid search.
+ * The time that the cell took to evaluate is recorded so that the cost of
+ * different regions of the grid can be compared.
+ */
+public class SVMSearchCell {
+
+	/**
+	 * The gamma value for this cell.
+	 */
+	private final double gamma;
+
+	/**
+	 * The C value for this cell.
+	 */
+	private final double c;
+
+	/**
+	 * The search pass that produced this cell. Pass zero is the coarse grid,
+	 * higher passes are refinements.
+	 */
+	private final int pass;
+
+	/**
+	 * The error for this cell, NaN if it was not evaluated.
+	 */
+	private double error = Double.NaN;
+
+	/**
+	 * The time, in milliseconds, that this cell took to evaluate.
+	 */
+	private long elapsed;
+
+	/**
+	 * True if evaluation of this cell was abandoned early because it was
+	 * clearly inferior to the best cell found so far.
+	 */
+	private boolean cancelled;
+
+	/**
+	 * Construct a grid cell.
+	 * 
+	 * @param theGamma
+	 *            The gamma value.
+	 * @param theC
+	 *            The C value.
+	 * @param thePass
+	 *            The search pass this cell belongs to.
+	 */
+	public SVMSearchCell(final double theGamma, final double theC,
+			final int thePass) {
+		this.gamma = theGamma;
+		this.c = theC;
+		this.pass = thePass;
+	}
+
+	/**
+	 * @return The gamma value for this cell.
+	 */
+	public double getGamma() {
+		return this.gamma;
+	}
+
+	/**
+	 * @return The C value for this cell.
+	 */
+	public double getC() {
+		return this.c;
+	}
+
+	/**
+	 * @return The search pass that produced this cell.
+	 */
+	public int getPass() {
+		return this.pass;
+	}
+
+	/**
+	 * @return The error for this cell, NaN if it was not evaluated.
+	 */
+	public double getError() {
+		return this.error;
+	}
+
+	/**
+	 * @param theError
+	 *            The error for this cell.
+	 */
+	public void setError(final double theError) {
+		this.error = theError;
+	}
+
+	/**
+	 * @return The time, in milliseconds, that this cell took to evaluate.
+	 */
+	public long getElapsed() {
+		return this.elapsed;
+	}
+
+	/**
+	 * @param theElapsed
+	 *            The time, in milliseconds, that this cell took.
+	 */
+	public void setElapsed(final long theElapsed) {
+		this.elapsed = theElapsed;
+	}
+
+	/**
+	 * @return True if this cell was abandoned before all folds were
+	 *         evaluated.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * @param theCancelled
+	 *            True if this cell was abandoned early.
+	 */
+	public void setCancelled(final boolean theCancelled) {
+		this.cancelled = theCancelled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder result = new StringBuilder();
+		result.append("[SVMSearchCell: gamma=");
+		result.append(this.gamma);
+		result.append(", c=");
+		result.append(this.c);
+		result.append(", error=");
+		result.append(this.error);
+		result.append(", elapsed=");
+		result.append(this.elapsed);
+		result.append("ms");
+		if (this.cancelled) {
+			result.append(", cancelled");
+		}
+		result.append("]");
+		return result.toString();
+	}
+}
@@ -23,8 +23,16 @@
  */
 package org.encog.ml.svm.training;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.encog.Encog;
 import org.encog.EncogError;
+import org.encog.mathutil.libsvm.SharedKernelCache;
+import org.encog.mathutil.libsvm.svm;
+import org.encog.mathutil.libsvm.svm_parameter;
+import org.encog.mathutil.libsvm.svm_problem;
 import org.encog.ml.MLMethod;
 import org.encog.ml.TrainingImplementationType;
 import org.encog.ml.data.MLDataSet;
@@ -32,11 +40,25 @@ import org.encog.ml.svm.KernelType;
 import org.encog.ml.svm.SVM;
 import org.encog.ml.train.BasicTraining;
 import org.encog.neural.networks.training.propagation.TrainingContinuation;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
 
 /**
  * Provides training for Support Vector Machine networks.
+ * 
+ * By default the (gamma, C) grid is searched one cell per iteration. If the
+ * thread count is set to anything other than one, the search is done in
+ * parallel: each iteration evaluates an entire grid pass concurrently. The
+ * first pass is the coarse grid; each refinement pass then searches the
+ * neighborhood of the best cell with half the previous step size. In parallel
+ * mode, cross validation is done fold by fold, so cells that are clearly
+ * inferior to the best cell found so far can be abandoned early.
  */
-public class SVMSearchTrain extends BasicTraining {
+public class SVMSearchTrain extends BasicTraining implements
+		MultiThreadable, ConcurrencyAware {
 
 	/**
 	 * The default starting number for C.
@@ -148,6 +170,63 @@ public class SVMSearchTrain extends BasicTraining {
 	 */
 	private final SVMTrain internalTrain;
 
+	/**
+	 * The number of threads to use. One, the default, searches one cell per
+	 * iteration. Zero automatically determines the thread count.
+	 */
+	private int threadCount = 1;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
+	/**
+	 * The number of refinement passes to make after the coarse grid, only
+	 * used in parallel mode.
+	 */
+	private int refinementLevels;
+
+	/**
+	 * How much worse than the best error a partially cross validated cell
+	 * must be before it is abandoned, as a fraction of the best error. Zero
+	 * or less disables early cancellation. Only used in parallel mode.
+	 */
+	private double cancelMargin;
+
+	/**
+	 * The total kernel cache budget, in MB, shared by all threads. Zero uses
+	 * the cache size from the SVM's parameters for each cell.
+	 */
+	private double cacheBudget;
+
+	/**
+	 * An optional kernel row cache, shared by all cells.
+	 */
+	private SharedKernelCache kernelCache;
+
+	/**
+	 * The current search pass, used in parallel mode.
+	 */
+	private int pass;
+
+	/**
+	 * The cells that have been evaluated so far.
+	 */
+	private final List<SVMSearchCell> cells = new ArrayList<SVMSearchCell>();
+
+	/**
+	 * The row permutation for cross validation, shared by all cells so that
+	 * every cell is evaluated on the same folds.
+	 */
+	private int[] perm;
+
+	/**
+	 * The starting index of each fold within the permutation.
+	 */
+	private int[] foldStart;
+
 	/**
 	 * Construct a trainer for an SVM network.
 	 * 
@@ -179,6 +258,7 @@ public class SVMSearchTrain extends BasicTraining {
 	 */
 	@Override
 	public void finishTraining() {
+		releaseKernelCache();
 		this.internalTrain.setGamma(this.bestGamma);
 		this.internalTrain.setC(this.bestConst);
 		this.internalTrain.iteration();
@@ -234,6 +314,149 @@ public class SVMSearchTrain extends BasicTraining {
 		return this.gammaStep;
 	}
 
+	/**
+	 * @return The cells evaluated so far, along with their errors and
+	 *         timings.
+	 */
+	public List<SVMSearchCell> getCells() {
+		synchronized (this.cells) {
+			return Collections.unmodifiableList(new ArrayList<SVMSearchCell>(
+					this.cells));
+		}
+	}
+
+	/**
+	 * @return The best gamma found so far.
+	 */
+	public double getBestGamma() {
+		return this.bestGamma;
+	}
+
+	/**
+	 * @return The best C found so far.
+	 */
+	public double getBestConst() {
+		return this.bestConst;
+	}
+
+	/**
+	 * @return The number of refinement passes made after the coarse grid.
+	 */
+	public int getRefinementLevels() {
+		return this.refinementLevels;
+	}
+
+	/**
+	 * Set the number of refinement passes to make after the coarse grid.
+	 * Each pass searches the eight neighbors of the best cell, at half the
+	 * previous step size. Only used in parallel mode.
+	 * 
+	 * @param theRefinementLevels
+	 *            The number of refinement passes.
+	 */
+	public void setRefinementLevels(final int theRefinementLevels) {
+		this.refinementLevels = theRefinementLevels;
+	}
+
+	/**
+	 * @return The early cancellation margin.
+	 */
+	public double getCancelMargin() {
+		return this.cancelMargin;
+	}
+
+	/**
+	 * Set the early cancellation margin. A cell is abandoned when, after any
+	 * fold but the last, its error exceeds the best error by more than this
+	 * fraction of the best error. Zero, the default, disables early
+	 * cancellation. Only used in parallel mode with cross validation.
+	 * 
+	 * @param theCancelMargin
+	 *            The cancellation margin.
+	 */
+	public void setCancelMargin(final double theCancelMargin) {
+		this.cancelMargin = theCancelMargin;
+	}
+
+	/**
+	 * @return The total kernel cache budget, in MB.
+	 */
+	public double getCacheBudget() {
+		return this.cacheBudget;
+	}
+
+	/**
+	 * Set the total kernel cache budget, in MB. The budget is divided evenly
+	 * between the threads. Zero, the default, gives each cell the cache size
+	 * specified by the SVM's parameters.
+	 * 
+	 * @param theCacheBudget
+	 *            The cache budget, in MB.
+	 */
+	public void setCacheBudget(final double theCacheBudget) {
+		this.cacheBudget = theCacheBudget;
+	}
+
+	/**
+	 * @return The kernel row cache shared by all cells, or null.
+	 */
+	public SharedKernelCache getKernelCache() {
+		return this.kernelCache;
+	}
+
+	/**
+	 * Set a kernel row cache to be shared by all cells. Cells with the same
+	 * gamma, and all of their folds, then reuse each other's kernel rows. 
+	 * Only used in parallel mode, the cache budget is ignored when set. The
+	 * training data is unregistered from the cache once the search is done.
+	 * 
+	 * @param theKernelCache
+	 *            The kernel cache, or null for a cache per cell.
+	 */
+	public void setKernelCache(final SharedKernelCache theKernelCache) {
+		this.kernelCache = theKernelCache;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * Set the number of threads. One, the default, searches one cell per
+	 * iteration. Zero uses one thread per processor. Any other value
+	 * searches an entire grid pass per iteration, using that many threads.
+	 * 
+	 * @param theThreadCount
+	 *            The number of threads.
+	 */
+	@Override
+	public void setThreadCount(final int theThreadCount) {
+		this.threadCount = theThreadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -267,36 +490,10 @@ public class SVMSearchTrain extends BasicTraining {
 
 			if (this.network.getKernelType() == KernelType.RadialBasisFunction) {
 
-				this.internalTrain.setGamma(this.currentGamma);
-				this.internalTrain.setC(this.currentConst);
-				
-				double e = 0;
-				
-				this.internalTrain.iteration();
-				e = this.internalTrain.getError();
-				
-
-				//System.out.println(this.currentGamma + "," + this.currentConst
-				//		+ "," + e);
-
-				// new best error?
-				if (!Double.isNaN(e)) {
-					if (e < this.bestError) {
-						this.bestConst = this.currentConst;
-						this.bestGamma = this.currentGamma;
-						this.bestError = e;
-					}
-				}
-
-				// advance
-				this.currentConst += this.constStep;
-				if (this.currentConst > this.constEnd) {
-					this.currentConst = this.constBegin;
-					this.currentGamma += this.gammaStep;
-					if (this.currentGamma > this.gammaEnd) {
-						this.trainingDone = true;
-					}
-
+				if (this.threadCount == 1) {
+					iterationSingle();
+				} else {
+					iterationParallel();
 				}
 
 				setError(this.bestError);
@@ -310,6 +507,293 @@ public class SVMSearchTrain extends BasicTraining {
 		}
 	}
 
+	/**
+	 * Evaluate the current cell and advance to the next.
+	 */
+	private void iterationSingle() {
+		final SVMSearchCell cell = new SVMSearchCell(this.currentGamma,
+				this.currentConst, 0);
+
+		this.internalTrain.setGamma(this.currentGamma);
+		this.internalTrain.setC(this.currentConst);
+
+		final long start = System.currentTimeMillis();
+		this.internalTrain.iteration();
+		cell.setElapsed(System.currentTimeMillis() - start);
+		cell.setError(this.internalTrain.getError());
+
+		reportCell(cell);
+
+		// advance
+		this.currentConst += this.constStep;
+		if (this.currentConst > this.constEnd) {
+			this.currentConst = this.constBegin;
+			this.currentGamma += this.gammaStep;
+			if (this.currentGamma > this.gammaEnd) {
+				this.trainingDone = true;
+			}
+
+		}
+	}
+
+	/**
+	 * Evaluate an entire grid pass concurrently. The first pass is the coarse
+	 * grid, later passes refine around the best cell.
+	 */
+	private void iterationParallel() {
+		final List<SVMSearchCell> passCells;
+
+		if (this.pass == 0) {
+			passCells = createCoarseGrid();
+		} else {
+			passCells = createRefinedGrid();
+		}
+
+		runCells(passCells);
+
+		this.pass++;
+		if (this.pass > this.refinementLevels || passCells.size() == 0) {
+			this.trainingDone = true;
+			releaseKernelCache();
+		}
+	}
+
+	/**
+	 * Release the rows this search cached in the shared kernel cache, if
+	 * one is used.
+	 */
+	private void releaseKernelCache() {
+		if (this.kernelCache != null) {
+			this.kernelCache.unregister(this.internalTrain.getProblem());
+		}
+	}
+
+	/**
+	 * @return The cells of the coarse grid.
+	 */
+	private List<SVMSearchCell> createCoarseGrid() {
+		final List<SVMSearchCell> result = new ArrayList<SVMSearchCell>();
+
+		double g = this.gammaBegin;
+		while (g <= this.gammaEnd) {
+			double c = this.constBegin;
+			while (c <= this.constEnd) {
+				result.add(new SVMSearchCell(g, c, 0));
+				if (this.constStep <= 0) {
+					break;
+				}
+				c += this.constStep;
+			}
+			if (this.gammaStep <= 0) {
+				break;
+			}
+			g += this.gammaStep;
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return The neighbors of the best cell, at the step size of the current
+	 *         pass.
+	 */
+	private List<SVMSearchCell> createRefinedGrid() {
+		final List<SVMSearchCell> result = new ArrayList<SVMSearchCell>();
+
+		if (Double.isInfinite(this.bestError)) {
+			return result;
+		}
+
+		final double scale = Math.pow(2, -this.pass);
+		final double gs = this.gammaStep * scale;
+		final double cs = this.constStep * scale;
+
+		for (int dg = -1; dg <= 1; dg++) {
+			for (int dc = -1; dc <= 1; dc++) {
+				if (dg == 0 && dc == 0) {
+					continue;
+				}
+				final double g = this.bestGamma + (dg * gs);
+				final double c = this.bestConst + (dc * cs);
+				if (g < Encog.DEFAULT_DOUBLE_EQUAL
+						|| c < Encog.DEFAULT_DOUBLE_EQUAL) {
+					continue;
+				}
+				if ((dg != 0 && gs <= 0) || (dc != 0 && cs <= 0)) {
+					continue;
+				}
+				result.add(new SVMSearchCell(g, c, this.pass));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Evaluate the specified cells concurrently. The cells are split into
+	 * one lane per thread, each lane evaluates its cells in order.
+	 * 
+	 * @param passCells
+	 *            The cells to evaluate.
+	 */
+	private void runCells(final List<SVMSearchCell> passCells) {
+		if (passCells.size() == 0) {
+			return;
+		}
+
+		int threads = this.threadCount;
+		if (threads <= 0) {
+			threads = Runtime.getRuntime().availableProcessors();
+		}
+		threads = Math.min(threads, passCells.size());
+
+		final svm_problem problem = this.internalTrain.getProblem();
+		final double cacheSize = (this.cacheBudget > 0) ? this.cacheBudget
+				/ threads : this.network.getParams().cache_size;
+
+		final svm_parameter baseParam = (svm_parameter) this.network
+				.getParams().clone();
+
+		if (this.perm == null) {
+			setupFolds(problem, baseParam);
+		}
+
+		if (this.kernelCache != null) {
+			this.kernelCache.register(problem);
+			baseParam.kernel_cache = this.kernelCache;
+		}
+
+		final List<List<SVMSearchWorker>> lanes 
+			= new ArrayList<List<SVMSearchWorker>>();
+		for (int i = 0; i < threads; i++) {
+			lanes.add(new ArrayList<SVMSearchWorker>());
+		}
+
+		int index = 0;
+		for (final SVMSearchCell cell : passCells) {
+			lanes.get(index % threads).add(
+					new SVMSearchWorker(this, cell, problem, baseParam,
+							cacheSize, this.fold, this.perm, this.foldStart));
+			index++;
+		}
+
+		final TaskGroup group = getConcurrency().createTaskGroup();
+
+		for (final List<SVMSearchWorker> lane : lanes) {
+			getConcurrency().processTask(new EngineTask() {
+				@Override
+				public void run() {
+					runLane(lane);
+				}
+			}, group);
+		}
+
+		group.waitForComplete();
+		getConcurrency().checkError();
+	}
+
+	/**
+	 * Evaluate the cells of one lane, in order. When not cross validating,
+	 * the lane opens one view of the training data for all of its cells,
+	 * and closes it once they are done.
+	 * 
+	 * @param lane
+	 *            The workers of the lane.
+	 */
+	private void runLane(final List<SVMSearchWorker> lane) {
+		final MLDataSet data = (this.fold > 1) ? null : getTraining()
+				.openAdditional();
+		try {
+			for (final SVMSearchWorker worker : lane) {
+				worker.setTraining(data);
+				worker.run();
+			}
+		} finally {
+			if (data != null) {
+				data.close();
+			}
+		}
+	}
+
+	/**
+	 * Create the fold assignment shared by all cells. This is the same split
+	 * svm_cross_validation uses, so classification folds are stratified
+	 * just as they are in single threaded mode. Single threaded mode
+	 * draws a new split for every cell; here one split is drawn for the
+	 * whole search, so every cell is compared on the same folds.
+	 * 
+	 * @param problem
+	 *            The problem to split.
+	 * @param param
+	 *            The SVM parameters.
+	 */
+	private void setupFolds(final svm_problem problem,
+			final svm_parameter param) {
+		final int folds = Math.max(this.fold, 1);
+		this.perm = new int[problem.l];
+		this.foldStart = new int[folds + 1];
+		svm.svm_cross_validation_split(problem, param, folds, this.perm,
+				this.foldStart);
+	}
+
+	/**
+	 * Determine if a partial error is clearly worse than the best error found
+	 * so far.
+	 * 
+	 * @param partialError
+	 *            The error of a partially evaluated cell.
+	 * @return True if the cell should be abandoned.
+	 */
+	boolean isClearlyInferior(final double partialError) {
+		if (this.cancelMargin <= 0 || Double.isNaN(partialError)) {
+			return false;
+		}
+		synchronized (this.cells) {
+			if (Double.isInfinite(this.bestError)) {
+				return false;
+			}
+			return partialError > this.bestError
+					+ (Math.abs(this.bestError) * this.cancelMargin);
+		}
+	}
+
+	/**
+	 * Record an evaluated cell, and track it if it is the new best.
+	 * 
+	 * @param cell
+	 *            The cell that was evaluated.
+	 */
+	void reportCell(final SVMSearchCell cell) {
+		synchronized (this.cells) {
+			this.cells.add(cell);
+			final double e = cell.getError();
+			if (!cell.isCancelled() && !Double.isNaN(e)) {
+				// ties go to the cell single threaded mode would visit first
+				if (e < this.bestError
+						|| (e == this.bestError && visitedFirst(cell))) {
+					this.bestConst = cell.getC();
+					this.bestGamma = cell.getGamma();
+					this.bestError = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine if a cell comes before the best cell in grid order, gamma
+	 * first and then C, the order single threaded mode visits the cells in.
+	 * 
+	 * @param cell
+	 *            The cell to check.
+	 * @return True if the cell comes before the best cell.
+	 */
+	private boolean visitedFirst(final SVMSearchCell cell) {
+		if (cell.getGamma() != this.bestGamma) {
+			return cell.getGamma() < this.bestGamma;
+		}
+		return cell.getC() < this.bestConst;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -391,6 +875,11 @@ public class SVMSearchTrain extends BasicTraining {
 		this.currentGamma = this.gammaBegin;
 		this.bestError = Double.POSITIVE_INFINITY;
 		this.isSetup = true;
+		this.pass = 0;
+		this.perm = null;
+		synchronized (this.cells) {
+			this.cells.clear();
+		}
 		
 		if( this.currentGamma<=0 || this.currentGamma<Encog.DEFAULT_DOUBLE_EQUAL ) {
 			throw new EncogError("SVM search training cannot use a gamma value less than zero.");
@@ -0,0 +1,257 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.svm.training;
+
+import org.encog.mathutil.libsvm.svm;
+import org.encog.mathutil.libsvm.svm_model;
+import org.encog.mathutil.libsvm.svm_node;
+import org.encog.mathutil.libsvm.svm_parameter;
+import org.encog.mathutil.libsvm.svm_problem;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.svm.SVM;
+import org.encog.util.concurrency.EngineTask;
+
+/**
+ * Worker used by the parallel mode of SVMSearchTrain. Each worker evaluates a
+ * single (gamma, C) cell of the search grid. The worker uses its own copy of
+ * the SVM parameters, and its own fold views of the shared problem, so many
+ * workers can run at once. The underlying svm_node rows are shared and are
+ * only ever read.
+ */
+public class SVMSearchWorker implements EngineTask {
+
+	/**
+	 * The search trainer that owns this worker.
+	 */
+	private final SVMSearchTrain owner;
+
+	/**
+	 * The cell being evaluated.
+	 */
+	private final SVMSearchCell cell;
+
+	/**
+	 * The full problem, shared between workers.
+	 */
+	private final svm_problem problem;
+
+	/**
+	 * The parameters to base this cell's parameters on.
+	 */
+	private final svm_parameter baseParam;
+
+	/**
+	 * The kernel cache size, in MB, for this cell.
+	 */
+	private final double cacheSize;
+
+	/**
+	 * The training data, used to calculate the error when not cross
+	 * validating.
+	 */
+	private MLDataSet training;
+
+	/**
+	 * The number of folds.
+	 */
+	private final int fold;
+
+	/**
+	 * The row permutation, rows are grouped by fold.
+	 */
+	private final int[] perm;
+
+	/**
+	 * The starting index, in perm, of each fold. Holds fold+1 entries.
+	 */
+	private final int[] foldStart;
+
+	/**
+	 * Construct a search worker.
+	 * 
+	 * @param theOwner
+	 *            The search trainer that owns this worker.
+	 * @param theCell
+	 *            The cell to evaluate.
+	 * @param theProblem
+	 *            The shared problem.
+	 * @param theBaseParam
+	 *            The parameters to base this cell on.
+	 * @param theCacheSize
+	 *            The kernel cache size, in MB, for this cell.
+	 * @param theFold
+	 *            The number of folds, 1 or less for no cross validation.
+	 * @param thePerm
+	 *            The row permutation, grouped by fold.
+	 * @param theFoldStart
+	 *            The starting index of each fold within the permutation.
+	 */
+	public SVMSearchWorker(final SVMSearchTrain theOwner,
+			final SVMSearchCell theCell, final svm_problem theProblem,
+			final svm_parameter theBaseParam, final double theCacheSize,
+			final int theFold,
+			final int[] thePerm, final int[] theFoldStart) {
+		this.owner = theOwner;
+		this.cell = theCell;
+		this.problem = theProblem;
+		this.baseParam = theBaseParam;
+		this.cacheSize = theCacheSize;
+		this.fold = theFold;
+		this.perm = thePerm;
+		this.foldStart = theFoldStart;
+	}
+
+	/**
+	 * Set the training data used to calculate the error when not cross
+	 * validating. The data is shared by all of the workers of a lane, and
+	 * is closed by the lane once they are done.
+	 * 
+	 * @param theTraining
+	 *            The training data.
+	 */
+	public void setTraining(final MLDataSet theTraining) {
+		this.training = theTraining;
+	}
+
+	/**
+	 * @return The cell being evaluated.
+	 */
+	public SVMSearchCell getCell() {
+		return this.cell;
+	}
+
+	/**
+	 * Cross validate the cell, one fold at a time. After each fold the error
+	 * of the rows predicted so far is checked against the best cell found so
+	 * far, and the remaining folds are skipped if this cell is clearly
+	 * inferior.
+	 * 
+	 * @param param
+	 *            The parameters for this cell.
+	 */
+	private void crossValidate(final svm_parameter param) {
+		final int l = this.problem.l;
+		final double[] target = new double[l];
+		final boolean probability = (param.probability == 1)
+				&& ((param.svm_type == svm_parameter.C_SVC) 
+						|| (param.svm_type == svm_parameter.NU_SVC));
+
+		for (int i = 0; i < this.fold; i++) {
+			final int begin = this.foldStart[i];
+			final int end = this.foldStart[i + 1];
+
+			// build a view of the problem, without this fold
+			final svm_problem subprob = new svm_problem();
+			subprob.l = l - (end - begin);
+			subprob.x = new svm_node[subprob.l][];
+			subprob.y = new double[subprob.l];
+
+			int k = 0;
+			for (int j = 0; j < begin; j++) {
+				subprob.x[k] = this.problem.x[this.perm[j]];
+				subprob.y[k] = this.problem.y[this.perm[j]];
+				k++;
+			}
+			for (int j = end; j < l; j++) {
+				subprob.x[k] = this.problem.x[this.perm[j]];
+				subprob.y[k] = this.problem.y[this.perm[j]];
+				k++;
+			}
+
+			final svm_model submodel = svm.svm_train(subprob, param);
+
+			if (probability) {
+				final double[] estimates = new double[svm
+						.svm_get_nr_class(submodel)];
+				for (int j = begin; j < end; j++) {
+					target[this.perm[j]] = svm.svm_predict_probability(
+							submodel, this.problem.x[this.perm[j]], estimates);
+				}
+			} else {
+				for (int j = begin; j < end; j++) {
+					target[this.perm[j]] = svm.svm_predict(submodel,
+							this.problem.x[this.perm[j]]);
+				}
+			}
+
+			// folds are contiguous in perm, so rows [0,end) are predicted
+			final double partial = evaluatePartial(param, target, end);
+			if (i < (this.fold - 1) && this.owner.isClearlyInferior(partial)) {
+				this.cell.setError(partial);
+				this.cell.setCancelled(true);
+				return;
+			}
+			if (i == (this.fold - 1)) {
+				this.cell.setError(partial);
+			}
+		}
+	}
+
+	/**
+	 * Evaluate the error of the rows that have been predicted so far.
+	 * 
+	 * @param param
+	 *            The parameters for this cell.
+	 * @param target
+	 *            The predictions, indexed by row.
+	 * @param count
+	 *            The number of rows, in permutation order, predicted.
+	 * @return The error.
+	 */
+	private double evaluatePartial(final svm_parameter param,
+			final double[] target, final int count) {
+		final svm_problem partial = new svm_problem();
+		partial.l = count;
+		partial.y = new double[count];
+		final double[] actual = new double[count];
+		for (int i = 0; i < count; i++) {
+			partial.y[i] = this.problem.y[this.perm[i]];
+			actual[i] = target[this.perm[i]];
+		}
+		return SVMTrain.evaluate(param, partial, actual);
+	}
+
+	/**
+	 * Evaluate the cell.
+	 */
+	@Override
+	public void run() {
+		final long start = System.currentTimeMillis();
+
+		final svm_parameter param = (svm_parameter) this.baseParam.clone();
+		param.gamma = this.cell.getGamma();
+		param.C = this.cell.getC();
+		param.cache_size = this.cacheSize;
+
+		if (this.fold > 1) {
+			crossValidate(param);
+		} else {
+			final SVM method = new SVM(svm.svm_train(this.problem, param));
+			this.cell.setError(method.calculateError(this.training));
+		}
+
+		this.cell.setElapsed(System.currentTimeMillis() - start);
+		this.owner.reportCell(this.cell);
+	}
+}
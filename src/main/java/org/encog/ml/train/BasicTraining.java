@@ -26,8 +26,14 @@ package org.encog.ml.train;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.encog.Encog;
 import org.encog.ml.TrainingImplementationType;
 import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.buffer.BufferedMLDataSet;
+import org.encog.ml.train.metrics.AllocationMonitor;
+import org.encog.ml.train.metrics.TrainingMetrics;
+import org.encog.ml.train.metrics.TrainingPhase;
+import org.encog.plugin.EncogPluginMetrics1;
 import org.encog.ml.train.strategy.Strategy;
 import org.encog.ml.train.strategy.end.EndTrainingStrategy;
 
@@ -46,6 +52,28 @@ public abstract class BasicTraining implements MLTrain {
 	 */
 	private final List<Strategy> strategies = new ArrayList<Strategy>();
 
+	/**
+	 * The metrics to report to, in addition to the metrics plugins.
+	 */
+	private final List<TrainingMetrics> metrics = new ArrayList<TrainingMetrics>();
+
+	/**
+	 * The time the current iteration started, or -1 if it is not measured.
+	 */
+	private long iterationStart = -1;
+
+	/**
+	 * The bytes allocated when the current iteration started, or -1 if
+	 * unknown.
+	 */
+	private long allocationStart = -1;
+
+	/**
+	 * The bytes read from disk when the current iteration started, or -1 if
+	 * unknown.
+	 */
+	private long ioStart = -1;
+
 	/**
 	 * The training data.
 	 */
@@ -79,6 +107,17 @@ public abstract class BasicTraining implements MLTrain {
 		this.strategies.add(strategy);
 	}
 
+	/**
+	 * Add metrics to report the progress of this training to. Metrics
+	 * registered as plugins are reported to as well.
+	 * 
+	 * @param theMetrics
+	 *            The metrics to add.
+	 */
+	public void addMetrics(final TrainingMetrics theMetrics) {
+		this.metrics.add(theMetrics);
+	}
+
 	/**
 	 * Should be called after training has completed and the iteration method
 	 * will not be called any further.
@@ -95,6 +134,13 @@ public abstract class BasicTraining implements MLTrain {
 		return this.error;
 	}
 
+	/**
+	 * @return The metrics this training reports to, not counting plugins.
+	 */
+	public List<TrainingMetrics> getMetrics() {
+		return this.metrics;
+	}
+
 	/**
 	 * @return the iteration
 	 */
@@ -116,6 +162,15 @@ public abstract class BasicTraining implements MLTrain {
 		return this.training;
 	}
 
+	/**
+	 * @return True if anything is listening for metrics. Training should
+	 *         only take measurements when this is true.
+	 */
+	public boolean isMetricsEnabled() {
+		return !this.metrics.isEmpty()
+				|| !Encog.getInstance().getMetricsPlugins().isEmpty();
+	}
+
 	/**
 	 * @return True if training can progress no further.
 	 */
@@ -154,6 +209,10 @@ public abstract class BasicTraining implements MLTrain {
 		for (final Strategy strategy : this.strategies) {
 			strategy.postIteration();
 		}
+
+		if (this.iterationStart != -1) {
+			reportIteration();
+		}
 	}
 
 	/**
@@ -166,6 +225,86 @@ public abstract class BasicTraining implements MLTrain {
 		for (final Strategy strategy : this.strategies) {
 			strategy.preIteration();
 		}
+
+		if (isMetricsEnabled()) {
+			this.allocationStart = AllocationMonitor.getAllocatedBytes();
+			this.ioStart = getBytesRead();
+			this.iterationStart = System.nanoTime();
+		} else {
+			this.iterationStart = -1;
+		}
+	}
+
+	/**
+	 * @return The bytes the training data has read from disk, or -1 if it
+	 *         does not count them.
+	 */
+	private long getBytesRead() {
+		if (this.training instanceof BufferedMLDataSet) {
+			return ((BufferedMLDataSet) this.training).getBytesRead();
+		}
+		return -1;
+	}
+
+	/**
+	 * Report the iteration that just finished to the metrics.
+	 */
+	private void reportIteration() {
+		final long nanos = System.nanoTime() - this.iterationStart;
+		final long allocationEnd = AllocationMonitor.getAllocatedBytes();
+		final long ioEnd = getBytesRead();
+		final long records = this.training == null ? 0 : this.training
+				.getRecordCount();
+		this.iterationStart = -1;
+
+		final List<TrainingMetrics> targets = new ArrayList<TrainingMetrics>(
+				this.metrics);
+		for (final EncogPluginMetrics1 plugin : Encog.getInstance()
+				.getMetricsPlugins()) {
+			targets.add(plugin);
+		}
+
+		for (final TrainingMetrics target : targets) {
+			if (this.allocationStart >= 0
+					&& allocationEnd >= this.allocationStart) {
+				target.recordAllocation(this, allocationEnd
+						- this.allocationStart, nanos);
+			}
+			if (this.ioStart >= 0 && ioEnd >= this.ioStart) {
+				target.recordIO(this, ioEnd - this.ioStart);
+			}
+			target.recordIteration(this, nanos, records);
+		}
+	}
+
+	/**
+	 * Report the time spent in one phase of an iteration. Only training that
+	 * can tell its phases apart calls this, and only when
+	 * isMetricsEnabled is true.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @param nanos
+	 *            The time spent in the phase, in nanoseconds.
+	 */
+	protected void recordPhase(final TrainingPhase phase, final long nanos) {
+		for (final TrainingMetrics target : this.metrics) {
+			target.recordPhase(this, phase, nanos);
+		}
+		for (final EncogPluginMetrics1 plugin : Encog.getInstance()
+				.getMetricsPlugins()) {
+			plugin.recordPhase(this, phase, nanos);
+		}
+	}
+
+	/**
+	 * Remove metrics added with addMetrics.
+	 * 
+	 * @param theMetrics
+	 *            The metrics to remove.
+	 */
+	public void removeMetrics(final TrainingMetrics theMetrics) {
+		this.metrics.remove(theMetrics);
 	}
 
 	/**
@@ -0,0 +1,107 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+import org.encog.util.logging.EncogLogging;
+
+/**
+ * Measures the bytes allocated on the heap by every live thread. This relies
+ * on the com.sun.management.ThreadMXBean extension, which is looked up
+ * reflectively so that other JVMs still run; there, the allocation is
+ * reported as unknown.
+ */
+public final class AllocationMonitor {
+
+	/**
+	 * The thread bean.
+	 */
+	private static final ThreadMXBean BEAN = ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * The getThreadAllocatedBytes(long[]) method, or null if not supported.
+	 */
+	private static final Method ALLOCATED_BYTES = findMethod();
+
+	/**
+	 * Find the allocation method of the thread bean.
+	 * 
+	 * @return The method, or null if not supported.
+	 */
+	private static Method findMethod() {
+		try {
+			final Class<?> c = Class
+					.forName("com.sun.management.ThreadMXBean");
+			if (!c.isInstance(AllocationMonitor.BEAN)) {
+				return null;
+			}
+			final Method supported = c
+					.getMethod("isThreadAllocatedMemorySupported");
+			if (!((Boolean) supported.invoke(AllocationMonitor.BEAN))) {
+				return null;
+			}
+			return c.getMethod("getThreadAllocatedBytes", long[].class);
+		} catch (final Exception ex) {
+			EncogLogging.log(EncogLogging.LEVEL_DEBUG,
+					"Allocation can't be measured: " + ex);
+			return null;
+		}
+	}
+
+	/**
+	 * @return The total bytes allocated by the live threads, or -1 if this
+	 *         can't be measured.
+	 */
+	public static long getAllocatedBytes() {
+		if (AllocationMonitor.ALLOCATED_BYTES == null) {
+			return -1;
+		}
+
+		try {
+			final long[] bytes = (long[]) AllocationMonitor.ALLOCATED_BYTES
+					.invoke(AllocationMonitor.BEAN,
+							AllocationMonitor.BEAN.getAllThreadIds());
+			long result = 0;
+			for (final long b : bytes) {
+				if (b > 0) {
+					result += b;
+				}
+			}
+			return result;
+		} catch (final Exception ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Private constructor.
+	 */
+	private AllocationMonitor() {
+
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+/**
+ * A histogram of non-negative long values, such as durations in
+ * nanoseconds. Values are counted in buckets whose bounds are powers of two,
+ * so recording a value is a few instructions and the memory used is fixed.
+ * Percentiles are therefore approximate, to within a factor of two, while
+ * the count, sum, minimum and maximum are exact.
+ */
+public class Histogram {
+
+	/**
+	 * The number of buckets, one for zero and one for each bit of a long.
+	 */
+	public static final int BUCKETS = 64;
+
+	/**
+	 * The count of each bucket. Bucket i holds values in [2^(i-1), 2^i).
+	 */
+	private final long[] counts = new long[Histogram.BUCKETS];
+
+	/**
+	 * The number of values recorded.
+	 */
+	private long count;
+
+	/**
+	 * The sum of the values recorded.
+	 */
+	private long sum;
+
+	/**
+	 * The smallest value recorded.
+	 */
+	private long min = Long.MAX_VALUE;
+
+	/**
+	 * The largest value recorded.
+	 */
+	private long max;
+
+	/**
+	 * Clear the histogram.
+	 */
+	public final synchronized void clear() {
+		for (int i = 0; i < this.counts.length; i++) {
+			this.counts[i] = 0;
+		}
+		this.count = 0;
+		this.sum = 0;
+		this.min = Long.MAX_VALUE;
+		this.max = 0;
+	}
+
+	/**
+	 * @return The number of values recorded.
+	 */
+	public final synchronized long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return The largest value recorded, or zero if none.
+	 */
+	public final synchronized long getMax() {
+		return this.max;
+	}
+
+	/**
+	 * @return The mean of the values recorded, or zero if none.
+	 */
+	public final synchronized double getMean() {
+		if (this.count == 0) {
+			return 0;
+		}
+		return (double) this.sum / this.count;
+	}
+
+	/**
+	 * @return The smallest value recorded, or zero if none.
+	 */
+	public final synchronized long getMin() {
+		if (this.count == 0) {
+			return 0;
+		}
+		return this.min;
+	}
+
+	/**
+	 * Estimate a percentile. The result is the upper bound of the bucket
+	 * that holds the percentile, limited to the largest value recorded.
+	 * 
+	 * @param percent
+	 *            The percentile, from 0 to 100.
+	 * @return The estimate, or zero if no values have been recorded.
+	 */
+	public final synchronized long getPercentile(final double percent) {
+		if (this.count == 0) {
+			return 0;
+		}
+
+		final long rank = (long) Math.ceil(this.count * percent / 100.0);
+		long seen = 0;
+		for (int i = 0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+			if (seen >= rank && this.counts[i] > 0) {
+				final long upper = (i == Histogram.BUCKETS - 1) ? Long.MAX_VALUE
+						: (1L << i) - 1;
+				return Math.max(this.min, Math.min(upper, this.max));
+			}
+		}
+		return this.max;
+	}
+
+	/**
+	 * @return The sum of the values recorded.
+	 */
+	public final synchronized long getSum() {
+		return this.sum;
+	}
+
+	/**
+	 * Record a value. Negative values are counted as zero.
+	 * 
+	 * @param value
+	 *            The value.
+	 */
+	public final synchronized void record(final long value) {
+		final long v = Math.max(0, value);
+		this.counts[Histogram.BUCKETS - Long.numberOfLeadingZeros(v)]++;
+		this.count++;
+		this.sum += v;
+		this.min = Math.min(this.min, v);
+		this.max = Math.max(this.max, v);
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.encog.ml.train.MLTrain;
+import org.encog.plugin.EncogPluginBase;
+import org.encog.plugin.EncogPluginMetrics1;
+
+/**
+ * Keeps training metrics in memory, as histograms. Recording a measurement
+ * only updates a few counters, so this can be left registered while
+ * training. When shared between trainers, the measurements of all of them
+ * are combined.
+ */
+public class HistogramMetrics implements EncogPluginMetrics1 {
+
+	/**
+	 * The wall time of each iteration, in nanoseconds.
+	 */
+	private final Histogram iterationTime = new Histogram();
+
+	/**
+	 * The time of each phase of each iteration, in nanoseconds.
+	 */
+	private final Map<TrainingPhase, Histogram> phaseTime 
+		= new EnumMap<TrainingPhase, Histogram>(TrainingPhase.class);
+
+	/**
+	 * The bytes allocated in each iteration.
+	 */
+	private final Histogram allocation = new Histogram();
+
+	/**
+	 * The bytes read from disk in each iteration.
+	 */
+	private final Histogram io = new Histogram();
+
+	/**
+	 * The total number of records processed.
+	 */
+	private long records;
+
+	/**
+	 * The total wall time of the iterations that allocation was measured
+	 * for.
+	 */
+	private long allocationNanos;
+
+	/**
+	 * Construct the metrics.
+	 */
+	public HistogramMetrics() {
+		for (final TrainingPhase phase : TrainingPhase.values()) {
+			this.phaseTime.put(phase, new Histogram());
+		}
+	}
+
+	/**
+	 * Clear every measurement.
+	 */
+	public synchronized void clear() {
+		this.iterationTime.clear();
+		for (final Histogram histogram : this.phaseTime.values()) {
+			histogram.clear();
+		}
+		this.allocation.clear();
+		this.io.clear();
+		this.records = 0;
+		this.allocationNanos = 0;
+	}
+
+	/**
+	 * @return The bytes allocated per iteration.
+	 */
+	public final Histogram getAllocation() {
+		return this.allocation;
+	}
+
+	/**
+	 * @return The bytes allocated per second of training, or zero if
+	 *         allocation could not be measured.
+	 */
+	public synchronized double getAllocationRate() {
+		if (this.allocationNanos == 0) {
+			return 0;
+		}
+		return this.allocation.getSum() * 1.0e9 / this.allocationNanos;
+	}
+
+	/**
+	 * @return The bytes read from disk per iteration.
+	 */
+	public final Histogram getIO() {
+		return this.io;
+	}
+
+	/**
+	 * @return The wall time of each iteration, in nanoseconds.
+	 */
+	public final Histogram getIterationTime() {
+		return this.iterationTime;
+	}
+
+	/**
+	 * Get the time spent in one phase of each iteration.
+	 * 
+	 * @param phase
+	 *            The phase.
+	 * @return The time of the phase, in nanoseconds.
+	 */
+	public final Histogram getPhaseTime(final TrainingPhase phase) {
+		return this.phaseTime.get(phase);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getPluginDescription() {
+		return "Keeps training metrics in memory, as histograms.";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getPluginName() {
+		return "HRI-Histogram-Metrics";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getPluginServiceType() {
+		return EncogPluginBase.TYPE_METRICS;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public final int getPluginType() {
+		return 1;
+	}
+
+	/**
+	 * @return The total number of records processed.
+	 */
+	public synchronized long getRecords() {
+		return this.records;
+	}
+
+	/**
+	 * @return The records processed per second of training, or zero if no
+	 *         iterations have been recorded.
+	 */
+	public synchronized double getRecordsPerSecond() {
+		final long nanos = this.iterationTime.getSum();
+		if (nanos == 0) {
+			return 0;
+		}
+		return this.records * 1.0e9 / nanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void recordAllocation(final MLTrain train,
+			final long bytes, final long nanos) {
+		this.allocation.record(bytes);
+		this.allocationNanos += nanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordIO(final MLTrain train, final long bytes) {
+		this.io.record(bytes);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void recordIteration(final MLTrain train,
+			final long nanos, final long theRecords) {
+		this.iterationTime.record(nanos);
+		this.records += theRecords;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void recordPhase(final MLTrain train, final TrainingPhase phase,
+			final long nanos) {
+		this.phaseTime.get(phase).record(nanos);
+	}
+
+}
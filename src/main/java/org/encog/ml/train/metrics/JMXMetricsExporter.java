@@ -0,0 +1,184 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.encog.EncogError;
+
+/**
+ * Publishes training metrics over JMX, so they can be watched with tools
+ * such as JConsole. The measurements are kept by the histograms of
+ * HistogramMetrics, and summarized as the attributes of an MXBean named
+ * org.encog:type=TrainingMetrics,name=(the name given).
+ */
+public class JMXMetricsExporter extends HistogramMetrics implements
+		TrainingMetricsMXBean {
+
+	/**
+	 * The number of nanoseconds in a millisecond.
+	 */
+	public static final double NANOS_PER_MILLI = 1.0e6;
+
+	/**
+	 * The name the bean is registered with, or null if not registered.
+	 */
+	private ObjectName objectName;
+
+	/**
+	 * Convert a time to milliseconds.
+	 * 
+	 * @param nanos
+	 *            The time in nanoseconds.
+	 * @return The time in milliseconds.
+	 */
+	private static double toMillis(final double nanos) {
+		return nanos / JMXMetricsExporter.NANOS_PER_MILLI;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getGradientMillis() {
+		return toMillis(getPhaseTime(TrainingPhase.GRADIENT).getMean());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getIdleMillis() {
+		return toMillis(getPhaseTime(TrainingPhase.IDLE).getMean());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getIOBytes() {
+		return getIO().getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getIterationCount() {
+		return getIterationTime().getCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getIterationMillis99() {
+		return toMillis(getIterationTime().getPercentile(99));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getMeanIterationMillis() {
+		return toMillis(getIterationTime().getMean());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getPluginDescription() {
+		return "Publishes training metrics over JMX.";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getPluginName() {
+		return "HRI-JMX-Metrics";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getReductionMillis() {
+		return toMillis(getPhaseTime(TrainingPhase.REDUCTION).getMean());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getWeightUpdateMillis() {
+		return toMillis(getPhaseTime(TrainingPhase.WEIGHT_UPDATE).getMean());
+	}
+
+	/**
+	 * Register the bean with the platform MBean server.
+	 * 
+	 * @param name
+	 *            The name to register under, which identifies the training
+	 *            being measured.
+	 */
+	public final synchronized void register(final String name) {
+		unregister();
+		try {
+			final ObjectName on = new ObjectName(
+					"org.encog:type=TrainingMetrics,name="
+							+ ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+			this.objectName = on;
+		} catch (final JMException ex) {
+			throw new EncogError(ex);
+		}
+	}
+
+	/**
+	 * Unregister the bean, if it is registered.
+	 */
+	public final synchronized void unregister() {
+		if (this.objectName == null) {
+			return;
+		}
+		try {
+			final MBeanServer server = ManagementFactory
+					.getPlatformMBeanServer();
+			if (server.isRegistered(this.objectName)) {
+				server.unregisterMBean(this.objectName);
+			}
+		} catch (final JMException ex) {
+			throw new EncogError(ex);
+		} finally {
+			this.objectName = null;
+		}
+	}
+
+}
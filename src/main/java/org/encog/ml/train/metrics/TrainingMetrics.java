@@ -0,0 +1,86 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+import org.encog.ml.train.MLTrain;
+
+/**
+ * Receives measurements from a trainer. Metrics can be added to a single
+ * trainer, with BasicTraining.addMetrics, or registered for every trainer as
+ * an EncogPluginMetrics1 plugin. Measurements are only taken while at least
+ * one metrics object is present, so training is not slowed otherwise.
+ * 
+ * The methods are called from the thread that performs the iteration,
+ * once per iteration. Each phase is reported before the iteration itself.
+ */
+public interface TrainingMetrics {
+
+	/**
+	 * Record the bytes allocated on the heap during an iteration, by every
+	 * thread. Only called if the JVM can measure allocation.
+	 * 
+	 * @param train
+	 *            The trainer.
+	 * @param bytes
+	 *            The bytes allocated.
+	 * @param nanos
+	 *            The wall time of the iteration, in nanoseconds.
+	 */
+	void recordAllocation(MLTrain train, long bytes, long nanos);
+
+	/**
+	 * Record the bytes read from disk during an iteration. Only called if the
+	 * training data is buffered on disk.
+	 * 
+	 * @param train
+	 *            The trainer.
+	 * @param bytes
+	 *            The bytes read.
+	 */
+	void recordIO(MLTrain train, long bytes);
+
+	/**
+	 * Record a complete iteration.
+	 * 
+	 * @param train
+	 *            The trainer.
+	 * @param nanos
+	 *            The wall time of the iteration, in nanoseconds.
+	 * @param records
+	 *            The number of training records processed.
+	 */
+	void recordIteration(MLTrain train, long nanos, long records);
+
+	/**
+	 * Record the time spent in one phase of an iteration.
+	 * 
+	 * @param train
+	 *            The trainer.
+	 * @param phase
+	 *            The phase.
+	 * @param nanos
+	 *            The time spent, in nanoseconds, summed over every thread.
+	 */
+	void recordPhase(MLTrain train, TrainingPhase phase, long nanos);
+}
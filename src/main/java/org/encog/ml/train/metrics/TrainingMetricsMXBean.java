@@ -0,0 +1,86 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+/**
+ * The attributes and operations that JMXMetricsExporter publishes over JMX.
+ * Times are the mean per iteration, in milliseconds.
+ */
+public interface TrainingMetricsMXBean {
+
+	/**
+	 * Clear every measurement.
+	 */
+	void clear();
+
+	/**
+	 * @return The bytes allocated per second of training.
+	 */
+	double getAllocationRate();
+
+	/**
+	 * @return The mean time calculating gradients, summed over the threads.
+	 */
+	double getGradientMillis();
+
+	/**
+	 * @return The mean time threads waited for the slowest thread.
+	 */
+	double getIdleMillis();
+
+	/**
+	 * @return The total bytes read from disk.
+	 */
+	long getIOBytes();
+
+	/**
+	 * @return The number of iterations recorded.
+	 */
+	long getIterationCount();
+
+	/**
+	 * @return The mean wall time of an iteration.
+	 */
+	double getMeanIterationMillis();
+
+	/**
+	 * @return The 99th percentile wall time of an iteration, approximate.
+	 */
+	double getIterationMillis99();
+
+	/**
+	 * @return The records processed per second of training.
+	 */
+	double getRecordsPerSecond();
+
+	/**
+	 * @return The mean time combining the results of the threads.
+	 */
+	double getReductionMillis();
+
+	/**
+	 * @return The mean time updating the weights.
+	 */
+	double getWeightUpdateMillis();
+}
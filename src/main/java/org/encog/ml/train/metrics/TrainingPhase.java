@@ -0,0 +1,52 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+/**
+ * The phases of an iteration that a trainer may time separately.
+ */
+public enum TrainingPhase {
+	/**
+	 * Calculating the gradients (or errors) of the training records, summed
+	 * over every worker thread.
+	 */
+	GRADIENT,
+
+	/**
+	 * Combining the results of the worker threads, including the time spent
+	 * waiting for the lock.
+	 */
+	REDUCTION,
+
+	/**
+	 * Applying the combined result to the weights.
+	 */
+	WEIGHT_UPDATE,
+
+	/**
+	 * Time the worker threads spent finished and waiting for the slowest
+	 * worker, summed over every worker thread.
+	 */
+	IDLE
+}
@@ -23,7 +23,10 @@
  */
 package org.encog.neural.flat;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -51,6 +54,11 @@ import org.encog.util.EngineArray;
  * Vector based neural networks are also very good for GPU processing. The flat
  * network classes will make use of the GPU if you have enabled GPU processing.
  * See the Encog class for more info.
+ * 
+ * The weights may also be held in a read-only mapped buffer, see
+ * setMappedWeights. The compute path reads a mapped buffer directly, and the
+ * weights are copied into an array the first time they are requested
+ * through getWeights, for example when training begins.
  */
 public class FlatNetwork implements Serializable {
 
@@ -119,9 +127,15 @@ public class FlatNetwork implements Serializable {
 	private int[] weightIndex;
 
 	/**
-	 * The weights for a neural network.
+	 * The weights for a neural network. Null while the weights are mapped.
+	 */
+	private volatile double[] weights;
+
+	/**
+	 * The mapped weights, null unless the weights have been mapped and not
+	 * yet copied into the weights array.
 	 */
-	private double[] weights;
+	private transient volatile DoubleBuffer mappedWeights;
 
 	/**
 	 * The activation types.
@@ -338,6 +352,7 @@ public class FlatNetwork implements Serializable {
 		result.biasActivation = EngineArray.arrayCopy(this.biasActivation);
 		result.outputCount = this.outputCount;
 		result.weightIndex = this.weightIndex;
+		result.mappedWeights = this.mappedWeights;
 		result.weights = this.weights;
 
 		result.activationFunctions = new ActivationFunction[this.activationFunctions.length];
@@ -395,14 +410,30 @@ public class FlatNetwork implements Serializable {
 		final int limitX = outputIndex + outputSize;
 		final int limitY = inputIndex + inputSize;
 
+		// the mapped buffer is read first, it is only cleared after the
+		// weights array has been filled
+		final DoubleBuffer mapped = this.mappedWeights;
+		final double[] w = this.weights;
+
 		// weight values
-		for (int x = outputIndex; x < limitX; x++) {
-			double sum = 0;
-			for (int y = inputIndex; y < limitY; y++) {
-				sum += this.weights[index++] * this.layerOutput[y];
+		if (w != null) {
+			for (int x = outputIndex; x < limitX; x++) {
+				double sum = 0;
+				for (int y = inputIndex; y < limitY; y++) {
+					sum += w[index++] * this.layerOutput[y];
+				}
+				this.layerSums[x] = sum;
+				this.layerOutput[x] = sum;
+			}
+		} else {
+			for (int x = outputIndex; x < limitX; x++) {
+				double sum = 0;
+				for (int y = inputIndex; y < limitY; y++) {
+					sum += mapped.get(index++) * this.layerOutput[y];
+				}
+				this.layerSums[x] = sum;
+				this.layerOutput[x] = sum;
 			}
-			this.layerSums[x] = sum;
-			this.layerOutput[x] = sum;
 		}
 
 		this.activationFunctions[currentLayer - 1].activationFunction(
@@ -423,12 +454,13 @@ public class FlatNetwork implements Serializable {
 	 *            The data to be decoded.
 	 */
 	public void decodeNetwork(final double[] data) {
-		if (data.length != this.weights.length) {
+		if (data.length != getEncodeLength()) {
 			throw new EncogError(
 					"Incompatable weight sizes, can't assign length="
 							+ data.length + " to length=" + data.length);
 		}
 		this.weights = EngineArray.arrayCopy(data);
+		this.mappedWeights = null;
 	}
 
 	/**
@@ -439,7 +471,7 @@ public class FlatNetwork implements Serializable {
 	 * @return The encoded network.
 	 */
 	public double[] encodeNetwork() {
-		return this.weights;
+		return getWeights();
 	}
 
 	/**
@@ -489,7 +521,9 @@ public class FlatNetwork implements Serializable {
 	 * @return The length of the array the network would encode to.
 	 */
 	public int getEncodeLength() {
-		return this.weights.length;
+		final DoubleBuffer mapped = this.mappedWeights;
+		final double[] w = this.weights;
+		return (w != null) ? w.length : mapped.capacity();
 	}
 
 	/**
@@ -575,12 +609,54 @@ public class FlatNetwork implements Serializable {
 	}
 
 	/**
+	 * Obtain the weights. If the weights are mapped, they are copied into an
+	 * array and the mapping is released.
+	 * 
 	 * @return The index of each layer in the weight and threshold array.
 	 */
 	public double[] getWeights() {
+		final double[] w = this.weights;
+		if (w != null) {
+			return w;
+		}
+		return materializeWeights();
+	}
+
+	/**
+	 * Copy mapped weights into the weights array.
+	 * 
+	 * @return The weights array.
+	 */
+	private synchronized double[] materializeWeights() {
+		if (this.weights == null && this.mappedWeights != null) {
+			final double[] w = new double[this.mappedWeights.capacity()];
+			this.mappedWeights.duplicate().get(w);
+			this.weights = w;
+			this.mappedWeights = null;
+		}
 		return this.weights;
 	}
 
+	/**
+	 * Use a read-only buffer, usually mapped from a binary EG file, as the
+	 * weights. The buffer is used by compute without copying it. The weights
+	 * are copied into an array the first time getWeights is called.
+	 * 
+	 * @param mapped
+	 *            The weights.
+	 */
+	public void setMappedWeights(final DoubleBuffer mapped) {
+		this.mappedWeights = mapped;
+		this.weights = null;
+	}
+
+	/**
+	 * @return True, if the weights are currently read from a mapped buffer.
+	 */
+	public boolean isWeightsMapped() {
+		return this.weights == null && this.mappedWeights != null;
+	}
+
 	/**
 	 * Neural networks with only one type of activation function offer certain
 	 * optimization options. This method determines if only a single activation
@@ -683,6 +759,7 @@ public class FlatNetwork implements Serializable {
 		this.endTraining = this.layerCounts.length - 1;
 
 		this.weights = new double[weightCount];
+		this.mappedWeights = null;
 		this.layerOutput = new double[neuronCount];
 		this.layerSums = new double[neuronCount];
 
@@ -714,8 +791,9 @@ public class FlatNetwork implements Serializable {
 	 *            The network low.
 	 */
 	public void randomize(final double hi, final double lo) {
-		for (int i = 0; i < this.weights.length; i++) {
-			this.weights[i] = (Math.random() * (hi - lo)) + lo;
+		final double[] w = getWeights();
+		for (int i = 0; i < w.length; i++) {
+			w[i] = (Math.random() * (hi - lo)) + lo;
 		}
 	}
 
@@ -858,6 +936,21 @@ public class FlatNetwork implements Serializable {
 	 */
 	public void setWeights(final double[] weights) {
 		this.weights = EngineArray.arrayCopy(weights);
+		this.mappedWeights = null;
+	}
+
+	/**
+	 * Mapped weights can not be serialized, so copy them into the weights
+	 * array first.
+	 * 
+	 * @param out
+	 *            The stream.
+	 * @throws IOException
+	 *             If an error occurs.
+	 */
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		getWeights();
+		out.defaultWriteObject();
 	}
 
 	/**
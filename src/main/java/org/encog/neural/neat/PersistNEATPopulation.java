@@ -37,15 +37,16 @@ import org.encog.neural.neat.training.NEATInnovationType;
 import org.encog.neural.neat.training.NEATLinkGene;
 import org.encog.neural.neat.training.NEATNeuronGene;
 import org.encog.neural.neat.training.innovation.Innovation;
+import org.encog.persist.EncogBinaryPersistor;
 import org.encog.persist.EncogFileSection;
-import org.encog.persist.EncogPersistor;
 import org.encog.persist.EncogReadHelper;
 import org.encog.persist.EncogWriteHelper;
 import org.encog.persist.PersistConst;
 import org.encog.persist.PersistError;
 import org.encog.util.csv.CSVFormat;
+import org.encog.util.csv.ParseCSVLine;
 
-public class PersistNEATPopulation implements EncogPersistor {
+public class PersistNEATPopulation implements EncogBinaryPersistor {
 
 	@Override
 	public String getPersistClassString() {
@@ -62,13 +63,15 @@ public class PersistNEATPopulation implements EncogPersistor {
 		Map<Integer, NEATSpecies> speciesMap = new HashMap<Integer, NEATSpecies>();
 		Map<NEATSpecies, Integer> leaderMap = new HashMap<NEATSpecies, Integer>();
 		Map<Integer, NEATGenome> genomeMap = new HashMap<Integer, NEATGenome>();
-		EncogFileSection section;
+		ParseCSVLine csvLine = new ParseCSVLine(CSVFormat.EG_FORMAT);
+		String line;
 
-		while ((section = in.readNextSection()) != null) {
-			if (section.getSectionName().equals("NEAT-POPULATION")
-					&& section.getSubSectionName().equals("INNOVATIONS")) {
-				for (String line : section.getLines()) {
-					List<String> cols = EncogFileSection.splitColumns(line);
+		// the rows are streamed, so a large population is never held as text
+		while (in.nextSection()) {
+			if (in.getSectionName().equals("NEAT-POPULATION")
+					&& in.getSubSectionName().equals("INNOVATIONS")) {
+				while ((line = in.nextRow()) != null) {
+					List<String> cols = csvLine.parse(line);
 					NEATInnovation innovation = new NEATInnovation();
 					innovation.setInnovationID(Integer.parseInt(cols.get(0)));
 					innovation.setInnovationType(PersistNEATPopulation
@@ -81,9 +84,9 @@ public class PersistNEATPopulation implements EncogPersistor {
 					innovation.setToNeuronID(Integer.parseInt(cols.get(7)));
 					result.getInnovations().add(innovation);
 				}
-			} else if (section.getSectionName().equals("NEAT-POPULATION")
-					&& section.getSubSectionName().equals("SPECIES")) {
-				for (String line : section.getLines()) {
+			} else if (in.getSectionName().equals("NEAT-POPULATION")
+					&& in.getSubSectionName().equals("SPECIES")) {
+				while ((line = in.nextRow()) != null) {
 					String[] cols = line.split(",");
 					NEATSpecies species = new NEATSpecies();
 
@@ -99,11 +102,11 @@ public class PersistNEATPopulation implements EncogPersistor {
 					result.getSpecies().add(species);
 					speciesMap.put((int) species.getSpeciesID(), species);
 				}
-			} else if (section.getSectionName().equals("NEAT-POPULATION")
-					&& section.getSubSectionName().equals("GENOMES")) {
+			} else if (in.getSectionName().equals("NEAT-POPULATION")
+					&& in.getSubSectionName().equals("GENOMES")) {
 				NEATGenome lastGenome = null;
-				for (String line : section.getLines()) {
-					List<String> cols = EncogFileSection.splitColumns(line);
+				while ((line = in.nextRow()) != null) {
+					List<String> cols = csvLine.parse(line);
 					if (cols.get(0).equalsIgnoreCase("g") ) {
 						lastGenome = new NEATGenome();
 						lastGenome.setGenomeID(Integer.parseInt(cols.get(1)));
@@ -141,9 +144,9 @@ public class PersistNEATPopulation implements EncogPersistor {
 						lastGenome.getLinksChromosome().add(linkGene);
 					}
 				}
-			} else if (section.getSectionName().equals("NEAT-POPULATION")
-					&& section.getSubSectionName().equals("CONFIG")) {
-				Map<String, String> params = section.parseParams();
+			} else if (in.getSectionName().equals("NEAT-POPULATION")
+					&& in.getSubSectionName().equals("CONFIG")) {
+				Map<String, String> params = in.readSection().parseParams();
 				
 				result.setNeatActivationFunction(EncogFileSection.parseActivationFunction(params,NEATPopulation.PROPERTY_NEAT_ACTIVATION));
 				result.setActivationCycles(EncogFileSection.parseInt(params, PersistConst.ACTIVATION_CYCLES));
@@ -210,7 +213,23 @@ public class PersistNEATPopulation implements EncogPersistor {
 
 	@Override
 	public void save(OutputStream os, Object obj) {
-		EncogWriteHelper out = new EncogWriteHelper(os);
+		save(new EncogWriteHelper(os), obj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void saveBinary(OutputStream os, Object obj) {
+		save(new EncogWriteHelper(os, true), obj);
+	}
+
+	/**
+	 * Save the object with the specified write helper.
+	 * @param out The write helper, in text or binary mode.
+	 * @param obj The object to save.
+	 */
+	private void save(EncogWriteHelper out, Object obj) {
 		NEATPopulation pop = (NEATPopulation) obj;
 		out.addSection("NEAT-POPULATION");
 		out.addSubSection("CONFIG");
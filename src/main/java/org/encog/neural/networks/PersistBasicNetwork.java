@@ -25,13 +25,14 @@ package org.encog.neural.networks;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.DoubleBuffer;
 import java.util.List;
 import java.util.Map;
 
 import org.encog.engine.network.activation.ActivationFunction;
 import org.encog.neural.flat.FlatNetwork;
+import org.encog.persist.EncogBinaryPersistor;
 import org.encog.persist.EncogFileSection;
-import org.encog.persist.EncogPersistor;
 import org.encog.persist.EncogReadHelper;
 import org.encog.persist.EncogWriteHelper;
 import org.encog.persist.PersistConst;
@@ -42,7 +43,7 @@ import org.encog.util.csv.CSVFormat;
  * Persist a basic network.
  *
  */
-public class PersistBasicNetwork implements EncogPersistor {
+public class PersistBasicNetwork implements EncogBinaryPersistor {
 
 	/**
 	 * {@inheritDoc}
@@ -109,8 +110,14 @@ public class PersistBasicNetwork implements EncogPersistor {
 						PersistConst.OUTPUT_COUNT));
 				flat.setWeightIndex(EncogFileSection.parseIntArray(params,
 						BasicNetwork.TAG_WEIGHT_INDEX));
-				flat.setWeights(section.parseDoubleArray(params,
-						PersistConst.WEIGHTS));
+				final DoubleBuffer mapped = section.parseMappedArray(params,
+						PersistConst.WEIGHTS);
+				if (mapped != null) {
+					flat.setMappedWeights(mapped);
+				} else {
+					flat.setWeights(section.parseDoubleArray(params,
+							PersistConst.WEIGHTS));
+				}
 				flat.setBiasActivation(section.parseDoubleArray(
 						params, BasicNetwork.TAG_BIAS_ACTIVATION));
 			} else if (section.getSectionName().equals("BASIC")
@@ -157,7 +164,23 @@ public class PersistBasicNetwork implements EncogPersistor {
 	 */
 	@Override
 	public void save(final OutputStream os, final Object obj) {
-		final EncogWriteHelper out = new EncogWriteHelper(os);
+		save(new EncogWriteHelper(os), obj);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void saveBinary(final OutputStream os, final Object obj) {
+		save(new EncogWriteHelper(os, true), obj);
+	}
+
+	/**
+	 * Save the object with the specified write helper.
+	 * @param out The write helper, in text or binary mode.
+	 * @param obj The object to save.
+	 */
+	private void save(final EncogWriteHelper out, final Object obj) {
 		final BasicNetwork net = (BasicNetwork) obj;
 		final FlatNetwork flat = net.getStructure().getFlat();
 		out.addSection("BASIC");
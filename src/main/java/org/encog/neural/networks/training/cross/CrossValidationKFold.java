@@ -23,11 +23,22 @@
  */
 package org.encog.neural.networks.training.cross;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.encog.ml.data.folded.FoldView;
 import org.encog.ml.data.folded.FoldedDataSet;
 import org.encog.ml.train.MLTrain;
 import org.encog.neural.flat.FlatNetwork;
 import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.training.propagation.Propagation;
 import org.encog.neural.networks.training.propagation.TrainingContinuation;
+import org.encog.util.EngineArray;
+import org.encog.util.concurrency.ConcurrencyAware;
+import org.encog.util.concurrency.EngineConcurrency;
+import org.encog.util.concurrency.EngineTask;
+import org.encog.util.concurrency.MultiThreadable;
+import org.encog.util.concurrency.TaskGroup;
 
 /**
  * Train using K-Fold cross validation. Each iteration will train a number of
@@ -43,8 +54,23 @@ import org.encog.neural.networks.training.propagation.TrainingContinuation;
  * must be the FoldedDataSet. The folded dataset can wrap most other training
  * sets.
  * 
+ * If constructed with a FoldTrainFactory, the folds are trained concurrently.
+ * Each fold then has its own copy of the network, its own trainer, and
+ * read-only views of its training and validation data. Each iteration
+ * performs one iteration of every fold's trainer over all of the data except
+ * its validation fold. The number of folds trained at once, and the thread
+ * count given to each fold's trainer, can both be set so that the two levels
+ * of parallelism do not oversubscribe the machine.
+ * 
+ * The folds share one pool with their trainers' own tasks. One fold is
+ * always trained on the calling thread, and the number trained at once is
+ * capped at the pool size, so at least one pool thread is left for the
+ * trainers' tasks. Propagation trainers are also given a task quota, so that
+ * the thread count given to them limits their share of the pool.
+ * 
  */
-public class CrossValidationKFold extends CrossTraining {
+public class CrossValidationKFold extends CrossTraining implements
+		MultiThreadable, ConcurrencyAware {
 
 	/**
 	 * The underlying trainer to use. This trainer does the actual training.
@@ -61,6 +87,49 @@ public class CrossValidationKFold extends CrossTraining {
 	 */
 	private final FlatNetwork flatNetwork;
 
+	/**
+	 * The factory used to create a trainer for each fold, null if the folds
+	 * are trained one after another with a single trainer.
+	 */
+	private final FoldTrainFactory factory;
+
+	/**
+	 * The number of folds to train at once. Zero for one per processor.
+	 */
+	private int threadCount;
+
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
+	/**
+	 * The thread count to give each fold's trainer. Zero to divide the
+	 * processors between the folds being trained at once.
+	 */
+	private int innerThreadCount;
+
+	/**
+	 * The network for each fold, when training folds concurrently.
+	 */
+	private BasicNetwork[] foldNetworks;
+
+	/**
+	 * The trainer for each fold, when training folds concurrently.
+	 */
+	private MLTrain[] foldTrainers;
+
+	/**
+	 * The training view for each fold, when training folds concurrently.
+	 */
+	private FoldView[] trainingViews;
+
+	/**
+	 * The validation view for each fold, when training folds concurrently.
+	 */
+	private FoldView[] validationViews;
+
 	/**
 	 * Construct a cross validation trainer.
 	 * 
@@ -72,6 +141,7 @@ public class CrossValidationKFold extends CrossTraining {
 	public CrossValidationKFold(final MLTrain train, final int k) {
 		super(train.getMethod(), (FoldedDataSet) train.getTraining());
 		this.train = train;
+		this.factory = null;
 		getFolded().fold(k);
 
 		this.flatNetwork = ((BasicNetwork)train.getMethod()).getStructure().getFlat();
@@ -83,11 +153,44 @@ public class CrossValidationKFold extends CrossTraining {
 
 	}
 
+	/**
+	 * Construct a cross validation trainer that trains the folds
+	 * concurrently.
+	 * 
+	 * @param network
+	 *            The network to train.
+	 * @param training
+	 *            The folded training data.
+	 * @param k
+	 *            The number of folds.
+	 * @param theFactory
+	 *            Creates the trainer for each fold.
+	 */
+	public CrossValidationKFold(final BasicNetwork network,
+			final FoldedDataSet training, final int k,
+			final FoldTrainFactory theFactory) {
+		super(network, training);
+		this.train = null;
+		this.factory = theFactory;
+		getFolded().fold(k);
+
+		this.flatNetwork = network.getStructure().getFlat();
+
+		this.networks = new NetworkFold[getFolded().getNumFolds()];
+		for (int i = 0; i < networks.length; i++) {
+			this.networks[i] = new NetworkFold(flatNetwork);
+		}
+	}
+
 	/**
 	 * Perform one iteration.
 	 */
 	@Override
 	public void iteration() {
+		if (this.factory != null) {
+			iterationConcurrent();
+			return;
+		}
 
 		double error = 0;
 
@@ -115,6 +218,249 @@ public class CrossValidationKFold extends CrossTraining {
 		setError(error / getFolded().getNumFolds());
 	}
 	
+	/**
+	 * @return The number of threads available to train with. This is the
+	 *         size of the pool, if known, otherwise the processor count.
+	 */
+	private int determinePoolSize() {
+		final int pool = getConcurrency().getPoolSize();
+		if (pool > 0) {
+			return pool;
+		}
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * @return The number of folds trained at once. One of them is trained on
+	 *         the calling thread, so the rest always leave a pool thread free
+	 *         for the work of the fold trainers.
+	 */
+	private int determineThreads() {
+		final int folds = getFolded().getNumFolds();
+		final int pool = determinePoolSize();
+		int threads = this.threadCount;
+		if (threads <= 0) {
+			threads = pool;
+		}
+		return Math.max(1, Math.min(Math.min(threads, pool), folds));
+	}
+
+	/**
+	 * Create the network, trainer and validation view for each fold.
+	 * 
+	 * @param threads
+	 *            The number of folds trained at once.
+	 */
+	private void initFolds(final int threads) {
+		final int folds = getFolded().getNumFolds();
+
+		int inner = this.innerThreadCount;
+		if (inner <= 0) {
+			inner = Math.max(1, determinePoolSize() / threads);
+		}
+
+		this.foldNetworks = new BasicNetwork[folds];
+		this.foldTrainers = new MLTrain[folds];
+		this.trainingViews = new FoldView[folds];
+		this.validationViews = new FoldView[folds];
+
+		for (int i = 0; i < folds; i++) {
+			this.foldNetworks[i] = (BasicNetwork) ((BasicNetwork) getMethod())
+					.clone();
+			this.trainingViews[i] = getFolded().createTrainingView(i);
+			this.foldTrainers[i] = this.factory.create(this.foldNetworks[i],
+					this.trainingViews[i]);
+			if (this.foldTrainers[i] instanceof MultiThreadable) {
+				((MultiThreadable) this.foldTrainers[i])
+						.setThreadCount(inner);
+			}
+			if (this.foldTrainers[i] instanceof Propagation) {
+				((Propagation) this.foldTrainers[i])
+						.setConcurrency(createFoldConcurrency(inner));
+			}
+			this.validationViews[i] = getFolded().createValidationView(i);
+		}
+	}
+
+	/**
+	 * Create the concurrency object for one fold's trainer. It shares the
+	 * pool the folds are trained on, but may only have threads - 1 tasks on
+	 * it at once, the last running on the fold's own thread.
+	 * 
+	 * @param threads
+	 *            The thread count of the fold's trainer.
+	 * @return The concurrency object.
+	 */
+	private EngineConcurrency createFoldConcurrency(final int threads) {
+		final EngineConcurrency result;
+		if (getConcurrency().getExecutor() == null) {
+			result = getConcurrency();
+		} else {
+			result = new EngineConcurrency(getConcurrency().getExecutor());
+			result.setTaskQuota(Math.max(1, threads - 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Train one fold and evaluate it with its validation data.
+	 * 
+	 * @param fold
+	 *            The fold to train.
+	 * @param errors
+	 *            Receives the validation error for the fold.
+	 */
+	private void trainFold(final int fold, final double[] errors) {
+		this.foldTrainers[fold].iteration();
+		final FlatNetwork flat = this.foldNetworks[fold].getStructure()
+				.getFlat();
+		errors[fold] = flat.calculateError(this.validationViews[fold]);
+		this.networks[fold].copyFromNetwork(flat);
+	}
+
+	/**
+	 * Perform one iteration, training the folds concurrently.
+	 */
+	private void iterationConcurrent() {
+		final int folds = getFolded().getNumFolds();
+		final int threads = determineThreads();
+
+		if (this.foldTrainers == null) {
+			initFolds(threads);
+		}
+
+		final double[] errors = new double[folds];
+
+		if (threads == 1) {
+			for (int i = 0; i < folds; i++) {
+				trainFold(i, errors);
+			}
+		} else {
+			// one lane per thread, each lane trains its folds in order
+			final List<List<Integer>> lanes = new ArrayList<List<Integer>>();
+			for (int i = 0; i < threads; i++) {
+				lanes.add(new ArrayList<Integer>());
+			}
+			for (int i = 0; i < folds; i++) {
+				lanes.get(i % threads).add(i);
+			}
+
+			// the first lane is trained here, the rest on the pool
+			final TaskGroup group = getConcurrency().createTaskGroup();
+			for (final List<Integer> lane : lanes.subList(1, threads)) {
+				getConcurrency().processTask(new EngineTask() {
+					@Override
+					public void run() {
+						for (final int fold : lane) {
+							trainFold(fold, errors);
+						}
+					}
+				}, group);
+			}
+			try {
+				for (final int fold : lanes.get(0)) {
+					trainFold(fold, errors);
+				}
+			} finally {
+				group.waitForComplete();
+			}
+			getConcurrency().checkError();
+		}
+
+		// as with sequential training, the network holds the last fold
+		this.networks[folds - 1].copyToNetwork(this.flatNetwork);
+
+		setError(EngineArray.mean(errors));
+	}
+
+	/**
+	 * Finish the trainer of each fold and close the views it trained and
+	 * validated on, as each view holds its own handle to the data set. A
+	 * later iteration creates them again.
+	 */
+	@Override
+	public void finishTraining() {
+		super.finishTraining();
+		if (this.foldTrainers == null) {
+			return;
+		}
+		try {
+			for (final MLTrain trainer : this.foldTrainers) {
+				trainer.finishTraining();
+			}
+		} finally {
+			for (int i = 0; i < this.foldTrainers.length; i++) {
+				this.trainingViews[i].close();
+				this.validationViews[i].close();
+			}
+			this.foldNetworks = null;
+			this.foldTrainers = null;
+			this.trainingViews = null;
+			this.validationViews = null;
+		}
+	}
+
+	/**
+	 * @return The number of folds trained at once. Zero for one per
+	 *         processor.
+	 */
+	@Override
+	public int getThreadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * Set the number of folds to train at once. Zero, the default, trains
+	 * one fold per processor. Only used when the folds are trained
+	 * concurrently.
+	 * 
+	 * @param theThreadCount
+	 *            The number of folds to train at once.
+	 */
+	@Override
+	public void setThreadCount(final int theThreadCount) {
+		this.threadCount = theThreadCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
+	/**
+	 * @return The thread count given to each fold's trainer.
+	 */
+	public int getInnerThreadCount() {
+		return this.innerThreadCount;
+	}
+
+	/**
+	 * Set the thread count given to each fold's trainer, if that trainer is
+	 * multithreaded. Zero, the default, divides the processors evenly
+	 * between the folds being trained at once. Must be set before the first
+	 * iteration.
+	 * 
+	 * @param theInnerThreadCount
+	 *            The thread count for each fold's trainer.
+	 */
+	public void setInnerThreadCount(final int theInnerThreadCount) {
+		this.innerThreadCount = theInnerThreadCount;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
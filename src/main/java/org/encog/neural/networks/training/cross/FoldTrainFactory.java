@@ -0,0 +1,47 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.neural.networks.training.cross;
+
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.train.MLTrain;
+import org.encog.neural.networks.BasicNetwork;
+
+/**
+ * Creates the trainer used for one fold when cross validation folds are
+ * trained concurrently. Each fold gets its own network and its own training
+ * data view, so the factory is called once per fold.
+ */
+public interface FoldTrainFactory {
+
+	/**
+	 * Create a trainer for one fold.
+	 * 
+	 * @param network
+	 *            The network for this fold.
+	 * @param training
+	 *            The training data for this fold.
+	 * @return The trainer.
+	 */
+	MLTrain create(BasicNetwork network, MLDataSet training);
+}
@@ -127,6 +127,16 @@ public class GradientWorker implements EngineTask {
 	 * Derivative add constant.  Used to combat flat spot.
 	 */
 	private double[] flatSpot;
+
+	/**
+	 * The time the last run spent calculating gradients, in nanoseconds.
+	 */
+	private long computeNanos;
+
+	/**
+	 * The time the last run spent reporting to the owner, in nanoseconds.
+	 */
+	private long reportNanos;
 	
 	/**
 	 * The error function to use.
@@ -255,19 +265,38 @@ public class GradientWorker implements EngineTask {
 		}
 	}
 
+	/**
+	 * @return The time the last run spent calculating gradients.
+	 */
+	long getComputeNanos() {
+		return this.computeNanos;
+	}
+
+	/**
+	 * @return The time the last run spent reporting its gradients to the
+	 *         owner, including waiting for other workers to report.
+	 */
+	long getReportNanos() {
+		return this.reportNanos;
+	}
+
 	/**
 	 * Perform the gradient calculation for the specified index range.
 	 */
 	public final void run() {
 		try {
+			final long start = System.nanoTime();
 			this.errorCalculation.reset();
 			for (int i = this.low; i <= this.high; i++) {
 				this.training.getRecord(i, this.pair);
 				process(this.pair.getInputArray(), this.pair.getIdealArray(),pair.getSignificance());
 			}
 			final double error = this.errorCalculation.calculate();
+			final long computed = System.nanoTime();
 			this.owner.report(this.gradients, error, null);
 			EngineArray.fill(this.gradients, 0);
+			this.computeNanos = computed - start;
+			this.reportNanos = System.nanoTime() - computed;
 		} catch (final Throwable ex) {
 			this.owner.report(null, 0, ex);
 		}
@@ -31,6 +31,7 @@ import org.encog.ml.MLMethod;
 import org.encog.ml.TrainingImplementationType;
 import org.encog.ml.data.MLDataSet;
 import org.encog.ml.train.BasicTraining;
+import org.encog.ml.train.metrics.TrainingPhase;
 import org.encog.neural.error.ErrorFunction;
 import org.encog.neural.error.LinearErrorFunction;
 import org.encog.neural.flat.FlatNetwork;
@@ -38,6 +39,7 @@ import org.encog.neural.networks.ContainsFlat;
 import org.encog.neural.networks.training.Train;
 import org.encog.util.EncogValidate;
 import org.encog.util.EngineArray;
+import org.encog.util.concurrency.ConcurrencyAware;
 import org.encog.util.concurrency.DetermineWorkload;
 import org.encog.util.concurrency.EngineConcurrency;
 import org.encog.util.concurrency.MultiThreadable;
@@ -53,7 +55,7 @@ import org.encog.util.logging.EncogLogging;
  * 
  */
 public abstract class Propagation extends BasicTraining implements Train,
-		MultiThreadable {
+		MultiThreadable, ConcurrencyAware {
 
 	/**
 	 * The current flat network we are using for training, or null for none.
@@ -125,6 +127,12 @@ public abstract class Propagation extends BasicTraining implements Train,
 	 */
 	private ErrorFunction ef = new LinearErrorFunction();
 
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
 	/**
 	 * Construct a propagation object.
 	 * 
@@ -203,8 +211,13 @@ public abstract class Propagation extends BasicTraining implements Train,
 
 				rollIteration();
 
+				final boolean measure = isMetricsEnabled();
+				final long gradientStart = measure ? System.nanoTime() : 0;
+
 				calculateGradients();
 
+				final long updateStart = measure ? System.nanoTime() : 0;
+
 				if (this.currentFlatNetwork.isLimited()) {
 					learnLimited();
 				} else {
@@ -227,6 +240,11 @@ public abstract class Propagation extends BasicTraining implements Train,
 					throw (new EncogError(this.reportedException));
 				}
 
+				if (measure) {
+					recordPhases(updateStart - gradientStart,
+							System.nanoTime() - updateStart);
+				}
+
 				postIteration();
 
 				EncogLogging.log(EncogLogging.LEVEL_INFO,
@@ -270,6 +288,25 @@ public abstract class Propagation extends BasicTraining implements Train,
 		this.shouldFixFlatSpot = b;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
 	public void setErrorFunction(ErrorFunction ef) {
 		this.ef = ef;
 	}
@@ -290,11 +327,10 @@ public abstract class Propagation extends BasicTraining implements Train,
 
 		if (this.workers.length > 1) {
 
-			final TaskGroup group = EngineConcurrency.getInstance()
-					.createTaskGroup();
+			final TaskGroup group = getConcurrency().createTaskGroup();
 
 			for (final GradientWorker worker : this.workers) {
-				EngineConcurrency.getInstance().processTask(worker, group);
+				getConcurrency().processTask(worker, group);
 			}
 
 			group.waitForComplete();
@@ -306,6 +342,35 @@ public abstract class Propagation extends BasicTraining implements Train,
 
 	}
 
+	/**
+	 * Report the time each phase of the last iteration took to the metrics.
+	 * Gradient and reduction time are summed over the workers. Idle time is
+	 * the time workers spent waiting for the slowest worker to finish.
+	 * 
+	 * @param gradientNanos
+	 *            The wall time spent calculating gradients.
+	 * @param updateNanos
+	 *            The wall time spent updating the weights.
+	 */
+	private void recordPhases(final long gradientNanos, final long updateNanos) {
+		long compute = 0;
+		long reduce = 0;
+		for (final GradientWorker worker : this.workers) {
+			compute += worker.getComputeNanos();
+			reduce += worker.getReportNanos();
+		}
+
+		recordPhase(TrainingPhase.GRADIENT, compute);
+		recordPhase(TrainingPhase.REDUCTION, reduce);
+		recordPhase(TrainingPhase.WEIGHT_UPDATE, updateNanos);
+
+		if (this.workers.length > 1) {
+			final long idle = gradientNanos * this.workers.length - compute
+					- reduce;
+			recordPhase(TrainingPhase.IDLE, Math.max(0, idle));
+		}
+	}
+
 	/**
 	 * Copy the contexts to keep them consistent with multithreaded training.
 	 */
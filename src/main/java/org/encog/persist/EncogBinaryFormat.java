@@ -0,0 +1,297 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.persist;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Constants and low level helpers for the binary EG format. A binary EG file
+ * begins with a header, identified by FILE_MAGIC, that holds the same
+ * information as the first line of a text EG file. The header is padded to
+ * a multiple of ALIGNMENT bytes.
+ * 
+ * The body that follows is written by EncogWriteHelper in binary mode. It
+ * begins with BODY_MAGIC and holds a series of records. Line records hold
+ * one line of the text format, and double records hold a large array as raw
+ * little-endian values, aligned to ALIGNMENT bytes within the file so that
+ * they can be memory mapped.
+ * 
+ * All numbers are little-endian, and strings are UTF-8 prefixed by their
+ * length in bytes.
+ */
+public final class EncogBinaryFormat {
+
+	/**
+	 * Identifies a binary EG file.
+	 */
+	public static final byte[] FILE_MAGIC = { 'E', 'N', 'C', 'O', 'G', 'B',
+			'I', 'N' };
+
+	/**
+	 * Identifies the binary body written by a persistor.
+	 */
+	public static final byte[] BODY_MAGIC = { 'E', 'N', 'C', 'O', 'G', 'S',
+			'E', 'C' };
+
+	/**
+	 * The version of the binary container.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * A record that holds one line of text.
+	 */
+	public static final int RECORD_LINE = 'L';
+
+	/**
+	 * A record that holds an array of doubles.
+	 */
+	public static final int RECORD_DOUBLES = 'D';
+
+	/**
+	 * The alignment of the header and of double arrays.
+	 */
+	public static final int ALIGNMENT = 8;
+
+	/**
+	 * The number of bytes to buffer when copying double arrays.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Private constructor.
+	 */
+	private EncogBinaryFormat() {
+
+	}
+
+	/**
+	 * Determine if a stream begins with the specified magic bytes, without
+	 * consuming them. The stream must support mark.
+	 * @param is The stream.
+	 * @param magic The magic bytes.
+	 * @return True, if the stream begins with the magic bytes.
+	 * @throws IOException If an error occurs.
+	 */
+	public static boolean startsWith(final InputStream is, final byte[] magic)
+			throws IOException {
+		is.mark(magic.length);
+		try {
+			for (final byte b : magic) {
+				if (is.read() != (b & 0xff)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			is.reset();
+		}
+	}
+
+	/**
+	 * Determine the number of padding bytes needed to align a position.
+	 * @param position The position.
+	 * @return The number of padding bytes.
+	 */
+	public static int padding(final long position) {
+		return (int) ((ALIGNMENT - (position % ALIGNMENT)) % ALIGNMENT);
+	}
+
+	/**
+	 * Write an int.
+	 * @param os The stream.
+	 * @param i The value.
+	 * @throws IOException If an error occurs.
+	 */
+	public static void writeInt(final OutputStream os, final int i)
+			throws IOException {
+		os.write(i & 0xff);
+		os.write((i >>> 8) & 0xff);
+		os.write((i >>> 16) & 0xff);
+		os.write((i >>> 24) & 0xff);
+	}
+
+	/**
+	 * Write a long.
+	 * @param os The stream.
+	 * @param l The value.
+	 * @throws IOException If an error occurs.
+	 */
+	public static void writeLong(final OutputStream os, final long l)
+			throws IOException {
+		writeInt(os, (int) l);
+		writeInt(os, (int) (l >>> 32));
+	}
+
+	/**
+	 * Write a string.
+	 * @param os The stream.
+	 * @param str The string.
+	 * @return The number of bytes written.
+	 * @throws IOException If an error occurs.
+	 */
+	public static int writeString(final OutputStream os, final String str)
+			throws IOException {
+		final byte[] b = str.getBytes("UTF-8");
+		writeInt(os, b.length);
+		os.write(b);
+		return 4 + b.length;
+	}
+
+	/**
+	 * Write an array of doubles as raw values.
+	 * @param os The stream.
+	 * @param d The values.
+	 * @throws IOException If an error occurs.
+	 */
+	public static void writeDoubles(final OutputStream os, final double[] d)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(
+				ByteOrder.LITTLE_ENDIAN);
+		final DoubleBuffer doubles = buffer.asDoubleBuffer();
+		int index = 0;
+		while (index < d.length) {
+			final int count = Math.min(doubles.capacity(), d.length - index);
+			doubles.clear();
+			doubles.put(d, index, count);
+			os.write(buffer.array(), 0, count * 8);
+			index += count;
+		}
+	}
+
+	/**
+	 * Write zero bytes.
+	 * @param os The stream.
+	 * @param count The number of bytes.
+	 * @throws IOException If an error occurs.
+	 */
+	public static void writePadding(final OutputStream os, final int count)
+			throws IOException {
+		for (int i = 0; i < count; i++) {
+			os.write(0);
+		}
+	}
+
+	/**
+	 * Read exactly the requested number of bytes.
+	 * @param is The stream.
+	 * @param b The buffer to read into.
+	 * @param len The number of bytes.
+	 * @throws IOException If an error occurs, or the stream ends.
+	 */
+	public static void readFully(final InputStream is, final byte[] b,
+			final int len) throws IOException {
+		int done = 0;
+		while (done < len) {
+			final int count = is.read(b, done, len - done);
+			if (count < 0) {
+				throw new EOFException();
+			}
+			done += count;
+		}
+	}
+
+	/**
+	 * Skip exactly the requested number of bytes.
+	 * @param is The stream.
+	 * @param count The number of bytes.
+	 * @throws IOException If an error occurs, or the stream ends.
+	 */
+	public static void skipFully(final InputStream is, final int count)
+			throws IOException {
+		for (int i = 0; i < count; i++) {
+			if (is.read() < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+
+	/**
+	 * Read an int.
+	 * @param is The stream.
+	 * @return The value.
+	 * @throws IOException If an error occurs.
+	 */
+	public static int readInt(final InputStream is) throws IOException {
+		final byte[] b = new byte[4];
+		readFully(is, b, 4);
+		return (b[0] & 0xff) | ((b[1] & 0xff) << 8) | ((b[2] & 0xff) << 16)
+				| ((b[3] & 0xff) << 24);
+	}
+
+	/**
+	 * Read a long.
+	 * @param is The stream.
+	 * @return The value.
+	 * @throws IOException If an error occurs.
+	 */
+	public static long readLong(final InputStream is) throws IOException {
+		final long low = readInt(is) & 0xffffffffL;
+		final long high = readInt(is) & 0xffffffffL;
+		return low | (high << 32);
+	}
+
+	/**
+	 * Read a string.
+	 * @param is The stream.
+	 * @return The string.
+	 * @throws IOException If an error occurs.
+	 */
+	public static String readString(final InputStream is) throws IOException {
+		final int len = readInt(is);
+		if (len < 0) {
+			throw new PersistError("Invalid string length: " + len);
+		}
+		final byte[] b = new byte[len];
+		readFully(is, b, len);
+		return new String(b, "UTF-8");
+	}
+
+	/**
+	 * Read an array of raw doubles.
+	 * @param is The stream.
+	 * @param d The array to read into, its length is the number of values.
+	 * @throws IOException If an error occurs.
+	 */
+	public static void readDoubles(final InputStream is, final double[] d)
+			throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(
+				ByteOrder.LITTLE_ENDIAN);
+		final DoubleBuffer doubles = buffer.asDoubleBuffer();
+		int index = 0;
+		while (index < d.length) {
+			final int count = Math.min(doubles.capacity(), d.length - index);
+			readFully(is, buffer.array(), count * 8);
+			doubles.clear();
+			doubles.get(d, index, count);
+			index += count;
+		}
+	}
+}
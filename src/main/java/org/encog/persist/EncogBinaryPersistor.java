@@ -0,0 +1,42 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.persist;
+
+import java.io.OutputStream;
+
+/**
+ * A persistor that is able to save in the binary EG format. Binary files are
+ * read with the same read method as text files, the EncogReadHelper detects
+ * the binary body. Persistors that use EncogWriteHelper can usually opt in by
+ * creating the helper in binary mode.
+ */
+public interface EncogBinaryPersistor extends EncogPersistor {
+
+	/**
+	 * Save the object in binary form.
+	 * @param os The output stream to save to.
+	 * @param obj The object to save.
+	 */
+	void saveBinary(OutputStream os, Object obj);
+}
@@ -23,11 +23,11 @@
  */
 package org.encog.persist;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -42,6 +42,10 @@ import org.encog.util.logging.EncogLogging;
  * Handles Encog persistence for a directory. This is the usual mode where each
  * resource is stored in a separate EG file.
  * 
+ * Objects can be saved as text, or in binary for persistors that implement
+ * EncogBinaryPersistor. Loading detects the format from the header. A binary
+ * file may also be loaded with its large arrays mapped rather than read.
+ * 
  */
 public class EncogDirectoryPersistence {
 
@@ -92,22 +96,69 @@ public class EncogDirectoryPersistence {
 		}
 	}
 
+	/**
+	 * Load the specified object, optionally mapping its large arrays. When a
+	 * binary EG file is mapped, large arrays such as the weights of a neural
+	 * network stay in a read-only mapped buffer until they are modified. Text
+	 * files are always read normally.
+	 * @param file The file to load.
+	 * @param mapped True, to map the large arrays of a binary file.
+	 * @return The loaded object.
+	 */
+	public static Object loadObject(final File file, final boolean mapped) {
+		if (!mapped) {
+			return loadObject(file);
+		}
+
+		EncogMappedInputStream is = null;
+
+		try {
+			is = new EncogMappedInputStream(file);
+			return EncogDirectoryPersistence.loadObject(is);
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (final IOException e) {
+					EncogLogging.log(e);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Load an object from an input stream.
 	 * @param is The input stream to read from.
 	 * @return The loaded object.
 	 */
 	public static Object loadObject(final InputStream is) {
+		final InputStream in = is.markSupported() ? is
+				: new BufferedInputStream(is);
+		final String name;
+		final int fileVersion;
 
-		final String header = EncogDirectoryPersistence.readLine(is);
-		final String[] params = header.split(",");
+		try {
+			if (EncogBinaryFormat.startsWith(in, EncogBinaryFormat.FILE_MAGIC)) {
+				final String[] header = readBinaryHeader(in);
+				name = header[1];
+				fileVersion = Integer.parseInt(header[4]);
+			} else {
+				final String header = EncogDirectoryPersistence.readLine(in);
+				final String[] params = header.split(",");
+
+				if (!"encog".equals(params[0])) {
+					throw new PersistError("Not a valid EG file.");
+				}
 
-		if (!"encog".equals(params[0])) {
-			throw new PersistError("Not a valid EG file.");
+				name = params[1];
+				fileVersion = Integer.parseInt(params[4]);
+			}
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
 		}
 
-		final String name = params[1];
-
 		final EncogPersistor p = PersistorRegistry.getInstance().getPersistor(
 				name);
 
@@ -116,13 +167,55 @@ public class EncogDirectoryPersistence {
 					+ name);
 		}
 
-		if (p.getFileVersion() < Integer.parseInt(params[4])) {
+		if (p.getFileVersion() < fileVersion) {
 			throw new PersistError(
 					"The file you are trying to read is from a later version of Encog.  Please upgrade Encog to read this file.");
 		}
 
-		return p.read(is);
+		return p.read(in);
+
+	}
+
+	/**
+	 * Read the header of a binary EG file.
+	 * @param is The input stream, positioned at the magic bytes.
+	 * @return The header fields, in the same order as the header of a text
+	 * EG file.
+	 * @throws IOException If an error occurs.
+	 */
+	private static String[] readBinaryHeader(final InputStream is)
+			throws IOException {
+		EncogBinaryFormat.skipFully(is, EncogBinaryFormat.FILE_MAGIC.length);
+		final int formatVersion = EncogBinaryFormat.readInt(is);
+		if (formatVersion > EncogBinaryFormat.FORMAT_VERSION) {
+			throw new PersistError(
+					"The binary file you are trying to read is from a later version of Encog.  Please upgrade Encog to read this file.");
+		}
+		final int length = EncogBinaryFormat.readInt(is);
+		final byte[] b = new byte[length];
+		EncogBinaryFormat.readFully(is, b, length);
+		EncogBinaryFormat.skipFully(is, EncogBinaryFormat.padding(length));
+		return new String(b, "UTF-8").split(",");
+	}
 
+	/**
+	 * Write the header of a binary EG file. The header is padded so that the
+	 * body begins on an aligned offset.
+	 * @param os The output stream.
+	 * @param fields The header fields, the same as a text EG file header.
+	 * @throws IOException If an error occurs.
+	 */
+	private static void writeBinaryHeader(final OutputStream os,
+			final String fields) throws IOException {
+		final byte[] b = fields.getBytes("UTF-8");
+		final ByteArrayOutputStream header = new ByteArrayOutputStream();
+		header.write(EncogBinaryFormat.FILE_MAGIC);
+		EncogBinaryFormat.writeInt(header, EncogBinaryFormat.FORMAT_VERSION);
+		EncogBinaryFormat.writeInt(header, b.length);
+		header.write(b);
+		EncogBinaryFormat.writePadding(header,
+				EncogBinaryFormat.padding(b.length));
+		os.write(header.toByteArray());
 	}
 
 	/**
@@ -163,11 +256,22 @@ public class EncogDirectoryPersistence {
 	 */
 	public static void saveObject(final File filename, 
 			final Object obj) {
+		saveObject(filename, obj, false);
+	}
+
+	/**
+	 * Save the specified object.
+	 * @param filename The filename to save to.
+	 * @param obj The Object to save.
+	 * @param binary True to save in the binary format.
+	 */
+	public static void saveObject(final File filename, 
+			final Object obj, final boolean binary) {
 		FileOutputStream fos = null;
 
 		try {
 			fos = new FileOutputStream(filename);
-			EncogDirectoryPersistence.saveObject(fos, obj);
+			EncogDirectoryPersistence.saveObject(fos, obj, binary);
 		} catch (final IOException ex) {
 			throw new PersistError(ex);
 		} finally {
@@ -187,6 +291,18 @@ public class EncogDirectoryPersistence {
 	 * @param obj The object to save.
 	 */
 	public static void saveObject(final OutputStream os, final Object obj) {
+		saveObject(os, obj, false);
+	}
+
+	/**
+	 * Save the specified object.
+	 * @param os The output stream to write to.
+	 * @param obj The object to save.
+	 * @param binary True to save in the binary format. The persistor for the
+	 * object must implement EncogBinaryPersistor.
+	 */
+	public static void saveObject(final OutputStream os, final Object obj,
+			final boolean binary) {
 		try {
 			final EncogPersistor p = PersistorRegistry.getInstance()
 					.getPersistor(obj.getClass());
@@ -196,14 +312,26 @@ public class EncogDirectoryPersistence {
 						+ obj.getClass().getSimpleName());
 			}
 
+			if (binary && !(p instanceof EncogBinaryPersistor)) {
+				throw new PersistError("Do not know how to persist object: "
+						+ obj.getClass().getSimpleName() + " in binary.");
+			}
+
 			os.flush();
-			final PrintWriter pw = new PrintWriter(os);
 			final Date now = new Date();
-			pw.println("encog," + obj.getClass().getSimpleName() + ",java,"
-					+ Encog.VERSION + "," + p.getFileVersion() + ","
-					+ now.getTime());
-			pw.flush();
-			p.save(os, obj);
+			final String header = "encog," + obj.getClass().getSimpleName()
+					+ ",java," + Encog.VERSION + "," + p.getFileVersion()
+					+ "," + now.getTime();
+
+			if (binary) {
+				writeBinaryHeader(os, header);
+				((EncogBinaryPersistor) p).saveBinary(os, obj);
+			} else {
+				final PrintWriter pw = new PrintWriter(os);
+				pw.println(header);
+				pw.flush();
+				p.save(os, obj);
+			}
 		} catch (final IOException ex) {
 			throw new PersistError(ex);
 		}
@@ -229,21 +357,24 @@ public class EncogDirectoryPersistence {
 	 * @return The type.
 	 */
 	public String getEncogType(final String name) {
-		BufferedReader br = null;
+		final File path = new File(this.parent, name);
+		InputStream is = null;
 		
 		try {
-			final File path = new File(this.parent, name);
-			br = new BufferedReader(new FileReader(path));
-			final String header = br.readLine();
+			is = new BufferedInputStream(new FileInputStream(path));
+			if (EncogBinaryFormat.startsWith(is, EncogBinaryFormat.FILE_MAGIC)) {
+				return readBinaryHeader(is)[1];
+			}
+			final String header = EncogDirectoryPersistence.readLine(is);
 			final String[] params = header.split(",");
 
 			return params[1];
 		} catch (final IOException ex) {
 			throw new PersistError(ex);
 		} finally {
-			if( br!=null ) {
+			if( is!=null ) {
 				try {
-					br.close();
+					is.close();
 				} catch (IOException e) {
 					EncogLogging.log(e);
 				}				
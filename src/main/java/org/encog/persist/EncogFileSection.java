@@ -23,6 +23,7 @@
  */
 package org.encog.persist;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -43,6 +44,12 @@ import org.encog.util.csv.ParseCSVLine;
 public class EncogFileSection {
 
 	private List<double[]> largeArrays = new ArrayList<double[]>();
+
+	/**
+	 * The large arrays that were mapped rather than read, null for those
+	 * that were read.
+	 */
+	private List<DoubleBuffer> mappedArrays = new ArrayList<DoubleBuffer>();
 	
 	/**
 	 * Parse an activation function from a value.
@@ -156,7 +163,14 @@ public class EncogFileSection {
 			
 			if( value.startsWith("##") ) {
 				int i = Integer.parseInt(value.substring(2));
-				return this.largeArrays.get(i);
+				final double[] result = this.largeArrays.get(i);
+				if (result == null) {
+					final DoubleBuffer mapped = this.mappedArrays.get(i);
+					final double[] copy = new double[mapped.capacity()];
+					mapped.duplicate().get(copy);
+					return copy;
+				}
+				return result;
 			} else {
 				return NumberList.fromList(CSVFormat.EG_FORMAT, value);
 			}
@@ -167,6 +181,30 @@ public class EncogFileSection {
 		}
 	}
 
+	/**
+	 * Obtain a double array that was mapped from a binary EG file.
+	 * @param params The name-value pairs.
+	 * @param name The name of the array.
+	 * @return The mapped array, or null if the array was not mapped.
+	 */
+	public DoubleBuffer parseMappedArray(final Map<String, String> params,
+			final String name) {
+		final String value = params.get(name);
+		if (value == null || !value.startsWith("##")) {
+			return null;
+		}
+		try {
+			final int i = Integer.parseInt(value.substring(2));
+			if (i >= this.mappedArrays.size()) {
+				return null;
+			}
+			return this.mappedArrays.get(i);
+		} catch (final NumberFormatException ex) {
+			throw new PersistError("Field: " + name + ", "
+					+ "invalid integer: " + value);
+		}
+	}
+
 	/**
 	 * Parse an int from a name-value collection of params.
 	 * @param params The name-value pairs.
@@ -365,4 +403,18 @@ public class EncogFileSection {
 	public void setLargeArrays(List<double[]> largeArrays) {
 		this.largeArrays = largeArrays;
 	}
+
+	/**
+	 * @return the mappedArrays
+	 */
+	public List<DoubleBuffer> getMappedArrays() {
+		return mappedArrays;
+	}
+
+	/**
+	 * @param mappedArrays the mappedArrays to set
+	 */
+	public void setMappedArrays(List<DoubleBuffer> mappedArrays) {
+		this.mappedArrays = mappedArrays;
+	}
 }
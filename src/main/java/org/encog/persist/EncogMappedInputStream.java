@@ -0,0 +1,138 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.persist;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An input stream over a file that can also map regions of the file. This is
+ * used to load a binary EG file so that large double arrays, such as the
+ * weights of a neural network, stay in a read-only mapped buffer rather than
+ * being copied onto the heap. Arrays shorter than the minimum mapped length
+ * are read normally.
+ * 
+ * A mapped region remains valid after the stream is closed.
+ */
+public class EncogMappedInputStream extends BufferedInputStream {
+
+	/**
+	 * The default minimum number of doubles in an array that is mapped.
+	 */
+	public static final int DEFAULT_MINIMUM_MAPPED_LENGTH = 1024;
+
+	/**
+	 * The channel of the file being read.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The minimum number of doubles in an array that is mapped.
+	 */
+	private int minimumMappedLength = DEFAULT_MINIMUM_MAPPED_LENGTH;
+
+	/**
+	 * Construct the stream.
+	 * @param theFile The file to read.
+	 * @throws IOException Thrown if the file can not be opened.
+	 */
+	public EncogMappedInputStream(final File theFile) throws IOException {
+		this(new FileInputStream(theFile));
+	}
+
+	/**
+	 * Construct the stream.
+	 * @param fis The file input stream to read.
+	 */
+	private EncogMappedInputStream(final FileInputStream fis) {
+		super(fis);
+		this.channel = fis.getChannel();
+	}
+
+	/**
+	 * @return The position of the next byte to be read, from the start of the
+	 * file.
+	 * @throws IOException Thrown if the position can not be read.
+	 */
+	public final synchronized long position() throws IOException {
+		return this.channel.position() - (this.count - this.pos);
+	}
+
+	/**
+	 * Move forward to the specified position.
+	 * @param thePosition The position, from the start of the file.
+	 * @throws IOException Thrown if the position can not be set.
+	 */
+	public final synchronized void seek(final long thePosition)
+			throws IOException {
+		final long current = position();
+		if (thePosition < current) {
+			throw new IOException("Can't seek backwards.");
+		}
+		final long buffered = this.count - this.pos;
+		if (thePosition - current <= buffered) {
+			this.pos += (int) (thePosition - current);
+		} else {
+			this.channel.position(thePosition);
+			this.pos = 0;
+			this.count = 0;
+			this.markpos = -1;
+		}
+	}
+
+	/**
+	 * Map a region of the file as read-only little endian doubles.
+	 * @param offset The position of the region, from the start of the file.
+	 * @param length The number of doubles.
+	 * @return The mapped doubles.
+	 * @throws IOException Thrown if the region can not be mapped.
+	 */
+	public final DoubleBuffer map(final long offset, final int length)
+			throws IOException {
+		return this.channel
+				.map(FileChannel.MapMode.READ_ONLY, offset, length * 8L)
+				.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+	}
+
+	/**
+	 * @return The minimum number of doubles in an array that is mapped.
+	 */
+	public final int getMinimumMappedLength() {
+		return this.minimumMappedLength;
+	}
+
+	/**
+	 * Set the minimum number of doubles in an array that is mapped.
+	 * @param theMinimumMappedLength The minimum length.
+	 */
+	public final void setMinimumMappedLength(
+			final int theMinimumMappedLength) {
+		this.minimumMappedLength = theMinimumMappedLength;
+	}
+}
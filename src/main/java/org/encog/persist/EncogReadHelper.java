@@ -23,10 +23,12 @@
  */
 package org.encog.persist;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,40 +40,157 @@ import org.encog.util.csv.NumberList;
  * Used to read an Encog EG/EGA file. EG files are used to hold Encog objects.
  * EGA files are used to hold Encog Analyst scripts.
  * 
+ * Both the text and the binary format are read. The format is detected from
+ * the start of the stream, and the sections returned are the same either
+ * way.
+ * 
+ * Sections can be read whole with readNextSection, or streamed a row at a
+ * time with nextSection and nextRow, which holds only the current row in
+ * memory.
+ * 
+ * When a binary file is read through an EncogMappedInputStream, large double
+ * arrays are mapped rather than read, see EncogFileSection.parseMappedArray.
+ * 
  */
 public class EncogReadHelper {
 
 	/**
-	 * The file being read.
+	 * The file being read, in text mode.
 	 */
 	private final BufferedReader reader;
 
 	/**
-	 * The lines read from the file.
+	 * The file being read, in binary mode.
 	 */
-	private final List<String> lines = new ArrayList<String>();
+	private final InputStream binaryIn;
 
 	/**
-	 * The current section name.
+	 * The number of bytes read in binary mode.
 	 */
-	private String currentSectionName = "";
+	private long position;
 
 	/**
-	 * The current subsection name.
+	 * The last double array read in binary mode.
 	 */
-	private String currentSubSectionName = "";
+	private double[] binaryArray;
+
+	/**
+	 * The last double array mapped in binary mode.
+	 */
+	private DoubleBuffer binaryMapped;
+
+	/**
+	 * A section header that has been read, but not yet started.
+	 */
+	private String pendingHeader;
+
+	/**
+	 * The large arrays of the current section.
+	 */
+	private List<double[]> largeArrays = new ArrayList<double[]>();
+
+	/**
+	 * The mapped arrays of the current section, null for those that were
+	 * read.
+	 */
+	private List<DoubleBuffer> mappedArrays = new ArrayList<DoubleBuffer>();
 
 	/**
 	 * The current section name.
 	 */
-	private EncogFileSection section;
+	private String currentSectionName = "";
+
+	/**
+	 * The current subsection name.
+	 */
+	private String currentSubSectionName = "";
 
 	/**
 	 * Construct the object.
 	 * @param is The input stream.
 	 */
 	public EncogReadHelper(final InputStream is) {
-		this.reader = new BufferedReader(new InputStreamReader(is));
+		final InputStream in = is.markSupported() ? is
+				: new BufferedInputStream(is);
+		boolean binary;
+		try {
+			binary = EncogBinaryFormat.startsWith(in,
+					EncogBinaryFormat.BODY_MAGIC);
+			if (binary) {
+				EncogBinaryFormat.skipFully(in,
+						EncogBinaryFormat.BODY_MAGIC.length);
+				this.position = EncogBinaryFormat.BODY_MAGIC.length;
+			}
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
+		}
+
+		if (binary) {
+			this.binaryIn = in;
+			this.reader = null;
+		} else {
+			this.binaryIn = null;
+			this.reader = new BufferedReader(new InputStreamReader(in));
+		}
+	}
+
+	/**
+	 * @return True, if the binary format is being read.
+	 */
+	public final boolean isBinary() {
+		return this.binaryIn != null;
+	}
+
+	/**
+	 * Read the next line. In binary mode a double record is returned as the
+	 * line that begins a large array in the text format.
+	 * @return The line read, or null at the end of the file.
+	 * @throws IOException Thrown if an error occurs.
+	 */
+	private String nextLine() throws IOException {
+		if (this.binaryIn == null) {
+			return this.reader.readLine();
+		}
+
+		final int record = this.binaryIn.read();
+		if (record == -1) {
+			return null;
+		}
+		this.position++;
+
+		if (record == EncogBinaryFormat.RECORD_LINE) {
+			final int len = EncogBinaryFormat.readInt(this.binaryIn);
+			if (len < 0) {
+				throw new PersistError("Invalid line length: " + len);
+			}
+			final byte[] b = new byte[len];
+			EncogBinaryFormat.readFully(this.binaryIn, b, len);
+			this.position += 4 + len;
+			return new String(b, "UTF-8");
+		} else if (record == EncogBinaryFormat.RECORD_DOUBLES) {
+			final int count = EncogBinaryFormat.readInt(this.binaryIn);
+			this.position += 4;
+			final int pad = EncogBinaryFormat.padding(this.position);
+			EncogBinaryFormat.skipFully(this.binaryIn, pad);
+			if (this.binaryIn instanceof EncogMappedInputStream
+					&& count >= ((EncogMappedInputStream) this.binaryIn)
+							.getMinimumMappedLength()) {
+				final EncogMappedInputStream mapped = 
+					(EncogMappedInputStream) this.binaryIn;
+				final long start = mapped.position();
+				this.binaryMapped = mapped.map(start, count);
+				this.binaryArray = null;
+				mapped.seek(start + (count * 8L));
+			} else {
+				this.binaryArray = new double[count];
+				this.binaryMapped = null;
+				EncogBinaryFormat.readDoubles(this.binaryIn, this.binaryArray);
+			}
+			this.position += pad + (count * 8L);
+			return "##double#" + count;
+		} else {
+			throw new PersistError("Invalid binary record: " + record);
+		}
 	}
 
 	/**
@@ -79,101 +198,165 @@ public class EncogReadHelper {
 	 */
 	public final void close() {
 		try {
-			this.reader.close();
+			if (this.binaryIn != null) {
+				this.binaryIn.close();
+			} else {
+				this.reader.close();
+			}
 		} catch (final IOException e) {
 			throw new PersistError(e);
 		}
 	}
 
 	/**
-	 * Read the next section.
+	 * Advance to the next section. Any rows of the current section that have
+	 * not been read are skipped. The name of the new section is available
+	 * from getSectionName and getSubSectionName, and its rows from nextRow.
 	 * 
-	 * @return The next section.
+	 * @return True, if a section was found, false at the end of the file.
 	 */
-	public final EncogFileSection readNextSection() {
-
+	public final boolean nextSection() {
 		try {
-			String line;
-			List<double[]> largeArrays = new ArrayList<double[]>();
+			while (this.pendingHeader == null) {
+				if (readRow() == null && this.pendingHeader == null) {
+					return false;
+				}
+			}
 
-			while ((line = this.reader.readLine()) != null) {
-				line = line.trim();
+			final String line = this.pendingHeader;
+			this.pendingHeader = null;
+			this.largeArrays = new ArrayList<double[]>();
+			this.mappedArrays = new ArrayList<DoubleBuffer>();
 
-				// is it a comment
-				if (line.startsWith("//")) {
-					continue; 
+			String s = line.substring(1).trim();
+			if (!s.endsWith("]")) {
+				throw new PersistError("Invalid section: " + line);
+			}
+			s = s.substring(0, line.length() - 2);
+			final int idx = s.indexOf(':');
+			if (idx == -1) {
+				this.currentSectionName = s;
+				this.currentSubSectionName = "";
+			} else {
+				if (this.currentSectionName.length() < 1) {
+					throw new PersistError(
+							"Can't begin subsection when a section has not yet been defined: "
+									+ line);
 				}
 
-				// is it a section or subsection
-				else if (line.startsWith("[")) {
-					// handle previous section
-					this.section = new EncogFileSection(
-							this.currentSectionName, this.currentSubSectionName);
-					this.section.getLines().addAll(this.lines);
-
-					// now begin the new section
-					this.lines.clear();
-					String s = line.substring(1).trim();
-					if (!s.endsWith("]")) {
-						throw new PersistError("Invalid section: " + line);
-					}
-					s = s.substring(0, line.length() - 2);
-					final int idx = s.indexOf(':');
-					if (idx == -1) {
-						this.currentSectionName = s;
-						this.currentSubSectionName = "";
-					} else {
-						if (this.currentSectionName.length() < 1) {
-							throw new PersistError(
-									"Can't begin subsection when a section has not yet been defined: "
-											+ line);
-						}
-
-						final String newSection = s.substring(0, idx);
-						final String newSubSection = s.substring(idx + 1);
-
-						if (!newSection.equals(this.currentSectionName)) {
-							throw new PersistError("Can't begin subsection "
-									+ line
-									+ ", while we are still in the section: "
-									+ this.currentSectionName);
-						}
-
-						this.currentSubSectionName = newSubSection;
-					}
-					this.section.setLargeArrays(largeArrays);
-					return this.section;
-				} else if (line.length() < 1) {
-					continue;
-				} else if( line.startsWith("##double")) {
-					double[] d = readLargeArray(line);
-					largeArrays.add(d);
-				} else {
-					if (this.currentSectionName.length() < 1) {
-						throw new PersistError(
-								"Unknown command before first section: " + line);
-					}
-
-					this.lines.add(line);
+				final String newSection = s.substring(0, idx);
+				final String newSubSection = s.substring(idx + 1);
+
+				if (!newSection.equals(this.currentSectionName)) {
+					throw new PersistError("Can't begin subsection "
+							+ line
+							+ ", while we are still in the section: "
+							+ this.currentSectionName);
 				}
 
+				this.currentSubSectionName = newSubSection;
 			}
+			return true;
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
+		}
+	}
 
-			if (this.currentSectionName.length() == 0) {
+	/**
+	 * Read the next row of the current section. Comments and blank lines are
+	 * skipped, and large arrays are kept for readSection. Only one row is
+	 * held in memory, so a persistor can load a section of any size.
+	 * 
+	 * @return The row, trimmed, or null at the end of the section.
+	 */
+	public final String nextRow() {
+		try {
+			return readRow();
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
+		}
+	}
+
+	/**
+	 * Read the next row of the current section.
+	 * 
+	 * @return The row, or null at the end of the section.
+	 * @throws IOException Thrown if an error occurs.
+	 */
+	private String readRow() throws IOException {
+		if (this.pendingHeader != null) {
+			return null;
+		}
+
+		String line;
+		while ((line = nextLine()) != null) {
+			line = line.trim();
+
+			// is it a comment
+			if (line.startsWith("//")) {
+				continue;
+			} else if (line.startsWith("[")) {
+				this.pendingHeader = line;
 				return null;
+			} else if (line.length() < 1) {
+				continue;
+			} else if (line.startsWith("##double")) {
+				this.largeArrays.add(readLargeArray(line));
+				this.mappedArrays.add(this.binaryMapped);
+				this.binaryMapped = null;
+			} else {
+				if (this.currentSectionName.length() < 1) {
+					throw new PersistError(
+							"Unknown command before first section: " + line);
+				}
+				return line;
 			}
+		}
 
-			this.section = new EncogFileSection(this.currentSectionName,
-					this.currentSubSectionName);
-			this.section.getLines().addAll(this.lines);
-			this.currentSectionName = ""; 
-			this.currentSubSectionName = "";
-			this.section.setLargeArrays(largeArrays);
-			return this.section;
-		} catch (final IOException ex) {
-			throw new PersistError(ex);
+		return null;
+	}
+
+	/**
+	 * Read the remaining rows of the current section.
+	 * 
+	 * @return The section.
+	 */
+	public final EncogFileSection readSection() {
+		final EncogFileSection result = new EncogFileSection(
+				this.currentSectionName, this.currentSubSectionName);
+		String line;
+		while ((line = nextRow()) != null) {
+			result.getLines().add(line);
 		}
+		result.setLargeArrays(this.largeArrays);
+		result.setMappedArrays(this.mappedArrays);
+		return result;
+	}
+
+	/**
+	 * @return The name of the current section.
+	 */
+	public final String getSectionName() {
+		return this.currentSectionName;
+	}
 
+	/**
+	 * @return The name of the current subsection.
+	 */
+	public final String getSubSectionName() {
+		return this.currentSubSectionName;
+	}
+
+	/**
+	 * Read the next section.
+	 * 
+	 * @return The next section, or null at the end of the file.
+	 */
+	public final EncogFileSection readNextSection() {
+		if (!nextSection()) {
+			return null;
+		}
+		return readSection();
 	}
 
 	/**
@@ -183,6 +366,12 @@ public class EncogReadHelper {
 	 * @throws IOException Thrown if an error occurs.
 	 */
 	private double[] readLargeArray(String line) throws IOException {
+		if (this.binaryIn != null) {
+			final double[] result = this.binaryArray;
+			this.binaryArray = null;
+			return result;
+		}
+		
 		String str = line.substring(9);
 		int l = Integer.parseInt(str);
 		double[] result = new double[l];
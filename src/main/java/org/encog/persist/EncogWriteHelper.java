@@ -23,6 +23,8 @@
  */
 package org.encog.persist;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.List;
@@ -38,6 +40,10 @@ import org.encog.util.csv.NumberList;
  * Used to write an Encog EG/EGA file. EG files are used to hold Encog objects.
  * EGA files are used to hold Encog Analyst scripts.
  * 
+ * In binary mode the same lines are written as length prefixed records, and
+ * double arrays are written as raw little-endian blocks rather than text. See
+ * EncogBinaryFormat for the layout.
+ * 
  */
 public class EncogWriteHelper {
 	
@@ -57,9 +63,24 @@ public class EncogWriteHelper {
 	public static final char COMMA = ',';
 
 	/**
-	 * The file to write to.
+	 * The file to write to, in text mode.
 	 */
 	private final PrintWriter out;
+
+	/**
+	 * The stream to write to, in binary mode.
+	 */
+	private final OutputStream binaryOut;
+
+	/**
+	 * The number of bytes written in binary mode.
+	 */
+	private long position;
+
+	/**
+	 * The text of the line being written in binary mode.
+	 */
+	private final StringBuilder pending = new StringBuilder();
 	
 	/**
 	 * The current line.
@@ -76,7 +97,101 @@ public class EncogWriteHelper {
 	 * @param stream The stream to write to.
 	 */
 	public EncogWriteHelper(final OutputStream stream) {
-		this.out = new PrintWriter(stream);
+		this(stream, false);
+	}
+
+	/**
+	 * Construct the object.
+	 * @param stream The stream to write to.
+	 * @param binary True to write the binary format.
+	 */
+	public EncogWriteHelper(final OutputStream stream, final boolean binary) {
+		if (binary) {
+			this.out = null;
+			this.binaryOut = new BufferedOutputStream(stream);
+			try {
+				this.binaryOut.write(EncogBinaryFormat.BODY_MAGIC);
+				this.position = EncogBinaryFormat.BODY_MAGIC.length;
+			} catch (final IOException ex) {
+				throw new PersistError(ex);
+			}
+		} else {
+			this.out = new PrintWriter(stream);
+			this.binaryOut = null;
+		}
+	}
+
+	/**
+	 * @return True, if this helper writes the binary format.
+	 */
+	public final boolean isBinary() {
+		return this.binaryOut != null;
+	}
+
+	/**
+	 * Print text, in either mode. In binary mode a line record is written at
+	 * each new line.
+	 * @param str The text.
+	 */
+	private void print(final String str) {
+		if (this.binaryOut == null) {
+			this.out.print(str);
+			return;
+		}
+
+		for (int i = 0; i < str.length(); i++) {
+			final char ch = str.charAt(i);
+			if (ch == '\n') {
+				writeBinaryLine();
+			} else if (ch != '\r') {
+				this.pending.append(ch);
+			}
+		}
+	}
+
+	/**
+	 * Print text followed by a new line, in either mode.
+	 * @param str The text.
+	 */
+	private void println(final String str) {
+		if (this.binaryOut == null) {
+			this.out.println(str);
+		} else {
+			print(str);
+			writeBinaryLine();
+		}
+	}
+
+	/**
+	 * Write the pending text as a line record.
+	 */
+	private void writeBinaryLine() {
+		try {
+			this.binaryOut.write(EncogBinaryFormat.RECORD_LINE);
+			this.position += 1 + EncogBinaryFormat.writeString(
+					this.binaryOut, this.pending.toString());
+			this.pending.setLength(0);
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
+		}
+	}
+
+	/**
+	 * Write an array as a double record.
+	 * @param d The array.
+	 */
+	private void writeBinaryDoubles(final double[] d) {
+		try {
+			this.binaryOut.write(EncogBinaryFormat.RECORD_DOUBLES);
+			EncogBinaryFormat.writeInt(this.binaryOut, d.length);
+			this.position += 5;
+			final int pad = EncogBinaryFormat.padding(this.position);
+			EncogBinaryFormat.writePadding(this.binaryOut, pad);
+			EncogBinaryFormat.writeDoubles(this.binaryOut, d);
+			this.position += pad + (d.length * 8L);
+		} catch (final IOException ex) {
+			throw new PersistError(ex);
+		}
 	}
 
 	/**
@@ -157,7 +272,7 @@ public class EncogWriteHelper {
 		if (this.line.length() > 0) {
 			writeLine();
 		}
-		this.out.println(l);
+		println(l);
 	}
 
 	/**
@@ -177,7 +292,7 @@ public class EncogWriteHelper {
 	 */
 	public final void addSection(final String str) {
 		this.currentSection = str;
-		this.out.println("[" + str + "]");
+		println("[" + str + "]");
 	}
 
 	/**
@@ -185,7 +300,7 @@ public class EncogWriteHelper {
 	 * @param str The subsection.
 	 */
 	public final void addSubSection(final String str) {
-		this.out.println("[" + this.currentSection + ":" + str + "]");
+		println("[" + this.currentSection + ":" + str + "]");
 		this.largeArrayNumber = 0;
 	}
 
@@ -193,7 +308,18 @@ public class EncogWriteHelper {
 	 * Flush the file.
 	 */
 	public final  void flush() {
-		this.out.flush();
+		if (this.binaryOut == null) {
+			this.out.flush();
+		} else {
+			try {
+				if (this.pending.length() > 0) {
+					writeBinaryLine();
+				}
+				this.binaryOut.flush();
+			} catch (final IOException ex) {
+				throw new PersistError(ex);
+			}
+		}
 	}
 
 	/**
@@ -208,14 +334,14 @@ public class EncogWriteHelper {
 	 * @param str The string to write.
 	 */
 	public final void write(final String str) {
-		this.out.print(str);
+		print(str);
 	}
 
 	/**
 	 * Write the line.
 	 */
 	public final void writeLine() {
-		this.out.println(this.line.toString());
+		println(this.line.toString());
 		this.line.setLength(0);
 	}
 	
@@ -247,7 +373,7 @@ public class EncogWriteHelper {
 	 * @param value The boolean value.
 	 */
 	public final void writeProperty(final String name, final boolean value) {
-		this.out.println(name + "=" + (value ? 't' : 'f'));
+		println(name + "=" + (value ? 't' : 'f'));
 	}
 
 	/**
@@ -267,7 +393,7 @@ public class EncogWriteHelper {
 		} else {
 			fmt = "decpnt";
 		}
-		this.out.println(name + "=" + fmt);
+		println(name + "=" + fmt);
 	}
 
 	/**
@@ -276,7 +402,7 @@ public class EncogWriteHelper {
 	 * @param value The value.
 	 */
 	public final void writeProperty(final String name, final double value) {
-		this.out.println(name + "="
+		println(name + "="
 				+ CSVFormat.EG_FORMAT.format(value, Encog.DEFAULT_PRECISION));
 	}
 
@@ -287,25 +413,28 @@ public class EncogWriteHelper {
 	 */
 	public final void writeProperty(final String name, final double[] d) {
 		
-		if( d.length<2048 ) {
-			this.out.print(name);
-			this.out.print("=");
+		if (this.binaryOut != null) {
+			println(name + "=##" + largeArrayNumber++);
+			writeBinaryDoubles(d);
+		} else if( d.length<2048 ) {
+			print(name);
+			print("=");
 			boolean first = true;
 			for (int i = 0; i < d.length; i++) {
 				if (!first) {
-					this.out.print(",");
+					print(",");
 				}
-				this.out.print(CSVFormat.EG_FORMAT.format(d[i],
+				print(CSVFormat.EG_FORMAT.format(d[i],
 						Encog.DEFAULT_PRECISION));
 				first = false;
 			}
-			this.out.println();
+			println("");
 		} else {
-			this.out.print(name);
-			this.out.print("=##");
-			this.out.println(largeArrayNumber++);
-			this.out.print("##double#");
-			this.out.println(d.length);
+			print(name);
+			print("=##");
+			println(String.valueOf(largeArrayNumber++));
+			print("##double#");
+			println(String.valueOf(d.length));
 			
 			int index = 0;
 			
@@ -313,18 +442,18 @@ public class EncogWriteHelper {
 				boolean first = true;
 				for (int i = 0; (i < 2048) && (index<d.length); i++) {
 					if (!first) {
-						this.out.print(",");
+						print(",");
 					} else {
-						this.out.print("   ");
+						print("   ");
 					}
-					this.out.print(CSVFormat.EG_FORMAT.format(d[index],
+					print(CSVFormat.EG_FORMAT.format(d[index],
 							Encog.DEFAULT_PRECISION));
 					index++;
 					first = false;
 				}
-				this.out.println();
+				println("");
 			}
-			this.out.println("##end");
+			println("##end");
 		}
 	}
 
@@ -334,7 +463,7 @@ public class EncogWriteHelper {
 	 * @param value The int value.
 	 */
 	public final void writeProperty(final String name, final int value) {
-		this.out.println(name + "=" + value);
+		println(name + "=" + value);
 	}
 
 	/**
@@ -377,7 +506,7 @@ public class EncogWriteHelper {
 	 * @param value The value.
 	 */
 	public final void writeProperty(final String name, final String value) {
-		this.out.println(name + "=" + value);
+		println(name + "=" + value);
 
 	}
 
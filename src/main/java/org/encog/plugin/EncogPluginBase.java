@@ -30,6 +30,7 @@ public interface EncogPluginBase {
 	
 	public int TYPE_LOGGING = 1;
 	public int TYPE_SERVICE = 0;
+	public int TYPE_METRICS = 2;
 	
 	/**
 	 * @return The type number for this plugin.
@@ -0,0 +1,45 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.util.concurrency;
+
+/**
+ * Defines a class that runs its tasks on an EngineConcurrency. Unless told
+ * otherwise, it uses the one shared by all of Encog. Giving it its own, for
+ * example one built on an executor the application owns, keeps its tasks
+ * from competing with other work for the shared pool.
+ */
+public interface ConcurrencyAware {
+	/**
+	 * @return The concurrency object tasks are run on. This is the shared
+	 *         one, EngineConcurrency.getInstance(), unless another was set.
+	 */
+	EngineConcurrency getConcurrency();
+
+	/**
+	 * Set the concurrency object to run tasks on.
+	 * @param theConcurrency The concurrency object, or null to use the one
+	 * shared by all of Encog.
+	 */
+	void setConcurrency(EngineConcurrency theConcurrency);
+}
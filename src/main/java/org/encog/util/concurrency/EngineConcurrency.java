@@ -25,6 +25,9 @@ package org.encog.util.concurrency;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.encog.EncogError;
@@ -34,6 +37,13 @@ import org.encog.EncogError;
  * concurrency. It is used by other classes inside of Encog to allow tasks to be
  * executed efficiently on multicore machines.
  * 
+ * The singleton is shared by everything that does not ask for something
+ * else. Training that should not compete with other work in the same JVM can
+ * be given its own instance, either with a pool of its own, or with an
+ * executor supplied by the caller, such as a fork-join pool or an executor
+ * that starts a thread per task. A task quota limits how much of a shared
+ * executor one instance may occupy.
+ * 
  * @author jheaton
  * 
  */
@@ -74,43 +84,94 @@ public class EngineConcurrency implements MultiThreadable {
 	private ExecutorService executor;
 
 	/**
-	 * Construct a concurrency object.
+	 * True if the executor was created here, and so may be shut down here.
+	 */
+	private final boolean ownsExecutor;
+
+	/**
+	 * The most tasks that may be queued on the executor at once, or zero for
+	 * no limit.
+	 */
+	private int taskQuota;
+
+	/**
+	 * Permits for the tasks allowed by the quota, or null for no limit.
+	 */
+	private Semaphore quota;
+
+	/**
+	 * @return The number of threads to use when none is given, one per
+	 *         processor, plus one if there is more than one processor.
+	 */
+	private static int defaultThreadCount() {
+		Runtime runtime = Runtime.getRuntime();
+		int threads = runtime.availableProcessors();
+		if (threads > 1)
+			threads++;
+		return threads;
+	}
+
+	/**
+	 * Construct a concurrency object, with a pool of its own.
 	 */
 	public EngineConcurrency() {
-		Runtime runtime = Runtime.getRuntime();        
-        int threads = runtime.availableProcessors();
-        if( threads>1 )
-        	threads++;
+		int threads = defaultThreadCount();
 		this.executor = Executors.newFixedThreadPool(threads);
+		this.threadCount = threads;
+		this.ownsExecutor = true;
+	}
+
+	/**
+	 * Construct a concurrency object that runs its tasks on the specified
+	 * executor. The executor belongs to the caller, it is never shut down
+	 * here.
+	 * 
+	 * @param theExecutor
+	 *            The executor to use.
+	 */
+	public EngineConcurrency(final ExecutorService theExecutor) {
+		this.executor = theExecutor;
+		this.ownsExecutor = false;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Set the number of threads, replacing the pool. If the executor was
+	 * supplied by the caller it is not replaced, and the thread count becomes
+	 * the task quota instead. Zero means one thread per processor either way,
+	 * so with a supplied executor it sets a quota of that many tasks. To lift
+	 * the quota altogether use setTaskQuota(0).
+	 * 
+	 * @param t
+	 *            The number of threads, zero for one per processor.
 	 */
 	@Override
 	public void setThreadCount(int t) {
+		final int threads = t == 0 ? defaultThreadCount() : t;
+
+		if (!this.ownsExecutor) {
+			setTaskQuota(threads);
+			this.threadCount = threads;
+			return;
+		}
+
 		this.executor.shutdown();
-		int threads = t;
-		
-		if( threads==0 )
-		{
-			Runtime runtime = Runtime.getRuntime();
-			threads = runtime.availableProcessors();
-	        if( threads>1 )
-	        	threads++;	
-		}		
-        
 		this.executor = Executors.newFixedThreadPool(threads);
 		this.threadCount = threads;
 	}
 
 	/**
 	 * Check to see if one of the threads has thrown an error. If so, then throw
-	 * that error.
+	 * that error. The error is cleared once thrown, so it is reported only
+	 * once.
 	 */
 	public void checkError() {
-		if (this.threadError != null) {
-			throw new EncogError(this.threadError);
+		final Throwable t;
+		synchronized (this) {
+			t = this.threadError;
+			this.threadError = null;
+		}
+		if (t != null) {
+			throw new EncogError(t);
 		}
 	}
 	
@@ -154,12 +215,78 @@ public class EngineConcurrency implements MultiThreadable {
 				throw new EncogError(t);
 			}
 
-			final PoolItem item = new PoolItem(task, group);
+			final PoolItem item = new PoolItem(this, task, group);
 			if (group != null) {
 				group.taskStarting();
 			}
-			this.executor.execute(item);
+
+			final Semaphore permits = this.quota;
+			if (permits == null) {
+				this.executor.execute(item);
+			} else if (permits.tryAcquire()) {
+				try {
+					this.executor.execute(new Runnable() {
+						public void run() {
+							try {
+								item.run();
+							} finally {
+								permits.release();
+							}
+						}
+					});
+				} catch (final RejectedExecutionException ex) {
+					permits.release();
+					throw ex;
+				}
+			} else {
+				// over quota, so run it here. This also keeps tasks that
+				// start tasks of their own from waiting on themselves.
+				item.run();
+			}
+		}
+	}
+
+	/**
+	 * @return The executor tasks are run on, or null if shut down.
+	 */
+	public ExecutorService getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * @return The number of threads the executor runs tasks on, or zero if
+	 *         that is not known.
+	 */
+	public int getPoolSize() {
+		if (this.ownsExecutor) {
+			return this.executor == null ? 0 : this.threadCount;
+		}
+		if (this.executor instanceof ThreadPoolExecutor) {
+			return ((ThreadPoolExecutor) this.executor).getMaximumPoolSize();
 		}
+		return 0;
+	}
+
+	/**
+	 * @return The most tasks that may be queued on the executor at once, or
+	 *         zero for no limit.
+	 */
+	public int getTaskQuota() {
+		return this.taskQuota;
+	}
+
+	/**
+	 * Limit the number of tasks this object may have on the executor at once.
+	 * Tasks over the quota run on the thread that submits them. This lets
+	 * several trainers share one executor without one of them filling its
+	 * queue.
+	 * 
+	 * @param theQuota
+	 *            The most tasks at once, or zero for no limit.
+	 */
+	public void setTaskQuota(final int theQuota) {
+		this.taskQuota = theQuota;
+		this.quota = theQuota > 0 ? new Semaphore(theQuota) : null;
 	}
 
 	/**
@@ -177,13 +304,17 @@ public class EngineConcurrency implements MultiThreadable {
 	}
 
 	/**
-	 * Wait for all threads in the pool to complete.
+	 * Wait for all threads in the pool to complete. An executor supplied by
+	 * the caller is not shut down, this object simply stops using it, and
+	 * runs any further tasks on the calling thread.
 	 * 
 	 * @param timeout
 	 *            How long to wait for all threads to complete.
 	 */
 	public void shutdown(final long timeout) {
-		if (this.executor != null) {
+		if (!this.ownsExecutor) {
+			this.executor = null;
+		} else if (this.executor != null) {
 			try {
 				this.executor.shutdown();
 				this.executor.awaitTermination(timeout, TimeUnit.SECONDS);
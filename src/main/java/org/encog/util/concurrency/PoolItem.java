@@ -39,7 +39,13 @@ public class PoolItem implements Runnable {
 	private final TaskGroup group;
 
 	/**
-	 * Create a pool item.
+	 * The concurrency object to report errors to.
+	 */
+	private final EngineConcurrency owner;
+
+	/**
+	 * Create a pool item, that reports errors to the shared concurrency
+	 * object.
 	 * 
 	 * @param task
 	 *            The task to execute.
@@ -47,6 +53,22 @@ public class PoolItem implements Runnable {
 	 *            The group this task belongs to.
 	 */
 	public PoolItem(final EngineTask task, final TaskGroup group) {
+		this(EngineConcurrency.getInstance(), task, group);
+	}
+
+	/**
+	 * Create a pool item.
+	 * 
+	 * @param theOwner
+	 *            The concurrency object to report errors to.
+	 * @param task
+	 *            The task to execute.
+	 * @param group
+	 *            The group this task belongs to.
+	 */
+	public PoolItem(final EngineConcurrency theOwner, final EngineTask task,
+			final TaskGroup group) {
+		this.owner = theOwner;
 		this.task = task;
 		this.group = group;
 	}
@@ -58,7 +80,7 @@ public class PoolItem implements Runnable {
 		try {
 			this.task.run();
 		} catch (final Throwable t) {
-			EngineConcurrency.getInstance().registerError(t);
+			this.owner.registerError(t);
 		} finally {
 			if (this.group != null) {
 				this.group.taskStopping();
@@ -24,6 +24,7 @@
 package org.encog.util.concurrency.job;
 
 import org.encog.StatusReportable;
+import org.encog.util.concurrency.ConcurrencyAware;
 import org.encog.util.concurrency.EngineConcurrency;
 import org.encog.util.concurrency.MultiThreadable;
 import org.encog.util.concurrency.TaskGroup;
@@ -31,7 +32,8 @@ import org.encog.util.concurrency.TaskGroup;
 /**
  * This class forms the basis for a job that can be run concurrently.
  */
-public abstract class ConcurrentJob implements Runnable, MultiThreadable {
+public abstract class ConcurrentJob implements Runnable, MultiThreadable,
+		ConcurrencyAware {
 	
 	/**
 	 * The thread count.
@@ -63,6 +65,12 @@ public abstract class ConcurrentJob implements Runnable, MultiThreadable {
 	 */
 	private boolean running;
 
+	/**
+	 * The concurrency object to run tasks on, or null to use the one
+	 * shared by all of Encog.
+	 */
+	private EngineConcurrency concurrency;
+
 	/**
 	 * Construct a concurrent job.
 	 * 
@@ -94,12 +102,12 @@ public abstract class ConcurrentJob implements Runnable, MultiThreadable {
 	 */
 	public void process() {
 		Object task;
-		EngineConcurrency.getInstance().setThreadCount(this.threadCount);
+		getConcurrency().setThreadCount(this.threadCount);
 
 		this.running = true;
 		this.totalTasks = loadWorkload();
 		int currentTask = 0;
-		TaskGroup group = EngineConcurrency.getInstance().createTaskGroup();
+		TaskGroup group = getConcurrency().createTaskGroup();
 
 		while (((task = requestNextTask()) != null) && !shouldStop) {
 			currentTask++;
@@ -109,14 +117,33 @@ public abstract class ConcurrentJob implements Runnable, MultiThreadable {
 			context.setTaskNumber(currentTask);
 
 			final JobUnitWorker worker = new JobUnitWorker(context);
-			EngineConcurrency.getInstance().processTask(worker, group);
+			getConcurrency().processTask(worker, group);
 		}
 
 		group.waitForComplete();
 		this.running = false;
-		EngineConcurrency.getInstance().checkError();		
+		getConcurrency().checkError();		
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public EngineConcurrency getConcurrency() {
+		if (this.concurrency == null) {
+			return EngineConcurrency.getInstance();
+		}
+		return this.concurrency;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setConcurrency(final EngineConcurrency theConcurrency) {
+		this.concurrency = theConcurrency;
+	}
+
 	public void processBackground() {
 		Thread t = new Thread(this);
 		t.start();
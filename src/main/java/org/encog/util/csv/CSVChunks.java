@@ -0,0 +1,219 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.util.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Splits a CSV file into chunks that begin at line boundaries, so that the
+ * chunks can be read in parallel. Each chunk is read through its own stream,
+ * using positional reads on one shared channel.
+ * 
+ * Splitting works on bytes, so the platform charset must encode line breaks
+ * as single ASCII bytes, see {@link #isSupported()}. Quoted values that
+ * contain line breaks are not supported.
+ */
+public final class CSVChunks {
+
+	/**
+	 * The size of the buffer used to search for line starts.
+	 */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * @return True if the platform charset encodes line breaks as single
+	 *         ASCII bytes, so that files can be split.
+	 */
+	public static boolean isSupported() {
+		return Arrays.equals("\r\n".getBytes(), new byte[] { '\r', '\n' });
+	}
+
+	/**
+	 * Split the file into chunks that begin at line boundaries.
+	 * 
+	 * @param in
+	 *            The file.
+	 * @param chunks
+	 *            The number of chunks wanted.
+	 * @return The start of each chunk, followed by the length of the file.
+	 *         There may be fewer chunks than requested.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public static long[] split(final FileChannel in, final int chunks)
+			throws IOException {
+		final long length = in.size();
+		final long[] result = new long[chunks + 1];
+		int count = 0;
+		result[count++] = 0;
+
+		for (int i = 1; i < chunks; i++) {
+			final long start = findLineStart(in, (length * i) / chunks);
+			if (start > result[count - 1] && start < length) {
+				result[count++] = start;
+			}
+		}
+
+		result[count++] = length;
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Find the start of the first line that begins at or after a position.
+	 * 
+	 * @param in
+	 *            The file.
+	 * @param position
+	 *            The position.
+	 * @return The start of the line, or the length of the file.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public static long findLineStart(final FileChannel in, final long position)
+			throws IOException {
+		if (position == 0) {
+			return 0;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		final long length = in.size();
+		long pos = position - 1;
+		boolean afterCR = false;
+
+		while (pos < length) {
+			buffer.clear();
+			final int n = in.read(buffer, pos);
+			if (n <= 0) {
+				break;
+			}
+			for (int i = 0; i < n; i++) {
+				final byte b = buffer.get(i);
+				if (afterCR) {
+					return (b == '\n') ? pos + i + 1 : pos + i;
+				} else if (b == '\n') {
+					return pos + i + 1;
+				} else if (b == '\r') {
+					afterCR = true;
+				}
+			}
+			pos += n;
+		}
+
+		return length;
+	}
+
+	/**
+	 * Open a stream over one chunk of a file.
+	 * 
+	 * @param in
+	 *            The file.
+	 * @param start
+	 *            The start of the chunk.
+	 * @param end
+	 *            The end of the chunk.
+	 * @return The stream.
+	 */
+	public static InputStream open(final FileChannel in, final long start,
+			final long end) {
+		return new ChunkInputStream(in, start, end);
+	}
+
+	/**
+	 * Private constructor.
+	 */
+	private CSVChunks() {
+
+	}
+
+	/**
+	 * Reads a range of a file, using positional reads so that several
+	 * streams can share one channel.
+	 */
+	private static class ChunkInputStream extends InputStream {
+
+		/**
+		 * The file.
+		 */
+		private final FileChannel channel;
+
+		/**
+		 * The next position to read.
+		 */
+		private long position;
+
+		/**
+		 * The end of the range.
+		 */
+		private final long end;
+
+		/**
+		 * Construct the stream.
+		 * 
+		 * @param theChannel
+		 *            The file.
+		 * @param theStart
+		 *            The start of the range.
+		 * @param theEnd
+		 *            The end of the range.
+		 */
+		public ChunkInputStream(final FileChannel theChannel,
+				final long theStart, final long theEnd) {
+			this.channel = theChannel;
+			this.position = theStart;
+			this.end = theEnd;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return (read(b, 0, 1) <= 0) ? -1 : (b[0] & 0xff);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read(final byte[] b, final int off, final int len)
+				throws IOException {
+			if (this.position >= this.end) {
+				return -1;
+			}
+			final int n = (int) Math.min(len, this.end - this.position);
+			final int r = this.channel.read(ByteBuffer.wrap(b, off, n),
+					this.position);
+			if (r <= 0) {
+				return -1;
+			}
+			this.position += r;
+			return r;
+		}
+	}
+}
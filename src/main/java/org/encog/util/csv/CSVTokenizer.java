@@ -0,0 +1,687 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.util.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.List;
+
+import org.encog.EncogError;
+
+/**
+ * Splits the lines of a CSV file into fields without creating a String for
+ * each field. The fields of the current line are held as offsets into a
+ * reusable character buffer, and numbers are parsed directly from that
+ * buffer.
+ * 
+ * The quoting rules are the same as ParseCSVLine. Numbers are parsed with the
+ * same result as CSVFormat.parse. Plain decimal numbers, using the decimal
+ * character, minus sign and exponent of the format's number formatter, are
+ * parsed directly. Anything else, such as grouping characters, is passed on
+ * to CSVFormat.parse.
+ * 
+ * As with BufferedReader.readLine, a line ends at a line feed, a carriage
+ * return, or a carriage return followed by a line feed. Quoted fields can not
+ * span lines.
+ */
+public class CSVTokenizer {
+
+	/**
+	 * The size of the read buffer.
+	 */
+	public static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The largest number of significant digits that is parsed directly.
+	 */
+	public static final int MAX_DIRECT_DIGITS = 15;
+
+	/**
+	 * Exact powers of ten.
+	 */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * The source of the CSV.
+	 */
+	private final Reader reader;
+
+	/**
+	 * The format.
+	 */
+	private final CSVFormat format;
+
+	/**
+	 * Used for space separated files.
+	 */
+	private final ParseCSVLine parseLine;
+
+	/**
+	 * True, if numbers can be parsed directly.
+	 */
+	private final boolean direct;
+
+	/**
+	 * The decimal character used by the number formatter.
+	 */
+	private final char decimal;
+
+	/**
+	 * The minus sign used by the number formatter.
+	 */
+	private final char minus;
+
+	/**
+	 * The exponent separator used by the number formatter.
+	 */
+	private final String exponent;
+
+	/**
+	 * The read buffer.
+	 */
+	private final char[] in = new char[BUFFER_SIZE];
+
+	/**
+	 * The position in the read buffer.
+	 */
+	private int inPos;
+
+	/**
+	 * The number of characters in the read buffer.
+	 */
+	private int inLength;
+
+	/**
+	 * True, if a line feed that follows a carriage return should be skipped.
+	 */
+	private boolean skipLF;
+
+	/**
+	 * The current line.
+	 */
+	private char[] line = new char[256];
+
+	/**
+	 * The length of the current line.
+	 */
+	private int lineLength;
+
+	/**
+	 * The characters of the fields of the current line.
+	 */
+	private char[] fields = new char[256];
+
+	/**
+	 * The start of each field of the current line.
+	 */
+	private int[] starts = new int[16];
+
+	/**
+	 * The end of each field of the current line.
+	 */
+	private int[] ends = new int[16];
+
+	/**
+	 * The number of fields on the current line.
+	 */
+	private int fieldCount;
+
+	/**
+	 * The characters of the fields of the previous line.
+	 */
+	private char[] previousFields = new char[256];
+
+	/**
+	 * The start of each field of the previous line.
+	 */
+	private int[] previousStarts = new int[16];
+
+	/**
+	 * The end of each field of the previous line.
+	 */
+	private int[] previousEnds = new int[16];
+
+	/**
+	 * The number of fields on the previous line.
+	 */
+	private int previousFieldCount;
+
+	/**
+	 * Construct the tokenizer.
+	 * @param theReader The source of the CSV.
+	 * @param theFormat The format.
+	 */
+	public CSVTokenizer(final Reader theReader, final CSVFormat theFormat) {
+		this.reader = theReader;
+		this.format = theFormat;
+		this.parseLine = new ParseCSVLine(theFormat);
+
+		final NumberFormat nf = theFormat.getNumberFormatter();
+		if (nf instanceof DecimalFormat) {
+			final DecimalFormat df = (DecimalFormat) nf;
+			final DecimalFormatSymbols symbols = df.getDecimalFormatSymbols();
+			this.decimal = symbols.getDecimalSeparator();
+			this.minus = symbols.getMinusSign();
+			this.exponent = symbols.getExponentSeparator();
+			this.direct = symbols.getZeroDigit() == '0'
+					&& df.getMultiplier() == 1 && !df.isParseIntegerOnly()
+					&& !df.isParseBigDecimal()
+					&& "".equals(df.getPositivePrefix())
+					&& "".equals(df.getPositiveSuffix())
+					&& String.valueOf(this.minus)
+							.equals(df.getNegativePrefix())
+					&& "".equals(df.getNegativeSuffix());
+		} else {
+			this.decimal = '.';
+			this.minus = '-';
+			this.exponent = "E";
+			this.direct = false;
+		}
+	}
+
+	/**
+	 * Read the next line that is not blank.
+	 * @return True, if a line was read, false at the end of the file.
+	 */
+	public final boolean next() {
+		while (nextLine()) {
+			if (!isBlank()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Read the next line, even if it is blank.
+	 * @return True, if a line was read, false at the end of the file.
+	 */
+	public final boolean nextLine() {
+		try {
+			if (!readLine()) {
+				this.fieldCount = 0;
+				return false;
+			}
+		} catch (final IOException e) {
+			throw new EncogError(e);
+		}
+
+		swap();
+
+		if (this.format.getSeparator() == ' ') {
+			splitSpaces();
+		} else {
+			split();
+		}
+		return true;
+	}
+
+	/**
+	 * @return True, if the current line is blank.
+	 */
+	private boolean isBlank() {
+		for (int i = 0; i < this.lineLength; i++) {
+			if (this.line[i] > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read a line into the line buffer.
+	 * @return True, if a line was read.
+	 * @throws IOException Thrown if the line can not be read.
+	 */
+	private boolean readLine() throws IOException {
+		this.lineLength = 0;
+		boolean any = false;
+
+		for (;;) {
+			if (this.inPos >= this.inLength) {
+				this.inPos = 0;
+				this.inLength = this.reader.read(this.in, 0, this.in.length);
+				if (this.inLength <= 0) {
+					this.inLength = 0;
+					return any;
+				}
+			}
+
+			if (this.skipLF) {
+				this.skipLF = false;
+				if (this.in[this.inPos] == '\n') {
+					this.inPos++;
+					continue;
+				}
+			}
+
+			any = true;
+			final int start = this.inPos;
+			while (this.inPos < this.inLength) {
+				final char ch = this.in[this.inPos];
+				if (ch == '\n' || ch == '\r') {
+					break;
+				}
+				this.inPos++;
+			}
+
+			append(start, this.inPos - start);
+
+			if (this.inPos < this.inLength) {
+				if (this.in[this.inPos++] == '\r') {
+					this.skipLF = true;
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Append characters from the read buffer to the line.
+	 * @param start The first character.
+	 * @param length The number of characters.
+	 */
+	private void append(final int start, final int length) {
+		final int needed = this.lineLength + length;
+		if (needed > this.line.length) {
+			final char[] t = new char[Math.max(needed, this.line.length * 2)];
+			System.arraycopy(this.line, 0, t, 0, this.lineLength);
+			this.line = t;
+		}
+		System.arraycopy(this.in, start, this.line, this.lineLength, length);
+		this.lineLength = needed;
+	}
+
+	/**
+	 * Keep the fields of the current line as the previous line, and reuse
+	 * the buffers of the previous line.
+	 */
+	private void swap() {
+		final char[] f = this.previousFields;
+		this.previousFields = this.fields;
+		this.fields = f;
+		final int[] s = this.previousStarts;
+		this.previousStarts = this.starts;
+		this.starts = s;
+		final int[] e = this.previousEnds;
+		this.previousEnds = this.ends;
+		this.ends = e;
+		this.previousFieldCount = this.fieldCount;
+		this.fieldCount = 0;
+
+		if (this.fields.length < this.lineLength) {
+			this.fields = new char[Math.max(this.lineLength,
+					this.fields.length * 2)];
+		}
+	}
+
+	/**
+	 * Split the current line using the same rules as ParseCSVLine.
+	 */
+	private void split() {
+		final char sep = this.format.getSeparator();
+		final char[] l = this.line;
+		final char[] f = this.fields;
+		final int len = this.lineLength;
+		int out = 0;
+		int itemStart = 0;
+		boolean quoted = false;
+		boolean hadQuotes = false;
+
+		for (int i = 0; i < len; i++) {
+			final char ch = l[i];
+			if ((ch == sep) && !quoted) {
+				addField(itemStart, out, hadQuotes);
+				itemStart = out;
+				quoted = false;
+				hadQuotes = false;
+			} else if ((ch == '\"') && quoted) {
+				if ((i + 1) < len && l[i + 1] == '\"') {
+					i++;
+					f[out++] = '\"';
+				} else {
+					quoted = false;
+				}
+			} else if ((ch == '\"') && (out == itemStart)) {
+				hadQuotes = true;
+				quoted = true;
+			} else {
+				f[out++] = ch;
+			}
+		}
+
+		if (out > itemStart) {
+			addField(itemStart, out, hadQuotes);
+		}
+	}
+
+	/**
+	 * Split a space separated line, using ParseCSVLine.
+	 */
+	private void splitSpaces() {
+		final List<String> tok = this.parseLine.parse(new String(this.line, 0,
+				this.lineLength));
+		int out = 0;
+		for (final String str : tok) {
+			final int len = str.length();
+			if (out + len > this.fields.length) {
+				final char[] t = new char[Math.max(out + len,
+						this.fields.length * 2)];
+				System.arraycopy(this.fields, 0, t, 0, out);
+				this.fields = t;
+			}
+			str.getChars(0, len, this.fields, out);
+			addField(out, out + len, true);
+			out += len;
+		}
+	}
+
+	/**
+	 * Add a field.
+	 * @param start The start of the field.
+	 * @param end The end of the field.
+	 * @param hadQuotes True, if the field was quoted, and should not be
+	 * trimmed.
+	 */
+	private void addField(final int start, final int end,
+			final boolean hadQuotes) {
+		int s = start;
+		int e = end;
+		if (!hadQuotes) {
+			while (s < e && this.fields[s] <= ' ') {
+				s++;
+			}
+			while (e > s && this.fields[e - 1] <= ' ') {
+				e--;
+			}
+		}
+
+		if (this.fieldCount == this.starts.length) {
+			final int[] ts = new int[this.starts.length * 2];
+			final int[] te = new int[this.starts.length * 2];
+			System.arraycopy(this.starts, 0, ts, 0, this.fieldCount);
+			System.arraycopy(this.ends, 0, te, 0, this.fieldCount);
+			this.starts = ts;
+			this.ends = te;
+		}
+		this.starts[this.fieldCount] = s;
+		this.ends[this.fieldCount] = e;
+		this.fieldCount++;
+	}
+
+	/**
+	 * Check a field index.
+	 * @param index The field index.
+	 */
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= this.fieldCount) {
+			throw new EncogError("Can't access column " + index
+					+ " in a line that has only " + this.fieldCount
+					+ " columns.");
+		}
+	}
+
+	/**
+	 * @return The number of fields on the current line.
+	 */
+	public final int getFieldCount() {
+		return this.fieldCount;
+	}
+
+	/**
+	 * @return The buffer that holds the fields of the current line. The
+	 * buffer is reused for later lines.
+	 */
+	public final char[] getBuffer() {
+		return this.fields;
+	}
+
+	/**
+	 * Get the offset of a field in the buffer.
+	 * @param index The field index.
+	 * @return The offset of the first character of the field.
+	 */
+	public final int getStart(final int index) {
+		checkIndex(index);
+		return this.starts[index];
+	}
+
+	/**
+	 * Get the length of a field.
+	 * @param index The field index.
+	 * @return The number of characters in the field.
+	 */
+	public final int getLength(final int index) {
+		checkIndex(index);
+		return this.ends[index] - this.starts[index];
+	}
+
+	/**
+	 * Get a field as a string.
+	 * @param index The field index.
+	 * @return The field.
+	 */
+	public final String getString(final int index) {
+		checkIndex(index);
+		return new String(this.fields, this.starts[index], this.ends[index]
+				- this.starts[index]);
+	}
+
+	/**
+	 * Get a field of the previous line as a string.
+	 * @param index The field index.
+	 * @return The field, or null if the previous line did not have the field.
+	 */
+	final String getPreviousString(final int index) {
+		if (index >= this.previousFieldCount) {
+			return null;
+		}
+		return new String(this.previousFields, this.previousStarts[index],
+				this.previousEnds[index] - this.previousStarts[index]);
+	}
+
+	/**
+	 * Determine if a field is missing. A field is missing if it is empty or
+	 * a question mark, ignoring whitespace.
+	 * @param index The field index.
+	 * @return True, if the field is missing.
+	 */
+	public final boolean isMissing(final int index) {
+		checkIndex(index);
+		int s = this.starts[index];
+		int e = this.ends[index];
+		while (s < e && this.fields[s] <= ' ') {
+			s++;
+		}
+		while (e > s && this.fields[e - 1] <= ' ') {
+			e--;
+		}
+		return s == e || (e - s == 1 && this.fields[s] == '?');
+	}
+
+	/**
+	 * Get a field as a double. The result is the same as CSVFormat.parse.
+	 * @param index The field index.
+	 * @return The value.
+	 */
+	public final double getDouble(final int index) {
+		checkIndex(index);
+		final int s = this.starts[index];
+		final int e = this.ends[index];
+		final char[] f = this.fields;
+
+		if (e - s == 1 && f[s] == '?') {
+			return Double.NaN;
+		}
+		if (e - s == 3 && (f[s] == 'n' || f[s] == 'N')
+				&& (f[s + 1] == 'a' || f[s + 1] == 'A')
+				&& (f[s + 2] == 'n' || f[s + 2] == 'N')) {
+			return Double.NaN;
+		}
+
+		if (this.direct) {
+			final double result = parseDirect(f, s, e);
+			if (!Double.isNaN(result)) {
+				return result;
+			}
+		}
+
+		return this.format.parse(getString(index));
+	}
+
+	/**
+	 * Parse a plain decimal number.
+	 * @param f The characters.
+	 * @param start The first character.
+	 * @param end One past the last character.
+	 * @return The number, or NaN if the number can not be parsed directly.
+	 */
+	private double parseDirect(final char[] f, final int start, final int end) {
+		int s = start;
+		int e = end;
+		while (s < e && f[s] <= ' ') {
+			s++;
+		}
+		while (e > s && f[e - 1] <= ' ') {
+			e--;
+		}
+
+		int i = s;
+		boolean negative = false;
+		if (i < e && f[i] == this.minus) {
+			negative = true;
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exp = 0;
+		boolean any = false;
+
+		while (i < e && f[i] >= '0' && f[i] <= '9') {
+			mantissa = (mantissa * 10) + (f[i++] - '0');
+			if (mantissa != 0 && ++digits > MAX_DIRECT_DIGITS) {
+				return Double.NaN;
+			}
+			any = true;
+		}
+
+		if (i < e && f[i] == this.decimal) {
+			i++;
+			while (i < e && f[i] >= '0' && f[i] <= '9') {
+				mantissa = (mantissa * 10) + (f[i++] - '0');
+				if (mantissa != 0 && ++digits > MAX_DIRECT_DIGITS) {
+					return Double.NaN;
+				}
+				exp--;
+				any = true;
+			}
+		}
+
+		if (!any) {
+			return Double.NaN;
+		}
+
+		if (i < e && matchesExponent(f, i, e)) {
+			i += this.exponent.length();
+			boolean negativeExp = false;
+			if (f[i] == this.minus) {
+				negativeExp = true;
+				i++;
+			}
+			if (i == e || e - i > 3) {
+				return Double.NaN;
+			}
+			int x = 0;
+			while (i < e && f[i] >= '0' && f[i] <= '9') {
+				x = (x * 10) + (f[i++] - '0');
+			}
+			exp += negativeExp ? -x : x;
+		}
+
+		if (i != e) {
+			return Double.NaN;
+		}
+
+		double result;
+		if (mantissa == 0) {
+			result = 0;
+		} else if (exp == 0) {
+			result = mantissa;
+		} else if (exp > 0 && exp < POW10.length) {
+			result = mantissa * POW10[exp];
+		} else if (exp < 0 && -exp < POW10.length) {
+			result = mantissa / POW10[-exp];
+		} else {
+			return Double.NaN;
+		}
+
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Determine if the exponent separator, followed by at least one more
+	 * character, is at the specified position.
+	 * @param f The characters.
+	 * @param index The position.
+	 * @param end One past the last character.
+	 * @return True, if the exponent separator was found.
+	 */
+	private boolean matchesExponent(final char[] f, final int index,
+			final int end) {
+		final int len = this.exponent.length();
+		if (len == 0 || end - index <= len) {
+			return false;
+		}
+		for (int j = 0; j < len; j++) {
+			if (f[index + j] != this.exponent.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The format.
+	 */
+	public final CSVFormat getFormat() {
+		return this.format;
+	}
+
+	/**
+	 * Close the reader.
+	 */
+	public final void close() {
+		try {
+			this.reader.close();
+		} catch (final IOException e) {
+			throw new EncogError(e);
+		}
+	}
+}
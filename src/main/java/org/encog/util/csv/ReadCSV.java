@@ -23,15 +23,16 @@
  */
 package org.encog.util.csv;
 
-import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -40,7 +41,9 @@ import java.util.Map;
 import org.encog.EncogError;
 
 /**
- * Read and parse CSV format files.
+ * Read and parse CSV format files. Lines are split by a CSVTokenizer, and a
+ * column is only converted to a String when it is requested as one.
+ * getDouble parses numbers directly from the tokenizer's buffer.
  */
 public class ReadCSV {
 
@@ -83,9 +86,9 @@ public class ReadCSV {
 	private CSVFormat format;
 
 	/**
-	 * The buffered reader to read the file.
+	 * Splits the lines of the file.
 	 */
-	private final BufferedReader reader;
+	private CSVTokenizer tokenizer;
 
 	/**
 	 * The names of the columns.
@@ -93,7 +96,7 @@ public class ReadCSV {
 	private final Map<String, Integer> columns = new HashMap<String, Integer>();
 
 	/**
-	 * The data.
+	 * The data. A column that has not yet been requested as a String is null.
 	 */
 	private String[] data;
 	
@@ -101,11 +104,6 @@ public class ReadCSV {
 	 * The column names.
 	 */
 	private List<String> columnNames = new ArrayList<String>();
-	
-	/**
-	 * Used to parse the CSV.
-	 */
-	private ParseCSVLine parseLine;
 
 	/**
 	 * Construct a CSV reader from an input stream. Allows a delimiter character
@@ -122,9 +120,7 @@ public class ReadCSV {
 			final char delim) {
 		final CSVFormat format = new CSVFormat(CSVFormat.getDecimalCharacter(),
 				delim);
-		this.parseLine = new ParseCSVLine(format);
-		this.reader = new BufferedReader(new InputStreamReader(is));
-		begin(headers, format);
+		begin(headers, format, new InputStreamReader(is));
 	}
 
 	/**
@@ -140,8 +136,7 @@ public class ReadCSV {
 	 */
 	public ReadCSV(final InputStream is, final boolean headers,
 			final CSVFormat format) {
-		this.reader = new BufferedReader(new InputStreamReader(is));
-		begin(headers, format);
+		begin(headers, format, new InputStreamReader(is));
 	}
 
 	/**
@@ -160,9 +155,7 @@ public class ReadCSV {
 		try {
 			final CSVFormat format = new CSVFormat(CSVFormat
 					.getDecimalCharacter(), delim);
-			this.parseLine = new ParseCSVLine(format);
-			this.reader = new BufferedReader(new FileReader(filename));
-			begin(headers, format);
+			begin(headers, format, new FileReader(filename));
 		} catch (final IOException e) {
 			throw new EncogError(e);
 		}
@@ -182,9 +175,7 @@ public class ReadCSV {
 	public ReadCSV(final String filename, final boolean headers,
 			final CSVFormat format) {
 		try {
-			this.reader = new BufferedReader(new FileReader(filename));
-			this.parseLine = new ParseCSVLine(format);
-			begin(headers, format);
+			begin(headers, format, new FileReader(filename));
 		} catch (final IOException e) {
 			throw new EncogError(e);
 		}
@@ -196,35 +187,29 @@ public class ReadCSV {
 	 * @param headers
 	 *            Are headers present.
 	 * @param format The format to use.
+	 * @param reader The source of the file.
 	 */
-	private void begin(final boolean headers, final CSVFormat format) {
-		try {
-			this.parseLine = new ParseCSVLine(format);
-			this.format = format;
-			// read the column heads
-			if (headers) {
-				final String line = this.reader.readLine();
-				
-				// Are we trying to parse an empty file?
-				if( line==null ) {
-					this.columnNames.clear();
-					return;
-				}
-				
-				final List<String> tok = this.parseLine.parse(line);
-
-				int i = 0;
+	private void begin(final boolean headers, final CSVFormat format,
+			final Reader reader) {
+		this.format = format;
+		this.tokenizer = new CSVTokenizer(reader, format);
+		// read the column heads
+		if (headers) {
+			// Are we trying to parse an empty file?
+			if (!this.tokenizer.nextLine()) {
 				this.columnNames.clear();
-				for (final String header : tok) {
-					this.columnNames.add(header.toLowerCase());
-					this.columns.put(header.toLowerCase(), i++);
-				}
+				return;
 			}
 
-			this.data = null;
-		} catch (final IOException e) {
-			throw new EncogError(e);
+			this.columnNames.clear();
+			for (int i = 0; i < this.tokenizer.getFieldCount(); i++) {
+				final String header = this.tokenizer.getString(i);
+				this.columnNames.add(header.toLowerCase());
+				this.columns.put(header.toLowerCase(), i);
+			}
 		}
+
+		this.data = null;
 	}
 
 	/**
@@ -232,11 +217,7 @@ public class ReadCSV {
 	 * 
 	 */
 	public void close() {
-		try {
-			this.reader.close();
-		} catch (final IOException e) {
-			throw new EncogError(e);
-		}
+		this.tokenizer.close();
 	}
 
 	/**
@@ -250,7 +231,12 @@ public class ReadCSV {
 		if( i>=this.data.length ) {
 			throw new EncogError("Can't access column " + i + " in a file that has only " + data.length + " columns.");
 		}
-		return this.data[i];
+		String result = this.data[i];
+		if (result == null) {
+			result = this.tokenizer.getString(i);
+			this.data[i] = result;
+		}
+		return result;
 	}
 
 	/**
@@ -266,7 +252,7 @@ public class ReadCSV {
 		if (i == null) {
 			return null;
 		}
-		return this.data[i.intValue()];
+		return get(i.intValue());
 	}
 
 	/**
@@ -308,6 +294,9 @@ public class ReadCSV {
 	 * @return The data at the specified column.
 	 */
 	public double getDouble(final int index) {
+		if (index < this.data.length && this.data[index] == null) {
+			return this.tokenizer.getDouble(index);
+		}
 		final String str = get(index);
 		return this.format.parse(str);
 	}
@@ -340,17 +329,6 @@ public class ReadCSV {
 		}
 	}
 
-	/**
-	 * Count the columns and create a an array to hold them.
-	 * 
-	 * @param line
-	 *            One line from the file
-	 */
-	private void initData(final String line) {
-		final List<String> tok = this.parseLine.parse(line);
-		this.data = new String[tok.size()];
-
-	}
 
 	/**
 	 * Read the next line.
@@ -358,35 +336,26 @@ public class ReadCSV {
 	 * @return True if there are more lines to read.
 	 */
 	public boolean next() {
+		if (!this.tokenizer.next()) {
+			return false;
+		}
 
-		try {
-			String line = null;
-			do {
-				line = this.reader.readLine();
-			} while( (line!=null) && line.trim().length()==0 );
-			
-			if (line == null) {
-				return false;
-			}
-
-			if (this.data == null) {
-				initData(line);
-			}
+		final int count = this.tokenizer.getFieldCount();
 
-			final List<String> tok = this.parseLine.parse(line);
+		// the first line sets the number of columns
+		if (this.data == null) {
+			this.data = new String[count];
+		}
 
-			int i = 0;
-			for (final String str : tok) {
-				if (i < this.data.length) {
-					this.data[i++] = str;
-				}
+		// a short line keeps the trailing columns of the line before it
+		for (int i = count; i < this.data.length; i++) {
+			if (this.data[i] == null) {
+				this.data[i] = this.tokenizer.getPreviousString(i);
 			}
-
-			return true;
-		} catch (final IOException e) {
-			throw new EncogError(e);
 		}
 
+		Arrays.fill(this.data, 0, Math.min(count, this.data.length), null);
+		return true;
 	}
 	
 	public List<String> getColumnNames() {
@@ -397,8 +366,37 @@ public class ReadCSV {
 		return this.format;
 	}
 
+	/**
+	 * @return The tokenizer that splits the lines. Its fields refer to the
+	 * current line.
+	 */
+	public CSVTokenizer getTokenizer() {
+		return this.tokenizer;
+	}
+
+	/**
+	 * Determine if a column is missing, that is empty or a question mark.
+	 * 
+	 * @param i
+	 *            The column index, starting at zero.
+	 * @return True, if the column is missing.
+	 */
+	public boolean isMissing(final int i) {
+		if (i < this.data.length && this.data[i] == null) {
+			return this.tokenizer.isMissing(i);
+		}
+		final String s = get(i).trim();
+		return s.length() == 0 || s.equals("?");
+	}
+
 	public boolean hasMissing() {
 		for(int i=0;i<this.data.length;i++ ) {
+			if (this.data[i] == null) {
+				if (this.tokenizer.isMissing(i)) {
+					return true;
+				}
+				continue;
+			}
 			String s = this.data[i].trim();
 			if( s.length()==0 || s.equals("?") ) {
 				return true;
@@ -0,0 +1,136 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.analyst;
+
+import java.io.File;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.app.analyst.script.prop.ScriptProperties;
+import org.encog.app.analyst.script.task.AnalystTask;
+import org.encog.ml.data.MLDataSet;
+import org.encog.util.TempDir;
+import org.encog.util.file.FileUtil;
+import org.encog.util.simple.EncogUtility;
+
+public class TestFusedPipeline extends TestCase {
+	public final TempDir TEMP_DIR = new TempDir();
+
+	private EncogAnalyst load() {
+		TEMP_DIR.clearContents();
+		File rawFile = TEMP_DIR.createFile("simple.csv");
+		File egaFile = TEMP_DIR.createFile("simple.ega");
+		FileUtil.copyResource("org/encog/data/simple.csv", rawFile);
+		FileUtil.copyResource("org/encog/data/simple-c.ega", egaFile);
+
+		EncogAnalyst analyst = new EncogAnalyst();
+		analyst.load(egaFile);
+		return analyst;
+	}
+
+	private AnalystTask task(String... lines) {
+		AnalystTask result = new AnalystTask("test");
+		for (String line : lines) {
+			result.getLines().add(line);
+		}
+		return result;
+	}
+
+	private File file(EncogAnalyst analyst, String id) {
+		return analyst.getScript().resolveFilename(id);
+	}
+
+	public void testFusedMatchesCommands() throws Exception {
+		// without randomize the result is deterministic
+		EncogAnalyst analyst = load();
+		analyst.getScript().getProperties().setProperty(
+				ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE, "FILE_RAW");
+		analyst.setFusePipeline(false);
+		analyst.executeTask(task("segregate", "normalize", "generate"));
+		MLDataSet expected = EncogUtility.loadEGB2Memory(file(analyst,
+				"FILE_TRAINSET"));
+		String expectedEval = FileUtil.readFileAsString(file(analyst,
+				"FILE_EVAL"));
+
+		analyst = load();
+		analyst.getScript().getProperties().setProperty(
+				ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE, "FILE_RAW");
+		analyst.executeTask(task("segregate", "normalize", "generate"));
+		MLDataSet actual = EncogUtility.loadEGB2Memory(file(analyst,
+				"FILE_TRAINSET"));
+
+		// the eval file is read by evaluate, the others only link the stages
+		Assert.assertEquals(expectedEval,
+				FileUtil.readFileAsString(file(analyst, "FILE_EVAL")));
+		Assert.assertFalse(file(analyst, "FILE_TRAIN").exists());
+		Assert.assertFalse(file(analyst, "FILE_NORMALIZE").exists());
+
+		Assert.assertEquals(9, expected.getRecordCount());
+		Assert.assertEquals(expected.getRecordCount(), actual.getRecordCount());
+		Assert.assertEquals(expected.getInputSize(), actual.getInputSize());
+		Assert.assertEquals(expected.getIdealSize(), actual.getIdealSize());
+		for (int i = 0; i < expected.getRecordCount(); i++) {
+			for (int j = 0; j < expected.getInputSize(); j++) {
+				Assert.assertEquals(expected.get(i).getInputArray()[j],
+						actual.get(i).getInputArray()[j], 0.0001);
+			}
+			for (int j = 0; j < expected.getIdealSize(); j++) {
+				Assert.assertEquals(expected.get(i).getIdealArray()[j],
+						actual.get(i).getIdealArray()[j], 0.0001);
+			}
+		}
+	}
+
+	public void testFusedRandomize() throws Exception {
+		EncogAnalyst analyst = load();
+		analyst.setKeepIntermediateFiles(true);
+		analyst.executeTask(task("randomize", "segregate", "normalize",
+				"generate", "create"));
+
+		Assert.assertTrue(file(analyst, "FILE_RANDOMIZE").exists());
+		Assert.assertTrue(file(analyst, "FILE_TRAIN").exists());
+		Assert.assertTrue(file(analyst, "FILE_NORMALIZE").exists());
+		Assert.assertTrue(file(analyst, "FILE_ML").exists());
+
+		// the randomized file holds every raw row
+		String raw = FileUtil.readFileAsString(file(analyst, "FILE_RAW"));
+		String random = FileUtil.readFileAsString(file(analyst,
+				"FILE_RANDOMIZE"));
+		Assert.assertEquals(raw.trim().split("\\s+").length,
+				random.trim().split("\\s+").length);
+
+		MLDataSet train = EncogUtility.loadEGB2Memory(file(analyst,
+				"FILE_TRAINSET"));
+		Assert.assertEquals(9, train.getRecordCount());
+		Assert.assertEquals(3, train.getInputSize());
+		Assert.assertEquals(2, train.getIdealSize());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		TEMP_DIR.dispose();
+	}
+}
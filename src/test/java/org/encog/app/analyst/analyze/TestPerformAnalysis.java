@@ -0,0 +1,186 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.analyst.analyze;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.app.analyst.AnalystFileFormat;
+import org.encog.app.analyst.EncogAnalyst;
+import org.encog.app.analyst.script.AnalystScript;
+import org.encog.app.analyst.script.DataField;
+import org.encog.app.analyst.script.prop.ScriptProperties;
+import org.encog.util.TempDir;
+
+public class TestPerformAnalysis extends TestCase {
+	public final TempDir TEMP_DIR = new TempDir();
+
+	private EncogAnalyst createAnalyst() {
+		EncogAnalyst analyst = new EncogAnalyst();
+		analyst.getScript().getProperties().setProperty(
+				ScriptProperties.SETUP_CONFIG_CSV_FORMAT,
+				AnalystFileFormat.DECPNT_COMMA);
+		analyst.getScript().getProperties().setProperty(
+				ScriptProperties.SETUP_CONFIG_MAX_CLASS_COUNT, 5);
+		analyst.getScript().getProperties().setProperty(
+				ScriptProperties.SETUP_CONFIG_ALLOWED_CLASSES,
+				"integer,string");
+		return analyst;
+	}
+
+	public void testMerge() {
+		AnalystScript script = createAnalyst().getScript();
+		String[] values = { "1", "2.5", "-3", "?", "4", "7", "7", "8", "9",
+				"10" };
+
+		AnalyzedField whole = new AnalyzedField(script, "f");
+		AnalyzedField merged = new AnalyzedField(script, "f");
+		AnalyzedField part = new AnalyzedField(script, "f");
+		for (int i = 0; i < values.length; i++) {
+			whole.analyze1(values[i]);
+			if (i == 4) {
+				merged.merge(part);
+				part = new AnalyzedField(script, "f");
+			}
+			part.analyze1(values[i]);
+		}
+		merged.merge(part);
+
+		whole.completePass1();
+		merged.completePass1();
+		Assert.assertEquals(whole.getMean(), merged.getMean(), 0.0000001);
+		Assert.assertEquals(whole.getStandardDeviation(),
+				merged.getStandardDeviation(), 0.0000001);
+		Assert.assertEquals(10.0, merged.getMax());
+		Assert.assertEquals(-3.0, merged.getMin());
+		Assert.assertFalse(merged.isComplete());
+		Assert.assertFalse(merged.isInteger());
+		Assert.assertTrue(merged.isReal());
+		// more than five distinct values
+		Assert.assertFalse(merged.isClass());
+	}
+
+	public void testChunked() throws Exception {
+		File file = TEMP_DIR.createFile("analyze.csv");
+		PrintWriter out = new PrintWriter(file);
+		out.println("\"a\",\"b\",\"c\"");
+		int rows = (int) (PerformAnalysis.MIN_CHUNK_SIZE * 3 / 20);
+		for (int i = 0; i < rows; i++) {
+			out.print((i * 7919) % 1000 / 10.0);
+			out.print(',');
+			out.print(i % 3 == 0 ? "?" : String.valueOf(i % 4));
+			out.print(',');
+			out.println("type-" + (i % 3));
+		}
+		out.close();
+
+		DataField[] actual = analyzeBothWays(file);
+
+		// the middle column has missing values, the last is a class
+		Assert.assertFalse(actual[1].isComplete());
+		Assert.assertTrue(actual[2].isClass());
+		Assert.assertEquals(3, actual[2].getClassMembers().size());
+		Assert.assertEquals((rows + 2) / 3, actual[2].getClassMembers().get(0)
+				.getCount());
+	}
+
+	public void testChunkedShortLines() throws Exception {
+		File file = TEMP_DIR.createFile("analyze.csv");
+		PrintWriter out = new PrintWriter(file);
+		out.println("\"a\",\"b\",\"c\"");
+		int rows = (int) (PerformAnalysis.MIN_CHUNK_SIZE * 3 / 8);
+		for (int i = 0; i < rows; i++) {
+			out.print((i * 7919) % 1000 / 10.0);
+			// most lines are short, and keep the values of the last full one
+			if (i % 5 == 0) {
+				out.print(',');
+				out.print((i / 5) % 4);
+				out.print(',');
+				out.print("type-" + ((i / 5) % 3));
+			}
+			out.println();
+		}
+		out.close();
+
+		DataField[] actual = analyzeBothWays(file);
+		Assert.assertTrue(actual[1].isComplete());
+		Assert.assertTrue(actual[2].isClass());
+	}
+
+	/**
+	 * Analyze a file as a whole, and in chunks, and check the results agree.
+	 */
+	private DataField[] analyzeBothWays(File file) {
+		EncogAnalyst single = createAnalyst();
+		PerformAnalysis a = new PerformAnalysis(single.getScript(),
+				file.toString(), true, AnalystFileFormat.DECPNT_COMMA);
+		a.setThreadCount(1);
+		a.process(single);
+
+		EncogAnalyst chunked = createAnalyst();
+		a = new PerformAnalysis(chunked.getScript(), file.toString(), true,
+				AnalystFileFormat.DECPNT_COMMA);
+		a.setThreadCount(4);
+		a.process(chunked);
+
+		DataField[] expected = single.getScript().getFields();
+		DataField[] actual = chunked.getScript().getFields();
+		Assert.assertEquals(3, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(expected[i].getName(), actual[i].getName());
+			Assert.assertEquals(expected[i].getMax(), actual[i].getMax());
+			Assert.assertEquals(expected[i].getMin(), actual[i].getMin());
+			Assert.assertEquals(expected[i].getMean(), actual[i].getMean(),
+					0.0000001);
+			Assert.assertEquals(expected[i].getStandardDeviation(),
+					actual[i].getStandardDeviation(), 0.0000001);
+			Assert.assertEquals(expected[i].isClass(), actual[i].isClass());
+			Assert.assertEquals(expected[i].isComplete(),
+					actual[i].isComplete());
+			Assert.assertEquals(expected[i].isInteger(),
+					actual[i].isInteger());
+			Assert.assertEquals(expected[i].isReal(), actual[i].isReal());
+			Assert.assertEquals(expected[i].getClassMembers().size(),
+					actual[i].getClassMembers().size());
+			for (int j = 0; j < expected[i].getClassMembers().size(); j++) {
+				Assert.assertEquals(expected[i].getClassMembers().get(j)
+						.getCode(), actual[i].getClassMembers().get(j)
+						.getCode());
+				Assert.assertEquals(expected[i].getClassMembers().get(j)
+						.getCount(), actual[i].getClassMembers().get(j)
+						.getCount());
+			}
+		}
+		return actual;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		TEMP_DIR.dispose();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.analyst.csv;
+
+import java.io.File;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.app.analyst.EncogAnalyst;
+import org.encog.app.analyst.script.prop.ScriptProperties;
+import org.encog.app.analyst.script.task.AnalystTask;
+import org.encog.ml.MLMethod;
+import org.encog.persist.EncogDirectoryPersistence;
+import org.encog.util.TempDir;
+import org.encog.util.csv.CSVFormat;
+import org.encog.util.file.FileUtil;
+
+public class TestAnalystEvaluateCSV extends TestCase {
+	public final TempDir TEMP_DIR = new TempDir();
+
+	private String evaluate(EncogAnalyst analyst, MLMethod method,
+			int threads) throws Exception {
+		File rawFile = analyst.getScript().resolveFilename("FILE_RAW");
+		File outputFile = TEMP_DIR.createFile("output" + threads + ".csv");
+
+		AnalystEvaluateCSV eval = new AnalystEvaluateCSV();
+		eval.setScript(analyst.getScript());
+		eval.setThreadCount(threads);
+		eval.setBatchSize(2);
+		eval.analyze(analyst, rawFile, true, CSVFormat.ENGLISH);
+		eval.process(outputFile, method);
+		Assert.assertTrue(eval.getRowsPerSecond() > 0);
+		return FileUtil.readFileAsString(outputFile);
+	}
+
+	public void testBatches() throws Exception {
+		File rawFile = TEMP_DIR.createFile("simple.csv");
+		File egaFile = TEMP_DIR.createFile("simple.ega");
+		FileUtil.copyResource("org/encog/data/simple.csv", rawFile);
+		FileUtil.copyResource("org/encog/data/simple-c.ega", egaFile);
+
+		EncogAnalyst analyst = new EncogAnalyst();
+		analyst.load(egaFile);
+		analyst.getScript().getProperties().setProperty(
+				ScriptProperties.SEGREGATE_CONFIG_SOURCE_FILE, "FILE_RAW");
+		AnalystTask task = new AnalystTask("test");
+		task.getLines().add("segregate");
+		task.getLines().add("normalize");
+		task.getLines().add("generate");
+		task.getLines().add("create");
+		analyst.executeTask(task);
+
+		MLMethod method = (MLMethod) EncogDirectoryPersistence
+				.loadObject(analyst.getScript().resolveFilename("FILE_ML"));
+
+		String expected = evaluate(analyst, method, 1);
+		String actual = evaluate(analyst, method, 4);
+		Assert.assertEquals(13, expected.trim().split("\n").length);
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		TEMP_DIR.dispose();
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.analyst.csv;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.app.analyst.AnalystFileFormat;
+import org.encog.app.analyst.AnalystGoal;
+import org.encog.app.analyst.EncogAnalyst;
+import org.encog.app.analyst.csv.normalize.AnalystNormalizeCSV;
+import org.encog.app.analyst.script.normalize.AnalystField;
+import org.encog.app.analyst.wizard.AnalystWizard;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.util.TempDir;
+import org.encog.util.csv.CSVFormat;
+import org.encog.util.file.FileUtil;
+import org.encog.util.simple.EncogUtility;
+
+public class TestAnalystStreamTransform extends TestCase {
+	public final TempDir TEMP_DIR = new TempDir();
+
+	private static final String[] KINDS = { "up", "flat", "down" };
+
+	private String[] createRow(int i) {
+		return new String[] { "" + Math.sin(i * 0.3), "" + (i * 0.5),
+				KINDS[i % 3], "" + Math.cos(i * 0.2) };
+	}
+
+	public void testMatchesNormalize() throws Exception {
+		File rawFile = TEMP_DIR.createFile("series.csv");
+		File normFile = TEMP_DIR.createFile("series_norm.csv");
+		PrintWriter tw = new PrintWriter(rawFile);
+		tw.println("a,b,kind,y");
+		for (int i = 0; i < 40; i++) {
+			String[] row = createRow(i);
+			tw.println(row[0] + "," + row[1] + "," + row[2] + "," + row[3]);
+		}
+		tw.close();
+
+		EncogAnalyst analyst = new EncogAnalyst();
+		AnalystWizard wizard = new AnalystWizard(analyst);
+		wizard.setGoal(AnalystGoal.Regression);
+		wizard.setTargetField("y");
+		wizard.setLagWindowSize(3);
+		wizard.setLeadWindowSize(1);
+		wizard.wizard(rawFile, true, AnalystFileFormat.DECPNT_COMMA);
+
+		AnalystNormalizeCSV norm = new AnalystNormalizeCSV();
+		norm.analyze(rawFile, true, CSVFormat.ENGLISH, analyst);
+		norm.setProduceOutputHeaders(false);
+		norm.normalize(normFile);
+		String[] lines = FileUtil.readFileAsString(normFile).trim().split("\n");
+
+		AnalystStreamTransform transform = new AnalystStreamTransform(analyst,
+				new String[] { "a", "b", "kind", "y" });
+		Assert.assertEquals(4, transform.getTotalDepth());
+		double[] input = new double[transform.getInputSize()];
+		double[] ideal = new double[transform.getIdealSize()];
+
+		int line = 0;
+		for (int i = 0; i < 40; i++) {
+			Assert.assertTrue(transform.add(createRow(i)));
+			if (!transform.isReady()) {
+				continue;
+			}
+			transform.extractInput(input);
+			transform.extractIdeal(ideal);
+
+			String[] expected = lines[line++].trim().split(",");
+			int column = 0;
+			int inputIndex = 0;
+			int idealIndex = 0;
+			for (AnalystField field : analyst.getScript().getNormalize()
+					.getNormalizedFields()) {
+				if (field.isIgnored()) {
+					continue;
+				}
+				for (int j = 0; j < field.getColumnsNeeded(); j++) {
+					double d = Double.parseDouble(expected[column++]);
+					double actual = field.isOutput() ? ideal[idealIndex++]
+							: input[inputIndex++];
+					Assert.assertEquals(d, actual, 1e-9);
+				}
+			}
+			Assert.assertEquals(expected.length, column);
+		}
+		Assert.assertEquals(lines.length, line);
+
+		// without the output column, only the input can be produced
+		AnalystStreamTransform scoring = new AnalystStreamTransform(analyst,
+				new String[] { "a", "b", "kind" });
+		Assert.assertEquals(0, scoring.getIdealSize());
+		BasicNetwork network = EncogUtility.simpleFeedForward(
+				scoring.getInputSize(), 4, 0, ideal.length, true);
+		double[] output = new double[ideal.length];
+		for (int i = 0; i < 4; i++) {
+			Assert.assertFalse(scoring.compute(network, output));
+			scoring.add(createRow(i));
+		}
+		Assert.assertTrue(scoring.compute(network, output));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		TEMP_DIR.dispose();
+	}
+}
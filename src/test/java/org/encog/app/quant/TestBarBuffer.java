@@ -0,0 +1,140 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.app.quant;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.app.analyst.csv.basic.BaseCachedColumn;
+import org.encog.app.analyst.csv.basic.FileData;
+import org.encog.app.quant.indicators.predictive.BestClose;
+import org.encog.app.quant.indicators.predictive.BestReturn;
+import org.encog.app.quant.util.BarBuffer;
+
+public class TestBarBuffer extends TestCase {
+
+	public void testAgainstScan() {
+		Random random = new Random(42);
+		BarBuffer buffer = new BarBuffer(5);
+		for (int n = 0; n < 200; n++) {
+			buffer.add(new double[] { random.nextDouble() * 10, n % 7 });
+			if (n % 37 == 0) {
+				buffer.pop();
+			}
+
+			List<double[]> data = buffer.getData();
+			for (int idx = 0; idx < 2; idx++) {
+				double total = 0, gain = 0, loss = 0;
+				double max = Double.MIN_VALUE, min = Double.MAX_VALUE;
+				for (int i = 0; i < data.size(); i++) {
+					double v = data.get(i)[idx];
+					total += v;
+					max = Math.max(max, v);
+					min = Math.min(min, v);
+					if (i < data.size() - 1) {
+						double diff = v - data.get(i + 1)[idx];
+						if (diff > 0) {
+							gain += diff;
+						} else {
+							loss -= diff;
+						}
+					}
+				}
+				int changes = Math.max(1, data.size() - 1);
+				Assert.assertEquals(total / data.size(), buffer.average(idx), 1e-9);
+				Assert.assertEquals(gain / changes, buffer.averageGain(idx), 1e-9);
+				Assert.assertEquals(loss / changes, buffer.averageLoss(idx), 1e-9);
+				Assert.assertEquals(max, buffer.max(idx), 0);
+				Assert.assertEquals(min, buffer.min(idx), 0);
+			}
+		}
+		Assert.assertTrue(buffer.getFull());
+		Assert.assertEquals(5, buffer.getData().size());
+	}
+
+	public void testMaxNegative() {
+		BarBuffer buffer = new BarBuffer(3);
+		Assert.assertEquals(Double.MIN_VALUE, buffer.max(0), 0);
+		buffer.add(-5);
+		buffer.add(-2);
+		buffer.add(-7);
+		// the true max, not Double.MIN_VALUE as a scan from it would give
+		Assert.assertEquals(-2.0, buffer.max(0), 0);
+		Assert.assertEquals(-7.0, buffer.min(0), 0);
+		buffer.add(-9);
+		buffer.add(-8);
+		Assert.assertEquals(-7.0, buffer.max(0), 0);
+	}
+
+	public void testPop() {
+		BarBuffer buffer = new BarBuffer(3);
+		buffer.add(1);
+		buffer.add(2);
+		buffer.add(3);
+		buffer.add(4);
+		Assert.assertEquals(2.0, buffer.pop()[0], 0);
+		Assert.assertEquals(4.0, buffer.getData().get(0)[0], 0);
+		Assert.assertEquals(3.5, buffer.average(0), 0);
+		Assert.assertEquals(3.0, buffer.pop()[0], 0);
+		Assert.assertEquals(4.0, buffer.pop()[0], 0);
+		Assert.assertNull(buffer.pop());
+	}
+
+	public void testPredictive() {
+		Random random = new Random(7);
+		int length = 100;
+		int periods = 4;
+		BaseCachedColumn column = new BaseCachedColumn(FileData.CLOSE, true, false);
+		column.allocate(length);
+		double[] close = column.getData();
+		for (int i = 0; i < length; i++) {
+			close[i] = random.nextDouble() * 20 - 5;
+		}
+		Map<String, BaseCachedColumn> data = new HashMap<String, BaseCachedColumn>();
+		data.put(FileData.CLOSE, column);
+
+		BestClose bestClose = new BestClose(periods, true);
+		bestClose.allocate(length);
+		bestClose.calculate(data, length);
+		BestReturn bestReturn = new BestReturn(periods, true);
+		bestReturn.allocate(length);
+		bestReturn.calculate(data, length);
+
+		for (int i = 0; i < length - periods; i++) {
+			double best = Double.MIN_VALUE;
+			double rtn = Double.MIN_VALUE;
+			for (int j = 1; j <= periods; j++) {
+				best = Math.max(close[i + j], best);
+				rtn = Math.max((close[i + j] - close[i]) / close[i], rtn);
+			}
+			Assert.assertEquals(best, bestClose.getData()[i], 0);
+			Assert.assertEquals(rtn, bestReturn.getData()[i], 1e-12);
+		}
+	}
+}
@@ -29,6 +29,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Random;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
@@ -36,7 +37,9 @@ import junit.framework.TestCase;
 import org.encog.app.quant.indicators.MovingAverage;
 import org.encog.app.quant.indicators.ProcessIndicators;
 import org.encog.app.quant.indicators.predictive.BestClose;
+import org.encog.app.quant.indicators.predictive.BestReturn;
 import org.encog.util.csv.CSVFormat;
+import org.encog.util.file.FileUtil;
 
 public class TestProcessIndicators extends TestCase {
 
@@ -91,6 +94,40 @@ public class TestProcessIndicators extends TestCase {
         OUTPUT_NAME.delete();
     }
 
+    private String processAll(boolean streaming) throws IOException
+    {
+        ProcessIndicators norm = new ProcessIndicators();
+        norm.analyze(INPUT_NAME, true, CSVFormat.ENGLISH);
+        norm.addColumn(new MovingAverage(5, true));
+        norm.addColumn(new BestClose(4, true));
+        norm.addColumn(new BestReturn(3, true));
+        norm.getColumns().get(0).setOutput(true);
+        norm.setStreaming(streaming);
+        norm.process(OUTPUT_NAME);
+        return FileUtil.readFileAsString(OUTPUT_NAME);
+    }
+
+    public void testStreaming() throws IOException
+    {
+        Random random = new Random(11);
+        PrintWriter tw = new PrintWriter(new FileWriter(INPUT_NAME));
+        tw.println("date,close");
+        for (int i = 0; i < 500; i++)
+        {
+            double close = (i % 50 == 0) ? 0 : random.nextDouble() * 100 - 10;
+            tw.println((20100101 + i) + "," + close);
+        }
+        tw.close();
+
+        String loaded = processAll(false);
+        String streamed = processAll(true);
+        Assert.assertEquals(1 + 500 - 4 - 4, loaded.trim().split("\n").length);
+        Assert.assertEquals(loaded, streamed);
+
+        INPUT_NAME.delete();
+        OUTPUT_NAME.delete();
+    }
+
     public void TestIndicatorsNoHeaders() throws IOException
     {
         generateTestFileHeadings(false);
@@ -113,6 +113,43 @@ public class TestShuffle extends TestCase {
 
     }
 
+    public void testShuffleLarge() throws IOException
+    {
+        PrintWriter tw = new PrintWriter(new FileWriter(INPUT_NAME));
+        tw.println("a,b");
+        for(int i=0;i<1000;i++) {
+            tw.println("row" + i + "," + i);
+        }
+        tw.close();
+
+        ShuffleCSV norm = new ShuffleCSV();
+        norm.setBufferSize(50);
+        norm.analyze(INPUT_NAME, true, CSVFormat.ENGLISH);
+        norm.process(OUTPUT_NAME);
+
+        BufferedReader tr = new BufferedReader(new FileReader(OUTPUT_NAME));
+        Assert.assertEquals("\"a\",\"b\"", tr.readLine());
+        String line;
+        Map<String, Integer> list = new HashMap<String, Integer>();
+        int inOrder = 0;
+        int last = -1;
+        while ((line = tr.readLine()) != null)
+        {
+            list.put(line, 0);
+            int current = Integer.parseInt(line.substring(line.indexOf(',')+1));
+            if( current==last+1 ) {
+                inOrder++;
+            }
+            last = current;
+        }
+        tr.close();
+
+        // every row exactly once, and no longer in order
+        Assert.assertEquals(1000, list.size());
+        Assert.assertTrue(inOrder < 100);
+
+        (new File("test.csv")).delete();
+        (new File("test2.csv")).delete();
+    }
 
-	
 }
@@ -29,6 +29,8 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import junit.framework.TestCase;
 
@@ -114,7 +116,119 @@ public class TestSort extends TestCase {
         (new File("test2.csv")).delete();
     }
 
+    private List<String> readLines(File file) throws IOException
+    {
+        List<String> result = new ArrayList<String>();
+        BufferedReader tr = new BufferedReader(new FileReader(file));
+        String line;
+        while( (line=tr.readLine())!=null ) {
+            result.add(line);
+        }
+        tr.close();
+        return result;
+    }
+
+    public void testSortExternal() throws IOException
+    {
+        PrintWriter tw = new PrintWriter(new FileWriter(INPUT_NAME));
+        tw.println("key,value,order");
+        for(int i=0;i<2000;i++) {
+            tw.println("k" + ((i*7919)%13) + "," + (((i*31)%50)/2.0) + "," + i);
+        }
+        tw.close();
+
+        SortCSV memory = new SortCSV();
+        memory.getSortOrder().add(new SortedField(1,SortType.SortDecimal,true));
+        memory.getSortOrder().add(new SortedField(0,SortType.SortString,true));
+        memory.setThreadCount(1);
+        memory.process(INPUT_NAME,OUTPUT_NAME,true,CSVFormat.ENGLISH);
+        Assert.assertEquals(1, memory.getRunCount());
+        List<String> expected = readLines(OUTPUT_NAME);
+        Assert.assertEquals(2001, expected.size());
+
+        SortCSV external = new SortCSV();
+        external.getSortOrder().add(new SortedField(1,SortType.SortDecimal,true));
+        external.getSortOrder().add(new SortedField(0,SortType.SortString,true));
+        external.setThreadCount(3);
+        external.setMemoryBudget(100000);
+        external.process(INPUT_NAME,OUTPUT_NAME,true,CSVFormat.ENGLISH);
+        Assert.assertTrue(external.getRunCount() > 3);
+
+        // equal keys keep their input order, so both sorts agree exactly
+        Assert.assertEquals(expected, readLines(OUTPUT_NAME));
+
+        (new File("test.csv")).delete();
+        (new File("test2.csv")).delete();
+    }
+
+    private void generateLargeFile(String badKey) throws IOException
+    {
+        PrintWriter tw = new PrintWriter(new FileWriter(INPUT_NAME));
+        tw.println("key,value,order");
+        for(int i=0;i<2000;i++) {
+            tw.println("k" + ((i*7919)%13) + "," + ((i*31)%50) + "," + i);
+        }
+        if( badKey!=null ) {
+            tw.println("k0," + badKey + ",2000");
+        }
+        tw.close();
+    }
+
+    private File createTempDirectory()
+    {
+        File dir = new File("sort-temp");
+        dir.mkdir();
+        return dir;
+    }
+
+    public void testSortMultiPassMerge() throws IOException
+    {
+        generateLargeFile(null);
+
+        SortCSV memory = new SortCSV();
+        memory.getSortOrder().add(new SortedField(1,SortType.SortInteger,true));
+        memory.process(INPUT_NAME,OUTPUT_NAME,true,CSVFormat.ENGLISH);
+        List<String> expected = readLines(OUTPUT_NAME);
+
+        File dir = createTempDirectory();
+        SortCSV external = new SortCSV();
+        external.getSortOrder().add(new SortedField(1,SortType.SortInteger,true));
+        external.setThreadCount(2);
+        external.setMemoryBudget(20000);
+        external.setMergeFanIn(3);
+        external.setTempDirectory(dir);
+        external.process(INPUT_NAME,OUTPUT_NAME,true,CSVFormat.ENGLISH);
+        // enough runs that they are merged over several passes
+        Assert.assertTrue(external.getRunCount() > 9);
+
+        Assert.assertEquals(expected, readLines(OUTPUT_NAME));
+        Assert.assertEquals(0, dir.listFiles().length);
+
+        dir.delete();
+        (new File("test.csv")).delete();
+        (new File("test2.csv")).delete();
+    }
+
+    public void testSortFailureRemovesRuns() throws IOException
+    {
+        generateLargeFile("bad");
+
+        File dir = createTempDirectory();
+        SortCSV external = new SortCSV();
+        external.getSortOrder().add(new SortedField(1,SortType.SortInteger,true));
+        external.setMemoryBudget(20000);
+        external.setTempDirectory(dir);
+        try {
+            external.process(INPUT_NAME,OUTPUT_NAME,true,CSVFormat.ENGLISH);
+            Assert.fail("The bad key was not reported");
+        } catch(NumberFormatException ex) {
+            // expected
+        }
+        Assert.assertEquals(0, dir.listFiles().length);
+
+        dir.delete();
+        (new File("test.csv")).delete();
+        (new File("test2.csv")).delete();
+    }
 
-	
-	
 }
@@ -0,0 +1,148 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian;
+
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.encog.ml.bayesian.query.BasicQuery;
+import org.encog.ml.bayesian.query.enumerate.EnumerationQuery;
+import org.encog.ml.bayesian.query.junction.JunctionTree;
+import org.encog.ml.bayesian.query.junction.JunctionTreeQuery;
+import org.encog.ml.bayesian.table.TableLine;
+
+public class TestJunctionTreeQuery extends TestCase {
+
+	private void randomTables(BayesianNetwork network, Random rnd) {
+		for (BayesianEvent event : network.getEvents()) {
+			List<TableLine> lines = event.getTable().getLines();
+			int r = event.getChoices().size();
+			for (int i = 0; i < lines.size(); i += r) {
+				double sum = 0;
+				double[] p = new double[r];
+				for (int k = 0; k < r; k++) {
+					p[k] = rnd.nextDouble() + 0.01;
+					sum += p[k];
+				}
+				for (int k = 0; k < r; k++) {
+					TableLine line = event.getTable().findLine(k,
+							lines.get(i).getArguments());
+					line.setProbability(p[k] / sum);
+				}
+			}
+		}
+	}
+
+	// a loopy network, a diamond with a tail, and a three valued event
+	private BayesianNetwork createNetwork() {
+		BayesianNetwork network = new BayesianNetwork();
+		BayesianEvent a = network.createEvent("a");
+		BayesianEvent b = network.createEvent("b", "low", "mid", "high");
+		BayesianEvent c = network.createEvent("c");
+		BayesianEvent d = network.createEvent("d");
+		BayesianEvent e = network.createEvent("e");
+		BayesianEvent f = network.createEvent("f");
+		network.createDependency(a, b, c);
+		network.createDependency(b, d);
+		network.createDependency(c, d);
+		network.createDependency(d, e);
+		network.createDependency(c, e);
+		network.finalizeStructure();
+		return network;
+	}
+
+	private void defineQuery(BasicQuery query, BayesianNetwork network,
+			int[] types, int[] values) {
+		for (int i = 0; i < types.length; i++) {
+			BayesianEvent event = network.getEvents().get(i);
+			if (types[i] == 1) {
+				query.defineEventType(event, EventType.Evidence);
+				query.setEventValue(event, values[i]);
+			} else if (types[i] == 2) {
+				query.defineEventType(event, EventType.Outcome);
+				query.setEventValue(event, values[i]);
+			}
+		}
+	}
+
+	public void testAgainstEnumeration() {
+		Random rnd = new Random(11);
+		BayesianNetwork network = createNetwork();
+		randomTables(network, rnd);
+		int count = network.getEvents().size();
+
+		JunctionTreeQuery query = new JunctionTreeQuery(network);
+
+		for (int trial = 0; trial < 50; trial++) {
+			int[] types = new int[count];
+			int[] values = new int[count];
+			for (int i = 0; i < count; i++) {
+				types[i] = rnd.nextInt(3);
+				values[i] = rnd.nextInt(network.getEvents().get(i)
+						.getChoices().size());
+			}
+			types[rnd.nextInt(count)] = 2;
+
+			EnumerationQuery expected = new EnumerationQuery(network);
+			defineQuery(expected, network, types, values);
+			expected.execute();
+
+			query.finalizeStructure();
+			defineQuery(query, network, types, values);
+			query.execute();
+
+			assertEquals(expected.getProbability(), query.getProbability(),
+					1e-9);
+		}
+	}
+
+	public void testTableChange() {
+		BayesianNetwork network = createNetwork();
+		randomTables(network, new Random(3));
+		BayesianEvent a = network.getEvent("a");
+		BayesianEvent e = network.getEvent("e");
+
+		JunctionTreeQuery query = new JunctionTreeQuery(network);
+		query.defineEventType(e, EventType.Evidence);
+		query.defineEventType(a, EventType.Outcome);
+		query.setEventValue(e, true);
+		query.setEventValue(a, true);
+		query.execute();
+		JunctionTree tree = query.getTree();
+
+		randomTables(network, new Random(5));
+		query.execute();
+		assertSame(tree, query.getTree());
+
+		EnumerationQuery expected = new EnumerationQuery(network);
+		expected.defineEventType(e, EventType.Evidence);
+		expected.defineEventType(a, EventType.Outcome);
+		expected.setEventValue(e, true);
+		expected.setEventValue(a, true);
+		expected.execute();
+		assertEquals(expected.getProbability(), query.getProbability(), 1e-9);
+	}
+}
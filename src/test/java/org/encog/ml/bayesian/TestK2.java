@@ -26,6 +26,7 @@ package org.encog.ml.bayesian;
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
+import org.encog.ml.bayesian.training.BayesianCountCache;
 import org.encog.ml.bayesian.training.BayesianInit;
 import org.encog.ml.bayesian.training.TrainBayesian;
 import org.encog.ml.bayesian.training.search.k2.SearchK2;
@@ -94,4 +95,59 @@ public class TestK2 extends TestCase {
 		p = search.calculateG(network, x3, x3.getParents());
 		Assert.assertEquals(0.0011111, p, 0.00555555);			
 	}
+	
+	public void testCountCache() {
+		String[] labels = { "available", "not" };
+		
+		MLDataSet data = new BasicMLDataSet(DATA,null);
+		BayesianNetwork network = new BayesianNetwork();
+		network.createEvent("x1", labels);
+		network.createEvent("x2", labels);
+		network.createEvent("x3", labels);
+		network.finalizeStructure();
+		BayesianCountCache cache = new BayesianCountCache(network,data);
+		
+		int[] counts = cache.count(new int[] {2,0});
+		Assert.assertEquals(4, counts.length);
+		for(int v3=0;v3<2;v3++) {
+			for(int v1=0;v1<2;v1++) {
+				int expected = 0;
+				for(int i=0;i<DATA.length;i++) {
+					int c1 = DATA[i][0]>0.5?1:0;
+					int c3 = DATA[i][2]>0.5?1:0;
+					if( c1==v1 && c3==v3 ) {
+						expected++;
+					}
+				}
+				Assert.assertEquals(expected, counts[v3+v1*2]);
+			}
+		}
+		
+		Assert.assertSame(counts, cache.count(new int[] {2,0}));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+	}
+	
+	public void testK2Threads() {
+		String[] labels = { "available", "not" };
+		String[] structure = new String[2];
+		
+		for(int t=0;t<structure.length;t++) {
+			MLDataSet data = new BasicMLDataSet(DATA,null);
+			BayesianNetwork network = new BayesianNetwork();
+			network.createEvent("x1", labels);
+			network.createEvent("x2", labels);
+			network.createEvent("x3", labels);
+			network.finalizeStructure();
+			TrainBayesian train = new TrainBayesian(network,data,10);
+			train.setInitNetwork(BayesianInit.InitEmpty);
+			((SearchK2)train.getSearch()).setThreadCount(t==0?1:4);
+			while(!train.isTrainingDone()) {
+				train.iteration();
+			}
+			structure[t] = network.toString();
+		}
+		
+		Assert.assertEquals(structure[0], structure[1]);
+	}
 }
@@ -0,0 +1,196 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.bayesian;
+
+import junit.framework.TestCase;
+
+import org.encog.ml.bayesian.query.BasicQuery;
+import org.encog.ml.bayesian.query.enumerate.EnumerationQuery;
+import org.encog.ml.bayesian.query.sample.GibbsSamplingQuery;
+import org.encog.ml.bayesian.query.sample.LikelihoodWeightingQuery;
+import org.encog.ml.bayesian.query.sample.ParallelSamplingQuery;
+
+public class TestParallelSamplingQuery extends TestCase {
+
+	private BayesianNetwork createNetwork() {
+		BayesianNetwork network = new BayesianNetwork();
+		BayesianEvent a = network.createEvent("a");
+		BayesianEvent x1 = network.createEvent("x1");
+		BayesianEvent x2 = network.createEvent("x2");
+		BayesianEvent x3 = network.createEvent("x3");
+
+		network.createDependency(a, x1, x2, x3);
+		network.finalizeStructure();
+
+		a.getTable().addLine(0.5, true); // P(A) = 0.5
+		x1.getTable().addLine(0.2, true, true); // p(x1|a) = 0.2
+		x1.getTable().addLine(0.6, true, false);// p(x1|~a) = 0.6
+		x2.getTable().addLine(0.2, true, true); // p(x2|a) = 0.2
+		x2.getTable().addLine(0.6, true, false);// p(x2|~a) = 0.6
+		x3.getTable().addLine(0.2, true, true); // p(x3|a) = 0.2
+		x3.getTable().addLine(0.6, true, false);// p(x3|~a) = 0.6
+		network.validate();
+		return network;
+	}
+
+	private BayesianNetwork createMultiNetwork() {
+		BayesianNetwork network = new BayesianNetwork();
+		BayesianEvent a = network.createEvent("a");
+		BayesianEvent b = network.createEvent("b", "low", "mid", "high");
+		BayesianEvent x = network.createEvent("x");
+
+		network.createDependency(a, b);
+		network.createDependency(b, x);
+		network.finalizeStructure();
+
+		a.getTable().addLine(0.3, true);
+		b.getTable().addLine(0.2, 0, true);
+		b.getTable().addLine(0.3, 1, true);
+		b.getTable().addLine(0.5, 2, true);
+		b.getTable().addLine(0.6, 0, false);
+		b.getTable().addLine(0.3, 1, false);
+		b.getTable().addLine(0.1, 2, false);
+		x.getTable().addLine(0.1, 0, 0);
+		x.getTable().addLine(0.9, 1, 0);
+		x.getTable().addLine(0.5, 0, 1);
+		x.getTable().addLine(0.5, 1, 1);
+		x.getTable().addLine(0.8, 0, 2);
+		x.getTable().addLine(0.2, 1, 2);
+		// validate is not used, it miscounts the lines of multi-valued tables
+		return network;
+	}
+
+	private void defineMultiQuery(BayesianNetwork network, BasicQuery query,
+			int bValue) {
+		BayesianEvent b = network.getEvent("b");
+		BayesianEvent x = network.getEvent("x");
+		query.defineEventType(x, EventType.Evidence);
+		query.defineEventType(b, EventType.Outcome);
+		query.setEventValue(x, true);
+		query.setEventValue(b, bValue);
+	}
+
+	private void checkMultiQuery(ParallelSamplingQuery query, int bValue) {
+		BayesianNetwork network = query.getNetwork();
+		EnumerationQuery expected = new EnumerationQuery(network);
+		defineMultiQuery(network, expected, bValue);
+		expected.execute();
+
+		defineMultiQuery(network, query, bValue);
+		query.setSeed(42);
+		query.setThreadCount(4);
+		query.execute();
+		assertEquals(expected.getProbability(), query.getProbability(), 0.02);
+	}
+
+	private void defineQuery(BayesianNetwork network, BasicQuery query) {
+		defineQuery(network, query, true);
+	}
+
+	private void defineQuery(BayesianNetwork network, BasicQuery query,
+			boolean aValue) {
+		BayesianEvent a = network.getEvent("a");
+		BayesianEvent x1 = network.getEvent("x1");
+		BayesianEvent x2 = network.getEvent("x2");
+		BayesianEvent x3 = network.getEvent("x3");
+		query.defineEventType(x1, EventType.Evidence);
+		query.defineEventType(x2, EventType.Evidence);
+		query.defineEventType(x3, EventType.Evidence);
+		query.defineEventType(a, EventType.Outcome);
+		query.setEventValue(a, aValue);
+		query.setEventValue(x1, true);
+		query.setEventValue(x2, true);
+		query.setEventValue(x3, false);
+	}
+
+	private double enumerate(BayesianNetwork network) {
+		EnumerationQuery query = new EnumerationQuery(network);
+		defineQuery(network, query);
+		query.execute();
+		return query.getProbability();
+	}
+
+	private void checkQuery(BayesianNetwork network,
+			ParallelSamplingQuery query) {
+		defineQuery(network, query);
+		query.setSeed(42);
+		query.setThreadCount(4);
+		query.execute();
+		assertEquals(enumerate(network), query.getProbability(), 0.02);
+		assertEquals(ParallelSamplingQuery.DEFAULT_SAMPLE_SIZE,
+				query.getTotalSamples());
+	}
+
+	public void testLikelihoodWeighting() {
+		BayesianNetwork network = createNetwork();
+		checkQuery(network, new LikelihoodWeightingQuery(network));
+	}
+
+	public void testGibbs() {
+		BayesianNetwork network = createNetwork();
+		checkQuery(network, new GibbsSamplingQuery(network));
+	}
+
+	public void testNonFirstOutcome() {
+		BayesianNetwork network = createNetwork();
+		EnumerationQuery expected = new EnumerationQuery(network);
+		defineQuery(network, expected, false);
+		expected.execute();
+
+		ParallelSamplingQuery[] queries = {
+				new LikelihoodWeightingQuery(network),
+				new GibbsSamplingQuery(network) };
+		for (ParallelSamplingQuery query : queries) {
+			defineQuery(network, query, false);
+			query.setSeed(42);
+			query.setThreadCount(4);
+			query.execute();
+			assertEquals(expected.getProbability(), query.getProbability(),
+					0.02);
+		}
+	}
+
+	public void testMultiValuedOutcome() {
+		for (int v = 0; v < 3; v++) {
+			checkMultiQuery(new LikelihoodWeightingQuery(createMultiNetwork()), v);
+			checkMultiQuery(new GibbsSamplingQuery(createMultiNetwork()), v);
+		}
+	}
+
+	public void testRepeatable() {
+		BayesianNetwork network = createNetwork();
+		double[] results = new double[2];
+		for (int i = 0; i < results.length; i++) {
+			LikelihoodWeightingQuery query = new LikelihoodWeightingQuery(
+					network);
+			defineQuery(network, query);
+			query.setSeed(7);
+			query.setThreadCount(3);
+			query.setSampleSize(10000);
+			query.execute();
+			results[i] = query.getProbability();
+		}
+		assertEquals(results[0], results[1], 0);
+	}
+}
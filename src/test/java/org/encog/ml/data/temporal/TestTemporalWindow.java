@@ -0,0 +1,111 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.data.temporal;
+
+import junit.framework.TestCase;
+
+import org.encog.engine.network.activation.ActivationTANH;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.data.temporal.TemporalDataDescription.Type;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
+import org.encog.util.simple.EncogUtility;
+
+public class TestTemporalWindow extends TestCase {
+
+	private TemporalMLDataSet create(Type type) {
+		TemporalMLDataSet temporal = new TemporalMLDataSet(5, 2);
+		temporal.addDescription(new TemporalDataDescription(type, true, false));
+		temporal.addDescription(new TemporalDataDescription(
+				new ActivationTANH(), Type.PERCENT_CHANGE, true, true));
+		temporal.addDescription(new TemporalDataDescription(Type.RAW, false, true));
+		for (int i = 0; i < 50; i++) {
+			TemporalPoint tp = temporal.createPoint(49 - i);
+			tp.setData(0, 1.0 + ((49 - i) * 3));
+			tp.setData(1, 2.0 + Math.sin(49 - i));
+			tp.setData(2, 3.0 + ((49 - i) * 3));
+		}
+		return temporal;
+	}
+
+	private void compare(TemporalMLDataSet temporal) {
+		MLDataSet lazy = new TemporalWindowMLDataSet(temporal);
+		temporal.generate();
+
+		TestCase.assertEquals(temporal.getRecordCount(), lazy.getRecordCount());
+		TestCase.assertEquals(temporal.getInputSize(), lazy.getInputSize());
+		TestCase.assertEquals(temporal.getIdealSize(), lazy.getIdealSize());
+
+		MLDataPair pair = BasicMLDataPair.createPair(lazy.getInputSize(),
+				lazy.getIdealSize());
+		for (int i = 0; i < temporal.getRecordCount(); i++) {
+			lazy.getRecord(i, pair);
+			MLDataPair expected = temporal.get(i);
+			for (int j = 0; j < lazy.getInputSize(); j++) {
+				TestCase.assertEquals(expected.getInputArray()[j],
+						pair.getInputArray()[j]);
+			}
+			for (int j = 0; j < lazy.getIdealSize(); j++) {
+				TestCase.assertEquals(expected.getIdealArray()[j],
+						pair.getIdealArray()[j]);
+			}
+		}
+	}
+
+	public void testRaw() {
+		compare(create(Type.RAW));
+	}
+
+	public void testDelta() {
+		compare(create(Type.DELTA_CHANGE));
+	}
+
+	public void testRange() {
+		TemporalMLDataSet temporal = create(Type.RAW);
+		temporal.setLowSequence(10);
+		temporal.setHighSequence(40);
+		compare(temporal);
+	}
+
+	public void testIterateAndTrain() {
+		MLDataSet lazy = new TemporalWindowMLDataSet(create(Type.PERCENT_CHANGE));
+		int count = 0;
+		for (MLDataPair pair : lazy) {
+			TestCase.assertEquals(lazy.getInputSize(), pair.getInput().size());
+			count++;
+		}
+		TestCase.assertEquals(lazy.getRecordCount(), count);
+		TestCase.assertEquals(count, lazy.openAdditional().getRecordCount());
+
+		BasicNetwork network = EncogUtility.simpleFeedForward(
+				lazy.getInputSize(), 5, 0, lazy.getIdealSize(), true);
+		ResilientPropagation train = new ResilientPropagation(network, lazy);
+		train.setThreadCount(4);
+		train.iteration();
+		train.iteration();
+		TestCase.assertFalse(Double.isNaN(train.getError()));
+	}
+}
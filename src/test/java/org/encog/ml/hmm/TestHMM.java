@@ -23,16 +23,33 @@
  */
 package org.encog.ml.hmm;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
+import org.encog.EncogError;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
 import org.encog.ml.data.MLSequenceSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.ml.hmm.alog.ForwardBackwardCalculator;
+import org.encog.ml.hmm.alog.ForwardBackwardScaledCalculator;
+import org.encog.ml.hmm.alog.ForwardFilter;
 import org.encog.ml.hmm.alog.KullbackLeiblerDistanceCalculator;
 import org.encog.ml.hmm.alog.MarkovGenerator;
+import org.encog.ml.hmm.alog.OnlineViterbiCalculator;
+import org.encog.ml.hmm.alog.ViterbiCalculator;
 import org.encog.ml.hmm.distributions.ContinousDistribution;
 import org.encog.ml.hmm.distributions.DiscreteDistribution;
+import org.encog.ml.hmm.train.bw.BaseBaumWelch;
 import org.encog.ml.hmm.train.bw.TrainBaumWelch;
+import org.encog.ml.hmm.train.bw.TrainBaumWelchScaled;
 import org.encog.ml.hmm.train.kmeans.TrainKMeans;
+import org.encog.util.concurrency.EngineConcurrency;
 
 public class TestHMM extends TestCase {
 	
@@ -184,5 +201,231 @@ public class TestHMM extends TestCase {
 		double e = klc.distance(learntHmm, hmm);
 		Assert.assertTrue(e<0.05);
 	}
+	
+	public void testBWLThreadsDeterministic() {
+		
+		HiddenMarkovModel hmm = buildDiscHMM();
+		
+		MarkovGenerator mg = new MarkovGenerator(hmm);
+		MLSequenceSet training = mg.generateSequences(300,50);
+		
+		TrainBaumWelch single = new TrainBaumWelch(buildDiscInitHMM(),training);
+		single.setThreadCount(1);
+		single.iteration(3);
+		
+		TrainBaumWelch multi = new TrainBaumWelch(buildDiscInitHMM(),training);
+		multi.setThreadCount(4);
+		multi.iteration(3);
+		
+		TrainBaumWelchScaled scaled = new TrainBaumWelchScaled(buildDiscInitHMM(),training);
+		scaled.setThreadCount(3);
+		scaled.iteration(3);
+		
+		HiddenMarkovModel a = (HiddenMarkovModel)single.getMethod();
+		HiddenMarkovModel b = (HiddenMarkovModel)multi.getMethod();
+		HiddenMarkovModel c = (HiddenMarkovModel)scaled.getMethod();
+		
+		for(int i=0;i<a.getStateCount();i++) {
+			Assert.assertEquals(a.getPi(i), b.getPi(i), 0.0);
+			Assert.assertEquals(a.getPi(i), c.getPi(i), 0.000001);
+			for(int j=0;j<a.getStateCount();j++) {
+				Assert.assertEquals(a.getTransitionProbability(i,j), b.getTransitionProbability(i,j), 0.0);
+				Assert.assertEquals(a.getTransitionProbability(i,j), c.getTransitionProbability(i,j), 0.000001);
+			}
+		}
+	}
+	
+	public void testBWLOverridesUsed() {
+		
+		HiddenMarkovModel hmm = buildDiscHMM();
+		
+		MarkovGenerator mg = new MarkovGenerator(hmm);
+		MLSequenceSet training = mg.generateSequences(150,20);
+		
+		final AtomicInteger calculators = new AtomicInteger();
+		final AtomicInteger xis = new AtomicInteger();
+		TrainBaumWelch counting = new TrainBaumWelch(buildDiscInitHMM(),training) {
+			@Override
+			protected ForwardBackwardCalculator generateForwardBackwardCalculator(
+					final MLDataSet sequence, final HiddenMarkovModel model,
+					final ForwardBackwardCalculator previous) {
+				calculators.incrementAndGet();
+				return super.generateForwardBackwardCalculator(sequence, model, previous);
+			}
+			
+			@Override
+			protected double[][][] estimateXi(final MLDataSet sequence,
+					final ForwardBackwardCalculator fbc, final HiddenMarkovModel model,
+					final double[][][] previous) {
+				xis.incrementAndGet();
+				return super.estimateXi(sequence, fbc, model, previous);
+			}
+		};
+		counting.setThreadCount(2);
+		counting.iteration(2);
+		
+		Assert.assertEquals(300, calculators.get());
+		Assert.assertEquals(300, xis.get());
+	}
+	
+	public void testBWLReusedBuffersMatch() {
+		
+		HiddenMarkovModel hmm = buildDiscHMM();
+		
+		MarkovGenerator mg = new MarkovGenerator(hmm);
+		// sequences of different lengths, so the buffers are longer than some
+		MLSequenceSet training = mg.generateSequences(100,30);
+		MLSequenceSet shorter = mg.generateSequences(100,10);
+		for (MLDataSet seq : shorter.getSequences()) {
+			training.startNewSequence();
+			for (MLDataPair pair : seq) {
+				training.add(pair);
+			}
+		}
+		
+		final TrainBaumWelch estimates = new TrainBaumWelch(buildDiscInitHMM(),training);
+		BaseBaumWelch allocating = new BaseBaumWelch(buildDiscInitHMM(),training) {
+			@Override
+			public ForwardBackwardCalculator generateForwardBackwardCalculator(
+					final MLDataSet sequence, final HiddenMarkovModel model) {
+				return estimates.generateForwardBackwardCalculator(sequence, model);
+			}
+			
+			@Override
+			public double[][][] estimateXi(final MLDataSet sequence,
+					final ForwardBackwardCalculator fbc, final HiddenMarkovModel model) {
+				return estimates.estimateXi(sequence, fbc, model);
+			}
+		};
+		allocating.setThreadCount(1);
+		allocating.iteration(3);
+		
+		TrainBaumWelch reusing = new TrainBaumWelch(buildDiscInitHMM(),training);
+		reusing.setThreadCount(1);
+		reusing.iteration(3);
+		
+		HiddenMarkovModel a = (HiddenMarkovModel)allocating.getMethod();
+		HiddenMarkovModel b = (HiddenMarkovModel)reusing.getMethod();
+		for(int i=0;i<a.getStateCount();i++) {
+			Assert.assertEquals(a.getPi(i), b.getPi(i), 0.0);
+			for(int j=0;j<a.getStateCount();j++) {
+				Assert.assertEquals(a.getTransitionProbability(i,j), b.getTransitionProbability(i,j), 0.0);
+			}
+		}
+	}
+	
+	public void testBWLWorkerErrorReported() {
+		
+		HiddenMarkovModel hmm = buildDiscHMM();
+		
+		MarkovGenerator mg = new MarkovGenerator(hmm);
+		MLSequenceSet training = mg.generateSequences(150,20);
+		
+		TrainBaumWelch failing = new TrainBaumWelch(buildDiscInitHMM(),training) {
+			@Override
+			protected double[][][] estimateXi(final MLDataSet sequence,
+					final ForwardBackwardCalculator fbc, final HiddenMarkovModel model,
+					final double[][][] previous) {
+				throw new IllegalStateException("estimate failed");
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			failing.setConcurrency(new EngineConcurrency(executor));
+			failing.setThreadCount(2);
+			failing.iteration();
+			Assert.fail("The worker error was not reported");
+		} catch (EncogError e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	public void testStreaming() {
+		
+		HiddenMarkovModel hmm = buildDiscHMM();
+		MarkovGenerator mg = new MarkovGenerator(hmm);
+		MLDataSet seq = mg.observationSequence(500);
+		
+		ForwardFilter filter = hmm.createForwardFilter();
+		OnlineViterbiCalculator exact = hmm.createOnlineViterbi(1000);
+		OnlineViterbiCalculator lagged = hmm.createOnlineViterbi(8);
+		int[] exactStates = new int[seq.size()];
+		int exactCount = 0;
+		int laggedCount = 0;
+		
+		for(MLDataPair pair: seq) {
+			filter.add(pair);
+			for(int state: exact.add(pair)) {
+				exactStates[exactCount++] = state;
+			}
+			laggedCount += lagged.add(pair).length;
+			Assert.assertTrue(lagged.getCount()-lagged.getDecidedCount()<=8);
+		}
+		for(int state: exact.flush()) {
+			exactStates[exactCount++] = state;
+		}
+		laggedCount += lagged.flush().length;
+		
+		Assert.assertEquals(seq.size(), exactCount);
+		Assert.assertEquals(seq.size(), laggedCount);
+		
+		ViterbiCalculator viterbi = new ViterbiCalculator(seq, hmm);
+		int[] expected = viterbi.stateSequence();
+		for(int i=0;i<expected.length;i++) {
+			Assert.assertEquals(expected[i], exactStates[i]);
+		}
+		Assert.assertEquals(viterbi.lnProbability(), exact.lnProbability(), 0.0001);
+		
+		ForwardBackwardScaledCalculator fbc = new ForwardBackwardScaledCalculator(seq, hmm);
+		Assert.assertEquals(fbc.lnProbability(), filter.lnProbability(), 0.0001);
+		Assert.assertEquals(1.0, filter.getStateProbability(0)+filter.getStateProbability(1), 0.0001);
+	}
+
+	
+	public void testStreamingImpossible() {
+		
+		HiddenMarkovModel hmm = new HiddenMarkovModel(2, 2);
+		hmm.setPi(0, 0.5);
+		hmm.setPi(1, 0.5);
+		hmm.setStateDistribution(0, new DiscreteDistribution(new double[][] { { 0.9, 0.1 } }));
+		hmm.setStateDistribution(1, new DiscreteDistribution(new double[][] { { 1.0, 0.0 } }));
+		hmm.setTransitionProbability(0, 0, 0.0);
+		hmm.setTransitionProbability(0, 1, 1.0);
+		hmm.setTransitionProbability(1, 0, 0.0);
+		hmm.setTransitionProbability(1, 1, 1.0);
+		
+		MLDataPair zero = new BasicMLDataPair(new BasicMLData(new double[] { 0 }));
+		MLDataPair one = new BasicMLDataPair(new BasicMLData(new double[] { 1 }));
+		
+		ForwardFilter filter = hmm.createForwardFilter();
+		filter.add(zero);
+		filter.add(zero);
+		Assert.assertEquals(1.0, filter.getStateProbability(1), 0.0001);
+		double ln = filter.lnProbability();
+		
+		// only state 1 is reachable now, and it can not emit a one
+		try {
+			filter.add(one);
+			Assert.fail("Should have rejected the observation");
+		} catch(EncogError e) {
+			// expected
+		}
+		Assert.assertEquals(2, filter.getCount());
+		Assert.assertEquals(ln, filter.lnProbability(), 0.0);
+		Assert.assertEquals(1.0, filter.getStateProbability(1), 0.0001);
+		
+		filter.add(zero);
+		Assert.assertFalse(Double.isNaN(filter.lnProbability()));
+		
+		filter.reset();
+		Assert.assertEquals(0, filter.getCount());
+		Assert.assertEquals(0.0, filter.getStateProbability(0), 0.0);
+		Assert.assertEquals(0.0, filter.getStateProbability(1), 0.0);
+		
+		filter.add(one);
+		Assert.assertEquals(1.0, filter.getStateProbability(0), 0.0001);
+	}
 
 }
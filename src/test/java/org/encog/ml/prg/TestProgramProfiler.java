@@ -0,0 +1,100 @@
+package org.encog.ml.prg;
+
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.score.CalculateGenomeScore;
+import org.encog.ml.prg.extension.StandardExtensions;
+import org.encog.ml.prg.train.PrgGenetic;
+import org.encog.ml.prg.train.PrgPopulation;
+import org.encog.ml.prg.train.rewrite.RewriteConstants;
+
+public class TestProgramProfiler extends TestCase {
+
+	private ProgramProfiler.OpcodeProfile find(List<ProgramProfiler.OpcodeProfile> list, int opcode) {
+		for(ProgramProfiler.OpcodeProfile p: list) {
+			if( p.getOpcode()==opcode ) {
+				return p;
+			}
+		}
+		return null;
+	}
+
+	public void testOpcodes() {
+		EncogProgramContext context = new EncogProgramContext();
+		context.loadAllFunctions();
+		EncogProgram prg = context.createProgram("(1+2)*(3+4)");
+		ProgramProfiler profiler = context.enableProfiling(1);
+
+		for(int i=0;i<10;i++) {
+			Assert.assertEquals(21, prg.evaluate().toIntValue());
+		}
+
+		Assert.assertEquals(10, profiler.getEvaluationCount());
+		List<ProgramProfiler.OpcodeProfile> list = profiler.getOpcodeProfiles();
+		ProgramProfiler.OpcodeProfile add = find(list, StandardExtensions.OPCODE_ADD);
+		ProgramProfiler.OpcodeProfile mul = find(list, StandardExtensions.OPCODE_MUL);
+		Assert.assertEquals(20, add.getCount());
+		Assert.assertEquals(20, add.getSamples());
+		Assert.assertEquals(10, mul.getCount());
+		Assert.assertEquals(StandardExtensions.EXTENSION_ADD.getName(), add.getName());
+
+		// disabled, nothing more is recorded
+		context.disableProfiling();
+		Assert.assertNull(context.getProfiler());
+		Assert.assertEquals(21, prg.evaluate().toIntValue());
+		Assert.assertEquals(10, profiler.getEvaluationCount());
+	}
+
+	public void testSampling() {
+		EncogProgramContext context = new EncogProgramContext();
+		context.loadAllFunctions();
+		EncogProgram prg = context.createProgram("1+2");
+		ProgramProfiler profiler = context.enableProfiling(4);
+
+		for(int i=0;i<10;i++) {
+			prg.evaluate();
+		}
+
+		ProgramProfiler.OpcodeProfile add = find(profiler.getOpcodeProfiles(), StandardExtensions.OPCODE_ADD);
+		Assert.assertEquals(10, add.getCount());
+		Assert.assertEquals(2, add.getSamples());
+	}
+
+	public void testRewriteAndScore() {
+		EncogProgramContext context = new EncogProgramContext();
+		context.loadAllFunctions();
+		context.getParams().setPopulationSize(2);
+		PrgPopulation pop = new PrgPopulation(context);
+		pop.addRewriteRule(new RewriteConstants());
+		EncogProgram prg = new EncogProgram(context, new EncogProgramVariables(), pop.getHolder(), 0);
+		prg.compileExpression("(1+2)*3");
+
+		ProgramProfiler profiler = context.enableProfiling();
+		pop.rewrite(prg);
+		Assert.assertEquals(9, prg.evaluate().toIntValue());
+		Assert.assertTrue(profiler.getRewriteTimings().get("RewriteConstants").getCount()>0);
+
+		CalculateGenomeScore score = new CalculateGenomeScore() {
+			public double calculateScore(Genome genome) {
+				return ((EncogProgram)genome).evaluate().toFloatValue();
+			}
+			public boolean shouldMinimize() {
+				return true;
+			}
+		};
+		PrgGenetic train = new PrgGenetic(pop, score);
+		// the score function is not replaced, it is timed where it is called
+		Assert.assertSame(score, train.getScoreFunction());
+		Assert.assertEquals(9.0, train.scoreGenome(prg), 0.0001);
+		Assert.assertEquals(1, profiler.getScoreTiming().getCount());
+		Assert.assertTrue(profiler.getReport().contains("RewriteConstants"));
+
+		profiler.clear();
+		Assert.assertEquals(0, profiler.getEvaluationCount());
+		Assert.assertEquals(0, profiler.getOpcodeProfiles().size());
+	}
+}
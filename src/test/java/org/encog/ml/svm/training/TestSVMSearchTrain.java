@@ -0,0 +1,256 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.svm.training;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.encog.EncogError;
+import org.encog.mathutil.libsvm.SharedKernelCache;
+import org.encog.mathutil.libsvm.svm;
+import org.encog.mathutil.libsvm.svm_problem;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.ml.svm.SVM;
+import org.encog.util.concurrency.EngineConcurrency;
+
+public class TestSVMSearchTrain extends TestCase {
+
+	/**
+	 * Counts the additional views opened and closed, and can make reading
+	 * them fail.
+	 */
+	private static class TrackedDataSet extends BasicMLDataSet {
+		private static final long serialVersionUID = 1L;
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		volatile boolean fail;
+
+		TrackedDataSet(MLDataSet data) {
+			super(data);
+		}
+
+		@Override
+		public MLDataSet openAdditional() {
+			this.opened.incrementAndGet();
+			return new BasicMLDataSet(getData()) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public Iterator<MLDataPair> iterator() {
+					if (TrackedDataSet.this.fail) {
+						throw new IllegalStateException("read failed");
+					}
+					return super.iterator();
+				}
+
+				@Override
+				public void close() {
+					TrackedDataSet.this.closed.incrementAndGet();
+				}
+			};
+		}
+	}
+
+	private MLDataSet createData() {
+		double[][] input = new double[40][1];
+		double[][] ideal = new double[40][1];
+		for (int i = 0; i < input.length; i++) {
+			input[i][0] = i / 40.0;
+			ideal[i][0] = Math.sin(input[i][0] * Math.PI * 2);
+		}
+		return new BasicMLDataSet(input, ideal);
+	}
+
+	private MLDataSet createClassData() {
+		double[][] input = new double[60][2];
+		double[][] ideal = new double[60][1];
+		for (int i = 0; i < input.length; i++) {
+			// three uneven classes, in runs, so an unstratified split skews
+			int c = (i < 10) ? 0 : ((i < 30) ? 1 : 2);
+			input[i][0] = c + ((i * 7) % 10) / 25.0;
+			input[i][1] = ((i * 3) % 10) / 10.0;
+			ideal[i][0] = c;
+		}
+		return new BasicMLDataSet(input, ideal);
+	}
+
+	private SVMSearchTrain createSearch(MLDataSet data, int threads) {
+		return createSearch(data, threads, true);
+	}
+
+	private SVMSearchTrain createSearch(MLDataSet data, int threads,
+			boolean regression) {
+		SVMSearchTrain train = new SVMSearchTrain(new SVM(data.getInputSize(),
+				regression), data);
+		train.setGammaBegin(1);
+		train.setGammaEnd(4);
+		train.setGammaStep(1);
+		train.setConstBegin(1);
+		train.setConstEnd(5);
+		train.setConstStep(2);
+		train.setThreadCount(threads);
+		return train;
+	}
+
+	public void testParallelMatchesSingle() {
+		MLDataSet data = createData();
+
+		SVMSearchTrain single = createSearch(data, 1);
+		while (!single.isTrainingDone()) {
+			single.iteration();
+		}
+
+		SVMSearchTrain parallel = createSearch(data, 4);
+		parallel.iteration();
+		Assert.assertTrue(parallel.isTrainingDone());
+
+		Assert.assertEquals(12, single.getCells().size());
+		Assert.assertEquals(12, parallel.getCells().size());
+		Assert.assertEquals(single.getBestGamma(), parallel.getBestGamma(), 0.0001);
+		Assert.assertEquals(single.getBestConst(), parallel.getBestConst(), 0.0001);
+		Assert.assertEquals(single.getError(), parallel.getError(), 0.0001);
+	}
+
+	public void testStratifiedFolds() {
+		MLDataSet data = createClassData();
+		SVMSearchTrain train = createSearch(data, 1, false);
+		svm_problem problem = EncodeSVMProblem.encode(data, 0);
+		int[] perm = new int[problem.l];
+		int[] foldStart = new int[5];
+		svm.svm_cross_validation_split(problem,
+				((SVM) train.getMethod()).getParams(), 4, perm, foldStart);
+
+		for (int f = 0; f < 4; f++) {
+			int[] counts = new int[3];
+			for (int i = foldStart[f]; i < foldStart[f + 1]; i++) {
+				counts[(int) problem.y[perm[i]]]++;
+			}
+			Assert.assertTrue(counts[0] >= 2 && counts[0] <= 3);
+			Assert.assertEquals(5, counts[1]);
+			Assert.assertTrue(counts[2] >= 7 && counts[2] <= 8);
+		}
+	}
+
+	public void testFoldedParallelMatchesSingle() {
+		MLDataSet data = createClassData();
+
+		SVMSearchTrain single = createSearch(data, 1, false);
+		single.setFold(4);
+		while (!single.isTrainingDone()) {
+			single.iteration();
+		}
+
+		SVMSearchTrain parallel = createSearch(data, 4, false);
+		parallel.setFold(4);
+		parallel.iteration();
+
+		Assert.assertEquals(single.getBestGamma(), parallel.getBestGamma(), 0.0001);
+		Assert.assertEquals(single.getBestConst(), parallel.getBestConst(), 0.0001);
+		Assert.assertEquals(single.getError(), parallel.getError(), 0.0001);
+	}
+
+	public void testRefineAndCancel() {
+		MLDataSet data = createData();
+		SVMSearchTrain train = createSearch(data, 0);
+		train.setFold(4);
+		train.setRefinementLevels(2);
+		train.setCancelMargin(0.5);
+
+		int iterations = 0;
+		while (!train.isTrainingDone()) {
+			train.iteration();
+			iterations++;
+		}
+
+		Assert.assertEquals(3, iterations);
+		Assert.assertTrue(train.getCells().size() > 12);
+		for (SVMSearchCell cell : train.getCells()) {
+			Assert.assertTrue(cell.getElapsed() >= 0);
+			if (!cell.isCancelled()) {
+				Assert.assertTrue(cell.getError() >= train.getError());
+			}
+		}
+		train.finishTraining();
+	}
+
+	public void testSharedKernelCache() {
+		MLDataSet data = createData();
+
+		SVMSearchTrain plain = createSearch(data, 4);
+		plain.iteration();
+
+		for (boolean offHeap : new boolean[] { false, true }) {
+			SharedKernelCache cache = new SharedKernelCache(1, offHeap);
+			SVMSearchTrain cached = createSearch(data, 4);
+			cached.setKernelCache(cache);
+			cached.iteration();
+
+			Assert.assertEquals(plain.getBestGamma(), cached.getBestGamma(), 0.0001);
+			Assert.assertEquals(plain.getBestConst(), cached.getBestConst(), 0.0001);
+			Assert.assertEquals(plain.getError(), cached.getError(), 0.001);
+			Assert.assertTrue(cache.getHits() > 0);
+			Assert.assertTrue(cache.getMisses() > 0);
+			Assert.assertTrue(cache.getUsed() <= cache.getBudget());
+
+			cached.finishTraining();
+			Assert.assertEquals(0, cache.getDatasetCount());
+			Assert.assertEquals(0, cache.getRowCount());
+			Assert.assertEquals(0, cache.getUsed());
+		}
+	}
+
+	public void testLaneViewsClosed() {
+		TrackedDataSet data = new TrackedDataSet(createData());
+		SVMSearchTrain train = createSearch(data, 4);
+		train.iteration();
+
+		Assert.assertEquals(12, train.getCells().size());
+		Assert.assertTrue(data.opened.get() <= 4);
+		Assert.assertEquals(data.opened.get(), data.closed.get());
+	}
+
+	public void testCellFailureReported() {
+		TrackedDataSet data = new TrackedDataSet(createData());
+		data.fail = true;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			SVMSearchTrain train = createSearch(data, 2);
+			train.setConcurrency(new EngineConcurrency(executor));
+			train.iteration();
+			Assert.fail("The failed cells should have been reported");
+		} catch (EncogError e) {
+			// expected
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(data.opened.get(), data.closed.get());
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.ml.train.metrics;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.encog.Encog;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLData;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.ml.data.buffer.BufferedMLDataSet;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.XOR;
+import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
+
+public class TestTrainingMetrics extends TestCase {
+
+	public void testHistogram() {
+		Histogram h = new Histogram();
+		for (int i = 1; i <= 1000; i++) {
+			h.record(i);
+		}
+		assertEquals(1000, h.getCount());
+		assertEquals(1, h.getMin());
+		assertEquals(1000, h.getMax());
+		assertEquals(500500, h.getSum());
+		assertEquals(500.5, h.getMean(), 0.0001);
+
+		// percentiles are accurate to within a power of two
+		long median = h.getPercentile(50);
+		assertTrue(median >= 500 && median < 1024);
+		assertEquals(1000, h.getPercentile(100));
+
+		h.clear();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getPercentile(50));
+	}
+
+	public void testPhases() {
+		MLDataSet training = new BasicMLDataSet(XOR.XOR_INPUT, XOR.XOR_IDEAL);
+		BasicNetwork network = XOR.createUnTrainedXOR();
+		ResilientPropagation train = new ResilientPropagation(network,
+				training);
+		train.setThreadCount(2);
+
+		HistogramMetrics metrics = new HistogramMetrics();
+		train.addMetrics(metrics);
+		train.iteration(10);
+
+		assertEquals(10, metrics.getIterationTime().getCount());
+		assertEquals(40, metrics.getRecords());
+		assertTrue(metrics.getRecordsPerSecond() > 0);
+		for (TrainingPhase phase : TrainingPhase.values()) {
+			assertEquals(10, metrics.getPhaseTime(phase).getCount());
+		}
+
+		train.removeMetrics(metrics);
+		train.iteration(5);
+		assertEquals(10, metrics.getIterationTime().getCount());
+	}
+
+	public void testPlugin() {
+		MLDataSet training = new BasicMLDataSet(XOR.XOR_INPUT, XOR.XOR_IDEAL);
+		BasicNetwork network = XOR.createUnTrainedXOR();
+		ResilientPropagation train = new ResilientPropagation(network,
+				training);
+		train.setThreadCount(1);
+		assertFalse(train.isMetricsEnabled());
+
+		HistogramMetrics metrics = new HistogramMetrics();
+		Encog.getInstance().registerPlugin(metrics);
+		try {
+			assertTrue(train.isMetricsEnabled());
+			train.iteration(5);
+		} finally {
+			Encog.getInstance().unregisterPlugin(metrics);
+		}
+		train.iteration(5);
+
+		assertEquals(5, metrics.getIterationTime().getCount());
+		// a single thread is never idle
+		assertEquals(0, metrics.getPhaseTime(TrainingPhase.IDLE).getCount());
+	}
+
+	public void testIO() throws Exception {
+		File file = File.createTempFile("metrics", ".egb");
+		file.delete();
+		file.deleteOnExit();
+		BufferedMLDataSet training = new BufferedMLDataSet(file);
+		training.beginLoad(2, 1);
+		for (int i = 0; i < XOR.XOR_INPUT.length; i++) {
+			training.add(new BasicMLData(XOR.XOR_INPUT[i]), new BasicMLData(
+					XOR.XOR_IDEAL[i]));
+		}
+		training.endLoad();
+
+		try {
+			BasicNetwork network = XOR.createUnTrainedXOR();
+			ResilientPropagation train = new ResilientPropagation(network,
+					training);
+			train.setThreadCount(1);
+			HistogramMetrics metrics = new HistogramMetrics();
+			train.addMetrics(metrics);
+			train.iteration(3);
+
+			// input, ideal and significance, for four records
+			assertEquals(3 * 4 * 4 * 8, metrics.getIO().getSum());
+		} finally {
+			training.close();
+		}
+	}
+
+	public void testJMX() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(
+				"org.encog:type=TrainingMetrics,name=\"xor\"");
+		JMXMetricsExporter exporter = new JMXMetricsExporter();
+		exporter.register("xor");
+		try {
+			assertTrue(server.isRegistered(name));
+			MLDataSet training = new BasicMLDataSet(XOR.XOR_INPUT,
+					XOR.XOR_IDEAL);
+			ResilientPropagation train = new ResilientPropagation(
+					XOR.createUnTrainedXOR(), training);
+			train.addMetrics(exporter);
+			train.iteration(4);
+			assertEquals(4L, server.getAttribute(name, "IterationCount"));
+			server.invoke(name, "clear", null, null);
+			assertEquals(0L, exporter.getIterationCount());
+		} finally {
+			exporter.unregister();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+}
@@ -24,6 +24,11 @@
 package org.encog.neural.data.buffer;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
@@ -31,6 +36,7 @@ import junit.framework.TestCase;
 import org.encog.ml.data.buffer.BinaryDataLoader;
 import org.encog.ml.data.buffer.codec.ArrayDataCODEC;
 import org.encog.ml.data.buffer.codec.CSVDataCODEC;
+import org.encog.ml.data.buffer.EncogEGBFile;
 import org.encog.neural.networks.XOR;
 import org.encog.util.csv.CSVFormat;
 
@@ -101,4 +107,82 @@ public class TestBinaryData extends TestCase {
 		
 	}
 	
+	private double[] readEGB(File file)
+	{
+		EncogEGBFile egb = new EncogEGBFile(file);
+		egb.open();
+		double[] result = new double[egb.getNumberOfRecords()*egb.getRecordCount()];
+		double[] record = new double[egb.getRecordCount()];
+		for(int i=0;i<egb.getNumberOfRecords();i++) {
+			egb.read(record);
+			System.arraycopy(record, 0, result, i*record.length, record.length);
+		}
+		egb.close();
+		return result;
+	}
+	
+	public void testParallelCSV() throws IOException
+	{
+		File csvFile = new File("encog.csv");
+		PrintWriter out = new PrintWriter(new FileWriter(csvFile));
+		out.print("a,b,c,sig\r\n");
+		for(int i=0;i<5000;i++) {
+			if( i%100==0 ) {
+				out.print("  \n");
+			}
+			out.print(i + ",\"" + (i*0.25) + "\"," + (i%2) + "," + (1.0/(i+1)));
+			out.print( (i%3==0)?"\r\n":((i%3==1)?"\n":"\r") );
+		}
+		out.close();
+		
+		File seqFile = new File("encog.bin");
+		File parFile = new File("xor.bin");
+		
+		CSVDataCODEC codec = new CSVDataCODEC(csvFile, CSVFormat.ENGLISH, true, 2, 1, true);
+		new BinaryDataLoader(codec).external2Binary(seqFile);
+		double[] expected = readEGB(seqFile);
+		Assert.assertEquals(5000*4, expected.length);
+		
+		for(int threads=2;threads<8;threads+=3) {
+			BinaryDataLoader loader = new BinaryDataLoader(codec);
+			loader.setThreadCount(threads);
+			loader.external2Binary(parFile);
+			Assert.assertTrue(Arrays.equals(expected, readEGB(parFile)));
+		}
+	}
+	
+	public void testShuffleEGB()
+	{
+		double[][] input = new double[500][2];
+		double[][] ideal = new double[500][1];
+		for(int i=0;i<input.length;i++) {
+			input[i][0] = i;
+			input[i][1] = -i;
+			ideal[i][0] = i*2;
+		}
+		File file = new File("encog.bin");
+		new BinaryDataLoader(new ArrayDataCODEC(input,ideal)).external2Binary(file);
+		
+		EncogEGBFile egb = new EncogEGBFile(file);
+		egb.open();
+		egb.shuffle(new Random(42));
+		egb.close();
+		
+		double[] data = readEGB(file);
+		boolean[] seen = new boolean[input.length];
+		int moved = 0;
+		for(int i=0;i<input.length;i++) {
+			int row = (int)data[i*4];
+			Assert.assertFalse(seen[row]);
+			seen[row] = true;
+			// each record is moved whole
+			Assert.assertEquals(-row, data[i*4+1], 0.0);
+			Assert.assertEquals(row*2, data[i*4+2], 0.0);
+			if( row!=i ) {
+				moved++;
+			}
+		}
+		Assert.assertTrue(moved > 400);
+	}
+	
 }
@@ -30,6 +30,7 @@ import junit.framework.TestCase;
 import org.encog.ml.data.basic.BasicMLData;
 import org.encog.ml.data.buffer.BufferedMLDataSet;
 import org.encog.neural.networks.XOR;
+import org.encog.util.obj.ObjectCloner;
 
 public class TestBufferedNeuralDataSet extends TestCase {
 
@@ -51,4 +52,27 @@ public class TestBufferedNeuralDataSet extends TestCase {
 		XOR.testXORDataSet(set);
 		
 	}	
+	
+	public void testSerialize() throws Exception 
+	{
+		new File(FILENAME).delete();
+		BufferedMLDataSet set = new BufferedMLDataSet(new File(FILENAME));
+		set.beginLoad(2, 1);
+		for(int i=0;i<XOR.XOR_INPUT.length;i++) {
+			BasicMLData input = new BasicMLData(XOR.XOR_INPUT[i]);
+			BasicMLData ideal = new BasicMLData(XOR.XOR_IDEAL[i]);
+			set.add(input,ideal);
+		}
+		set.endLoad();
+		set.close();
+		
+		BufferedMLDataSet copy = (BufferedMLDataSet)ObjectCloner.deepCopy(set);
+		assertEquals(0, copy.getBytesRead());
+		XOR.testXORDataSet(copy);
+		assertTrue(copy.getBytesRead() > 0);
+		
+		BufferedMLDataSet additional = copy.openAdditional();
+		additional.getRecordCount();
+		copy.close();
+	}
 }
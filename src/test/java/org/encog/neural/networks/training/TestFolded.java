@@ -23,21 +23,55 @@
  */
 package org.encog.neural.networks.training;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
 import junit.framework.TestCase;
 
 import org.encog.ml.MLRegression;
+import org.encog.ml.data.MLDataPair;
 import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.ml.data.folded.FoldView;
 import org.encog.ml.data.folded.FoldedDataSet;
 import org.encog.ml.train.MLTrain;
 import org.encog.neural.networks.BasicNetwork;
 import org.encog.neural.networks.NetworkUtil;
 import org.encog.neural.networks.XOR;
 import org.encog.neural.networks.training.cross.CrossValidationKFold;
+import org.encog.neural.networks.training.cross.FoldTrainFactory;
 import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
+import org.encog.util.concurrency.EngineConcurrency;
 import org.encog.util.simple.EncogUtility;
 import org.junit.Test;
 
 public class TestFolded extends TestCase {
+
+	private static class TrackedDataSet extends BasicMLDataSet {
+		private static final long serialVersionUID = 1L;
+		final AtomicInteger opened = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+
+		TrackedDataSet(MLDataSet data) {
+			super(data);
+		}
+
+		@Override
+		public MLDataSet openAdditional() {
+			this.opened.incrementAndGet();
+			return new BasicMLDataSet(getData()) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public void close() {
+					TrackedDataSet.this.closed.incrementAndGet();
+				}
+			};
+		}
+	}
+
 	@Test
 	public void testRPROP() throws Throwable
 	{
@@ -54,4 +88,132 @@ public class TestFolded extends TestCase {
 		XOR.verifyXOR((MLRegression)trainFolded.getMethod(), 0.2);
 		
 	}
+
+	@Test
+	public void testFoldViews() {
+		MLDataSet trainingData = XOR.createNoisyXORDataSet(10);
+		final FoldedDataSet folded = new FoldedDataSet(trainingData);
+		folded.fold(3);
+
+		long total = 0;
+		for (int i = 0; i < folded.getNumFolds(); i++) {
+			FoldView validation = folded.createValidationView(i);
+			FoldView training = folded.createTrainingView(i);
+			Assert.assertEquals(trainingData.getRecordCount(),
+					validation.getRecordCount() + training.getRecordCount());
+			total += validation.getRecordCount();
+
+			MLDataPair first = validation.get(0);
+			Assert.assertEquals(trainingData.get((int) validation.getFoldOffset())
+					.getInput().getData(0), first.getInput().getData(0));
+		}
+		Assert.assertEquals(trainingData.getRecordCount(), total);
+	}
+
+	@Test
+	public void testConcurrentRPROP() throws Throwable {
+		MLDataSet trainingData = XOR.createNoisyXORDataSet(10);
+
+		BasicNetwork network = NetworkUtil.createXORNetworkUntrained();
+
+		final FoldedDataSet folded = new FoldedDataSet(trainingData);
+		final CrossValidationKFold trainFolded = new CrossValidationKFold(
+				network, folded, 4, new FoldTrainFactory() {
+					public MLTrain create(BasicNetwork net, MLDataSet training) {
+						return new ResilientPropagation(net, training);
+					}
+				});
+		trainFolded.setThreadCount(4);
+
+		EncogUtility.trainToError(trainFolded, 0.2);
+
+		XOR.verifyXOR((MLRegression) trainFolded.getMethod(), 0.2);
+	}
+
+	private void trainOnSmallPool(int poolSize, boolean shared)
+			throws Throwable {
+		MLDataSet trainingData = XOR.createNoisyXORDataSet(10);
+		BasicNetwork network = NetworkUtil.createXORNetworkUntrained();
+		final FoldedDataSet folded = new FoldedDataSet(trainingData);
+		final CrossValidationKFold trainFolded = new CrossValidationKFold(
+				network, folded, 4, new FoldTrainFactory() {
+					public MLTrain create(BasicNetwork net, MLDataSet training) {
+						return new ResilientPropagation(net, training);
+					}
+				});
+		// more folds at once than pool threads, each fold multithreaded
+		trainFolded.setThreadCount(4);
+		trainFolded.setInnerThreadCount(2);
+
+		ExecutorService executor = null;
+		if (shared) {
+			EngineConcurrency.getInstance().setThreadCount(poolSize);
+		} else {
+			executor = Executors.newFixedThreadPool(poolSize);
+			trainFolded.setConcurrency(new EngineConcurrency(executor));
+		}
+
+		final Throwable[] error = new Throwable[1];
+		Thread t = new Thread() {
+			public void run() {
+				try {
+					trainFolded.iteration(5);
+				} catch (Throwable ex) {
+					error[0] = ex;
+				}
+			}
+		};
+		t.setDaemon(true);
+		try {
+			t.start();
+			t.join(60000);
+			Assert.assertFalse("Training deadlocked on a pool of " + poolSize,
+					t.isAlive());
+			if (error[0] != null) {
+				throw error[0];
+			}
+		} finally {
+			if (shared) {
+				EngineConcurrency.getInstance().setThreadCount(0);
+			} else {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	public void testFoldViewsClosed() {
+		TrackedDataSet trainingData = new TrackedDataSet(
+				XOR.createNoisyXORDataSet(10));
+		BasicNetwork network = NetworkUtil.createXORNetworkUntrained();
+		final FoldedDataSet folded = new FoldedDataSet(trainingData);
+		final CrossValidationKFold trainFolded = new CrossValidationKFold(
+				network, folded, 4, new FoldTrainFactory() {
+					public MLTrain create(BasicNetwork net, MLDataSet training) {
+						return new ResilientPropagation(net, training);
+					}
+				});
+		trainFolded.setThreadCount(1);
+
+		trainFolded.iteration(2);
+		Assert.assertEquals(8, trainingData.opened.get());
+		Assert.assertEquals(0, trainingData.closed.get());
+
+		trainFolded.finishTraining();
+		Assert.assertEquals(8, trainingData.closed.get());
+
+		// training again opens a fresh set of views
+		trainFolded.iteration();
+		trainFolded.finishTraining();
+		Assert.assertEquals(16, trainingData.opened.get());
+		Assert.assertEquals(16, trainingData.closed.get());
+	}
+
+	@Test
+	public void testConcurrentSmallPool() throws Throwable {
+		for (int poolSize = 1; poolSize <= 4; poolSize++) {
+			trainOnSmallPool(poolSize, false);
+			trainOnSmallPool(poolSize, true);
+		}
+	}
 }
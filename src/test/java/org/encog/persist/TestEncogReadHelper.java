@@ -0,0 +1,105 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class TestEncogReadHelper extends TestCase {
+	
+	public static final String FILE = "encog,BasicNetwork,java,3.1.0,1,0\n"
+		+ "[A]\n"
+		+ "[A:ROWS]\n"
+		+ "// comment\n"
+		+ "r,1\n"
+		+ "\n"
+		+ "r,2\n"
+		+ "[A:SKIPPED]\n"
+		+ "s,1\n"
+		+ "s,2\n"
+		+ "[A:PARAMS]\n"
+		+ "x=1\n"
+		+ "y=##0\n"
+		+ "##double#3\n"
+		+ "1,2,3\n"
+		+ "##end\n";
+	
+	private EncogReadHelper create() throws UnsupportedEncodingException
+	{
+		ByteArrayInputStream is = new ByteArrayInputStream(FILE.getBytes("UTF-8"));
+		// skip the header line, as EncogDirectoryPersistence does
+		while( is.read()!='\n' );
+		return new EncogReadHelper(is);
+	}
+	
+	public void testStream() throws UnsupportedEncodingException
+	{
+		EncogReadHelper in = create();
+		
+		Assert.assertTrue(in.nextSection());
+		Assert.assertEquals("A", in.getSectionName());
+		Assert.assertEquals("", in.getSubSectionName());
+		Assert.assertNull(in.nextRow());
+		
+		Assert.assertTrue(in.nextSection());
+		Assert.assertEquals("ROWS", in.getSubSectionName());
+		Assert.assertEquals("r,1", in.nextRow());
+		Assert.assertEquals("r,2", in.nextRow());
+		Assert.assertNull(in.nextRow());
+		Assert.assertNull(in.nextRow());
+		
+		// rows that are not read are skipped
+		Assert.assertTrue(in.nextSection());
+		Assert.assertEquals("SKIPPED", in.getSubSectionName());
+		Assert.assertTrue(in.nextSection());
+		Assert.assertEquals("PARAMS", in.getSubSectionName());
+		
+		EncogFileSection section = in.readSection();
+		Assert.assertEquals(2, section.getLines().size());
+		double[] d = section.parseDoubleArray(section.parseParams(), "y");
+		Assert.assertEquals(3, d.length);
+		Assert.assertEquals(3.0, d[2], 0.0);
+		
+		Assert.assertFalse(in.nextSection());
+		in.close();
+	}
+	
+	public void testReadNextSection() throws UnsupportedEncodingException
+	{
+		EncogReadHelper in = create();
+		int count = 0;
+		EncogFileSection section;
+		while( (section = in.readNextSection())!=null ) {
+			if( section.getSubSectionName().equals("SKIPPED")) {
+				Assert.assertEquals("s,2", section.getLines().get(1));
+			}
+			count++;
+		}
+		Assert.assertEquals(4, count);
+		in.close();
+	}
+}
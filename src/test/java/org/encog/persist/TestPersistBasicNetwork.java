@@ -25,11 +25,14 @@ package org.encog.persist;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import junit.framework.Assert;
 import junit.framework.TestCase;
 
 import org.encog.engine.network.activation.ActivationSigmoid;
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.basic.BasicMLData;
 import org.encog.neural.networks.BasicNetwork;
 import org.encog.neural.networks.XOR;
 import org.encog.neural.networks.layers.BasicLayer;
@@ -107,6 +110,64 @@ public class TestPersistBasicNetwork extends TestCase {
 		Assert.assertTrue(d<0.01);
 	}
 	
+	public void testPersistBinary()
+	{
+		BasicNetwork network = create();
+
+		EncogDirectoryPersistence.saveObject(EG_FILENAME, network, true);
+		BasicNetwork network2 = (BasicNetwork)EncogDirectoryPersistence.loadObject(EG_FILENAME);
+
+		validate(network2);
+		Assert.assertEquals("test2", network2.getProperties().get("test"));
+		Assert.assertEquals("BasicNetwork", new EncogDirectoryPersistence(
+				EG_FILENAME.getParentFile()).getEncogType(EG_FILENAME.getName()));
+	}
+	
+	public void testPersistLargeBinary()
+	{
+		BasicNetwork network = new BasicNetwork();
+		network.addLayer(new BasicLayer(null,true,200));
+		network.addLayer(new BasicLayer(new ActivationSigmoid(),true,200));
+		network.addLayer(new BasicLayer(new ActivationSigmoid(),false,200));
+		network.getStructure().finalizeStructure();
+		network.reset();
+
+		EncogDirectoryPersistence.saveObject(EG_FILENAME, network, true);
+		BasicNetwork network2 = (BasicNetwork)EncogDirectoryPersistence.loadObject(EG_FILENAME);
+
+		// binary weights are stored exactly
+		Assert.assertTrue(Arrays.equals(network.getStructure().getFlat().getWeights(), 
+				network2.getStructure().getFlat().getWeights()));
+	}
+	
+	public void testPersistMappedBinary()
+	{
+		BasicNetwork network = new BasicNetwork();
+		network.addLayer(new BasicLayer(null,true,100));
+		network.addLayer(new BasicLayer(new ActivationSigmoid(),true,100));
+		network.addLayer(new BasicLayer(new ActivationSigmoid(),false,10));
+		network.getStructure().finalizeStructure();
+		network.reset();
+
+		EncogDirectoryPersistence.saveObject(EG_FILENAME, network, true);
+		BasicNetwork network2 = (BasicNetwork)EncogDirectoryPersistence.loadObject(EG_FILENAME, true);
+		Assert.assertTrue(network2.getStructure().getFlat().isWeightsMapped());
+
+		// compute reads the mapped weights
+		MLData input = new BasicMLData(100);
+		for(int i=0;i<input.size();i++) {
+			input.setData(i, i/100.0);
+		}
+		Assert.assertTrue(Arrays.equals(network.compute(input).getData(), 
+				network2.compute(input).getData()));
+		Assert.assertTrue(network2.getStructure().getFlat().isWeightsMapped());
+
+		// asking for the weights copies them out of the mapping
+		Assert.assertTrue(Arrays.equals(network.getStructure().getFlat().getWeights(), 
+				network2.getStructure().getFlat().getWeights()));
+		Assert.assertFalse(network2.getStructure().getFlat().isWeightsMapped());
+	}
+	
 	public void testPersistSerial() throws IOException, ClassNotFoundException
 	{
 		BasicNetwork network = create();
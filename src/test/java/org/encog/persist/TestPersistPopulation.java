@@ -73,6 +73,16 @@ public class TestPersistPopulation extends TestCase {
 		validate(pop2);
 	}
 	
+	public void testPersistBinary()
+	{
+		Population pop = generate();
+
+		EncogDirectoryPersistence.saveObject(EG_FILENAME, pop, true);
+		NEATPopulation pop2 = (NEATPopulation)EncogDirectoryPersistence.loadObject(EG_FILENAME);
+		
+		validate(pop2);
+	}
+	
 	public void testPersistSerial() throws IOException, ClassNotFoundException
 	{
 		NEATPopulation pop = generate();
@@ -63,6 +63,15 @@ public class TestPersistSVM extends TestCase {
 		validate(network2);
 	}
 	
+	public void testPersistBinary()
+	{
+		SVM network = create();
+
+		EncogDirectoryPersistence.saveObject(EG_FILENAME, network, true);
+		SVM network2 = (SVM)EncogDirectoryPersistence.loadObject(EG_FILENAME);
+		validate(network2);
+	}
+	
 	public void testPersistSerial() throws IOException, ClassNotFoundException
 	{
 		SVM network = create();
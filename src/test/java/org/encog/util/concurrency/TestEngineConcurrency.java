@@ -0,0 +1,211 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.util.concurrency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.encog.EncogError;
+import org.encog.ml.bayesian.BayesianEvent;
+import org.encog.ml.bayesian.BayesianNetwork;
+import org.encog.ml.bayesian.EventType;
+import org.encog.ml.bayesian.query.sample.LikelihoodWeightingQuery;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataSet;
+import org.encog.neural.networks.XOR;
+import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
+
+public class TestEngineConcurrency extends TestCase {
+
+	private ThreadPoolExecutor createExecutor(int threads) {
+		return new ThreadPoolExecutor(threads, threads, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+	}
+
+	public void testSuppliedExecutor() {
+		ThreadPoolExecutor executor = createExecutor(2);
+		try {
+			EngineConcurrency concurrency = new EngineConcurrency(executor);
+			final AtomicInteger count = new AtomicInteger();
+			TaskGroup group = concurrency.createTaskGroup();
+			for (int i = 0; i < 20; i++) {
+				concurrency.processTask(new EngineTask() {
+					public void run() {
+						count.incrementAndGet();
+					}
+				}, group);
+			}
+			group.waitForComplete();
+			assertEquals(20, count.get());
+
+			// the executor belongs to the caller
+			concurrency.shutdown(10);
+			assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testQuota() throws InterruptedException {
+		ThreadPoolExecutor executor = createExecutor(1);
+		try {
+			EngineConcurrency concurrency = new EngineConcurrency(executor);
+			concurrency.setTaskQuota(1);
+			assertEquals(1, concurrency.getTaskQuota());
+
+			final CountDownLatch release = new CountDownLatch(1);
+			final Thread caller = Thread.currentThread();
+			final Thread[] ranOn = new Thread[2];
+			TaskGroup group = concurrency.createTaskGroup();
+			concurrency.processTask(new EngineTask() {
+				public void run() {
+					ranOn[0] = Thread.currentThread();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new EncogError(e);
+					}
+				}
+			}, group);
+			// over quota, this runs on the calling thread
+			concurrency.processTask(new EngineTask() {
+				public void run() {
+					ranOn[1] = Thread.currentThread();
+				}
+			}, group);
+			assertSame(caller, ranOn[1]);
+
+			release.countDown();
+			group.waitForComplete();
+			assertNotSame(caller, ranOn[0]);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testThreadCountZero() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int expected = processors > 1 ? processors + 1 : processors;
+
+		EngineConcurrency owned = new EngineConcurrency();
+		try {
+			owned.setThreadCount(0);
+			assertEquals(expected, owned.getThreadCount());
+			assertEquals(expected, owned.getPoolSize());
+		} finally {
+			owned.shutdown(10);
+		}
+
+		ThreadPoolExecutor executor = createExecutor(1);
+		try {
+			EngineConcurrency supplied = new EngineConcurrency(executor);
+			supplied.setThreadCount(0);
+			assertEquals(expected, supplied.getThreadCount());
+			assertEquals(expected, supplied.getTaskQuota());
+
+			supplied.setThreadCount(2);
+			assertEquals(2, supplied.getTaskQuota());
+			supplied.setTaskQuota(0);
+			assertEquals(0, supplied.getTaskQuota());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testErrors() {
+		ThreadPoolExecutor executor = createExecutor(1);
+		try {
+			EngineConcurrency concurrency = new EngineConcurrency(executor);
+			TaskGroup group = concurrency.createTaskGroup();
+			concurrency.processTask(new EngineTask() {
+				public void run() {
+					throw new IllegalStateException("test");
+				}
+			}, group);
+			group.waitForComplete();
+
+			// the shared instance is not affected
+			EngineConcurrency.getInstance().checkError();
+
+			try {
+				concurrency.checkError();
+				fail("Error should have been reported.");
+			} catch (EncogError e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testPropagation() {
+		ThreadPoolExecutor executor = createExecutor(2);
+		try {
+			MLDataSet training = new BasicMLDataSet(XOR.XOR_INPUT,
+					XOR.XOR_IDEAL);
+			ResilientPropagation train = new ResilientPropagation(
+					XOR.createUnTrainedXOR(), training);
+			train.setThreadCount(2);
+			train.setConcurrency(new EngineConcurrency(executor));
+			train.iteration(10);
+			assertEquals(20, executor.getTaskCount());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testSamplingQuery() {
+		BayesianNetwork network = new BayesianNetwork();
+		BayesianEvent a = network.createEvent("a");
+		BayesianEvent b = network.createEvent("b");
+		network.createDependency(a, b);
+		network.finalizeStructure();
+		a.getTable().addLine(0.5, true);
+		b.getTable().addLine(0.8, true, true);
+		b.getTable().addLine(0.1, true, false);
+		network.validate();
+
+		ThreadPoolExecutor executor = createExecutor(2);
+		try {
+			LikelihoodWeightingQuery query = new LikelihoodWeightingQuery(
+					network);
+			query.defineEventType(b, EventType.Evidence);
+			query.defineEventType(a, EventType.Outcome);
+			query.setEventValue(b, true);
+			query.setEventValue(a, true);
+			query.setThreadCount(3);
+			query.setConcurrency(new EngineConcurrency(executor));
+			query.execute();
+			assertEquals(3, executor.getTaskCount());
+			assertEquals(0.8 / 0.9, query.getProbability(), 0.02);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
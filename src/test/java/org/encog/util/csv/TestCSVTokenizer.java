@@ -0,0 +1,130 @@
+/*
+ * Encog(tm) Core v3.2 - Java Version
+ * http://www.heatonresearch.com/encog/
+ * http://code.google.com/p/encog-java/
+ 
+ * Copyright 2008-2012 Heaton Research, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *   
+ * For more information on Heaton Research copyrights, licenses 
+ * and trademarks visit:
+ * http://www.heatonresearch.com/copyright
+ */
+package org.encog.util.csv;
+
+import java.io.StringReader;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+public class TestCSVTokenizer extends TestCase {
+	
+	public static final String[] LINES = {
+		"one,1,2.5",
+		"  a , \"b,c\" ,\"d\"\"e\", ",
+		"\"x\",,y",
+		",",
+		"-0.125,1E5,1E-3",
+		"1.,.5,007,-",
+		"12345678901234567890,1.5e3,1,234",
+		"\"\",\"  \", z  " };
+	
+	public static final String[] NUMBERS = {
+		"0", "-0", "1", "-1", "2.5", "-2.5", ".5", "5.", "007", "0.1",
+		"0.30000000000000004", "123456789012345", "1234567890123456",
+		"1E5", "1E-5", "2.5E10", "1E22", "1E23", "1E-300", "1E400", "1E+5",
+		"1e5", " 3.25 ", "1,5", "1.5", "-1,25", "12abc", "9007199254740993",
+		"4.35", "0.000001", "1.7976931348623157E308" };
+	
+	public void testSplit()
+	{
+		StringBuilder text = new StringBuilder();
+		for(String line: LINES) {
+			text.append(line);
+			text.append("\r\n");
+		}
+		
+		CSVTokenizer tok = new CSVTokenizer(new StringReader(text.toString()), CSVFormat.EG_FORMAT);
+		ParseCSVLine parse = new ParseCSVLine(CSVFormat.EG_FORMAT);
+		for(String line: LINES) {
+			Assert.assertTrue(tok.next());
+			List<String> expected = parse.parse(line);
+			Assert.assertEquals(expected.size(), tok.getFieldCount());
+			for(int i=0;i<expected.size();i++) {
+				Assert.assertEquals(expected.get(i), tok.getString(i));
+				Assert.assertEquals(expected.get(i).length(), tok.getLength(i));
+			}
+		}
+		Assert.assertFalse(tok.next());
+	}
+	
+	public void testLineEnds()
+	{
+		CSVTokenizer tok = new CSVTokenizer(new StringReader("a\rb\n\r\n \nc\r\nd"), CSVFormat.EG_FORMAT);
+		Assert.assertTrue(tok.next());
+		Assert.assertEquals("a", tok.getString(0));
+		Assert.assertTrue(tok.next());
+		Assert.assertEquals("b", tok.getString(0));
+		Assert.assertTrue(tok.next());
+		Assert.assertEquals("c", tok.getString(0));
+		Assert.assertTrue(tok.next());
+		Assert.assertEquals("d", tok.getString(0));
+		Assert.assertFalse(tok.next());
+	}
+	
+	private void checkNumbers(CSVFormat format)
+	{
+		for(String str: NUMBERS) {
+			CSVTokenizer tok = new CSVTokenizer(new StringReader("\"" + str + "\""), format);
+			Assert.assertTrue(tok.next());
+			Double expected;
+			try {
+				expected = format.parse(str);
+			} catch(CSVError e) {
+				expected = null;
+			}
+			
+			try {
+				double d = tok.getDouble(0);
+				Assert.assertNotNull(str, expected);
+				Assert.assertEquals(str, Double.doubleToLongBits(expected), Double.doubleToLongBits(d));
+			} catch(CSVError e) {
+				Assert.assertNull(str, expected);
+			}
+		}
+	}
+	
+	public void testDecimalPoint()
+	{
+		checkNumbers(CSVFormat.DECIMAL_POINT);
+	}
+	
+	public void testDecimalComma()
+	{
+		checkNumbers(CSVFormat.DECIMAL_COMMA);
+	}
+	
+	public void testMissing()
+	{
+		CSVTokenizer tok = new CSVTokenizer(new StringReader("?, ,1,\" ? \",NaN"), CSVFormat.EG_FORMAT);
+		Assert.assertTrue(tok.next());
+		Assert.assertTrue(tok.isMissing(0));
+		Assert.assertTrue(tok.isMissing(1));
+		Assert.assertFalse(tok.isMissing(2));
+		Assert.assertTrue(tok.isMissing(3));
+		Assert.assertTrue(Double.isNaN(tok.getDouble(0)));
+		Assert.assertTrue(Double.isNaN(tok.getDouble(4)));
+	}
+}